@@ -12,15 +12,32 @@ import com.yazlab.kargo.repository.StationRepository;
 import com.yazlab.kargo.repository.TripRunRepository;
 import com.yazlab.kargo.repository.UserRepository;
 import com.yazlab.kargo.repository.VehicleRepository;
+import com.yazlab.kargo.service.DistanceMatrix;
+import com.yazlab.kargo.service.DistanceMatrixService;
+import com.yazlab.kargo.service.NearestNeighbors;
+import com.yazlab.kargo.service.PathCodec;
+import com.yazlab.kargo.service.PathFormat;
+import com.yazlab.kargo.service.PathSimplifier;
+import com.yazlab.kargo.service.PlanningJob;
+import com.yazlab.kargo.service.PlanningJobService;
 import com.yazlab.kargo.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 @RestController
@@ -33,6 +50,8 @@ public class CargoController {
     @Autowired private VehicleRepository vehicleRepository;
     @Autowired private TripRunRepository tripRunRepository;
     @Autowired private RouteService routeService;
+    @Autowired private DistanceMatrixService distanceMatrixService;
+    @Autowired private PlanningJobService planningJobService;
 
     private static final double KOU_LAT = 40.82224624200172;
     private static final double KOU_LON = 29.92156586537241;
@@ -44,9 +63,8 @@ public class CargoController {
 
 
     private static final int NEIGHBOR_K = 12;
-
-
-    private static final boolean ASSUME_SYMMETRIC_DISTANCE = true;
+    // paralel komşu aramasında görev başına istasyon
+    private static final int NEIGHBOR_CHUNK = 256;
 
 
     private static final int MAX_TOTAL_ROUTES = 500;
@@ -54,84 +72,91 @@ public class CargoController {
     private final ObjectMapper mapper = new ObjectMapper();
 
 
-    private static final Map<PairKey, Double> DIST_CACHE = new ConcurrentHashMap<>();
-    private static final Map<PairKey, List<String>> PATH_CACHE = new ConcurrentHashMap<>();
+    // [lat0, lon0, lat1, lon1, ...]; ham bacaklar tolerans 0 ile, seyreltilmişler kendi toleranslarıyla
+    private static final Map<PairKey, double[]> PATH_CACHE = new ConcurrentHashMap<>();
+    // PATH_CACHE'in hangi yol ağı sürümüne ait olduğu; ağ yeniden yüklenince önbellek boşaltılır
+    private static volatile long pathCacheNetwork = -1;
 
     private static final class PairKey {
         final long a;
         final long b;
-        PairKey(long a, long b) { this.a = a; this.b = b; }
+        final double tolerance;
+        PairKey(long a, long b, double tolerance) { this.a = a; this.b = b; this.tolerance = tolerance; }
         @Override public boolean equals(Object o) {
             if (this == o) return true;
             if (!(o instanceof PairKey)) return false;
             PairKey p = (PairKey) o;
-            return a == p.a && b == p.b;
+            return a == p.a && b == p.b && Double.compare(tolerance, p.tolerance) == 0;
         }
-        @Override public int hashCode() { return Objects.hash(a, b); }
+        @Override public int hashCode() { return Objects.hash(a, b, tolerance); }
     }
 
     /** fromId/toId: 0 = HUB, diğerleri stationId */
-    private double distKm(long fromId, long toId, Map<Long, Station> stationMap) {
-        PairKey key = new PairKey(fromId, toId);
-        Double cached = DIST_CACHE.get(key);
-        if (cached != null) return cached;
-
-        double lat1, lon1, lat2, lon2;
+    private double distKm(long fromId, long toId, DistanceMatrix matrix) {
+        return matrix.distanceKm(fromId, toId);
+    }
 
-        if (fromId == 0) { lat1 = KOU_LAT; lon1 = KOU_LON; }
-        else {
-            Station s = stationMap.get(fromId);
-            if (s == null) return Double.MAX_VALUE / 4;
-            lat1 = s.getLatitude(); lon1 = s.getLongitude();
-        }
+    private static Station hubStation() {
+        Station hub = new Station();
+        hub.setId(0L);
+        hub.setName(HUB_NAME);
+        hub.setLatitude(KOU_LAT);
+        hub.setLongitude(KOU_LON);
+        return hub;
+    }
 
-        if (toId == 0) { lat2 = KOU_LAT; lon2 = KOU_LON; }
-        else {
-            Station s = stationMap.get(toId);
-            if (s == null) return Double.MAX_VALUE / 4;
-            lat2 = s.getLatitude(); lon2 = s.getLongitude();
+    /** Yol ağı sürümü değiştiyse PATH_CACHE'i boşaltır; güncel sürümü döner. */
+    private long syncPathCache() {
+        long version = routeService.getNetworkVersion();
+        if (version != pathCacheNetwork) {
+            synchronized (PATH_CACHE) {
+                if (version != pathCacheNetwork) {
+                    PATH_CACHE.clear();
+                    pathCacheNetwork = version;
+                }
+            }
         }
-
-        double d = routeService.getRealRoadDistance(lat1, lon1, lat2, lon2);
-        DIST_CACHE.put(key, d);
-        if (ASSUME_SYMMETRIC_DISTANCE) DIST_CACHE.put(new PairKey(toId, fromId), d);
-        return d;
+        return version;
     }
 
-    private List<String> pathCoords(long fromId, long toId, Map<Long, Station> stationMap) {
-        PairKey key = new PairKey(fromId, toId);
-        List<String> cached = PATH_CACHE.get(key);
+    /** Bacağın yolu, tolerance > 0 ise seyreltilmiş; ikisi de bacak başına önbellekte tutulur. */
+    private double[] pathCoords(long fromId, long toId, Map<Long, Station> stationMap, double tolerance) {
+        if (tolerance <= 0) return pathCoords(fromId, toId, stationMap);
+
+        long version = syncPathCache();
+        PairKey key = new PairKey(fromId, toId, tolerance);
+        double[] cached = PATH_CACHE.get(key);
         if (cached != null) return cached;
 
-        double lat1, lon1, lat2, lon2;
+        double[] coords = PathSimplifier.simplify(pathCoords(fromId, toId, stationMap), tolerance);
+        if (routeService.getNetworkVersion() == version) PATH_CACHE.put(key, coords);
+        return coords;
+    }
 
-        if (fromId == 0) { lat1 = KOU_LAT; lon1 = KOU_LON; }
-        else {
-            Station s = stationMap.get(fromId);
-            if (s == null) return Collections.emptyList();
-            lat1 = s.getLatitude(); lon1 = s.getLongitude();
-        }
+    private double[] pathCoords(long fromId, long toId, Map<Long, Station> stationMap) {
+        long version = syncPathCache();
+        PairKey key = new PairKey(fromId, toId, 0.0);
+        double[] cached = PATH_CACHE.get(key);
+        if (cached != null) return cached;
 
-        if (toId == 0) { lat2 = KOU_LAT; lon2 = KOU_LON; }
-        else {
-            Station s = stationMap.get(toId);
-            if (s == null) return Collections.emptyList();
-            lat2 = s.getLatitude(); lon2 = s.getLongitude();
-        }
+        // istasyonların kayıtlı snap'i kullanılır; hub kayıtlı değil, her seferinde snap edilir
+        Station from = (fromId == 0) ? hubStation() : stationMap.get(fromId);
+        Station to = (toId == 0) ? hubStation() : stationMap.get(toId);
+        if (from == null || to == null) return new double[0];
 
-        List<String> coords = routeService.getShortestPath(lat1, lon1, lat2, lon2);
-        PATH_CACHE.put(key, coords);
+        double[] coords = routeService.getRoute(from, to).getCoordinates();
+        if (routeService.getNetworkVersion() == version) PATH_CACHE.put(key, coords);
         return coords;
     }
 
 
-    private double totalRouteDistanceKm(List<Long> route, Map<Long, Station> stationMap) {
+    private double totalRouteDistanceKm(List<Long> route, DistanceMatrix matrix) {
         if (route == null || route.isEmpty()) return 0.0;
         double sum = 0.0;
         for (int i = 0; i < route.size() - 1; i++) {
-            sum += distKm(route.get(i), route.get(i + 1), stationMap);
+            sum += distKm(route.get(i), route.get(i + 1), matrix);
         }
-        sum += distKm(route.get(route.size() - 1), 0, stationMap);
+        sum += distKm(route.get(route.size() - 1), 0, matrix);
         return sum;
     }
 
@@ -236,7 +261,12 @@ public class CargoController {
     }
 
     @PostMapping("/runs/{id}/rerun")
-    public ResponseEntity<Map<String, Object>> rerunSimulation(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> rerunSimulation(
+            @PathVariable Long id,
+            @RequestParam(name = "pathFormat", required = false) String pathFormatParam,
+            @RequestParam(name = "simplify", required = false) Double simplifyMeters,
+            @RequestParam(name = "zoom", required = false) Integer zoom
+    ) {
         Optional<TripRun> runOpt = tripRunRepository.findById(id);
         if (runOpt.isEmpty()) return ResponseEntity.notFound().build();
         try {
@@ -245,20 +275,123 @@ public class CargoController {
             Double rental = params.get("rentalCostPerVehicle") != null ? ((Number) params.get("rentalCostPerVehicle")).doubleValue() : null;
             Integer maxV = params.get("maxVehicles") != null ? ((Number) params.get("maxVehicles")).intValue() : null;
             Integer rentCap = params.get("rentalCapacityKg") != null ? ((Number) params.get("rentalCapacityKg")).intValue() : null;
-            return deliverAll(fuel, rental, maxV, rentCap);
+            return deliverAll(fuel, rental, maxV, rentCap, pathFormatParam, simplifyMeters, zoom);
         } catch (JsonProcessingException e) {
             return ResponseEntity.status(500).body(Map.of("error", "JSON Hatası"));
         }
     }
 
 
+    /**
+     * Senkron uç: planlamayı iş kuyruğuna verir ve cargo.jobs.sync-wait-seconds kadar bekler.
+     * Küçük girdide sonuç eskisi gibi döner; bitmezse iş id'siyle 202 döner, sonuç /deliver-all/jobs/{id}'den alınır.
+     */
     @PostMapping("/deliver-all")
     public ResponseEntity<Map<String, Object>> deliverAll(
             @RequestParam(name = "fuelCostPerKm", required = false) Double fuelCostParam,
             @RequestParam(name = "rentalCostPerVehicle", required = false) Double rentalCostParam,
             @RequestParam(name = "maxVehicles", required = false) Integer maxVehiclesParam,
-            @RequestParam(name = "rentalCapacityKg", required = false) Integer rentalCapacityParam
+            @RequestParam(name = "rentalCapacityKg", required = false) Integer rentalCapacityParam,
+            @RequestParam(name = "pathFormat", required = false) String pathFormatParam,
+            @RequestParam(name = "simplify", required = false) Double simplifyMeters,
+            @RequestParam(name = "zoom", required = false) Integer zoom
     ) {
+        PlanningJob job;
+        try {
+            job = planningJobService.submit(deliverAllPlanner(fuelCostParam, rentalCostParam, maxVehiclesParam,
+                    rentalCapacityParam, pathFormatParam, simplifyMeters, zoom));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return queueFull();
+        }
+
+        try {
+            if (!planningJobService.awaitSync(job)) return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap(false));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap(false));
+        }
+        if (job.getState() == PlanningJob.State.DONE) return ResponseEntity.ok(job.getResult());
+        if (job.getState() == PlanningJob.State.FAILED) {
+            return ResponseEntity.status(500).body(Map.of("error", "Planlama başarısız: " + job.getError()));
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(job.toMap(false));
+    }
+
+    /** Planlamayı kuyruğa alır, hemen iş id'siyle döner (202). Kuyruk doluysa 429. */
+    @PostMapping("/deliver-all/jobs")
+    public ResponseEntity<Map<String, Object>> submitDeliverAll(
+            @RequestParam(name = "fuelCostPerKm", required = false) Double fuelCostParam,
+            @RequestParam(name = "rentalCostPerVehicle", required = false) Double rentalCostParam,
+            @RequestParam(name = "maxVehicles", required = false) Integer maxVehiclesParam,
+            @RequestParam(name = "rentalCapacityKg", required = false) Integer rentalCapacityParam,
+            @RequestParam(name = "pathFormat", required = false) String pathFormatParam,
+            @RequestParam(name = "simplify", required = false) Double simplifyMeters,
+            @RequestParam(name = "zoom", required = false) Integer zoom
+    ) {
+        try {
+            PlanningJob job = planningJobService.submit(deliverAllPlanner(fuelCostParam, rentalCostParam,
+                    maxVehiclesParam, rentalCapacityParam, pathFormatParam, simplifyMeters, zoom));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap(false));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return queueFull();
+        }
+    }
+
+    @GetMapping("/deliver-all/jobs")
+    public ResponseEntity<Map<String, Object>> listDeliverAllJobs() {
+        Map<String, Object> body = new LinkedHashMap<>(planningJobService.getStats());
+        body.put("jobs", planningJobService.list());
+        return ResponseEntity.ok(body);
+    }
+
+    /** Durum ve ilerleme; iş bittiyse "result" alanında deliver-all'un döndüreceği plan. */
+    @GetMapping("/deliver-all/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getDeliverAllJob(@PathVariable String jobId) {
+        PlanningJob job = planningJobService.get(jobId);
+        if (job == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(job.toMap(true));
+    }
+
+    /** SSE: "progress" olayları, en sonda planı içeren "done" olayı. */
+    @GetMapping(value = "/deliver-all/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDeliverAllJob(@PathVariable String jobId) {
+        PlanningJob job = planningJobService.get(jobId);
+        if (job == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(planningJobService.stream(job));
+    }
+
+    /** Kuyruktaki iş hemen düşer; çalışan iş araç güncellemesine geçmeden önceki ilk kontrol noktasında durur. */
+    @DeleteMapping("/deliver-all/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelDeliverAllJob(@PathVariable String jobId) {
+        PlanningJob job = planningJobService.get(jobId);
+        if (job == null) return ResponseEntity.notFound().build();
+        boolean accepted = planningJobService.cancel(jobId);
+        Map<String, Object> body = new LinkedHashMap<>(job.toMap(false));
+        body.put("cancelAccepted", accepted);
+        // zaten bitmiş işe iptal 409
+        return ResponseEntity.status(accepted ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(body);
+    }
+
+    private ResponseEntity<Map<String, Object>> queueFull() {
+        Map<String, Object> body = new LinkedHashMap<>(planningJobService.getStats());
+        body.put("error", "Planlama kuyruğu dolu, daha sonra tekrar deneyin");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(body);
+    }
+
+    /** Parametreleri doğrular ve varsayılanları uygular; geçersiz pathFormat ya da simplify'da IllegalArgumentException. */
+    private Function<PlanningJob, Map<String, Object>> deliverAllPlanner(
+            Double fuelCostParam, Double rentalCostParam, Integer maxVehiclesParam, Integer rentalCapacityParam,
+            String pathFormatParam, Double simplifyMeters, Integer zoom
+    ) {
+        final PathFormat pathFormat = PathFormat.parse(pathFormatParam);
+        if (pathFormat == null) throw new IllegalArgumentException("Geçersiz pathFormat: " + pathFormatParam);
+        // detailedPath seyreltme toleransı (metre); 0 = ham yol
+        final double pathTolerance = PathSimplifier.tolerance(simplifyMeters, zoom, KOU_LAT);
+
         final double fuelCostPerKm = (fuelCostParam != null) ? fuelCostParam : DEFAULT_FUEL_COST;
         final double rentalCostPerVehicle = (rentalCostParam != null) ? rentalCostParam : DEFAULT_RENTAL_COST;
         final int rentalCapacityKg = (rentalCapacityParam != null && rentalCapacityParam > 0) ? rentalCapacityParam : DEFAULT_RENTAL_CAPACITY;
@@ -266,14 +399,32 @@ public class CargoController {
 
         final int maxCompanyVehicles = (maxVehiclesParam != null && maxVehiclesParam > 0) ? maxVehiclesParam : Integer.MAX_VALUE;
 
+        return job -> planDeliveries(job, fuelCostPerKm, rentalCostPerVehicle, rentalCapacityKg, maxCompanyVehicles,
+                pathFormat, pathTolerance);
+    }
+
+    /**
+     * Planlama iş thread'inde çalışır. İptal yalnız DB'ye yazmadan önce kontrol edilir; filo sıfırlaması da
+     * araç atamasıyla birlikte en sonda yazılır, böylece iptal edilen iş veritabanında iz bırakmaz.
+     */
+    private Map<String, Object> planDeliveries(PlanningJob job, double fuelCostPerKm, double rentalCostPerVehicle,
+                                               int rentalCapacityKg, int maxCompanyVehicles,
+                                               PathFormat pathFormat, double pathTolerance) {
+        job.progress("LOADING", 0, 0);
         List<Cargo> waitingCargos = cargoRepository.findAll().stream()
                 .filter(c -> "BEKLIYOR".equals(c.getStatus()))
                 .collect(Collectors.toList());
-        if (waitingCargos.isEmpty()) return ResponseEntity.ok(Map.of("status", "EMPTY"));
+        if (waitingCargos.isEmpty()) return Map.of("status", "EMPTY");
 
         Map<Long, Station> stationMap = stationRepository.findAll().stream()
                 .collect(Collectors.toMap(Station::getId, s -> s));
 
+        // planlama sırasında yol araması yapılmaz; tüm mesafeler baştan matriste
+        job.checkCancelled();
+        job.progress("MATRIX", 0, stationMap.size());
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(KOU_LAT, KOU_LON, stationMap.values());
+        job.checkCancelled();
+
         Map<Long, Integer> loadRemaining = new HashMap<>();
         for (Cargo c : waitingCargos) {
             if (c.getStation() == null || c.getStation().getId() == null) continue;
@@ -283,46 +434,117 @@ public class CargoController {
         }
 
         int totalRemaining = loadRemaining.values().stream().mapToInt(v -> v == null ? 0 : v).sum();
-        if (totalRemaining <= 0) return ResponseEntity.ok(Map.of("status", "EMPTY"));
+        if (totalRemaining <= 0) return Map.of("status", "EMPTY");
 
-        // şirket araçları
+        // şirket araçları (sıfırlama en sonda, atamalarla birlikte yazılır)
         List<Vehicle> fleet = vehicleRepository.findAll(Sort.by(Sort.Direction.ASC, "id"));
         for (Vehicle v : fleet) { v.setCurrentLoad(0); v.setAvailable(true); }
+
+        // bu çalıştırmada yol aramalarının kaç node kesinleştirdiğini görmek için
+        Map<String, Object> searchStatsBefore = routeService.getSearchStats();
+
+        PlannedRoutes planned = planRoutes(job, loadRemaining, stationMap, matrix, fleet,
+                fuelCostPerKm, rentalCostPerVehicle, rentalCapacityKg, maxCompanyVehicles);
+        List<List<Long>> acceptedRoutes = planned.routes;
+        List<Integer> acceptedLoads = planned.loads;
+        List<Boolean> acceptedIsCompany = planned.isCompany;
+        List<Long> acceptedCompanyVehicleIds = planned.companyVehicleIds;
+
+        // cost & assignments
+        CostResult costResult = computeCost(acceptedRoutes, planned.distances, fuelCostPerKm, rentalCostPerVehicle, acceptedIsCompany);
+
+        List<Map<String, Object>> routeAssignments =
+                buildRouteAssignments(
+                        acceptedRoutes, planned.pickedMaps, waitingCargos, stationMap, matrix,
+                        fuelCostPerKm, rentalCostPerVehicle, acceptedIsCompany, pathFormat, pathTolerance, job
+                );
+
+        // DB araç güncelle; buradan sonra iptal edilmez
+        job.checkCancelled();
+        job.progress("SAVING", 0, 0);
         vehicleRepository.saveAll(fleet);
+        for (int i = 0; i < acceptedRoutes.size(); i++) {
+            if (acceptedIsCompany.get(i)) {
+                Long vid = acceptedCompanyVehicleIds.get(i);
+                if (vid == null) continue;
+                Vehicle v = fleet.stream().filter(x -> Objects.equals(x.getId(), vid)).findFirst().orElse(null);
+                if (v != null) {
+                    v.setCurrentLoad(acceptedLoads.get(i));
+                    v.setAvailable(false);
+                    vehicleRepository.save(v);
+                }
+            }
+        }
+
+        long rentedCount = acceptedIsCompany.stream().filter(b -> !b).count();
+        double totalRentalCost = rentedCount * rentalCostPerVehicle;
+
+        // kalan yük varsa
+        List<List<Long>> rejectedRoutes = new ArrayList<>();
+        if (!planned.leftoverStations.isEmpty()) rejectedRoutes.add(planned.leftoverStations);
+
+        Map<String, Object> resp = new HashMap<>();
+        resp.put("status", rejectedRoutes.isEmpty() ? "SUCCESS" : "PARTIAL");
+
+        resp.put("routes", acceptedRoutes);
+        resp.put("rejectedRoutes", rejectedRoutes);
+
+        resp.put("fuelCostPerKm", fuelCostPerKm);
+        resp.put("rentalCostPerVehicle", rentalCostPerVehicle);
+        resp.put("rentalCapacityKg", rentalCapacityKg);
+        resp.put("maxCompanyVehicles", (maxCompanyVehicles == Integer.MAX_VALUE ? null : maxCompanyVehicles));
+
+        resp.put("totalDistanceKm", costResult.totalDistanceKm);
+        resp.put("totalFuelCost", costResult.totalFuelCost);
+
+        resp.put("rentedVehicleCount", rentedCount);
+        resp.put("totalRentalCost", totalRentalCost);
+        resp.put("totalCostEstimate", costResult.totalFuelCost + totalRentalCost);
+
+        resp.put("routeCosts", costResult.routeCosts);
+        resp.put("routeAssignments", routeAssignments);
+        resp.put("pathFormat", pathFormat.paramValue());
+        resp.put("pathToleranceMeters", pathTolerance);
+        resp.put("routeSearch", searchStatsDelta(searchStatsBefore, routeService.getSearchStats()));
+
+        logRun(resp, fuelCostPerKm, rentalCostPerVehicle, maxCompanyVehicles == Integer.MAX_VALUE ? null : maxCompanyVehicles, rentalCapacityKg);
+
+        return resp;
+    }
+
+
+    /**
+     * Greedy planlama çekirdeği: kalan yükleri araç rotalarına böler. DB'ye ve yol ağına dokunmaz; filonun
+     * sıfırlanması ve atamaların yazılması planDeliveries'te kalır. Eşitlikler loadRemaining'in gezinme sırasıyla bozulur.
+     */
+    PlannedRoutes planRoutes(PlanningJob job, Map<Long, Integer> loadRemaining, Map<Long, Station> stationMap,
+                             DistanceMatrix matrix, List<Vehicle> fleet, double fuelCostPerKm,
+                             double rentalCostPerVehicle, int rentalCapacityKg, int maxCompanyVehicles) {
+        int totalRemaining = loadRemaining.values().stream().mapToInt(v -> v == null ? 0 : v).sum();
+        final int totalLoad = totalRemaining;
 
         Set<Long> unusedCompanyVehicleIds = fleet.stream()
                 .map(Vehicle::getId).filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
-        // komşu haritası (yalnız aday filtresi)
-        Map<Long, List<Long>> neighborMap = buildNeighborMap(loadRemaining, stationMap, NEIGHBOR_K);
+        // yoğun index'li planlama modeli: yükler, komşular (yalnız aday filtresi) ve hub uzaklıkları dizilerde
+        PlanModel model = buildPlanModel(loadRemaining, stationMap, matrix);
 
         // hub air distance (izole/uzak kuralı için)
-        Map<Long, Double> hubAirKm = new HashMap<>();
         List<Double> airList = new ArrayList<>();
-        for (Long id : loadRemaining.keySet()) {
-            if (!stationMap.containsKey(id)) continue;
-            Station s = stationMap.get(id);
-            if (s == null) continue;
-            double d = haversineKm(s.getLatitude(), s.getLongitude(), KOU_LAT, KOU_LON);
-            hubAirKm.put(id, d);
-            airList.add(d);
+        for (int i = 0; i < model.n; i++) {
+            if (model.known[i]) airList.add(model.hubAirKm[i]);
         }
         double farThreshold = percentile(airList, 75.0); // üst %25 "uzak"
 
-        List<List<Long>> acceptedRoutes = new ArrayList<>();
-        List<Integer> acceptedLoads = new ArrayList<>();
-        List<LinkedHashMap<Long, Integer>> acceptedPickedMaps = new ArrayList<>();
-        List<Boolean> acceptedIsCompany = new ArrayList<>();
-        List<Long> acceptedCompanyVehicleIds = new ArrayList<>();
-
-        Map<Long, Integer> loadCopy = new HashMap<>(loadRemaining);
+        PlannedRoutes out = new PlannedRoutes();
 
         int safety = 0;
         while (totalRemaining > 0 && safety++ < MAX_TOTAL_ROUTES) {
+            job.checkCancelled();
+            job.progress("PLANNING", totalLoad - totalRemaining, totalLoad);
 
-
-            int usedCompanyCount = (int) acceptedIsCompany.stream().filter(Boolean::booleanValue).count();
+            int usedCompanyCount = (int) out.isCompany.stream().filter(Boolean::booleanValue).count();
 
             List<CandidateVehicle> candidates = new ArrayList<>();
             if (usedCompanyCount < maxCompanyVehicles) {
@@ -337,319 +559,386 @@ public class CargoController {
             candidates.add(CandidateVehicle.rental(rentalCapacityKg));
 
 
-            if (loadCopy.values().stream().allMatch(x -> x == null || x <= 0)) break;
+            if (!model.hasLoad()) break;
 
 
             int iterMaxCap = candidates.stream().mapToInt(c -> c.capacityKg).max().orElse(0);
             if (iterMaxCap <= 0) break;
 
 
-            Long seed = chooseSeedStation(loadCopy, stationMap, neighborMap, hubAirKm, farThreshold, iterMaxCap);
-            if (seed == null) break;
+            int seed = chooseSeedStation(model, farThreshold, iterMaxCap);
+            if (seed < 0) break;
 
-            int seedRem = loadCopy.getOrDefault(seed, 0);
+            int seedRem = model.load[seed];
 
-            Plan best = null;
-
-            for (CandidateVehicle cand : candidates) {
-                if (cand.capacityKg <= 0) continue;
-
-
-                if (seedRem > 0 && seedRem <= iterMaxCap && cand.capacityKg < seedRem) continue;
-
-                Plan p = buildRoutePlanTwoEndedGreedy(
-                        loadCopy, stationMap, neighborMap,
-                        cand.capacityKg, seed,
-                        hubAirKm, farThreshold, iterMaxCap
-                );
-
-                if (p == null || p.loadedKg <= 0 || p.route.isEmpty()) continue;
-
-                double dist = totalRouteDistanceKm(p.route, stationMap);
-                double fuel = dist * fuelCostPerKm;
-                double rental = cand.isCompany ? 0.0 : rentalCostPerVehicle;
-                double total = fuel + rental;
-
-                p.distanceKm = dist;
-                p.totalCost = total;
-                p.isCompany = cand.isCompany;
-                p.companyVehicleId = cand.companyVehicleId;
-                p.capacityKg = cand.capacityKg;
-
-
-                if (best == null) best = p;
-                else {
-                    if (p.totalCost < best.totalCost - 1e-9) best = p;
-                    else if (Math.abs(p.totalCost - best.totalCost) < 1e-9) {
-                        if (p.loadedKg > best.loadedKg) best = p;
-                        else if (p.loadedKg == best.loadedKg) {
-                            if (p.distanceKm < best.distanceKm - 1e-9) best = p;
-                            else if (Math.abs(p.distanceKm - best.distanceKm) < 1e-9) {
-                                // büyük araçları boşa harcama: daha küçük kapasiteyi seç
-                                if (p.capacityKg < best.capacityKg) best = p;
-                            }
-                        }
-                    }
-                }
-            }
+            // model.load tüm planlar bitene kadar değişmez; her thread kendi çalışma alanında kopyasız okur
+            Plan best = chooseVehiclePlan(candidates, seedRem, iterMaxCap, cap -> {
+                Plan p = buildRoutePlanTwoEndedGreedy(model, cap, seed, farThreshold, iterMaxCap);
+                if (p == null || p.loadedKg <= 0 || p.route.length == 0) return null;
+                p.distanceKm = model.routeKm(p.route);
+                return p;
+            }, fuelCostPerKm, rentalCostPerVehicle);
 
             if (best == null) break;
 
-            int pickedSum = applyPickedAndCount(loadCopy, best.pickedMap);
+            int pickedSum = applyPickedAndCount(model, best);
             if (pickedSum <= 0) break; // ilerleme yoksa çık
             totalRemaining -= pickedSum;
 
-            acceptedRoutes.add(best.route);
-            acceptedLoads.add(best.loadedKg);
-            acceptedPickedMaps.add(best.pickedMap);
-            acceptedIsCompany.add(best.isCompany);
-            acceptedCompanyVehicleIds.add(best.isCompany ? best.companyVehicleId : null);
+            out.routes.add(model.toIds(best.route));
+            out.distances.add(best.distanceKm);
+            out.loads.add(best.loadedKg);
+            out.pickedMaps.add(model.toPickedMap(best.pickedStations, best.pickedKg));
+            out.isCompany.add(best.isCompany);
+            out.companyVehicleIds.add(best.isCompany ? best.companyVehicleId : null);
 
             if (best.isCompany && best.companyVehicleId != null) {
                 unusedCompanyVehicleIds.remove(best.companyVehicleId);
             }
         }
 
-        // cost & assignments
-        CostResult costResult = computeCost(acceptedRoutes, stationMap, fuelCostPerKm, rentalCostPerVehicle, acceptedIsCompany);
+        // yükü kalan istasyonlar
+        for (int i = 0; i < model.n; i++) {
+            if (model.load[i] > 0) out.leftoverStations.add(model.ids[i]);
+        }
+        return out;
+    }
 
-        List<Map<String, Object>> routeAssignments =
-                buildRouteAssignments(
-                        acceptedRoutes, acceptedPickedMaps, waitingCargos, stationMap,
-                        fuelCostPerKm, rentalCostPerVehicle, acceptedIsCompany
-                );
 
-        // DB araç güncelle
-        for (int i = 0; i < acceptedRoutes.size(); i++) {
-            if (acceptedIsCompany.get(i)) {
-                Long vid = acceptedCompanyVehicleIds.get(i);
-                if (vid == null) continue;
-                Vehicle v = fleet.stream().filter(x -> Objects.equals(x.getId(), vid)).findFirst().orElse(null);
-                if (v != null) {
-                    v.setCurrentLoad(acceptedLoads.get(i));
-                    v.setAvailable(false);
-                    vehicleRepository.save(v);
+    /**
+     * Bir turun araç seçimi. Plan yalnız kapasiteye bağlı olduğundan her farklı kapasite için build bir kez,
+     * havuzda paralel çağrılır; seçim eskisi gibi aday sırasıyla ve aynı eşitlik kurallarıyla yapılır.
+     * build kurulamayan plan için null döner; uygun aday yoksa null.
+     */
+    Plan chooseVehiclePlan(List<CandidateVehicle> candidates, int seedRem, int iterMaxCap,
+                           IntFunction<Plan> build, double fuelCostPerKm, double rentalCostPerVehicle) {
+        Set<Integer> capacities = new LinkedHashSet<>();
+        for (CandidateVehicle cand : candidates) {
+            if (cand.capacityKg <= 0) continue;
+            if (seedRem > 0 && seedRem <= iterMaxCap && cand.capacityKg < seedRem) continue;
+            capacities.add(cand.capacityKg);
+        }
+        List<Callable<Plan>> builds = new ArrayList<>(capacities.size());
+        for (int cap : capacities) builds.add(() -> build.apply(cap));
+        List<Plan> built = planningJobService.evaluateAll(builds);
+        Map<Integer, Plan> planByCapacity = new HashMap<>();
+        int bi = 0;
+        for (int cap : capacities) planByCapacity.put(cap, built.get(bi++));
+
+        Plan best = null;
+
+        for (CandidateVehicle cand : candidates) {
+            if (cand.capacityKg <= 0) continue;
+
+
+            if (seedRem > 0 && seedRem <= iterMaxCap && cand.capacityKg < seedRem) continue;
+
+            Plan shared = planByCapacity.get(cand.capacityKg);
+            if (shared == null) continue;
+            Plan p = shared.copy();
+
+            double dist = p.distanceKm;
+            double fuel = dist * fuelCostPerKm;
+            double rental = cand.isCompany ? 0.0 : rentalCostPerVehicle;
+            double total = fuel + rental;
+
+            p.distanceKm = dist;
+            p.totalCost = total;
+            p.isCompany = cand.isCompany;
+            p.companyVehicleId = cand.companyVehicleId;
+            p.capacityKg = cand.capacityKg;
+
+
+            if (best == null) best = p;
+            else {
+                if (p.totalCost < best.totalCost - 1e-9) best = p;
+                else if (Math.abs(p.totalCost - best.totalCost) < 1e-9) {
+                    if (p.loadedKg > best.loadedKg) best = p;
+                    else if (p.loadedKg == best.loadedKg) {
+                        if (p.distanceKm < best.distanceKm - 1e-9) best = p;
+                        else if (Math.abs(p.distanceKm - best.distanceKm) < 1e-9) {
+                            // büyük araçları boşa harcama: daha küçük kapasiteyi seç
+                            if (p.capacityKg < best.capacityKg) best = p;
+                        }
+                    }
                 }
             }
         }
+        return best;
+    }
 
-        long rentedCount = acceptedIsCompany.stream().filter(b -> !b).count();
-        double totalRentalCost = rentedCount * rentalCostPerVehicle;
-
-        // kalan yük varsa
-        List<List<Long>> rejectedRoutes = new ArrayList<>();
-        if (loadCopy.values().stream().anyMatch(v -> v != null && v > 0)) {
-            List<Long> leftoverStations = loadCopy.entrySet().stream()
-                    .filter(e -> e.getValue() != null && e.getValue() > 0)
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
-            if (!leftoverStations.isEmpty()) rejectedRoutes.add(leftoverStations);
-        }
-
-        Map<String, Object> resp = new HashMap<>();
-        resp.put("status", rejectedRoutes.isEmpty() ? "SUCCESS" : "PARTIAL");
-
-        resp.put("routes", acceptedRoutes);
-        resp.put("rejectedRoutes", rejectedRoutes);
-
-        resp.put("fuelCostPerKm", fuelCostPerKm);
-        resp.put("rentalCostPerVehicle", rentalCostPerVehicle);
-        resp.put("rentalCapacityKg", rentalCapacityKg);
-        resp.put("maxCompanyVehicles", (maxCompanyVehicles == Integer.MAX_VALUE ? null : maxCompanyVehicles));
 
-        resp.put("totalDistanceKm", costResult.totalDistanceKm);
-        resp.put("totalFuelCost", costResult.totalFuelCost);
+    /**
+     * Eski loadCopy ile aynı gezinme sırasında index'ler; eşitlikte ilk geleni seçen döngüler bu sayede
+     * Map tabanlı sürümle aynı istasyonu seçer. Komşu listeleri index'li CSR olarak modele yazılır.
+     */
+    private PlanModel buildPlanModel(Map<Long, Integer> loadRemaining, Map<Long, Station> stationMap, DistanceMatrix matrix) {
+        Map<Long, Integer> order = new HashMap<>(loadRemaining);
+        int n = order.size();
+        PlanModel m = new PlanModel(n, matrix);
 
-        resp.put("rentedVehicleCount", rentedCount);
-        resp.put("totalRentalCost", totalRentalCost);
-        resp.put("totalCostEstimate", costResult.totalFuelCost + totalRentalCost);
+        Map<Long, Integer> index = new HashMap<>(n * 2);
+        int i = 0;
+        for (Map.Entry<Long, Integer> e : order.entrySet()) {
+            Long id = e.getKey();
+            m.ids[i] = id;
+            m.load[i] = e.getValue() == null ? 0 : e.getValue();
+            m.matIdx[i] = matrix.indexOf(id);
+            Station s = stationMap.get(id);
+            if (s != null) {
+                m.known[i] = true;
+                m.hubAirKm[i] = haversineKm(s.getLatitude(), s.getLongitude(), KOU_LAT, KOU_LON);
+            }
+            index.put(id, i++);
+        }
 
-        resp.put("routeCosts", costResult.routeCosts);
-        resp.put("routeAssignments", routeAssignments);
+        buildNeighbors(m, loadRemaining, stationMap, index, NEIGHBOR_K);
+        return m;
+    }
 
-        logRun(resp, fuelCostPerKm, rentalCostPerVehicle, maxCompanyVehicles == Integer.MAX_VALUE ? null : maxCompanyVehicles, rentalCapacityKg);
+    /**
+     * Her aktif istasyon için en yakın k aktif istasyon (kuş uçuşu), ızgara tabanlı aramayla ve sorgular
+     * aday havuzunda paralel. Liste, aktif listeyi mesafeye göre kararlı sıralayıp ilk k'yı almakla aynıdır;
+     * eşit mesafede loadRemaining sırasında önce gelen istasyon önce gelir.
+     */
+    private void buildNeighbors(PlanModel m, Map<Long, Integer> loadMap, Map<Long, Station> stationMap,
+                                Map<Long, Integer> index, int k) {
+        int[] active = new int[m.n]; // aktif sıra -> model index'i
+        int count = 0;
+        for (Map.Entry<Long, Integer> e : loadMap.entrySet()) {
+            if (e.getValue() != null && e.getValue() > 0 && stationMap.containsKey(e.getKey())) {
+                active[count++] = index.get(e.getKey());
+            }
+        }
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+        for (int a = 0; a < count; a++) {
+            Station s = stationMap.get(m.ids[active[a]]);
+            lat[a] = s.getLatitude();
+            lon[a] = s.getLongitude();
+        }
 
-        return ResponseEntity.ok(resp);
+        NearestNeighbors nn = new NearestNeighbors(lat, lon);
+        int[] found = new int[count];
+        int[] lists = new int[count * k];
+        double[] listKm = new double[count * k];
+
+        final int activeCount = count;
+        List<Callable<Void>> queries = new ArrayList<>();
+        for (int from = 0; from < count; from += NEIGHBOR_CHUNK) {
+            final int lo = from, hi = Math.min(activeCount, from + NEIGHBOR_CHUNK);
+            queries.add(() -> {
+                int[] out = new int[k];
+                double[] outKm = new double[k];
+                for (int a = lo; a < hi; a++) {
+                    int c = nn.query(a, k, out, outKm);
+                    found[a] = c;
+                    System.arraycopy(out, 0, lists, a * k, c);
+                    System.arraycopy(outKm, 0, listKm, a * k, c);
+                }
+                return null;
+            });
+        }
+        planningJobService.evaluateAll(queries);
+
+        int[] activePos = new int[m.n];
+        Arrays.fill(activePos, -1);
+        int edges = 0;
+        for (int a = 0; a < count; a++) {
+            activePos[active[a]] = a;
+            edges += found[a];
+        }
+        m.nb = new int[edges];
+        m.nbAirKm = new double[edges];
+        int e = 0;
+        for (int i = 0; i < m.n; i++) {
+            m.nbStart[i] = e;
+            int a = activePos[i];
+            if (a < 0) continue;
+            for (int j = 0; j < found[a]; j++) {
+                m.nb[e] = active[lists[a * k + j]];
+                m.nbAirKm[e++] = listKm[a * k + j];
+            }
+        }
+        m.nbStart[m.n] = e;
     }
 
-
     private Plan buildRoutePlanTwoEndedGreedy(
-            Map<Long, Integer> loadMap,
-            Map<Long, Station> stationMap,
-            Map<Long, List<Long>> neighborMap,
+            PlanModel m,
             int capacityKg,
-            Long seed,
-            Map<Long, Double> hubAirKm,
+            int seed,
             double farThreshold,
             int iterMaxCap
     ) {
-        if (capacityKg <= 0 || seed == null) return null;
+        if (capacityKg <= 0 || seed < 0) return null;
 
-        Map<Long, Integer> local = new HashMap<>(loadMap);
-        LinkedHashMap<Long, Integer> picked = new LinkedHashMap<>();
-        int capLeft = capacityKg;
+        // yük değişiklikleri ve rota çalışma alanında; model.load okunur, kopyalanmaz
+        PlanWorkspace ws = PlanWorkspace.acquire(m.n);
+        try {
+            return twoEndedGreedy(m, ws, capacityKg, seed, farThreshold, iterMaxCap);
+        } finally {
+            PlanWorkspace.release(ws);
+        }
+    }
 
-        Deque<Long> route = new ArrayDeque<>();
-        Set<Long> inRoute = new HashSet<>();
+    private Plan twoEndedGreedy(PlanModel m, PlanWorkspace ws, int capacityKg, int seed, double farThreshold,
+                                int iterMaxCap) {
+        int capLeft = capacityKg;
 
 
-        capLeft = pickFromStation(local, seed, capLeft, picked);
-        if (picked.getOrDefault(seed, 0) <= 0) return null;
+        capLeft = pickFromStation(m, ws, seed, capLeft);
+        if (ws.pickedCount == 0) return null;
 
-        route.add(seed);
-        inRoute.add(seed);
+        ws.addLast(seed);
 
         while (capLeft > 0) {
-            Long head = route.peekFirst();
-            Long tail = route.peekLast();
-
-            LinkedHashSet<Long> pool = new LinkedHashSet<>();
-            for (Long x : neighborMap.getOrDefault(head, Collections.emptyList())) pool.add(x);
-            for (Long x : neighborMap.getOrDefault(tail, Collections.emptyList())) pool.add(x);
+            int head = ws.first();
+            int tail = ws.last();
+
+            // aday havuzu: head'in komşuları, sonra tail'in henüz görülmemiş komşuları (eski LinkedHashSet sırası)
+            ws.bestSt = -1;
+            ws.bestToHead = true;
+            ws.bestScore = Double.MAX_VALUE;
+            int mark = ws.nextPoolMark();
+            boolean empty = true;
+
+            for (int e = m.nbStart[head], end = m.nbStart[head + 1]; e < end; e++) {
+                int cand = m.nb[e];
+                ws.poolMark[cand] = mark;
+                empty = false;
+                considerCandidate(m, ws, cand, head, tail, capLeft, farThreshold, iterMaxCap);
+            }
+            for (int e = m.nbStart[tail], end = m.nbStart[tail + 1]; e < end; e++) {
+                int cand = m.nb[e];
+                empty = false;
+                if (ws.poolMark[cand] == mark) continue;
+                ws.poolMark[cand] = mark;
+                considerCandidate(m, ws, cand, head, tail, capLeft, farThreshold, iterMaxCap);
+            }
 
-            if (pool.isEmpty()) {
-                Long fallback = maxLoadStation(local, stationMap, inRoute);
-                if (fallback != null) pool.add(fallback);
+            if (empty) {
+                int fallback = maxLoadStation(m, ws);
+                if (fallback >= 0) considerCandidate(m, ws, fallback, head, tail, capLeft, farThreshold, iterMaxCap);
             }
 
-            Long bestSt = null;
-            boolean bestToHead = true;
-            double bestScore = Double.MAX_VALUE;
+            int bestSt = ws.bestSt;
+            if (bestSt < 0) break;
 
-            for (Long cand : pool) {
-                if (cand == null) continue;
-                if (inRoute.contains(cand)) continue;
-                if (!stationMap.containsKey(cand)) continue;
+            if (ws.bestToHead) ws.addFirst(bestSt);
+            else ws.addLast(bestSt);
 
-                int rem = local.getOrDefault(cand, 0);
-                if (rem <= 0) continue;
+            capLeft = pickFromStation(m, ws, bestSt, capLeft);
+        }
 
+        Plan p = new Plan();
+        p.route = ws.route();
+        p.pickedStations = Arrays.copyOf(ws.pickedStations, ws.pickedCount);
+        p.pickedKg = Arrays.copyOf(ws.pickedKg, ws.pickedCount);
+        p.loadedKg = capacityKg - capLeft;
+        return p;
+    }
 
-                double air = hubAirKm.getOrDefault(cand, 0.0);
-                boolean far = air >= farThreshold;
-                boolean oneShotPossible = rem <= iterMaxCap;
-                if (far && oneShotPossible && capLeft < rem) {
-                    continue;
-                }
+    /** Havuzdaki bir adayı baş ve son uca eklemeye göre puanlar; en iyisi ws.best* alanlarında. */
+    private static void considerCandidate(PlanModel m, PlanWorkspace ws, int cand, int head, int tail,
+                                          int capLeft, double farThreshold, int iterMaxCap) {
+        if (ws.inRoute(cand)) return;
+        if (!m.known[cand]) return;
 
-                int takeKg = Math.min(capLeft, rem);
-                if (takeKg <= 0) continue;
+        int rem = ws.load(m, cand);
+        if (rem <= 0) return;
 
 
-                double extraHead = distKm(cand, head, stationMap);
+        double air = m.hubAirKm[cand];
+        boolean far = air >= farThreshold;
+        boolean oneShotPossible = rem <= iterMaxCap;
+        if (far && oneShotPossible && capLeft < rem) {
+            return;
+        }
 
+        int takeKg = Math.min(capLeft, rem);
+        if (takeKg <= 0) return;
 
-                double tailToHub = distKm(tail, 0, stationMap);
-                double extraTail = distKm(tail, cand, stationMap) + distKm(cand, 0, stationMap) - tailToHub;
-                if (extraTail < 0) extraTail = 0;
 
+        double extraHead = m.km(cand, head);
 
-                double scoreHead = extraHead / Math.max(1, takeKg);
-                double scoreTail = extraTail / Math.max(1, takeKg);
 
-                if (scoreHead < bestScore) {
-                    bestScore = scoreHead;
-                    bestSt = cand;
-                    bestToHead = true;
-                }
-                if (scoreTail < bestScore) {
-                    bestScore = scoreTail;
-                    bestSt = cand;
-                    bestToHead = false;
-                }
-            }
+        double tailToHub = m.kmToHub(tail);
+        double extraTail = m.km(tail, cand) + m.kmToHub(cand) - tailToHub;
+        if (extraTail < 0) extraTail = 0;
 
-            if (bestSt == null) break;
 
-            if (bestToHead) route.addFirst(bestSt);
-            else route.addLast(bestSt);
-            inRoute.add(bestSt);
+        double scoreHead = extraHead / Math.max(1, takeKg);
+        double scoreTail = extraTail / Math.max(1, takeKg);
 
-            capLeft = pickFromStation(local, bestSt, capLeft, picked);
+        if (scoreHead < ws.bestScore) {
+            ws.bestScore = scoreHead;
+            ws.bestSt = cand;
+            ws.bestToHead = true;
+        }
+        if (scoreTail < ws.bestScore) {
+            ws.bestScore = scoreTail;
+            ws.bestSt = cand;
+            ws.bestToHead = false;
         }
-
-        Plan p = new Plan();
-        p.route = new ArrayList<>(route);
-        p.pickedMap = picked;
-        p.loadedKg = capacityKg - capLeft;
-        return p;
     }
 
-    private Long maxLoadStation(Map<Long, Integer> local, Map<Long, Station> stationMap, Set<Long> inRoute) {
-        Long best = null;
+    private static int maxLoadStation(PlanModel m, PlanWorkspace ws) {
+        int best = -1;
         int bestLoad = 0;
-        for (Map.Entry<Long,Integer> e : local.entrySet()) {
-            Long id = e.getKey();
-            int rem = e.getValue()==null?0:e.getValue();
+        for (int i = 0; i < m.n; i++) {
+            int rem = ws.load(m, i);
             if (rem <= 0) continue;
-            if (inRoute.contains(id)) continue;
-            if (!stationMap.containsKey(id)) continue;
+            if (ws.inRoute(i)) continue;
+            if (!m.known[i]) continue;
             if (rem > bestLoad) {
                 bestLoad = rem;
-                best = id;
+                best = i;
             }
         }
         return best;
     }
 
-    private Long chooseSeedStation(
-            Map<Long, Integer> loadMap,
-            Map<Long, Station> stationMap,
-            Map<Long, List<Long>> neighborMap,
-            Map<Long, Double> hubAirKm,
-            double farThreshold,
-            int iterMaxCap
-    ) {
-        Long bestFar = null;
+    private int chooseSeedStation(PlanModel m, double farThreshold, int iterMaxCap) {
+        int bestFar = -1;
         double bestFarScore = -1;
 
 
-        for (Map.Entry<Long, Integer> e : loadMap.entrySet()) {
-            Long id = e.getKey();
-            int rem = e.getValue() == null ? 0 : e.getValue();
+        for (int i = 0; i < m.n; i++) {
+            int rem = m.load[i];
             if (rem <= 0) continue;
-            if (!stationMap.containsKey(id)) continue;
+            if (!m.known[i]) continue;
 
-            double air = hubAirKm.getOrDefault(id, 0.0);
+            double air = m.hubAirKm[i];
             if (air < farThreshold) continue;
             if (rem > iterMaxCap) continue;
 
             double score = air * 1000.0 + rem; // önce uzaklık, sonra yük
             if (score > bestFarScore) {
                 bestFarScore = score;
-                bestFar = id;
+                bestFar = i;
             }
         }
-        if (bestFar != null) return bestFar;
+        if (bestFar >= 0) return bestFar;
 
 
-        Long best = null;
+        int best = -1;
         double bestScore = -1;
 
-        for (Map.Entry<Long, Integer> e : loadMap.entrySet()) {
-            Long id = e.getKey();
-            int rem = e.getValue() == null ? 0 : e.getValue();
+        for (int i = 0; i < m.n; i++) {
+            int rem = m.load[i];
             if (rem <= 0) continue;
-
-            Station si = stationMap.get(id);
-            if (si == null) continue;
+            if (!m.known[i]) continue;
 
             int clusterKg = rem;
             double sumIso = 0.0;
             int isoCount = 0;
 
-            List<Long> neigh = neighborMap.getOrDefault(id, Collections.emptyList());
-            for (int i = 0; i < neigh.size() && isoCount < 3; i++) {
-                Long nb = neigh.get(i);
-                if (nb == null) continue;
-                int nbLoad = loadMap.getOrDefault(nb, 0);
+            for (int e = m.nbStart[i], end = m.nbStart[i + 1]; e < end && isoCount < 3; e++) {
+                int nbLoad = m.load[m.nb[e]];
                 if (nbLoad <= 0) continue;
 
-                Station sj = stationMap.get(nb);
-                if (sj == null) continue;
-
                 clusterKg += nbLoad;
-                sumIso += haversineKm(si.getLatitude(), si.getLongitude(), sj.getLatitude(), sj.getLongitude());
+                sumIso += m.nbAirKm[e];
                 isoCount++;
             }
 
@@ -657,12 +946,12 @@ public class CargoController {
             double density = clusterKg / (1.0 + isoKm);
 
             // hafif uzaklık bonusu: (ama tek başına uzak diye seed olmasın)
-            double air = hubAirKm.getOrDefault(id, 0.0);
+            double air = m.hubAirKm[i];
             double score = density * 1000.0 + rem * 2.0 + air * 0.5;
 
             if (score > bestScore) {
                 bestScore = score;
-                best = id;
+                best = i;
             }
         }
 
@@ -670,32 +959,6 @@ public class CargoController {
     }
 
 
-    private Map<Long, List<Long>> buildNeighborMap(Map<Long, Integer> loadMap, Map<Long, Station> stationMap, int k) {
-        List<Long> active = loadMap.entrySet().stream()
-                .filter(e -> e.getValue() != null && e.getValue() > 0 && stationMap.containsKey(e.getKey()))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        Map<Long, List<Long>> res = new HashMap<>();
-        for (Long a : active) {
-            Station sa = stationMap.get(a);
-            if (sa == null) continue;
-
-            List<Long> sorted = new ArrayList<>(active);
-            sorted.remove(a);
-
-            sorted.sort(Comparator.comparingDouble(b -> {
-                Station sb = stationMap.get(b);
-                if (sb == null) return Double.MAX_VALUE;
-                return haversineKm(sa.getLatitude(), sa.getLongitude(), sb.getLatitude(), sb.getLongitude());
-            }));
-
-            if (sorted.size() > k) sorted = sorted.subList(0, k);
-            res.put(a, sorted);
-        }
-        return res;
-    }
-
     private double haversineKm(double lat1, double lon1, double lat2, double lon2) {
         double R = 6371.0;
         double dLat = Math.toRadians(lat2 - lat1);
@@ -720,33 +983,34 @@ public class CargoController {
     }
 
 
-    private int pickFromStation(Map<Long, Integer> local, Long stId, int capLeft, LinkedHashMap<Long, Integer> pickedMap) {
-        int rem = local.getOrDefault(stId, 0);
+    private static int pickFromStation(PlanModel m, PlanWorkspace ws, int st, int capLeft) {
+        int rem = ws.load(m, st);
         if (capLeft <= 0 || rem <= 0) return capLeft;
 
         int take = Math.min(capLeft, rem);
         if (take <= 0) return capLeft;
 
-        local.put(stId, rem - take);
-        pickedMap.merge(stId, take, Integer::sum);
+        ws.setLoad(st, rem - take);
+        ws.addPicked(st, take);
         return capLeft - take;
     }
 
-    private int applyPickedAndCount(Map<Long, Integer> loadMap, LinkedHashMap<Long, Integer> pickedMap) {
+    private static int applyPickedAndCount(PlanModel m, Plan plan) {
         int sum = 0;
-        for (Map.Entry<Long, Integer> e : pickedMap.entrySet()) {
-            Long stId = e.getKey();
-            int picked = e.getValue() == null ? 0 : e.getValue();
+        for (int k = 0; k < plan.pickedStations.length; k++) {
+            int st = plan.pickedStations[k];
+            int picked = plan.pickedKg[k];
             if (picked <= 0) continue;
-            int before = loadMap.getOrDefault(stId, 0);
+            int before = m.load[st];
             int dec = Math.min(before, picked);
-            loadMap.put(stId, Math.max(0, before - picked));
+            m.load[st] = Math.max(0, before - picked);
             sum += dec;
         }
         return sum;
     }
 
-    private CostResult computeCost(List<List<Long>> routes, Map<Long, Station> stationMap,
+    /** routeDistancesKm: planlama sırasında her rota için hesaplanmış mesafe (aynı sırayla). */
+    private CostResult computeCost(List<List<Long>> routes, List<Double> routeDistancesKm,
                                    double fuelCostPerKm, double rentalCostPerVehicle, List<Boolean> isCompanyList) {
         double totalDistanceKm = 0.0;
         double totalFuelCost = 0.0;
@@ -754,7 +1018,7 @@ public class CargoController {
 
         for (int i = 0; i < routes.size(); i++) {
             List<Long> route = routes.get(i);
-            double distKm = totalRouteDistanceKm(route, stationMap);
+            double distKm = routeDistancesKm.get(i);
 
             double fuelCost = distKm * fuelCostPerKm;
             boolean isCompany = (isCompanyList != null && i < isCompanyList.size() && isCompanyList.get(i));
@@ -783,9 +1047,13 @@ public class CargoController {
             List<LinkedHashMap<Long, Integer>> pickedMaps,
             List<Cargo> cargos,
             Map<Long, Station> stationMap,
+            DistanceMatrix matrix,
             double fuelCostPerKm,
             double rentalCostPerVehicle,
-            List<Boolean> isCompanyList
+            List<Boolean> isCompanyList,
+            PathFormat pathFormat,
+            double pathTolerance,
+            PlanningJob job
     ) {
         List<Map<String, Object>> list = new ArrayList<>();
         int vehicleIdx = 1;
@@ -793,6 +1061,8 @@ public class CargoController {
         Map<Long, String> usernameCache = new HashMap<>();
 
         for (int i = 0; i < routes.size(); i++) {
+            job.checkCancelled();
+            job.progress("PATHS", i, routes.size());
             List<Long> route = routes.get(i);
             Set<Long> routeSet = new HashSet<>(route);
 
@@ -804,7 +1074,7 @@ public class CargoController {
                     ))
                     .collect(Collectors.toSet());
 
-            double distKm = totalRouteDistanceKm(route, stationMap);
+            double distKm = totalRouteDistanceKm(route, matrix);
             double fuelCost = distKm * fuelCostPerKm;
 
             boolean isCompany = (isCompanyList != null && i < isCompanyList.size() && isCompanyList.get(i));
@@ -812,12 +1082,21 @@ public class CargoController {
             double totalCost = fuelCost + rentalCost;
 
 
-            List<String> fullPathCoords = new ArrayList<>();
+            // bacaklar uç uca eklenir; her nokta için String üretilmez
+            List<double[]> legs = new ArrayList<>(route.size());
             if (!route.isEmpty()) {
                 for (int k = 0; k < route.size() - 1; k++) {
-                    fullPathCoords.addAll(pathCoords(route.get(k), route.get(k + 1), stationMap));
+                    legs.add(pathCoords(route.get(k), route.get(k + 1), stationMap, pathTolerance));
                 }
-                fullPathCoords.addAll(pathCoords(route.get(route.size() - 1), 0, stationMap));
+                legs.add(pathCoords(route.get(route.size() - 1), 0, stationMap, pathTolerance));
+            }
+            int coordLen = 0;
+            for (double[] leg : legs) coordLen += leg.length;
+            double[] fullPathCoords = new double[coordLen];
+            int pos = 0;
+            for (double[] leg : legs) {
+                System.arraycopy(leg, 0, fullPathCoords, pos, leg.length);
+                pos += leg.length;
             }
 
             LinkedHashMap<Long, Integer> pickedMap = (pickedMaps != null && i < pickedMaps.size())
@@ -866,7 +1145,7 @@ public class CargoController {
             item.put("fuelCost", fuelCost);
             item.put("rentalCost", rentalCost);
             item.put("totalCost", totalCost);
-            item.put("detailedPath", fullPathCoords);
+            item.put("detailedPath", PathCodec.encode(pathFormat, fullPathCoords, fullPathCoords.length / 2));
             item.put("steps", steps);
 
             list.add(item);
@@ -903,6 +1182,17 @@ public class CargoController {
         }
     }
 
+    private Map<String, Object> searchStatsDelta(Map<String, Object> before, Map<String, Object> after) {
+        long searches = ((Number) after.get("searches")).longValue() - ((Number) before.get("searches")).longValue();
+        long settled = ((Number) after.get("settledNodes")).longValue() - ((Number) before.get("settledNodes")).longValue();
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("algorithm", after.get("algorithm"));
+        delta.put("searches", searches);
+        delta.put("settledNodes", settled);
+        delta.put("avgSettledPerSearch", searches == 0 ? 0.0 : (double) settled / searches);
+        return delta;
+    }
+
     private int safeWeight(Cargo c) {
         Integer w = c.getWeight(); // int ise de boxing olur
         return (w == null) ? 0 : w;
@@ -919,7 +1209,18 @@ public class CargoController {
         }
     }
 
-    private static class CandidateVehicle {
+    /** planRoutes sonucu: kabul edilen rotalar sırasıyla (listeler aynı index'te) ve yükü kalan istasyonlar. */
+    static final class PlannedRoutes {
+        final List<List<Long>> routes = new ArrayList<>();
+        final List<Double> distances = new ArrayList<>();
+        final List<Integer> loads = new ArrayList<>();
+        final List<LinkedHashMap<Long, Integer>> pickedMaps = new ArrayList<>();
+        final List<Boolean> isCompany = new ArrayList<>();
+        final List<Long> companyVehicleIds = new ArrayList<>();
+        final List<Long> leftoverStations = new ArrayList<>();
+    }
+
+    static class CandidateVehicle {
         boolean isCompany;
         Long companyVehicleId;
         int capacityKg;
@@ -941,9 +1242,10 @@ public class CargoController {
         }
     }
 
-    private static class Plan {
-        List<Long> route = new ArrayList<>();
-        LinkedHashMap<Long, Integer> pickedMap = new LinkedHashMap<>();
+    static class Plan {
+        int[] route;          // PlanModel index'leri, rota sırasıyla
+        int[] pickedStations; // toplanma sırasıyla index'ler ve alınan kg
+        int[] pickedKg;
         int loadedKg;
 
         double distanceKm;
@@ -951,5 +1253,194 @@ public class CargoController {
         boolean isCompany;
         Long companyVehicleId;
         int capacityKg;
+
+        /** Aynı kapasiteli adaylar rota ve toplanan yükü paylaşır; maliyet alanları adaya özgüdür. */
+        Plan copy() {
+            Plan p = new Plan();
+            p.route = route;
+            p.pickedStations = pickedStations;
+            p.pickedKg = pickedKg;
+            p.loadedKg = loadedKg;
+            p.distanceKm = distanceKm;
+            return p;
+        }
+    }
+
+    /**
+     * Bir çalıştırmanın planlama modeli: yüklü istasyonlar bir kez 0..n-1'e eşlenir, kalan yük, komşu
+     * listeleri (CSR) ve kuş uçuşu mesafeler dizilerde durur; yol mesafeleri matristen index'le okunur.
+     */
+    private static final class PlanModel {
+        final int n;
+        final long[] ids;
+        final boolean[] known;   // stationMap'te var mı
+        final double[] hubAirKm; // known değilse 0
+        final int[] load;        // kalan yük; bir turun planları kurulurken değişmez
+        final int[] nbStart;     // i'nin komşuları nb[nbStart[i] .. nbStart[i + 1])
+        int[] nb;
+        double[] nbAirKm;        // i ile komşusu arası kuş uçuşu
+
+        private final DistanceMatrix matrix;
+        private final int[] matIdx; // matristeki index, yoksa -1
+        private final int hubIdx;
+
+        PlanModel(int n, DistanceMatrix matrix) {
+            this.n = n;
+            this.ids = new long[n];
+            this.known = new boolean[n];
+            this.hubAirKm = new double[n];
+            this.load = new int[n];
+            this.nbStart = new int[n + 1];
+            this.matrix = matrix;
+            this.matIdx = new int[n];
+            this.hubIdx = matrix.indexOf(0);
+        }
+
+        /** distKm(ids[i], ids[j]) ile aynı değer. */
+        double km(int i, int j) {
+            int a = matIdx[i], b = matIdx[j];
+            return (a < 0 || b < 0) ? DistanceMatrix.MISSING : matrix.distanceAt(a, b);
+        }
+
+        double kmToHub(int i) {
+            int a = matIdx[i];
+            return (a < 0 || hubIdx < 0) ? DistanceMatrix.MISSING : matrix.distanceAt(a, hubIdx);
+        }
+
+        /** totalRouteDistanceKm ile aynı toplama sırası: duraklar arası, sonra son duraktan hub'a. */
+        double routeKm(int[] route) {
+            if (route.length == 0) return 0.0;
+            double sum = 0.0;
+            for (int i = 0; i < route.length - 1; i++) sum += km(route[i], route[i + 1]);
+            sum += kmToHub(route[route.length - 1]);
+            return sum;
+        }
+
+        boolean hasLoad() {
+            for (int v : load) {
+                if (v > 0) return true;
+            }
+            return false;
+        }
+
+        List<Long> toIds(int[] route) {
+            List<Long> out = new ArrayList<>(route.length);
+            for (int i : route) out.add(ids[i]);
+            return out;
+        }
+
+        LinkedHashMap<Long, Integer> toPickedMap(int[] stations, int[] kg) {
+            LinkedHashMap<Long, Integer> out = new LinkedHashMap<>();
+            for (int k = 0; k < stations.length; k++) out.merge(ids[stations[k]], kg[k], Integer::sum);
+            return out;
+        }
+    }
+
+    /**
+     * Rota kurma alanı (planlar aday havuzunda paralel kurulur). Yük ve rota işaretleri sürüm damgalıdır:
+     * damgası eski olan istasyonun yükü modelden okunur. Dizi boyutu en büyük modele göre büyür.
+     * acquire/release ile ortak havuzdan alınır; en fazla MAX_IDLE tanesi bekler, thread sayısından bağımsız.
+     */
+    private static final class PlanWorkspace {
+        // aynı anda kurulan plan sayısı kadarı yeter
+        private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+        private static final Deque<PlanWorkspace> IDLE = new ConcurrentLinkedDeque<>();
+        private static final AtomicInteger idleCount = new AtomicInteger();
+
+        private int[] localLoad = new int[0];
+        private int[] loadStamp = new int[0];
+        private int[] routeStamp = new int[0];
+        int[] poolMark = new int[0];
+        private int[] deque = new int[0];
+        int[] pickedStations = new int[0];
+        int[] pickedKg = new int[0];
+        private int version, poolVersion;
+        private int front, back; // deque[front .. back)
+        int pickedCount;
+
+        int bestSt;
+        boolean bestToHead;
+        double bestScore;
+
+        /** Havuzdan (boşsa yeni) bir çalışma alanı, n istasyonluk model için sıfırlanmış; release ile geri verilir. */
+        static PlanWorkspace acquire(int n) {
+            PlanWorkspace ws = IDLE.pollFirst();
+            if (ws != null) idleCount.decrementAndGet();
+            else ws = new PlanWorkspace();
+            ws.reset(n);
+            return ws;
+        }
+
+        /** Havuz doluysa bırakılır. */
+        static void release(PlanWorkspace ws) {
+            if (idleCount.incrementAndGet() > MAX_IDLE) {
+                idleCount.decrementAndGet();
+                return;
+            }
+            IDLE.offerFirst(ws);
+        }
+
+        private void reset(int n) {
+            if (loadStamp.length < n) {
+                int capacity = Math.max(n, loadStamp.length + (loadStamp.length >> 1));
+                localLoad = new int[capacity];
+                loadStamp = new int[capacity];
+                routeStamp = new int[capacity];
+                poolMark = new int[capacity];
+                deque = new int[2 * capacity + 1];
+                pickedStations = new int[capacity];
+                pickedKg = new int[capacity];
+                version = 0;
+                poolVersion = 0;
+            }
+            if (version == Integer.MAX_VALUE) {
+                Arrays.fill(loadStamp, 0);
+                Arrays.fill(routeStamp, 0);
+                version = 0;
+            }
+            version++;
+            front = back = deque.length / 2;
+            pickedCount = 0;
+        }
+
+        int load(PlanModel m, int i) { return loadStamp[i] == version ? localLoad[i] : m.load[i]; }
+
+        void setLoad(int i, int value) {
+            loadStamp[i] = version;
+            localLoad[i] = value;
+        }
+
+        void addPicked(int i, int kg) {
+            pickedStations[pickedCount] = i;
+            pickedKg[pickedCount++] = kg;
+        }
+
+        boolean inRoute(int i) { return routeStamp[i] == version; }
+
+        void addFirst(int i) {
+            deque[--front] = i;
+            routeStamp[i] = version;
+        }
+
+        void addLast(int i) {
+            deque[back++] = i;
+            routeStamp[i] = version;
+        }
+
+        int first() { return deque[front]; }
+
+        int last() { return deque[back - 1]; }
+
+        int[] route() { return Arrays.copyOfRange(deque, front, back); }
+
+        /** Yeni aday havuzu işareti; poolMark[i] == işaret ise i bu turda havuza girmiş. */
+        int nextPoolMark() {
+            if (poolVersion == Integer.MAX_VALUE) {
+                Arrays.fill(poolMark, 0);
+                poolVersion = 0;
+            }
+            return ++poolVersion;
+        }
     }
 }
@@ -1,13 +1,30 @@
 package com.yazlab.kargo.controller;
 
+import com.yazlab.kargo.service.PathFormat;
+import com.yazlab.kargo.service.PathSimplifier;
+import com.yazlab.kargo.service.RoadTileService;
+import com.yazlab.kargo.service.RouteBatch;
+import com.yazlab.kargo.service.RouteBatchService;
+import com.yazlab.kargo.service.RouteResult;
 import com.yazlab.kargo.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/route")
@@ -16,17 +33,193 @@ public class RouteController {
     @Autowired
     private RouteService routeService;
 
+    @Autowired
+    private RouteBatchService routeBatchService;
+
+    @Autowired
+    private RoadTileService roadTileService;
+
 
     @GetMapping
-    public List<String> getRoute(
+    public ResponseEntity<?> getRoute(
             @RequestParam double startLat,
             @RequestParam double startLon,
             @RequestParam double endLat,
-            @RequestParam double endLon) {
+            @RequestParam double endLon,
+            @RequestParam(name = "pathFormat", required = false) String pathFormatParam,
+            @RequestParam(name = "simplify", required = false) Double simplifyMeters,
+            @RequestParam(name = "zoom", required = false) Integer zoom) {
+
+        PathFormat pathFormat = PathFormat.parse(pathFormatParam);
+        if (pathFormat == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Geçersiz pathFormat: " + pathFormatParam));
+        }
+
+        // simplify: metre cinsinden tolerans, zoom: o zoom'da bir piksel; ikisi de yoksa ham yol
+        double tolerance;
+        try {
+            tolerance = PathSimplifier.tolerance(simplifyMeters, zoom, startLat);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        RouteResult route = routeService.getRoute(startLat, startLon, endLat, endLon).simplified(tolerance);
+
+        // varsayılan gövde eskisi gibi koordinat listesi; diğer biçimlerde {format, path}
+        Object body = (pathFormat == PathFormat.COORDS)
+                ? route.getPath()
+                : Map.of("format", pathFormat.paramValue(), "path", route.encodePath(pathFormat));
+
+        // arama bilgisi başlıklarda
+        return ResponseEntity.ok()
+                .header("X-Route-Algorithm", route.getAlgorithm().name())
+                .header("X-Route-Settled-Nodes", String.valueOf(route.getSettledNodes()))
+                .body(body);
+    }
+
+
+    /**
+     * Toplu rota. Gövde {"pairs": [{startLat, startLon, endLat, endLon}, ...]} ya da her kaynaktan her hedefe
+     * {"sources": [{lat, lon}, ...], "targets": [{lat, lon}, ...]}. "geometry": true ise yollar da döner
+     * (pathFormat ile). Mesafeler km; pairs'te istek sırasıyla, sources/targets'ta satır başına bir kaynak.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestBody Map<String, Object> body) {
+        Object formatParam = body.get("pathFormat");
+        PathFormat pathFormat = PathFormat.parse(formatParam == null ? null : String.valueOf(formatParam));
+        if (pathFormat == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Geçersiz pathFormat: " + formatParam));
+        }
+        boolean geometry = Boolean.TRUE.equals(body.get("geometry"));
+
+        RouteBatch batch;
+        int columns;
+        try {
+            if (body.get("pairs") != null) {
+                double[][] p = columns(body.get("pairs"), "pairs", "startLat", "startLon", "endLat", "endLon");
+                checkSize(p[0].length);
+                batch = routeBatchService.route(p[0], p[1], p[2], p[3], geometry);
+                columns = 0;
+            } else if (body.get("sources") != null && body.get("targets") != null) {
+                double[][] src = columns(body.get("sources"), "sources", "lat", "lon");
+                double[][] dst = columns(body.get("targets"), "targets", "lat", "lon");
+                checkSize((long) src[0].length * dst[0].length);
+                batch = routeBatchService.routeMatrix(src[0], src[1], dst[0], dst[1], geometry);
+                columns = dst[0].length;
+            } else {
+                return ResponseEntity.badRequest().body(Map.of("error", "'pairs' ya da 'sources' ve 'targets' gerekli."));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
 
+        Map<String, Object> resp = new LinkedHashMap<>();
+        if (columns == 0) {
+            double[] distances = new double[batch.size()];
+            for (int i = 0; i < distances.length; i++) distances[i] = batch.getDistanceKm(i);
+            resp.put("distances", distances);
+        } else {
+            double[][] rows = new double[batch.size() / columns][columns];
+            for (int i = 0; i < batch.size(); i++) rows[i / columns][i % columns] = batch.getDistanceKm(i);
+            resp.put("distances", rows);
+        }
+        if (batch.hasGeometry()) {
+            List<Object> paths = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) paths.add(batch.encodePath(i, pathFormat));
+            resp.put("format", pathFormat.paramValue());
+            resp.put("paths", paths);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pairs", batch.size());
+        stats.put("uniquePoints", batch.getUniquePoints());
+        stats.put("uniqueNodes", batch.getUniqueNodes());
+        stats.put("searches", batch.getSearches());
+        stats.put("settledNodes", batch.getSettledNodes());
+        stats.put("millis", batch.getMillis());
+        stats.put("networkVersion", batch.getNetworkVersion());
+        resp.put("stats", stats);
+        return ResponseEntity.ok(resp);
+    }
+
+    private void checkSize(long pairs) {
+        if (pairs == 0) throw new IllegalArgumentException("En az bir çift gerekli.");
+        if (pairs > routeBatchService.getMaxPairs()) {
+            throw new IllegalArgumentException("En fazla " + routeBatchService.getMaxPairs() + " çift: " + pairs);
+        }
+    }
 
-        return routeService.getShortestPath(startLat, startLon, endLat, endLon);
+    /** [{k1: .., k2: ..}, ...] listesini her anahtar için bir sütuna çevirir. */
+    private static double[][] columns(Object list, String name, String... keys) {
+        if (!(list instanceof List)) throw new IllegalArgumentException("'" + name + "' liste olmalı.");
+        List<?> items = (List<?>) list;
+        double[][] out = new double[keys.length][items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            if (!(items.get(i) instanceof Map)) throw new IllegalArgumentException(name + "[" + i + "] nesne olmalı.");
+            Map<?, ?> item = (Map<?, ?>) items.get(i);
+            for (int k = 0; k < keys.length; k++) {
+                Object v = item.get(keys[k]);
+                if (!(v instanceof Number)) throw new IllegalArgumentException(name + "[" + i + "]." + keys[k] + " sayı olmalı.");
+                out[k][i] = ((Number) v).doubleValue();
+            }
+        }
+        return out;
+    }
+
+
+    /** Yol katmanı ayarları: minZoom altındaki karolar boş döner, harita onları hiç istemez. */
+    @GetMapping("/roads")
+    public Map<String, Object> getRoadLayer() {
+        return Map.of("minZoom", roadTileService.getMinZoom());
+    }
+
+
+    /**
+     * Haritanın yol katmanı: z/x/y (OSM/Leaflet) karosundaki yollar GeoJSON olarak, zoom'a göre seyreltilmiş.
+     * Tarayıcı her seferinde If-None-Match ile sorar; ağ değişmediyse 304 döner.
+     */
+    @GetMapping("/roads/{z}/{x}/{y}")
+    public ResponseEntity<String> getRoadTile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            WebRequest request) {
+        if (!roadTileService.validTile(z, x, y)) {
+            return ResponseEntity.badRequest().body("{\"error\":\"Geçersiz karo: " + z + "/" + x + "/" + y + "\"}");
+        }
+
+        // If-None-Match listesi, zayıf (W/) etiketler ve * Spring'in karşılaştırmasıyla; eşleşirse 304 yazılmıştır
+        String etag = roadTileService.etag(z, x, y);
+        if (request.checkNotModified(etag)) return null;
+
+        RoadTileService.Tile tile = roadTileService.tile(z, x, y);
+        return ResponseEntity.ok()
+                .eTag(tile.etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(tile.json);
+    }
+
+
+    @GetMapping("/stats")
+    public Map<String, Object> getSearchStats() {
+        return routeService.getSearchStats();
+    }
+
+
+    /** Yol ağını arka planda yeniden yükler; bitene kadar istekler mevcut ağla cevaplanır. */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload() {
+        boolean started = routeService.requestReload("api");
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("started", started);
+        body.putAll(routeService.getReloadStatus());
+        // zaten süren bir yükleme varsa yenisi başlatılmaz
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(body);
+    }
 
 
+    @GetMapping("/reload")
+    public Map<String, Object> getReloadStatus() {
+        return routeService.getReloadStatus();
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.yazlab.kargo.controller;
 
 import com.yazlab.kargo.entity.Station;
 import com.yazlab.kargo.repository.StationRepository;
+import com.yazlab.kargo.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +17,9 @@ public class StationController {
     @Autowired
     private StationRepository stationRepository;
 
+    @Autowired
+    private RouteService routeService;
+
 
     @GetMapping("/all")
     public List<Station> getAllStations() {
@@ -33,6 +37,8 @@ public class StationController {
         station.setName(name);
         station.setLatitude(lat);
         station.setLongitude(lng);
+        // en yakın yol node'u bir kez burada bulunur; planlama her seferinde yeniden snap etmez
+        routeService.snapStation(station);
 
         stationRepository.save(station);
 
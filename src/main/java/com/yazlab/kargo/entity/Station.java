@@ -18,5 +18,11 @@ public class Station {
     private double latitude;
     private double longitude;
 
+    // en yakın yol node'u ve ona uzaklık (metre); snapGraph hangi grafa göre hesaplandığı.
+    // graf değişince (farklı GeoJSON ya da snap kuralı) toplu olarak yeniden hesaplanır
+    private Integer snapNode;
+    private Double snapDistanceM;
+    private Long snapGraph;
+
 
 }
\ No newline at end of file
@@ -0,0 +1,443 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+
+/**
+ * Derece-2 zincirleri tek kenara indirilmiş topolojik graf. Kavşaklar (farklı komşu sayısı 2 olmayan
+ * node'lar) korunur; aradaki şekil noktaları kenarın "via" listesinde sırayla tutulur, koordinatları
+ * tam grafta kalır. Arama küçük grafta yapılır, bulunan yol tam node dizisine açılır ve mesafe
+ * PathFinder.pathDistance ile tam graf üzerinden hesaplanır (Dijkstra ile aynı toplama sırası).
+ *
+ * Başlangıç/hedef bir zincirin ortasına snap edilmişse zincirin iki ucu, zincir boyu mesafeyle
+ * kaynak/hedef olarak kullanılır; ikisi aynı zincirdeyse zincir içi doğrudan yol da aday olur.
+ */
+final class ChainGraph {
+
+    final RoadGraph full;
+    final RoadGraph topo;
+
+    final int[] topoOf;   // tam node -> topo node, zincir içindeyse -1
+    final int[] fullOf;   // topo node -> tam node
+    final int[] viaStart; // topo kenar e'nin ara node'ları: via[viaStart[e] .. viaStart[e+1]), yürüme sırasıyla
+    final int[] via;
+    final int[] chainEdge; // zincir içi node -> içinden geçen topo kenar (korunan node'da -1)
+    final int[] chainPos;  // o kenarın via listesindeki sırası
+    final long buildMillis;
+
+    private ChainGraph(RoadGraph full, RoadGraph topo, int[] topoOf, int[] fullOf, int[] viaStart, int[] via,
+                       int[] chainEdge, int[] chainPos, long buildMillis) {
+        this.full = full;
+        this.topo = topo;
+        this.topoOf = topoOf;
+        this.fullOf = fullOf;
+        this.viaStart = viaStart;
+        this.via = via;
+        this.chainEdge = chainEdge;
+        this.chainPos = chainPos;
+        this.buildMillis = buildMillis;
+    }
+
+    /** Tam grafa ek olarak tutulan dizilerin yaklaşık heap maliyeti (byte). */
+    long memoryBytes() {
+        return topo.memoryBytes() + 4L * (topoOf.length + fullOf.length + viaStart.length + via.length
+                + chainEdge.length + chainPos.length);
+    }
+
+    // ------------------------------------------------------------------ kurulum
+
+    static ChainGraph build(RoadGraph g) {
+        long start = System.currentTimeMillis();
+        int n = g.nodeCount();
+
+        // iki farklı komşusu olan node'lar zincir içidir; ikisi nb1/nb2'de tutulur
+        int[] nb1 = new int[n];
+        int[] nb2 = new int[n];
+        boolean[] kept = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            int a = -1, b = -1, distinct = 0;
+            for (int e = g.offsets[v], end = g.offsets[v + 1]; e < end; e++) {
+                int w = g.targets[e];
+                if (w == v || w == a || w == b) continue;
+                if (distinct == 0) a = w;
+                else if (distinct == 1) b = w;
+                distinct++;
+            }
+            nb1[v] = a;
+            nb2[v] = b;
+            kept[v] = distinct != 2;
+        }
+
+        // hiçbir kavşağa bağlı olmayan halkalarda bir node korunan sayılır
+        boolean[] reached = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            if (!kept[v]) continue;
+            for (int e = g.offsets[v], end = g.offsets[v + 1]; e < end; e++) {
+                for (int prev = v, cur = g.targets[e]; !kept[cur] && !reached[cur]; ) {
+                    reached[cur] = true;
+                    int next = nb1[cur] == prev ? nb2[cur] : nb1[cur];
+                    prev = cur;
+                    cur = next;
+                }
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            if (kept[v] || reached[v]) continue;
+            kept[v] = true;
+            for (int prev = v, cur = nb1[v]; cur != v; ) {
+                reached[cur] = true;
+                int next = nb1[cur] == prev ? nb2[cur] : nb1[cur];
+                prev = cur;
+                cur = next;
+            }
+        }
+
+        int[] topoOf = new int[n];
+        int topoCount = 0;
+        for (int v = 0; v < n; v++) topoOf[v] = kept[v] ? topoCount++ : -1;
+        int[] fullOf = new int[topoCount];
+        double[] lat = new double[topoCount];
+        double[] lon = new double[topoCount];
+        for (int v = 0; v < n; v++) {
+            if (!kept[v]) continue;
+            fullOf[topoOf[v]] = v;
+            lat[topoOf[v]] = g.lat[v];
+            lon[topoOf[v]] = g.lon[v];
+        }
+
+        // korunan node'lar artan sırayla işlendiği için kenarlar doğrudan CSR sırasında üretilir
+        int[] offsets = new int[topoCount + 1];
+        IntList targets = new IntList(Math.max(16, topoCount * 3));
+        DoubleList weights = new DoubleList(Math.max(16, topoCount * 3));
+        IntList viaStart = new IntList(Math.max(16, topoCount * 3));
+        IntList via = new IntList(Math.max(16, 2 * (n - topoCount)));
+        int[] chainEdge = new int[n];
+        int[] chainPos = new int[n];
+        Arrays.fill(chainEdge, -1);
+
+        for (int t = 0; t < topoCount; t++) {
+            int u = fullOf[t];
+            offsets[t] = targets.size;
+            for (int e = g.offsets[u], end = g.offsets[u + 1]; e < end; e++) {
+                int v = g.targets[e];
+                if (v == u || !firstEdgeTo(g, u, e, v)) continue;
+
+                int edge = targets.size;
+                viaStart.add(via.size);
+                double sum = PathFinder.edgeWeight(g, u, v);
+                int prev = u, cur = v;
+                while (!kept[cur]) {
+                    if (chainEdge[cur] < 0) {
+                        chainEdge[cur] = edge;
+                        chainPos[cur] = via.size - viaStart.get(edge);
+                    }
+                    via.add(cur);
+                    int next = nb1[cur] == prev ? nb2[cur] : nb1[cur];
+                    sum += PathFinder.edgeWeight(g, cur, next);
+                    prev = cur;
+                    cur = next;
+                }
+                targets.add(topoOf[cur]);
+                weights.add(sum);
+            }
+        }
+        offsets[topoCount] = targets.size;
+        viaStart.add(via.size);
+
+        RoadGraph topo = new RoadGraph(lat, lon, offsets, targets.toArray(), weights.toArray());
+        return new ChainGraph(g, topo, topoOf, fullOf, viaStart.toArray(), via.toArray(), chainEdge, chainPos,
+                System.currentTimeMillis() - start);
+    }
+
+    /** Paralel kenarlardan sadece ilki zincir başlatır. */
+    private static boolean firstEdgeTo(RoadGraph g, int u, int e, int v) {
+        for (int f = g.offsets[u]; f < e; f++) {
+            if (g.targets[f] == v) return false;
+        }
+        return true;
+    }
+
+    // ------------------------------------------------------------------ sorgu
+
+    /** Tam graf node'ları arasında en kısa yol; yol ve mesafe tam graf üzerindendir. */
+    PathResult route(int startId, int endId) {
+        if (startId == endId) return new PathResult(new int[]{startId}, 0.0, 0);
+        Query q = new Query(startId, new int[]{endId});
+        try {
+            int settled = q.run();
+            if (q.best[0] == Double.MAX_VALUE) return PathResult.unreachable(settled);
+            int[] path = q.path(0);
+            return new PathResult(path, PathFinder.pathDistance(full, path), settled);
+        } finally {
+            SearchWorkspace.release(q.ws);
+        }
+    }
+
+    /**
+     * PathFinder.dijkstraToMany'nin karşılığı: out[i] = targets[i]'ye mesafe (ulaşılamıyorsa Double.MAX_VALUE).
+     * Her hedefin yolu açılıp tam grafta toplanır. Kesinleşen topo node sayısını döner.
+     */
+    int distancesToMany(int startId, int[] targets, double[] out) {
+        return pathsToMany(startId, targets, out, null);
+    }
+
+    /** distancesToMany ile aynı; paths null değilse paths[i] = targets[i]'ye tam graf yolu (ulaşılamıyorsa null). */
+    int pathsToMany(int startId, int[] targets, double[] out, int[][] paths) {
+        Query q = new Query(startId, targets);
+        try {
+            int settled = q.run();
+            for (int i = 0; i < targets.length; i++) {
+                int[] path;
+                if (targets[i] == startId) {
+                    path = new int[]{startId};
+                    out[i] = 0.0;
+                } else if (q.best[i] == Double.MAX_VALUE) {
+                    path = null;
+                    out[i] = Double.MAX_VALUE;
+                } else {
+                    path = q.path(i);
+                    out[i] = PathFinder.pathDistance(full, path);
+                }
+                if (paths != null) paths[i] = path;
+            }
+            return settled;
+        } finally {
+            SearchWorkspace.release(q.ws);
+        }
+    }
+
+    private int tail(int edge) {
+        int lo = 0, hi = topo.nodeCount() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (topo.offsets[mid] <= edge) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /** Zincir içi node'dan kenarın başına (toTail) ya da sonuna, yürüme sırasıyla toplanan mesafe. */
+    private double alongChain(int node, boolean toTail) {
+        int edge = chainEdge[node];
+        int from = viaStart[edge], to = viaStart[edge + 1];
+        int pos = from + chainPos[node];
+        double sum = 0.0;
+        if (toTail) {
+            for (int i = pos; i > from; i--) sum += PathFinder.edgeWeight(full, via[i], via[i - 1]);
+            sum += PathFinder.edgeWeight(full, via[from], fullOf[tail(edge)]);
+        } else {
+            for (int i = pos; i + 1 < to; i++) sum += PathFinder.edgeWeight(full, via[i], via[i + 1]);
+            sum += PathFinder.edgeWeight(full, via[to - 1], fullOf[topo.targets[edge]]);
+        }
+        return sum;
+    }
+
+    /** Aynı zincirdeki iki node arasında zincirden çıkmadan giden mesafe. */
+    private double withinChain(int a, int b) {
+        int base = viaStart[chainEdge[a]];
+        int i = base + chainPos[a], j = base + chainPos[b];
+        int step = i < j ? 1 : -1;
+        double sum = 0.0;
+        for (; i != j; i += step) sum += PathFinder.edgeWeight(full, via[i], via[i + step]);
+        return sum;
+    }
+
+    // hedefin topo node'a bağlanma şekli
+    private static final int AT_NODE = 0, FROM_TAIL = 1, FROM_HEAD = 2, DIRECT = 3;
+
+    /** Tek kaynak, bir ya da daha çok hedef. Kaynak ve hedefler tam graf node'larıdır. */
+    private final class Query {
+        final int startId;
+        final int[] targets;
+        final double[] best;
+        final int[] bestNode; // hedefe ulaşılan topo node (DIRECT'te -1)
+        final int[] bestKind;
+
+        // topo arama durumu; parent alanına node'a gelinen topo kenar yazılır (kaynak uçlarında -1),
+        // aux alanı bağlı hedef listesinin başıdır: topo node -> (hedef index, mesafe, tür).
+        // Sorguyu kuran metot işi bitince havuza geri verir.
+        final SearchWorkspace ws;
+        int[] attachNext = new int[8], attachTarget = new int[8], attachKind = new int[8];
+        double[] attachOffset = new double[8];
+        int attachCount;
+
+        // kaynak zincir ortasındaysa iki uç; toTail: dist[tailSeed] baş tarafa yürüyerek mi bulundu
+        int tailSeed = -1, headSeed = -1;
+        boolean loopViaTail;
+
+        Query(int startId, int[] targets) {
+            this.startId = startId;
+            this.targets = targets;
+            int k = targets.length;
+            best = new double[k];
+            Arrays.fill(best, Double.MAX_VALUE);
+            bestNode = new int[k];
+            bestKind = new int[k];
+
+            ws = SearchWorkspace.acquire(topo.nodeCount());
+
+            for (int i = 0; i < k; i++) {
+                int t = targets[i];
+                if (t == startId) {
+                    best[i] = 0.0;
+                    bestKind[i] = DIRECT;
+                    bestNode[i] = -1;
+                } else if (topoOf[t] >= 0) {
+                    attach(topoOf[t], i, 0.0, AT_NODE);
+                } else {
+                    int edge = chainEdge[t];
+                    attach(tail(edge), i, alongChain(t, true), FROM_TAIL);
+                    attach(topo.targets[edge], i, alongChain(t, false), FROM_HEAD);
+                    if (topoOf[startId] < 0 && chainEdge[startId] == edge) {
+                        best[i] = withinChain(startId, t);
+                        bestKind[i] = DIRECT;
+                        bestNode[i] = -1;
+                    }
+                }
+            }
+        }
+
+        private void attach(int node, int target, double offset, int kind) {
+            if (attachCount == attachNext.length) {
+                int len = attachCount * 2;
+                attachNext = Arrays.copyOf(attachNext, len);
+                attachTarget = Arrays.copyOf(attachTarget, len);
+                attachKind = Arrays.copyOf(attachKind, len);
+                attachOffset = Arrays.copyOf(attachOffset, len);
+            }
+            attachNext[attachCount] = ws.aux(node);
+            attachTarget[attachCount] = target;
+            attachKind[attachCount] = kind;
+            attachOffset[attachCount] = offset;
+            ws.setAux(node, attachCount++);
+        }
+
+        private double maxBest() {
+            double m = 0.0;
+            for (double b : best) m = Math.max(m, b);
+            return m;
+        }
+
+        int run() {
+            int s = topoOf[startId];
+            if (s >= 0) {
+                ws.start(s, 0.0);
+            } else {
+                int edge = chainEdge[startId];
+                tailSeed = tail(edge);
+                headSeed = topo.targets[edge];
+                double toTail = alongChain(startId, true);
+                double toHead = alongChain(startId, false);
+                loopViaTail = toTail <= toHead;
+                ws.start(tailSeed, toTail);
+                if (toHead < ws.dist(headSeed)) ws.start(headSeed, toHead);
+            }
+
+            int[] offsets = topo.offsets;
+            int[] targetsOf = topo.targets;
+            double[] weights = topo.weights;
+            double bound = maxBest();
+            int settled = 0;
+
+            while (!ws.isEmpty()) {
+                if (ws.peekKey() >= bound) break;
+                int u = ws.poll();
+                settled++;
+
+                double du = ws.dist(u);
+                boolean improved = false;
+                for (int a = ws.aux(u); a >= 0; a = attachNext[a]) {
+                    int i = attachTarget[a];
+                    double d = du + attachOffset[a];
+                    if (d < best[i]) {
+                        best[i] = d;
+                        bestNode[i] = u;
+                        bestKind[i] = attachKind[a];
+                        improved = true;
+                    }
+                }
+                if (improved) bound = maxBest();
+
+                for (int e = offsets[u], end = offsets[u + 1]; e < end; e++) {
+                    int v = targetsOf[e];
+                    if (ws.settled(v)) continue;
+                    double newDist = du + weights[e];
+                    if (newDist < ws.dist(v)) ws.update(v, newDist, e, newDist);
+                }
+            }
+            return settled;
+        }
+
+        /** i. hedefin tam node dizisi; best[i] sonlu olmalı. */
+        int[] path(int i) {
+            int t = targets[i];
+            if (bestKind[i] == DIRECT) {
+                if (t == startId) return new int[]{t};
+                int base = viaStart[chainEdge[t]];
+                int a = chainPos[startId], b = chainPos[t];
+                int step = a < b ? 1 : -1;
+                IntList out = new IntList(Math.abs(b - a) + 1);
+                for (int p = a; p != b + step; p += step) out.add(via[base + p]);
+                return out.toArray();
+            }
+
+            // topo yolu geriye doğru: kenarlar
+            IntList edges = new IntList(16);
+            int root = bestNode[i];
+            while (ws.parent(root) >= 0) {
+                edges.add(ws.parent(root));
+                root = tail(ws.parent(root));
+            }
+
+            IntList out = new IntList(64);
+            // kaynaktan kök topo node'a
+            if (topoOf[startId] < 0) {
+                int edge = chainEdge[startId];
+                int base = viaStart[edge], pos = chainPos[startId];
+                boolean viaTail = root == tailSeed && (tailSeed != headSeed || loopViaTail);
+                if (viaTail) {
+                    for (int p = pos; p >= 0; p--) out.add(via[base + p]);
+                } else {
+                    for (int p = base + pos, end = viaStart[edge + 1]; p < end; p++) out.add(via[p]);
+                }
+            }
+            out.add(fullOf[root]);
+            for (int k = edges.size - 1; k >= 0; k--) {
+                int e = edges.get(k);
+                for (int p = viaStart[e]; p < viaStart[e + 1]; p++) out.add(via[p]);
+                out.add(fullOf[topo.targets[e]]);
+            }
+            // hedef zincir içindeyse son topo node'dan hedefe
+            if (bestKind[i] == FROM_TAIL) {
+                int edge = chainEdge[t];
+                for (int p = viaStart[edge], end = viaStart[edge] + chainPos[t]; p <= end; p++) out.add(via[p]);
+            } else if (bestKind[i] == FROM_HEAD) {
+                int edge = chainEdge[t];
+                for (int p = viaStart[edge + 1] - 1, end = viaStart[edge] + chainPos[t]; p >= end; p--) out.add(via[p]);
+            }
+            return out.toArray();
+        }
+    }
+
+    private static final class IntList {
+        int[] data;
+        int size;
+        IntList(int capacity) { data = new int[Math.max(1, capacity)]; }
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+        int get(int i) { return data[i]; }
+        int[] toArray() { return Arrays.copyOf(data, size); }
+    }
+
+    private static final class DoubleList {
+        double[] data;
+        int size;
+        DoubleList(int capacity) { data = new double[Math.max(1, capacity)]; }
+        void add(double v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+        double[] toArray() { return Arrays.copyOf(data, size); }
+    }
+}
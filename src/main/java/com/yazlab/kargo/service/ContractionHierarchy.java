@@ -0,0 +1,502 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RoadGraph üzerine kurulan contraction hierarchy. Graf simetrik olduğu için tek bir "yukarı" kenar
+ * listesi tutulur: node'un kendisinden sonra daraltılan komşularına giden orijinal kenarlar ve kısayollar.
+ * Sorgu iki uçtan yukarı doğru Dijkstra'dır; kısayollar mid üzerinden orijinal node dizisine açılır.
+ */
+final class ContractionHierarchy {
+
+    // öncelik hesabındaki simülasyon sadece sıralamayı etkiler, daha kısa tanık araması yeterli
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+    // aynı anda çalışan sorgu kadarı yeter; fazlası geri verilince bırakılır
+    private static final int MAX_IDLE_STATES = Runtime.getRuntime().availableProcessors();
+
+    final int[] rank;
+    final int[] upOffsets;
+    final int[] upTargets;
+    final double[] upWeights;
+    final int[] upMid; // -1: orijinal kenar, aksi halde kısayolun üzerinden geçtiği node
+    final int shortcutCount;
+    final long buildMillis;
+
+    // sorgu durumları bu CH'ye aittir: ağ değişip CH bırakılınca onlarla birlikte toplanır
+    // (ThreadLocal'daki değerler thread'ler yaşadıkça eski grafın boyunda kalıyordu)
+    private final Deque<QueryState> idleStates = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private ContractionHierarchy(int[] rank, int[] upOffsets, int[] upTargets, double[] upWeights, int[] upMid,
+                                 int shortcutCount, long buildMillis) {
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMid = upMid;
+        this.shortcutCount = shortcutCount;
+        this.buildMillis = buildMillis;
+    }
+
+    /** Kenar + kısayol dizilerinin yaklaşık heap maliyeti (byte). */
+    long memoryBytes() {
+        return 4L * rank.length + 4L * upOffsets.length
+                + 4L * upTargets.length + 8L * upWeights.length + 4L * upMid.length;
+    }
+
+    // ------------------------------------------------------------------ ön işleme
+
+    /**
+     * Node'ları tembel güncellenen öncelik sırasıyla (edge difference + silinen komşu + seviye) daraltır.
+     * Tanık aramaları witnessSettleLimit node ile sınırlıdır; süre maxBuildMillis'i aşarsa null döner.
+     */
+    static ContractionHierarchy build(RoadGraph g, int witnessSettleLimit, long maxBuildMillis) {
+        long start = System.currentTimeMillis();
+        long deadline = start + maxBuildMillis;
+        Builder b = new Builder(g, witnessSettleLimit);
+
+        int n = g.nodeCount();
+        double[] priority = new double[n];
+        boolean[] done = new boolean[n];
+        MinHeap order = new MinHeap(n);
+        for (int v = 0; v < n; v++) {
+            priority[v] = b.priority(v);
+            order.push(priority[v], v);
+            // ilk öncelik hesabı da büyük ağlarda uzun sürer; süre burada da kontrol edilir
+            if ((v & 255) == 255 && System.currentTimeMillis() > deadline) return null;
+        }
+
+        int contracted = 0;
+        while (!order.isEmpty()) {
+            double key = order.peekKey();
+            int v = order.peekNode();
+            order.pop();
+            if (done[v] || key != priority[v]) continue; // eski kayıt
+
+            double p = b.priority(v);
+            if (!order.isEmpty() && p > order.peekKey()) {
+                priority[v] = p;
+                order.push(p, v);
+                continue;
+            }
+
+            // komşuların önceliği sıraları geldiğinde yeniden hesaplanır (tembel güncelleme)
+            b.contract(v, contracted++);
+            done[v] = true;
+            if ((contracted & 255) == 0 && System.currentTimeMillis() > deadline) return null;
+        }
+
+        return b.freeze(System.currentTimeMillis() - start);
+    }
+
+    private static final class Builder {
+        final int n;
+        final int witnessSettleLimit;
+        final int[][] nb;
+        final double[][] nw;
+        final int[][] nm;
+        final int[] deg;
+        final int[] deleted;
+        final int[] level;
+        final int[] rank;
+
+        final int[][] upNode;
+        final double[][] upW;
+        final int[][] upM;
+        int shortcuts = 0;
+
+        // tanık araması için tekrar kullanılan durum
+        final double[] wDist;
+        final int[] wStamp;
+        int wVersion = 0;
+        final MinHeap wHeap;
+
+        Builder(RoadGraph g, int witnessSettleLimit) {
+            this.n = g.nodeCount();
+            this.witnessSettleLimit = witnessSettleLimit;
+            nb = new int[n][];
+            nw = new double[n][];
+            nm = new int[n][];
+            deg = new int[n];
+            deleted = new int[n];
+            level = new int[n];
+            rank = new int[n];
+            upNode = new int[n][];
+            upW = new double[n][];
+            upM = new int[n][];
+            wDist = new double[n];
+            wStamp = new int[n];
+            wHeap = new MinHeap(16);
+
+            for (int u = 0; u < n; u++) {
+                int d = g.degree(u);
+                nb[u] = new int[Math.max(2, d)];
+                nw[u] = new double[Math.max(2, d)];
+                nm[u] = new int[Math.max(2, d)];
+            }
+            // paralel kenarlar en kısa olanla tek kenara iner
+            for (int u = 0; u < n; u++) {
+                for (int e = g.offsets[u], end = g.offsets[u + 1]; e < end; e++) {
+                    int v = g.targets[e];
+                    if (v != u) addOrImprove(u, v, g.weights[e], -1);
+                }
+            }
+        }
+
+        void addOrImprove(int u, int v, double w, int mid) {
+            for (int i = 0; i < deg[u]; i++) {
+                if (nb[u][i] == v) {
+                    if (w < nw[u][i]) {
+                        nw[u][i] = w;
+                        nm[u][i] = mid;
+                    }
+                    return;
+                }
+            }
+            if (deg[u] == nb[u].length) {
+                int cap = nb[u].length * 2;
+                nb[u] = Arrays.copyOf(nb[u], cap);
+                nw[u] = Arrays.copyOf(nw[u], cap);
+                nm[u] = Arrays.copyOf(nm[u], cap);
+            }
+            nb[u][deg[u]] = v;
+            nw[u][deg[u]] = w;
+            nm[u][deg[u]] = mid;
+            deg[u]++;
+        }
+
+        void remove(int u, int v) {
+            for (int i = 0; i < deg[u]; i++) {
+                if (nb[u][i] == v) {
+                    int last = --deg[u];
+                    nb[u][i] = nb[u][last];
+                    nw[u][i] = nw[u][last];
+                    nm[u][i] = nm[u][last];
+                    return;
+                }
+            }
+        }
+
+        double priority(int v) {
+            int needed = shortcuts(v, false, SIMULATION_SETTLE_LIMIT);
+            return (needed - deg[v]) + deleted[v] + level[v];
+        }
+
+        void contract(int v, int order) {
+            int added = shortcuts(v, true, witnessSettleLimit);
+            shortcuts += added;
+
+            upNode[v] = Arrays.copyOf(nb[v], deg[v]);
+            upW[v] = Arrays.copyOf(nw[v], deg[v]);
+            upM[v] = Arrays.copyOf(nm[v], deg[v]);
+            rank[v] = order;
+
+            for (int i = 0; i < deg[v]; i++) {
+                int u = nb[v][i];
+                remove(u, v);
+                deleted[u]++;
+                level[u] = Math.max(level[u], level[v] + 1);
+            }
+            deg[v] = 0;
+            nb[v] = null;
+            nw[v] = null;
+            nm[v] = null;
+        }
+
+        /** v daraltılırsa gereken kısayol sayısı; apply ise kısayolları ekler. */
+        int shortcuts(int v, boolean apply, int settleLimit) {
+            int d = deg[v];
+            int count = 0;
+            for (int i = 0; i < d; i++) {
+                int u = nb[v][i];
+                double wu = nw[v][i];
+                if (i + 1 >= d) break;
+                double maxVia = 0;
+                for (int j = i + 1; j < d; j++) maxVia = Math.max(maxVia, wu + nw[v][j]);
+
+                witnessSearch(u, v, maxVia, settleLimit);
+                for (int j = i + 1; j < d; j++) {
+                    int w = nb[v][j];
+                    double via = wu + nw[v][j];
+                    double witness = (wStamp[w] == wVersion) ? wDist[w] : Double.MAX_VALUE;
+                    if (witness <= via) continue;
+                    count++;
+                    if (apply) {
+                        addOrImprove(u, w, via, v);
+                        addOrImprove(w, u, via, v);
+                    }
+                }
+            }
+            return count;
+        }
+
+        /** u'dan, v'ye uğramadan, maxDist'e kadar sınırlı Dijkstra. */
+        void witnessSearch(int source, int skip, double maxDist, int settleLimit) {
+            wVersion++;
+            wHeap.clear();
+            wDist[source] = 0.0;
+            wStamp[source] = wVersion;
+            wHeap.push(0.0, source);
+            int settled = 0;
+
+            while (!wHeap.isEmpty() && settled < settleLimit) {
+                double du = wHeap.peekKey();
+                int u = wHeap.peekNode();
+                wHeap.pop();
+                if (du > wDist[u]) continue;
+                if (du > maxDist) break;
+                settled++;
+
+                for (int i = 0; i < deg[u]; i++) {
+                    int x = nb[u][i];
+                    if (x == skip) continue;
+                    double nd = du + nw[u][i];
+                    if (wStamp[x] != wVersion || nd < wDist[x]) {
+                        wStamp[x] = wVersion;
+                        wDist[x] = nd;
+                        wHeap.push(nd, x);
+                    }
+                }
+            }
+        }
+
+        ContractionHierarchy freeze(long buildMillis) {
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) offsets[v + 1] = offsets[v] + upNode[v].length;
+            int m = offsets[n];
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            int[] mids = new int[m];
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(upNode[v], 0, targets, offsets[v], upNode[v].length);
+                System.arraycopy(upW[v], 0, weights, offsets[v], upW[v].length);
+                System.arraycopy(upM[v], 0, mids, offsets[v], upM[v].length);
+            }
+            return new ContractionHierarchy(rank, offsets, targets, weights, mids, shortcuts, buildMillis);
+        }
+    }
+
+    // ------------------------------------------------------------------ sorgu
+
+    PathResult query(RoadGraph g, int startId, int endId) {
+        if (startId == endId) return new PathResult(new int[]{startId}, 0.0, 0);
+
+        QueryState st = acquireState();
+        try {
+            return query(g, startId, endId, st);
+        } finally {
+            releaseState(st);
+        }
+    }
+
+    private QueryState acquireState() {
+        QueryState st = idleStates.pollFirst();
+        if (st == null) return new QueryState(rank.length);
+        idleCount.decrementAndGet();
+        return st;
+    }
+
+    private void releaseState(QueryState st) {
+        if (idleCount.incrementAndGet() > MAX_IDLE_STATES) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idleStates.offerFirst(st);
+    }
+
+    private PathResult query(RoadGraph g, int startId, int endId, QueryState st) {
+        st.reset();
+        st.visit(0, startId, 0.0, -1, -1);
+        st.visit(1, endId, 0.0, -1, -1);
+        st.heap[0].push(0.0, startId);
+        st.heap[1].push(0.0, endId);
+
+        double best = Double.MAX_VALUE;
+        int meet = -1;
+        int settled = 0;
+
+        while (!st.heap[0].isEmpty() || !st.heap[1].isEmpty()) {
+            int side;
+            if (st.heap[0].isEmpty()) side = 1;
+            else if (st.heap[1].isEmpty()) side = 0;
+            else side = st.heap[0].peekKey() <= st.heap[1].peekKey() ? 0 : 1;
+
+            MinHeap heap = st.heap[side];
+            double du = heap.peekKey();
+            int u = heap.peekNode();
+            if (du >= best) { // bu yönde daha iyi buluşma çıkamaz
+                heap.clear();
+                continue;
+            }
+            heap.pop();
+            if (du > st.dist(side, u)) continue;
+            settled++;
+
+            double other = st.dist(1 - side, u);
+            if (other != Double.MAX_VALUE && du + other < best) {
+                best = du + other;
+                meet = u;
+            }
+
+            for (int e = upOffsets[u], end = upOffsets[u + 1]; e < end; e++) {
+                int v = upTargets[e];
+                double nd = du + upWeights[e];
+                if (nd < st.dist(side, v)) {
+                    st.visit(side, v, nd, u, e);
+                    heap.push(nd, v);
+                }
+            }
+        }
+
+        if (meet < 0) return PathResult.unreachable(settled);
+
+        IntList path = new IntList();
+        IntList stack = new IntList();
+        path.add(startId);
+
+        // s -> meet: yukarı kenarlar ters sırada toplanıp baştan açılır
+        IntList forward = new IntList();
+        for (int x = meet; x != startId; x = st.parentNode[0][x]) forward.add(x);
+        for (int i = forward.size - 1; i >= 0; i--) {
+            int x = forward.items[i];
+            unpack(st.parentNode[0][x], x, upMid[st.parentEdge[0][x]], path, stack);
+        }
+        // meet -> t: geri yöndeki her kenar yukarıdan aşağı açılır
+        for (int x = meet; x != endId; x = st.parentNode[1][x]) {
+            unpack(x, st.parentNode[1][x], upMid[st.parentEdge[1][x]], path, stack);
+        }
+
+        int[] nodes = path.toArray();
+        return new PathResult(nodes, PathFinder.pathDistance(g, nodes), settled);
+    }
+
+    /** a'dan b'ye kenarı açar, a hariç node'ları sırayla ekler. */
+    private void unpack(int a, int b, int mid, IntList out, IntList stack) {
+        stack.size = 0;
+        stack.add(a); stack.add(b); stack.add(mid);
+        while (stack.size > 0) {
+            int m = stack.items[--stack.size];
+            int y = stack.items[--stack.size];
+            int x = stack.items[--stack.size];
+            if (m < 0) {
+                out.add(y);
+                continue;
+            }
+            // önce x->m, sonra m->y işlenmeli; yığın LIFO
+            stack.add(m); stack.add(y); stack.add(midOf(m, y));
+            stack.add(x); stack.add(m); stack.add(midOf(m, x));
+        }
+    }
+
+    /** low'un yukarı listesinde high'a giden kenarın mid'i. */
+    private int midOf(int low, int high) {
+        for (int e = upOffsets[low], end = upOffsets[low + 1]; e < end; e++) {
+            if (upTargets[e] == high) return upMid[e];
+        }
+        throw new IllegalStateException("CH kenarı bulunamadı: " + low + " -> " + high);
+    }
+
+    private static final class QueryState {
+        final double[][] dist;
+        final int[][] parentNode;
+        final int[][] parentEdge;
+        final int[][] stamp;
+        int version = 0;
+        final MinHeap[] heap = {new MinHeap(64), new MinHeap(64)};
+
+        QueryState(int n) {
+            dist = new double[][]{new double[n], new double[n]};
+            parentNode = new int[][]{new int[n], new int[n]};
+            parentEdge = new int[][]{new int[n], new int[n]};
+            stamp = new int[][]{new int[n], new int[n]};
+        }
+
+        void reset() {
+            version++;
+            heap[0].clear();
+            heap[1].clear();
+        }
+
+        double dist(int side, int v) {
+            return stamp[side][v] == version ? dist[side][v] : Double.MAX_VALUE;
+        }
+
+        void visit(int side, int v, double d, int parent, int edge) {
+            stamp[side][v] = version;
+            dist[side][v] = d;
+            parentNode[side][v] = parent;
+            parentEdge[side][v] = edge;
+        }
+    }
+
+    private static final class IntList {
+        int[] items = new int[16];
+        int size = 0;
+
+        void add(int x) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = x;
+        }
+
+        int[] toArray() { return Arrays.copyOf(items, size); }
+    }
+
+    /** (double anahtar, node) çiftleri için ikili min-heap; eski kayıtlar çağıran tarafından atlanır. */
+    private static final class MinHeap {
+        double[] keys;
+        int[] nodes;
+        int size = 0;
+
+        MinHeap(int capacity) {
+            keys = new double[Math.max(2, capacity)];
+            nodes = new int[Math.max(2, capacity)];
+        }
+
+        boolean isEmpty() { return size == 0; }
+
+        void clear() { size = 0; }
+
+        double peekKey() { return keys[0]; }
+
+        int peekNode() { return nodes[0]; }
+
+        void push(double key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        void pop() {
+            double key = keys[--size];
+            int node = nodes[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= key) break;
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            if (size > 0) {
+                keys[i] = key;
+                nodes[i] = node;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.yazlab.kargo.service;
+
+/**
+ * Koordinatı 1e-6 dereceye yuvarlayıp tek long'a paketler.
+ * İki nokta ancak String.format("%.6f,%.6f", lat, lon) anahtarları aynıysa aynı long'u alır:
+ * yuvarlama Formatter gibi HALF_UP yapılır ve "-0.000000" ayrı tutulur.
+ */
+final class CoordinateKey {
+
+    // |değer| * 1e6 int'e sığmalı; dışındaki değerler (bozuk veri) eski String anahtarla işlenir
+    private static final double MAX_ABS = 2000.0;
+    private static final int NEGATIVE_ZERO = Integer.MIN_VALUE;
+
+    private CoordinateKey() { }
+
+    static boolean fits(double lat, double lon) {
+        return Math.abs(lat) < MAX_ABS && Math.abs(lon) < MAX_ABS;
+    }
+
+    static long pack(double lat, double lon) {
+        return ((long) quantize(lat) << 32) | (quantize(lon) & 0xffffffffL);
+    }
+
+    /**
+     * %.6f, değerin en kısa ondalık yazımını HALF_UP yuvarlar. Ortadaki (k + 0.5) * 1e-6 değerine en yakın
+     * double tam o yazıma sahip olduğu için yukarı, diğerleri bulundukları tarafa yuvarlanır.
+     */
+    static int quantize(double v) {
+        double a = Math.abs(v);
+        double f = Math.floor(a * 1e6);
+        double tie = (2 * f + 1) / 2e6; // bölme doğru yuvarlanır: orta noktaya en yakın double
+        int q = (int) (a >= tie ? f + 1 : f);
+        if (Double.doubleToRawLongBits(v) < 0) return q == 0 ? NEGATIVE_ZERO : -q;
+        return q;
+    }
+}
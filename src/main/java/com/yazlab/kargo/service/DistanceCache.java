@@ -0,0 +1,179 @@
+package com.yazlab.kargo.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Snap edilmiş node çifti -> yol mesafesi (km) önbelleği. Eşzamanlı kullanılabilir, boyutu sınırlıdır.
+ * Graf simetrik olduğu için (a, b) ve (b, a) aynı kayıttır.
+ *
+ * Kayıtlar kilitli segmentlere dağıtılır; her segment primitive açık adresli bir tablo ve
+ * CLOCK (ikinci şans) tahliyesi kullanır. Tüm bellek kurulurken bir kez ayrılır.
+ */
+final class DistanceCache {
+
+    private static final int SEGMENTS = 16;
+    private static final byte EMPTY = 0, PRESENT = 1, REFERENCED = 2;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    DistanceCache(int maxEntries) {
+        int perSegment = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(perSegment);
+        this.maxEntries = perSegment * SEGMENTS;
+    }
+
+    /** Kayıtlı mesafe, yoksa NaN. */
+    double get(int a, int b) {
+        long key = key(a, b);
+        long h = mix(key);
+        double d = segmentFor(h).get(key, h);
+        if (Double.isNaN(d)) misses.increment();
+        else hits.increment();
+        return d;
+    }
+
+    void put(int a, int b, double distance) {
+        long key = key(a, b);
+        long h = mix(key);
+        if (segmentFor(h).put(key, h, distance)) evictions.increment();
+    }
+
+    void clear() {
+        for (Segment s : segments) s.clear();
+    }
+
+    int size() {
+        int n = 0;
+        for (Segment s : segments) n += s.size();
+        return n;
+    }
+
+    int maxEntries() { return maxEntries; }
+
+    long hits() { return hits.sum(); }
+
+    long misses() { return misses.sum(); }
+
+    long evictions() { return evictions.sum(); }
+
+    /** Tabloların kapladığı byte (doluluktan bağımsız, sabit). */
+    long memoryBytes() {
+        long bytes = 0;
+        for (Segment s : segments) bytes += s.keys.length * (8L + 8L + 1L);
+        return bytes;
+    }
+
+    private Segment segmentFor(long h) {
+        return segments[(int) (h >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private static long key(int a, int b) {
+        int lo = Math.min(a, b), hi = Math.max(a, b);
+        return ((long) lo << 32) | (hi & 0xffffffffL);
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static final class Segment {
+        final int capacity;
+        final int mask;
+        final long[] keys;
+        final double[] values;
+        final byte[] state;
+        int size;
+        int hand;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            keys = new long[tableSize];
+            values = new double[tableSize];
+            state = new byte[tableSize];
+            mask = tableSize - 1;
+        }
+
+        synchronized double get(long key, long h) {
+            for (int i = (int) h & mask; state[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    state[i] = REFERENCED;
+                    return values[i];
+                }
+            }
+            return Double.NaN;
+        }
+
+        /** Yeni kayıt için yer açmak gerektiyse true. */
+        synchronized boolean put(long key, long h, double value) {
+            int i = (int) h & mask;
+            for (; state[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    state[i] = REFERENCED;
+                    return false;
+                }
+            }
+
+            boolean evicted = false;
+            if (size == capacity) {
+                evictOne();
+                evicted = true;
+                // silme kaydırma yapar, boş slot yeniden aranır
+                for (i = (int) h & mask; state[i] != EMPTY; i = (i + 1) & mask) { }
+            }
+            keys[i] = key;
+            values[i] = value;
+            state[i] = PRESENT;
+            size++;
+            return evicted;
+        }
+
+        synchronized void clear() {
+            java.util.Arrays.fill(state, EMPTY);
+            size = 0;
+            hand = 0;
+        }
+
+        synchronized int size() { return size; }
+
+        /** CLOCK: referans bitli kayıtlar bir tur daha kalır, bitsiz ilk kayıt çıkarılır. */
+        private void evictOne() {
+            while (true) {
+                int i = hand;
+                hand = (hand + 1) & mask;
+                if (state[i] == REFERENCED) {
+                    state[i] = PRESENT;
+                } else if (state[i] == PRESENT) {
+                    remove(i);
+                    return;
+                }
+            }
+        }
+
+        /** Linear probing'de mezar taşı bırakmadan silme: arkadaki kayıtlar boşluğa kaydırılır. */
+        private void remove(int i) {
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (state[j] == EMPTY) break;
+                int home = (int) mix(keys[j]) & mask;
+                // j'deki kayıt i'ye taşınabilir mi (yuvası döngüsel olarak (i, j] aralığında değilse)
+                boolean stays = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+                if (stays) continue;
+                keys[i] = keys[j];
+                values[i] = values[j];
+                state[i] = state[j];
+                i = j;
+            }
+            state[i] = EMPTY;
+            size--;
+        }
+    }
+}
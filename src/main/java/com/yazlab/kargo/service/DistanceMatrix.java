@@ -0,0 +1,61 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+
+/**
+ * Hub + istasyonlar arası yol mesafeleri (km), yoğun n*n dizi. Index 0 hub'dır (id 0),
+ * sonrakiler artan station id sırasındadır. Kurulduktan sonra değişmez; hangi yol ağı sürümüyle
+ * kurulduğunu da tutar.
+ */
+public final class DistanceMatrix {
+
+    /** Matriste olmayan id için dönen değer (eski distKm ile aynı). */
+    public static final double MISSING = Double.MAX_VALUE / 4;
+
+    private final long[] ids;
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] km;
+    private final long buildMillis;
+    private final long networkVersion;
+
+    DistanceMatrix(long[] ids, double[] lat, double[] lon, double[] km, long buildMillis, long networkVersion) {
+        this.ids = ids;
+        this.lat = lat;
+        this.lon = lon;
+        this.km = km;
+        this.buildMillis = buildMillis;
+        this.networkVersion = networkVersion;
+    }
+
+    public int size() { return ids.length; }
+
+    public long idAt(int index) { return ids[index]; }
+
+    /** id'nin index'i, yoksa -1. */
+    public int indexOf(long id) {
+        int i = Arrays.binarySearch(ids, id);
+        return i < 0 ? -1 : i;
+    }
+
+    public double distanceAt(int from, int to) {
+        return km[from * ids.length + to];
+    }
+
+    /** fromId/toId: 0 = HUB, diğerleri stationId */
+    public double distanceKm(long fromId, long toId) {
+        int from = indexOf(fromId);
+        int to = indexOf(toId);
+        if (from < 0 || to < 0) return MISSING;
+        return km[from * ids.length + to];
+    }
+
+    public long getBuildMillis() { return buildMillis; }
+
+    public long getNetworkVersion() { return networkVersion; }
+
+    /** Aynı yol ağı, aynı hub ve aynı istasyon koordinatlarıyla mı kuruldu. */
+    boolean sameInput(long version, long[] otherIds, double[] otherLat, double[] otherLon) {
+        return networkVersion == version && Arrays.equals(ids, otherIds) && Arrays.equals(lat, otherLat) && Arrays.equals(lon, otherLon);
+    }
+}
@@ -0,0 +1,140 @@
+package com.yazlab.kargo.service;
+
+import com.yazlab.kargo.entity.Station;
+import com.yazlab.kargo.repository.StationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Hub + istasyon yol mesafesi matrisi. Her satır tek bir çok-hedefli aramayla doldurulur,
+ * satırlar ForkJoin havuzunda paralel hesaplanır. Yol ağı ve istasyonlar değişmedikçe aynı matris kullanılır.
+ */
+@Service
+public class DistanceMatrixService {
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private RouteService routeService;
+
+    // 0 = işlemci sayısı
+    @Value("${route.matrix.parallelism:0}")
+    private int parallelism = 0;
+
+    private ForkJoinPool pool;
+    private volatile DistanceMatrix current;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** StationRepository'deki tüm istasyonlar için matris. */
+    public DistanceMatrix getMatrix(double hubLat, double hubLon) {
+        return getMatrix(hubLat, hubLon, stationRepository.findAll());
+    }
+
+    /** Yol ağı, hub ve istasyonlar son kurulan matrisle aynıysa onu döner, değilse yeniden kurar. */
+    public synchronized DistanceMatrix getMatrix(double hubLat, double hubLon, Collection<Station> stations) {
+        List<Station> sorted = new ArrayList<>(stations.size());
+        for (Station s : stations) {
+            if (s != null && s.getId() != null && s.getId() != 0) sorted.add(s);
+        }
+        sorted.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+
+        int n = sorted.size() + 1;
+        long[] ids = new long[n];
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        lat[0] = hubLat;
+        lon[0] = hubLon;
+        // tüm satırlar aynı ağ sürümüyle hesaplansın; kurulum sırasında ağ değişirse sonraki istek yeniden kurar
+        RoadNetwork net = routeService.currentNetwork();
+        int[] nodes = new int[n];
+        nodes[0] = routeService.findNearestNode(net, hubLat, hubLon);
+        int count = 1;
+        for (Station s : sorted) {
+            if (s.getId() == ids[count - 1]) continue; // aynı id iki kez gelirse
+            ids[count] = s.getId();
+            lat[count] = s.getLatitude();
+            lon[count] = s.getLongitude();
+            // kayıtlı snap bu grafa aitse yeniden snap edilmez
+            nodes[count] = routeService.stationNode(net, s);
+            count++;
+        }
+        if (count < n) {
+            ids = Arrays.copyOf(ids, count);
+            lat = Arrays.copyOf(lat, count);
+            lon = Arrays.copyOf(lon, count);
+            nodes = Arrays.copyOf(nodes, count);
+        }
+
+        DistanceMatrix m = current;
+        if (m != null && m.sameInput(net.version, ids, lat, lon)) return m;
+
+        m = build(net, ids, lat, lon, nodes);
+        current = m;
+        return m;
+    }
+
+    /** Yol ağı ya da istasyonlar dışarıdan değiştiyse bir sonraki istekte yeniden kurulur. */
+    public void invalidate() {
+        current = null;
+    }
+
+    private DistanceMatrix build(RoadNetwork net, long[] ids, double[] lat, double[] lon, int[] nodes) {
+        long start = System.currentTimeMillis();
+        int n = ids.length;
+        double[] km = new double[n * n];
+
+        // graf simetrik: i. satır sadece j > i için aranır, alt üçgen aynalanır
+        List<Callable<Void>> rows = new ArrayList<>(n);
+        for (int i = 0; i < n - 1; i++) {
+            final int row = i;
+            rows.add(() -> {
+                int k = n - row - 1;
+                double[] d = routeService.getRealRoadDistances(net, nodes[row], lat[row], lon[row],
+                        Arrays.copyOfRange(nodes, row + 1, n),
+                        Arrays.copyOfRange(lat, row + 1, n), Arrays.copyOfRange(lon, row + 1, n));
+                for (int j = 0; j < k; j++) {
+                    int col = row + 1 + j;
+                    km[row * n + col] = d[j];
+                    km[col * n + row] = d[j];
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> f : pool.invokeAll(rows)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Mesafe matrisi kurulurken kesildi", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Mesafe matrisi kurulamadı", e.getCause());
+        }
+
+        long ms = System.currentTimeMillis() - start;
+        System.out.println("Mesafe matrisi hazır: " + n + " nokta, " + ms + " ms (" + pool.getParallelism() + " thread)");
+        return new DistanceMatrix(ids, lat, lon, km, ms, net.version);
+    }
+}
@@ -0,0 +1,264 @@
+package com.yazlab.kargo.service;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Düzenli enlem/boylam ızgarası. Yükleme sırasında bir kez kurulur.
+ * nearest() halka halka genişleyerek arar ve bir halkanın alt sınırı o ana kadarki en iyi
+ * mesafeyi geçince durur; sonuç tam taramayla (en küçük mesafe, eşitlikte küçük index) aynıdır.
+ */
+final class GeoGrid {
+
+    private static final double R = 6371;
+    private static final int POINTS_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_AXIS = 2048;
+
+    // alt sınırları kayan nokta hatasına karşı biraz küçültüyoruz
+    private static final double BOUND_SLACK = 1.0 - 1e-9;
+    private static final double ABS_SLACK = 1e-9;
+
+    private final double[] lat;
+    private final double[] lon;
+
+    // snapshot yazımı için paket içinden okunur
+    final double minLat, minLon, maxLat, maxLon;
+    final double cellLat, cellLon;
+    final int rows, cols;
+    private final double cosMinLat;
+
+    final int[] cellStart;
+    final int[] cellItems;
+
+    private GeoGrid(double[] lat, double[] lon, double minLat, double minLon, double maxLat, double maxLon,
+                    double cellLat, double cellLon, int rows, int cols, int[] cellStart, int[] cellItems) {
+        this.lat = lat;
+        this.lon = lon;
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+        this.cellLat = cellLat;
+        this.cellLon = cellLon;
+        this.rows = rows;
+        this.cols = cols;
+        this.cosMinLat = Math.min(Math.cos(Math.toRadians(minLat)), Math.cos(Math.toRadians(maxLat)));
+
+        if (cellStart != null) {
+            // snapshot'tan okunan hazır hücreler
+            this.cellStart = cellStart;
+            this.cellItems = cellItems;
+            return;
+        }
+
+        int n = lat.length;
+        int[] start = new int[rows * cols + 1];
+        int[] cellOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = row(lat[i]) * cols + col(lon[i]);
+            start[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < rows * cols; c++) start[c + 1] += start[c];
+
+        // index sırasıyla doldurulur; hücre içindeki id'ler artan sırada kalır
+        int[] items = new int[n];
+        int[] fill = java.util.Arrays.copyOf(start, rows * cols);
+        for (int i = 0; i < n; i++) items[fill[cellOf[i]]++] = i;
+
+        this.cellStart = start;
+        this.cellItems = items;
+    }
+
+    static GeoGrid build(double[] lat, double[] lon) {
+        int n = lat.length;
+        if (n == 0) return new GeoGrid(lat, lon, 0, 0, 0, 0, 1, 1, 1, 1, null, null);
+
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minLat = Math.min(minLat, lat[i]);
+            maxLat = Math.max(maxLat, lat[i]);
+            minLon = Math.min(minLon, lon[i]);
+            maxLon = Math.max(maxLon, lon[i]);
+        }
+
+        // hücreler yerde yaklaşık kare olsun
+        double cosMid = Math.max(0.01, Math.cos(Math.toRadians((minLat + maxLat) / 2)));
+        double latSpan = Math.max(maxLat - minLat, 1e-9);
+        double lonSpan = Math.max(maxLon - minLon, 1e-9);
+        int targetCells = Math.max(1, n / POINTS_PER_CELL);
+        double cellLat = Math.sqrt(latSpan * lonSpan * cosMid / targetCells);
+        double cellLon = cellLat / cosMid;
+
+        int rows = (int) Math.min(MAX_CELLS_PER_AXIS, Math.max(1, Math.ceil(latSpan / cellLat)));
+        int cols = (int) Math.min(MAX_CELLS_PER_AXIS, Math.max(1, Math.ceil(lonSpan / cellLon)));
+        cellLat = latSpan / rows;
+        cellLon = lonSpan / cols;
+
+        return new GeoGrid(lat, lon, minLat, minLon, maxLat, maxLon, cellLat, cellLon, rows, cols, null, null);
+    }
+
+    /** Daha önce build() ile kurulmuş ızgarayı kaydedilmiş hücre dizileriyle yeniden oluşturur. */
+    static GeoGrid restore(double[] lat, double[] lon, double minLat, double minLon, double maxLat, double maxLon,
+                           double cellLat, double cellLon, int rows, int cols, int[] cellStart, int[] cellItems) {
+        if (cellStart.length != rows * cols + 1 || cellItems.length != lat.length) {
+            throw new IllegalArgumentException("Izgara boyutları tutarsız");
+        }
+        return new GeoGrid(lat, lon, minLat, minLon, maxLat, maxLon, cellLat, cellLon, rows, cols, cellStart, cellItems);
+    }
+
+    /** En yakın noktanın index'i, nokta yoksa -1. */
+    int nearest(double qLat, double qLon) {
+        if (lat.length == 0) return -1;
+
+        int r0 = (int) Math.floor((qLat - minLat) / cellLat);
+        int c0 = (int) Math.floor((qLon - minLon) / cellLon);
+
+        int rowGap = r0 < 0 ? -r0 : (r0 >= rows ? r0 - rows + 1 : 0);
+        int colGap = c0 < 0 ? -c0 : (c0 >= cols ? c0 - cols + 1 : 0);
+
+        int best = -1;
+        double bestDist = Double.MAX_VALUE;
+
+        for (int k = Math.max(rowGap, colGap); ; k++) {
+            if (best >= 0 && ringLowerBound(qLat, qLon, r0, c0, k) * BOUND_SLACK - ABS_SLACK > bestDist) break;
+
+            int rLo = r0 - k, rHi = r0 + k, cLo = c0 - k, cHi = c0 + k;
+            for (int r = Math.max(rLo, 0); r <= Math.min(rHi, rows - 1); r++) {
+                // üst/alt satırın tamamı, aradaki satırların sadece iki ucu halkaya aittir
+                boolean edgeRow = (r == rLo || r == rHi);
+                int cFrom = edgeRow ? Math.max(cLo, 0) : cLo;
+                int cTo = edgeRow ? Math.min(cHi, cols - 1) : cHi;
+                int step = edgeRow ? 1 : Math.max(1, cHi - cLo);
+
+                for (int c = cFrom; c <= cTo; c += step) {
+                    if (c < 0 || c >= cols) continue;
+                    int cell = r * cols + c;
+                    for (int p = cellStart[cell], end = cellStart[cell + 1]; p < end; p++) {
+                        int i = cellItems[p];
+                        double d = haversine(qLat, qLon, lat[i], lon[i]);
+                        if (d < bestDist || (d == bestDist && i < best)) {
+                            bestDist = d;
+                            best = i;
+                        }
+                    }
+                }
+            }
+
+            if (rLo <= 0 && rHi >= rows - 1 && cLo <= 0 && cHi >= cols - 1) break; // tüm ızgara tarandı
+        }
+        return best;
+    }
+
+    /**
+     * exclude dışındaki en yakın k noktayı artan (mesafe, index) sırasıyla out/outDist'e yazar, bulunan sayıyı döner.
+     * Sonuç tüm noktaları mesafeye göre kararlı sıralayıp ilk k'yı almakla aynıdır. Halka, alt sınırı
+     * k. en iyi mesafeyi geçince durur.
+     */
+    int nearestK(double qLat, double qLon, int k, int exclude, int[] out, double[] outDist) {
+        if (lat.length == 0 || k <= 0) return 0;
+
+        int r0 = (int) Math.floor((qLat - minLat) / cellLat);
+        int c0 = (int) Math.floor((qLon - minLon) / cellLon);
+
+        int rowGap = r0 < 0 ? -r0 : (r0 >= rows ? r0 - rows + 1 : 0);
+        int colGap = c0 < 0 ? -c0 : (c0 >= cols ? c0 - cols + 1 : 0);
+
+        int count = 0;
+        for (int ring = Math.max(rowGap, colGap); ; ring++) {
+            if (count == k && ringLowerBound(qLat, qLon, r0, c0, ring) * BOUND_SLACK - ABS_SLACK > outDist[k - 1]) break;
+
+            int rLo = r0 - ring, rHi = r0 + ring, cLo = c0 - ring, cHi = c0 + ring;
+            for (int r = Math.max(rLo, 0); r <= Math.min(rHi, rows - 1); r++) {
+                boolean edgeRow = (r == rLo || r == rHi);
+                int cFrom = edgeRow ? Math.max(cLo, 0) : cLo;
+                int cTo = edgeRow ? Math.min(cHi, cols - 1) : cHi;
+                int step = edgeRow ? 1 : Math.max(1, cHi - cLo);
+
+                for (int c = cFrom; c <= cTo; c += step) {
+                    if (c < 0 || c >= cols) continue;
+                    int cell = r * cols + c;
+                    for (int p = cellStart[cell], end = cellStart[cell + 1]; p < end; p++) {
+                        int i = cellItems[p];
+                        if (i == exclude) continue;
+                        double d = haversine(qLat, qLon, lat[i], lon[i]);
+                        if (count == k && (d > outDist[k - 1] || (d == outDist[k - 1] && i > out[k - 1]))) continue;
+
+                        // sıralı listeye ekle (k küçük)
+                        int pos = count < k ? count++ : k - 1;
+                        while (pos > 0 && (outDist[pos - 1] > d || (outDist[pos - 1] == d && out[pos - 1] > i))) {
+                            out[pos] = out[pos - 1];
+                            outDist[pos] = outDist[pos - 1];
+                            pos--;
+                        }
+                        out[pos] = i;
+                        outDist[pos] = d;
+                    }
+                }
+            }
+
+            if (rLo <= 0 && rHi >= rows - 1 && cLo <= 0 && cHi >= cols - 1) break; // tüm ızgara tarandı
+        }
+        return count;
+    }
+
+    /** Kutudaki (sınırlar dahil) noktaların index'leri, hücre hücre. */
+    void forEachInBox(double south, double west, double north, double east, IntConsumer action) {
+        if (lat.length == 0 || south > maxLat || north < minLat || west > maxLon || east < minLon) return;
+        for (int r = row(south), rEnd = row(north); r <= rEnd; r++) {
+            for (int c = col(west), cEnd = col(east); c <= cEnd; c++) {
+                int cell = r * cols + c;
+                for (int p = cellStart[cell], end = cellStart[cell + 1]; p < end; p++) {
+                    int i = cellItems[p];
+                    if (lat[i] >= south && lat[i] <= north && lon[i] >= west && lon[i] <= east) action.accept(i);
+                }
+            }
+        }
+    }
+
+    /** k. halka ve ötesindeki herhangi bir noktaya olan mesafe için alt sınır (km). */
+    private double ringLowerBound(double qLat, double qLon, int r0, int c0, int k) {
+        if (k == 0) return 0.0;
+
+        // k. halkadaki bir nokta ya enlemde ya boylamda (k-1) hücrelik bloğun dışında kalır
+        double up = (minLat + (r0 + k) * cellLat) - qLat;
+        double down = qLat - (minLat + (r0 - k + 1) * cellLat);
+        double gapLat = Math.max(0.0, Math.min(up, down));
+
+        double right = (minLon + (c0 + k) * cellLon) - qLon;
+        double left = qLon - (minLon + (c0 - k + 1) * cellLon);
+        double gapLon = Math.max(0.0, Math.min(right, left));
+
+        double latBound = R * Math.toRadians(gapLat);
+
+        // 180 dereceyi aşan boylam farkında haversine sarmalanır; o durumda budama yapılmaz
+        double maxDiff = Math.max(Math.abs(maxLon - qLon), Math.abs(qLon - minLon));
+        if (maxDiff > 180.0) return 0.0;
+        double s = Math.sin(Math.toRadians(gapLon) / 2);
+        double cosQ = Math.max(0.0, Math.cos(Math.toRadians(qLat)));
+        double x = Math.sqrt(cosQ * Math.max(0.0, cosMinLat)) * s;
+        double lonBound = 2 * R * Math.asin(Math.min(1.0, x));
+
+        return Math.min(latBound, lonBound);
+    }
+
+    private int row(double la) {
+        int r = (int) ((la - minLat) / cellLat);
+        return Math.min(rows - 1, Math.max(0, r));
+    }
+
+    private int col(double lo) {
+        int c = (int) ((lo - minLon) / cellLon);
+        return Math.min(cols - 1, Math.max(0, c));
+    }
+
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a =
+                Math.sin(dLat/2)*Math.sin(dLat/2) +
+                        Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2)) *
+                                Math.sin(dLon/2)*Math.sin(dLon/2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
+        return R * c;
+    }
+}
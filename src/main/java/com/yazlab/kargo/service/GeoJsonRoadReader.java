@@ -0,0 +1,216 @@
+package com.yazlab.kargo.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GeoJSON FeatureCollection'ı JsonParser ile akış halinde okur; ağaç kurulmaz.
+ * Bellekte sadece o anki feature'ın koordinatları tutulur ("type" alanı "coordinates"tan
+ * sonra da gelebildiği için seçim feature bitince yapılır).
+ *
+ * Seçilen çizgiler readTree'li eski yükleyiciyle aynıdır: LineString'in kendisi,
+ * Polygon'un ilk halkası ve MultiPolygon'daki her poligonun ilk halkası. RoadFeatureFilter'a takılan
+ * feature'lar atlanır ve kuralına yazılır.
+ */
+final class GeoJsonRoadReader {
+
+    /** Seçilen her çizgi için çağrılır; i. nokta lonLat[2 * (start + i)] ve lonLat[2 * (start + i) + 1]'dedir. */
+    interface LineSink {
+        void line(double[] lonLat, int start, int pointCount);
+
+        /** Filtrenin rule. kuralına takılan feature'ın seçilecek çizgileri; varsayılan olarak yok sayılır. */
+        default void excluded(int rule, double[] lonLat, int start, int pointCount) { }
+    }
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final JsonParser p;
+    private final RoadFeatureFilter filter;
+    private final LineSink sink;
+
+    // o anki feature'ın noktaları ve çizgileri
+    private double[] points = new double[256];
+    private int pointCount;
+    private int[] lines = new int[64]; // derinlik, üst dizideki index, başlangıç, nokta sayısı
+    private int lineCount;
+    private final Map<String, String> properties = new HashMap<>();
+
+    private double posLon, posLat;
+    private boolean posValid;
+
+    private GeoJsonRoadReader(JsonParser p, RoadFeatureFilter filter, LineSink sink) {
+        this.p = p;
+        this.filter = filter;
+        this.sink = sink;
+    }
+
+    /** Okunan (elenenler dahil) feature sayısını, 'features' dizisi yoksa -1 döner. */
+    static long read(File file, RoadFeatureFilter filter, LineSink sink) throws IOException {
+        try (JsonParser p = FACTORY.createParser(file)) {
+            return new GeoJsonRoadReader(p, filter, sink).readRoot();
+        }
+    }
+
+    private long readRoot() throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) return -1;
+
+        long features = -1;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("features".equals(name) && t == JsonToken.START_ARRAY) {
+                features = readFeatures();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return features;
+    }
+
+    private long readFeatures() throws IOException {
+        long count = 0;
+        for (JsonToken t = p.nextToken(); t != null && t != JsonToken.END_ARRAY; t = p.nextToken()) {
+            if (t == JsonToken.START_OBJECT) {
+                readFeature();
+                count++;
+            } else {
+                p.skipChildren();
+            }
+        }
+        return count;
+    }
+
+    private void readFeature() throws IOException {
+        pointCount = 0;
+        lineCount = 0;
+        properties.clear();
+        String type = null;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("geometry".equals(name) && t == JsonToken.START_OBJECT) {
+                type = readGeometry();
+            } else if ("properties".equals(name) && t == JsonToken.START_OBJECT) {
+                readProperties();
+            } else {
+                p.skipChildren();
+            }
+        }
+
+        int depth = lineDepth(type);
+        int rule = filter.reject(type, properties);
+        if (rule >= 0) {
+            filter.excluded(rule, depth < 0 ? 0 : emitLines(depth, rule));
+        } else if (depth >= 0) {
+            emitLines(depth, -1);
+        }
+    }
+
+    /** Çizgi üreten geometrilerde seçilen çizgilerin derinliği, diğerlerinde -1. */
+    private static int lineDepth(String type) {
+        if ("LineString".equalsIgnoreCase(type)) return 0;
+        if ("Polygon".equalsIgnoreCase(type)) return 1;
+        if ("MultiPolygon".equalsIgnoreCase(type)) return 2;
+        return -1;
+    }
+
+    /** Sadece filtrelerde geçen, değeri skaler olan alanlar saklanır. */
+    private void readProperties() throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if (t.isScalarValue() && filter.wantsProperty(name)) {
+                String value = p.getValueAsString();
+                if (value != null) properties.put(name, value);
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+
+    private String readGeometry() throws IOException {
+        String type = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("type".equals(name) && t.isScalarValue()) {
+                type = p.getValueAsString();
+            } else if ("coordinates".equals(name) && t == JsonToken.START_ARRAY) {
+                readArray(0, 0);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Parser bir START_ARRAY üzerindeyken çağrılır. Elemanları sayı olan dizi bir pozisyondur
+     * (posLon/posLat'a yazılır), elemanları pozisyon olan dizi bir çizgi olarak kaydedilir.
+     */
+    private void readArray(int depth, int index) throws IOException {
+        int child = 0;
+        int scalars = 0;
+        int lineStart = -1;
+
+        for (JsonToken t = p.nextToken(); t != null && t != JsonToken.END_ARRAY; t = p.nextToken(), child++) {
+            if (t == JsonToken.START_ARRAY) {
+                readArray(depth + 1, child);
+                if (posValid) {
+                    if (lineStart < 0) lineStart = pointCount;
+                    addPoint(posLon, posLat);
+                }
+            } else if (t == JsonToken.START_OBJECT) {
+                p.skipChildren();
+            } else {
+                if (scalars == 0) posLon = p.getValueAsDouble();
+                else if (scalars == 1) posLat = p.getValueAsDouble();
+                scalars++;
+            }
+        }
+
+        if (lineStart >= 0) addLine(depth, index, lineStart, pointCount - lineStart);
+        posValid = scalars >= 2;
+    }
+
+    private void addPoint(double lon, double lat) {
+        if (2 * pointCount + 2 > points.length) points = Arrays.copyOf(points, points.length * 2);
+        points[2 * pointCount] = lon;
+        points[2 * pointCount + 1] = lat;
+        pointCount++;
+    }
+
+    private void addLine(int depth, int index, int start, int count) {
+        if (4 * lineCount + 4 > lines.length) lines = Arrays.copyOf(lines, lines.length * 2);
+        int k = 4 * lineCount++;
+        lines[k] = depth;
+        lines[k + 1] = index;
+        lines[k + 2] = start;
+        lines[k + 3] = count;
+    }
+
+    /**
+     * Verilen derinlikteki, üst dizisinin ilk elemanı olan çizgiler (derinlik 0'da tek çizgi vardır).
+     * Seçilen nokta sayısını döner; rule >= 0 ise çizgiler sink.excluded'a gider.
+     */
+    private int emitLines(int depth, int rule) {
+        int selected = 0;
+        for (int i = 0; i < lineCount; i++) {
+            int k = 4 * i;
+            if (lines[k] != depth || (depth > 0 && lines[k + 1] != 0)) continue;
+
+            selected += lines[k + 3];
+            if (rule < 0) sink.line(points, lines[k + 2], lines[k + 3]);
+            else sink.excluded(rule, points, lines[k + 2], lines[k + 3]);
+        }
+        return selected;
+    }
+}
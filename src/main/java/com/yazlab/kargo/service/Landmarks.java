@@ -0,0 +1,189 @@
+package com.yazlab.kargo.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ALT (A*, Landmark, Triangle inequality) için landmark mesafe tabloları.
+ * Graf simetrik olduğu için landmark'a ve landmark'tan mesafe aynıdır; landmark başına tek dizi tutulur.
+ * Alt sınır: d(v, t) >= |d(L, t) - d(L, v)|, tüm landmark'lar üzerinden en büyüğü.
+ *
+ * Landmark'lar en büyük bileşende "en uzak nokta" yöntemiyle seçilir: her yeni landmark, seçilmişlere
+ * en yakın mesafesi en büyük olan node'dur. Tablolar graf snapshot'ının yanına yazılır.
+ */
+final class Landmarks {
+
+    private static final int MAGIC = 0x4B52474C; // "KRGL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+    private static final int WRITE_CHUNK = 1 << 20;
+
+    // tablolardaki kayan nokta hatası tahmini gerçek mesafenin üstüne çıkarmasın
+    private static final double BOUND_SCALE = 1.0 - 1e-9;
+
+    final int[] nodes;
+    final double[][] dist;
+    final long buildMillis;
+    final boolean fromFile;
+
+    private Landmarks(int[] nodes, double[][] dist, long buildMillis, boolean fromFile) {
+        this.nodes = nodes;
+        this.dist = dist;
+        this.buildMillis = buildMillis;
+        this.fromFile = fromFile;
+    }
+
+    long memoryBytes() {
+        long bytes = 4L * nodes.length;
+        for (double[] d : dist) bytes += 8L * d.length;
+        return bytes;
+    }
+
+    static Landmarks build(RoadGraph g, RoadComponents components, int count) {
+        long start = System.currentTimeMillis();
+        int n = g.nodeCount();
+        if (components.largest < 0 || count <= 0) return new Landmarks(new int[0], new double[0][], 0, false);
+
+        // ilk landmark: en büyük bileşenin ilk node'una en uzak node
+        int first = -1;
+        for (int v = 0; v < n && first < 0; v++) {
+            if (components.inLargest(v)) first = v;
+        }
+        int next = farthest(PathFinder.distancesFrom(g, first));
+
+        count = Math.min(count, components.largestSize());
+        int[] nodes = new int[count];
+        double[][] dist = new double[count][];
+        double[] nearestLandmark = new double[n];
+        Arrays.fill(nearestLandmark, Double.MAX_VALUE);
+
+        for (int i = 0; i < count; i++) {
+            nodes[i] = next;
+            dist[i] = PathFinder.distancesFrom(g, next);
+            for (int v = 0; v < n; v++) nearestLandmark[v] = Math.min(nearestLandmark[v], dist[i][v]);
+            if (i + 1 < count) next = farthest(nearestLandmark);
+        }
+        return new Landmarks(nodes, dist, System.currentTimeMillis() - start, false);
+    }
+
+    /** Sonlu değerler içinde en büyüğün index'i (eşitlikte küçük index). */
+    private static int farthest(double[] values) {
+        int best = -1;
+        for (int v = 0; v < values.length; v++) {
+            if (values[v] == Double.MAX_VALUE) continue;
+            if (best < 0 || values[v] > values[best]) best = v;
+        }
+        return best;
+    }
+
+    /** v'den t'ye yol mesafesi için alt sınır. */
+    double lowerBound(int v, int t) {
+        double best = 0.0;
+        for (double[] d : dist) {
+            double dv = d[v], dt = d[t];
+            if (dv == Double.MAX_VALUE || dt == Double.MAX_VALUE) continue;
+            double b = Math.abs(dt - dv);
+            if (b > best) best = b;
+        }
+        return best * BOUND_SCALE;
+    }
+
+    /**
+     * Landmark alt sınırlı A*. PathFinder.astar ile aynı döngü; düğüm daha kısa yolla tekrar gelirse
+     * yeniden açılır, mesafe bulunan yol üzerinden pathDistance ile hesaplanır.
+     */
+    PathResult query(RoadGraph g, int startId, int endId) {
+        int[] offsets = g.offsets;
+        int[] targets = g.targets;
+        double[] weights = g.weights;
+
+        SearchWorkspace ws = SearchWorkspace.acquire(g.nodeCount());
+        try {
+            ws.start(startId, 0.0);
+            int settled = 0;
+
+            while (!ws.isEmpty()) {
+                int u = ws.poll();
+                if (u == endId) break;
+                settled++;
+
+                double du = ws.dist(u);
+                for (int e = offsets[u], end = offsets[u + 1]; e < end; e++) {
+                    int v = targets[e];
+                    double newDist = du + weights[e];
+                    if (newDist < ws.dist(v)) ws.update(v, newDist, u, newDist + lowerBound(v, endId));
+                }
+            }
+
+            if (!ws.reached(endId)) return PathResult.unreachable(settled);
+            int[] path = ws.unwind(endId);
+            return new PathResult(path, PathFinder.pathDistance(g, path), settled);
+        } finally {
+            SearchWorkspace.release(ws);
+        }
+    }
+
+    // ------------------------------------------------------------------ dosya
+
+    /**
+     * Dosya yoksa, kaynak GeoJSON ya da filtre değiştiyse, graf boyutu veya landmark sayısı
+     * uymuyorsa null döner. Düzen: başlık, nodes[k], sonra her landmark için dist[n].
+     */
+    static Landmarks read(File file, File source, long importKey, RoadGraph g, int count) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_BYTES || file.length() > Integer.MAX_VALUE) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            if (buf.getLong() != source.length() || buf.getLong() != source.lastModified()
+                    || buf.getLong() != importKey) {
+                return null;
+            }
+            int n = buf.getInt();
+            int m = buf.getInt();
+            int k = buf.getInt();
+            if (n != g.nodeCount() || m != g.edgeCount() || k != count) return null;
+            if (channel.size() != HEADER_BYTES + 4L * k + 8L * k * n) return null;
+
+            buf.position(HEADER_BYTES);
+            int[] nodes = new int[k];
+            RoadGraphSnapshot.readInts(buf, nodes);
+            double[][] dist = new double[k][n];
+            for (double[] d : dist) RoadGraphSnapshot.readDoubles(buf, d);
+            return new Landmarks(nodes, dist, 0, true);
+        }
+    }
+
+    void write(File file, File source, long importKey, RoadGraph g) throws IOException {
+        int n = g.nodeCount();
+        if (HEADER_BYTES + 4L * nodes.length + 8L * nodes.length * n > Integer.MAX_VALUE) {
+            throw new IOException("Landmark tabloları tek dosyaya eşlenemeyecek kadar büyük");
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(WRITE_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+            buf.putInt(MAGIC).putInt(VERSION);
+            buf.putLong(source.length()).putLong(source.lastModified()).putLong(importKey);
+            buf.putInt(n).putInt(g.edgeCount()).putInt(nodes.length).putInt(0);
+
+            RoadGraphSnapshot.writeInts(channel, buf, nodes);
+            for (double[] d : dist) RoadGraphSnapshot.writeDoubles(channel, buf, d);
+            RoadGraphSnapshot.flush(channel, buf);
+            channel.force(false);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,79 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+
+/**
+ * long -> int açık adresli (linear probing) tablo. Kutu nesnesi oluşturmaz.
+ * Değerler negatif olmamalı; boş slot -1 ile işaretlenir, silme yoktur.
+ */
+final class LongIntHashMap {
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, -1);
+        mask = capacity - 1;
+    }
+
+    /** Anahtarın değeri, yoksa -1. */
+    int get(long key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (values[i] < 0) return -1;
+            if (keys[i] == key) return values[i];
+        }
+    }
+
+    void put(long key, int value) {
+        int i = slot(key);
+        while (values[i] >= 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) grow();
+    }
+
+    int size() { return size; }
+
+    interface EntryVisitor {
+        void visit(long key, int value);
+    }
+
+    /** Kayıtları tablo sırasıyla (belirli bir sıra yok) gezer. */
+    void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] >= 0) visitor.visit(keys[i], values[i]);
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, -1);
+        mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] < 0) continue;
+            int i = slot(oldKeys[j]);
+            while (values[i] >= 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.yazlab.kargo.service;
+
+/**
+ * Bir nokta kümesi için kuş uçuşu k en yakın komşu sorguları (GeoGrid üzerinde). Bir noktanın listesi,
+ * diğer tüm noktaları haversine mesafesine göre kararlı sıralayıp ilk k'yı almakla aynıdır: eşit mesafede
+ * dizideki sırası önce olan gelir. Kurulduktan sonra değişmez; sorgular farklı thread'lerden yapılabilir.
+ */
+public final class NearestNeighbors {
+
+    private final double[] lat;
+    private final double[] lon;
+    private final GeoGrid grid;
+
+    public NearestNeighbors(double[] lat, double[] lon) {
+        this.lat = lat;
+        this.lon = lon;
+        this.grid = GeoGrid.build(lat, lon);
+    }
+
+    public int size() { return lat.length; }
+
+    /** i'nin kendisi hariç en yakın k noktasını out'a, mesafelerini (km) outKm'ye yazar; bulunan sayıyı döner. */
+    public int query(int i, int k, int[] out, double[] outKm) {
+        return grid.nearestK(lat[i], lon[i], k, i, out, outKm);
+    }
+}
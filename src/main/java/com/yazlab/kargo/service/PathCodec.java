@@ -0,0 +1,67 @@
+package com.yazlab.kargo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * [lat0, lon0, lat1, lon1, ...] koordinat dizisini PathFormat'a göre JSON'a yazılacak değere çevirir.
+ * Çözücü tarafı static/path-codec.js'tedir.
+ */
+public final class PathCodec {
+
+    private static final double SCALE = 1e6;
+
+    private PathCodec() { }
+
+    public static Object encode(PathFormat format, double[] latLon, int pointCount) {
+        switch (format) {
+            case POLYLINE6: return polyline(latLon, pointCount);
+            case PACKED: return packed(latLon, pointCount);
+            default: return coords(latLon, pointCount);
+        }
+    }
+
+    public static List<String> coords(double[] latLon, int pointCount) {
+        List<String> list = new ArrayList<>(pointCount);
+        for (int i = 0; i < pointCount; i++) list.add(latLon[2 * i] + "," + latLon[2 * i + 1]);
+        return list;
+    }
+
+    public static String polyline(double[] latLon, int pointCount) {
+        StringBuilder sb = new StringBuilder(pointCount * 8);
+        long prevLat = 0, prevLon = 0;
+        for (int i = 0; i < pointCount; i++) {
+            long lat = Math.round(latLon[2 * i] * SCALE);
+            long lon = Math.round(latLon[2 * i + 1] * SCALE);
+            writeSigned(sb, lat - prevLat);
+            writeSigned(sb, lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return sb.toString();
+    }
+
+    public static long[] packed(double[] latLon, int pointCount) {
+        long[] out = new long[2 * pointCount];
+        long prevLat = 0, prevLon = 0;
+        for (int i = 0; i < pointCount; i++) {
+            long lat = Math.round(latLon[2 * i] * SCALE);
+            long lon = Math.round(latLon[2 * i + 1] * SCALE);
+            out[2 * i] = lat - prevLat;
+            out[2 * i + 1] = lon - prevLon;
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return out;
+    }
+
+    // polyline: işaret en düşük bite taşınır, 5'er bitlik parçalar 63 eklenerek karaktere çevrilir
+    private static void writeSigned(StringBuilder sb, long value) {
+        long v = value < 0 ? ~(value << 1) : (value << 1);
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
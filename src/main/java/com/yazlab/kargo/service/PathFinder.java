@@ -0,0 +1,247 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+
+/**
+ * RoadGraph üzerinde nokta-nokta aramalar.
+ * Yükleyici her kenarı iki yönlü eklediği için graf simetriktir; geri yönlü arama aynı komşuluğu kullanır.
+ */
+final class PathFinder {
+
+    // haversine tahmini kayan nokta hatasıyla gerçek mesafeyi aşmasın
+    private static final double HEURISTIC_SCALE = 1.0 - 1e-9;
+
+    private PathFinder() { }
+
+    static PathResult find(SearchAlgorithm algorithm, RoadGraph g, int startId, int endId) {
+        switch (algorithm) {
+            case ASTAR: return astar(g, startId, endId);
+            case BIDIRECTIONAL: return bidirectional(g, startId, endId);
+            default: return dijkstra(g, startId, endId);
+        }
+    }
+
+    static PathResult dijkstra(RoadGraph g, int startId, int endId) {
+        int[] offsets = g.offsets;
+        int[] targets = g.targets;
+        double[] weights = g.weights;
+
+        SearchWorkspace ws = SearchWorkspace.acquire(g.nodeCount());
+        try {
+            ws.start(startId, 0.0);
+            int settled = 0;
+
+            while (!ws.isEmpty()) {
+                int u = ws.poll();
+                if (u == endId) break;
+                settled++;
+
+                double du = ws.dist(u);
+                for (int e = offsets[u], end = offsets[u + 1]; e < end; e++) {
+                    int v = targets[e];
+                    if (ws.settled(v)) continue;
+                    double newDist = du + weights[e];
+                    if (newDist < ws.dist(v)) ws.update(v, newDist, u, newDist);
+                }
+            }
+
+            if (!ws.reached(endId)) return PathResult.unreachable(settled);
+            return new PathResult(ws.unwind(endId), ws.dist(endId), settled);
+        } finally {
+            SearchWorkspace.release(ws);
+        }
+    }
+
+    /**
+     * Tek kaynaktan çok hedefe Dijkstra; tüm hedefler kesinleşince durur.
+     * out[i] = targets[i]'ye mesafe (ulaşılamıyorsa Double.MAX_VALUE). Kesinleşen node sayısını döner.
+     * Mesafeler dijkstra(g, startId, targets[i]) ile bit bit aynıdır: iki arama hedefe kadar aynı adımları atar.
+     */
+    static int dijkstraToMany(RoadGraph g, int startId, int[] targets, double[] out) {
+        return dijkstraToMany(g, startId, targets, out, null);
+    }
+
+    /** paths null değilse paths[i] = targets[i]'ye yol (ulaşılamıyorsa null); arama ağacından açılır. */
+    static int dijkstraToMany(RoadGraph g, int startId, int[] targets, double[] out, int[][] paths) {
+        if (targets.length == 0) return 0; // durma koşulu hiç sağlanmaz, bütün bileşen gezilirdi
+        int[] offsets = g.offsets;
+        int[] targetsOf = g.targets;
+        double[] weights = g.weights;
+
+        SearchWorkspace ws = SearchWorkspace.acquire(g.nodeCount());
+        try {
+            int remaining = 0;
+            for (int t : targets) {
+                if (ws.aux(t) < 0) {
+                    ws.setAux(t, 1);
+                    remaining++;
+                }
+            }
+
+            ws.start(startId, 0.0);
+            int settled = 0;
+
+            while (!ws.isEmpty()) {
+                int u = ws.poll();
+                if (ws.aux(u) > 0 && --remaining == 0) break;
+                settled++;
+
+                double du = ws.dist(u);
+                for (int e = offsets[u], end = offsets[u + 1]; e < end; e++) {
+                    int v = targetsOf[e];
+                    if (ws.settled(v)) continue;
+                    double newDist = du + weights[e];
+                    if (newDist < ws.dist(v)) ws.update(v, newDist, u, newDist);
+                }
+            }
+
+            for (int i = 0; i < targets.length; i++) {
+                out[i] = ws.dist(targets[i]);
+                if (paths != null) paths[i] = ws.reached(targets[i]) ? ws.unwind(targets[i]) : null;
+            }
+            return settled;
+        } finally {
+            SearchWorkspace.release(ws);
+        }
+    }
+
+    /** Tek kaynaktan tüm node'lara Dijkstra; ulaşılamayanlar Double.MAX_VALUE. */
+    static double[] distancesFrom(RoadGraph g, int startId) {
+        int n = g.nodeCount();
+        int[] offsets = g.offsets;
+        int[] targets = g.targets;
+        double[] weights = g.weights;
+
+        SearchWorkspace ws = SearchWorkspace.acquire(n);
+        try {
+            ws.start(startId, 0.0);
+            while (!ws.isEmpty()) {
+                int u = ws.poll();
+                double du = ws.dist(u);
+                for (int e = offsets[u], end = offsets[u + 1]; e < end; e++) {
+                    int v = targets[e];
+                    if (ws.settled(v)) continue;
+                    double newDist = du + weights[e];
+                    if (newDist < ws.dist(v)) ws.update(v, newDist, u, newDist);
+                }
+            }
+
+            double[] distances = new double[n];
+            for (int v = 0; v < n; v++) distances[v] = ws.dist(v);
+            return distances;
+        } finally {
+            SearchWorkspace.release(ws);
+        }
+    }
+
+    /** Haversine tahminli A*. Tahmin kabul edilebilir; düğüm daha kısa yolla tekrar gelirse yeniden açılır. */
+    static PathResult astar(RoadGraph g, int startId, int endId) {
+        int[] offsets = g.offsets;
+        int[] targets = g.targets;
+        double[] weights = g.weights;
+        double tLat = g.lat[endId], tLon = g.lon[endId];
+
+        SearchWorkspace ws = SearchWorkspace.acquire(g.nodeCount());
+        try {
+            ws.start(startId, 0.0);
+            int settled = 0;
+
+            while (!ws.isEmpty()) {
+                int u = ws.poll();
+                if (u == endId) break;
+                settled++;
+
+                double du = ws.dist(u);
+                for (int e = offsets[u], end = offsets[u + 1]; e < end; e++) {
+                    int v = targets[e];
+                    double newDist = du + weights[e];
+                    if (newDist < ws.dist(v)) {
+                        double h = GeoGrid.haversine(g.lat[v], g.lon[v], tLat, tLon) * HEURISTIC_SCALE;
+                        ws.update(v, newDist, u, newDist + h);
+                    }
+                }
+            }
+
+            if (!ws.reached(endId)) return PathResult.unreachable(settled);
+            int[] path = ws.unwind(endId);
+            return new PathResult(path, pathDistance(g, path), settled);
+        } finally {
+            SearchWorkspace.release(ws);
+        }
+    }
+
+    /** Çift yönlü Dijkstra: iki kuyruğun tepe değerleri toplamı en iyi buluşmayı geçince durur. */
+    static PathResult bidirectional(RoadGraph g, int startId, int endId) {
+        if (startId == endId) return new PathResult(new int[]{startId}, 0.0, 0);
+
+        int n = g.nodeCount();
+        int[] offsets = g.offsets;
+        int[] targets = g.targets;
+        double[] weights = g.weights;
+
+        SearchWorkspace[] ws = {SearchWorkspace.acquire(n), SearchWorkspace.acquire(n)};
+        try {
+            ws[0].start(startId, 0.0);
+            ws[1].start(endId, 0.0);
+
+            double best = Double.MAX_VALUE;
+            int meet = -1;
+            int settled = 0;
+
+            while (!ws[0].isEmpty() && !ws[1].isEmpty()) {
+                if (ws[0].peekKey() + ws[1].peekKey() >= best) break;
+
+                int side = ws[0].peekKey() <= ws[1].peekKey() ? 0 : 1;
+                SearchWorkspace self = ws[side];
+                SearchWorkspace other = ws[1 - side];
+                int u = self.poll();
+                settled++;
+
+                double du = self.dist(u);
+                for (int e = offsets[u], end = offsets[u + 1]; e < end; e++) {
+                    int v = targets[e];
+                    if (self.settled(v)) continue;
+                    double newDist = du + weights[e];
+                    if (newDist < self.dist(v)) self.update(v, newDist, u, newDist);
+                    double dv = other.dist(v);
+                    if (dv != Double.MAX_VALUE && newDist + dv < best) {
+                        best = newDist + dv;
+                        meet = v;
+                    }
+                }
+            }
+
+            if (meet < 0) return PathResult.unreachable(settled);
+
+            int[] head = ws[0].unwind(meet);
+            int tailLen = 0;
+            for (int curr = ws[1].parent(meet); curr >= 0; curr = ws[1].parent(curr)) tailLen++;
+            int[] path = Arrays.copyOf(head, head.length + tailLen);
+            int i = head.length;
+            for (int curr = ws[1].parent(meet); curr >= 0; curr = ws[1].parent(curr)) path[i++] = curr;
+
+            return new PathResult(path, pathDistance(g, path), settled);
+        } finally {
+            SearchWorkspace.release(ws[0]);
+            SearchWorkspace.release(ws[1]);
+        }
+    }
+
+    /**
+     * Yol boyunca kenar ağırlıklarını baştan sona toplar. Dijkstra mesafeyi aynı sırayla biriktirdiği için
+     * diğer yöntemler de aynı yol için bit bit aynı sonucu döner.
+     */
+    static double pathDistance(RoadGraph g, int[] path) {
+        double sum = 0.0;
+        for (int i = 0; i + 1 < path.length; i++) sum += edgeWeight(g, path[i], path[i + 1]);
+        return sum;
+    }
+
+    static double edgeWeight(RoadGraph g, int from, int to) {
+        double w = Double.MAX_VALUE;
+        for (int e = g.offsets[from], end = g.offsets[from + 1]; e < end; e++) {
+            if (g.targets[e] == to && g.weights[e] < w) w = g.weights[e];
+        }
+        return w;
+    }
+}
@@ -0,0 +1,24 @@
+package com.yazlab.kargo.service;
+
+import java.util.Locale;
+
+/** Yol koordinatlarının JSON'daki biçimi (pathFormat parametresi). */
+public enum PathFormat {
+    /** ["lat,lon", ...] — eski biçim, varsayılan. */
+    COORDS,
+    /** Google encoded polyline, 1e-6 derece hassasiyetle (polyline6). */
+    POLYLINE6,
+    /** [lat0, lon0, dLat1, dLon1, ...] — 1e-6 derece biriminde tamsayılar, ilk noktadan sonra farklar. */
+    PACKED;
+
+    /** null/boş -> COORDS, tanınmayan değer -> null. */
+    public static PathFormat parse(String value) {
+        if (value == null || value.isBlank()) return COORDS;
+        for (PathFormat f : values()) {
+            if (f.name().equalsIgnoreCase(value.trim())) return f;
+        }
+        return null;
+    }
+
+    public String paramValue() { return name().toLowerCase(Locale.ROOT); }
+}
@@ -0,0 +1,21 @@
+package com.yazlab.kargo.service;
+
+/** Arama sonucu: node dizisi, km cinsinden mesafe ve kesinleşen (settled) node sayısı. */
+final class PathResult {
+
+    final int[] path;
+    final double distance;
+    final int settled;
+
+    PathResult(int[] path, double distance, int settled) {
+        this.path = path;
+        this.distance = distance;
+        this.settled = settled;
+    }
+
+    static PathResult unreachable(int settled) {
+        return new PathResult(new int[0], Double.MAX_VALUE, settled);
+    }
+
+    boolean isReachable() { return distance != Double.MAX_VALUE; }
+}
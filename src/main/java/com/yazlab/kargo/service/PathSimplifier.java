@@ -0,0 +1,102 @@
+package com.yazlab.kargo.service;
+
+/**
+ * [lat0, lon0, lat1, lon1, ...] yolunu Douglas-Peucker ile seyreltir: atılan her nokta kalan çizgiye
+ * toleranceMeters'tan yakındır. Uç noktalar her zaman kalır, bu yüzden seyreltilmiş bacaklar eskisi gibi
+ * uç uca eklenebilir. Mesafeler ilk noktada teğet düzlemde (eşdikdörtgen) ölçülür; şehir ölçeğinde yeterli.
+ */
+public final class PathSimplifier {
+
+    private static final double METERS_PER_DEGREE = 6371000.0 * Math.PI / 180.0;
+    // Leaflet/OSM: zoom 0'da ekvatorda piksel başına metre
+    private static final double METERS_PER_PIXEL_Z0 = 156543.03392;
+
+    private PathSimplifier() { }
+
+    /** Haritada zoom seviyesinde bir pikselin enlem lat'taki metre karşılığı. */
+    public static double toleranceForZoom(int zoom, double lat) {
+        int z = Math.max(0, Math.min(zoom, 24));
+        return METERS_PER_PIXEL_Z0 * Math.cos(Math.toRadians(lat)) / (1 << z);
+    }
+
+    /**
+     * simplify (metre) verildiyse o, yoksa zoom'un bir pikseli, ikisi de yoksa 0 (seyreltme yok).
+     * NaN ya da sonsuz simplify'da IllegalArgumentException (yol önbelleğine anahtar olmasın).
+     */
+    public static double tolerance(Double meters, Integer zoom, double lat) {
+        if (meters != null) {
+            if (!Double.isFinite(meters)) throw new IllegalArgumentException("Geçersiz simplify: " + meters);
+            return Math.max(0, meters);
+        }
+        if (zoom != null) return toleranceForZoom(zoom, lat);
+        return 0;
+    }
+
+    /** Tolerans 0 ya da daha azsa (NaN dahil), ya da yol 3 noktadan kısaysa aynı dizi döner. */
+    public static double[] simplify(double[] latLon, double toleranceMeters) {
+        int n = latLon.length / 2;
+        if (!(toleranceMeters > 0) || n < 3) return latLon;
+
+        double lat0 = latLon[0];
+        double lon0 = latLon[1];
+        double kx = METERS_PER_DEGREE * Math.cos(Math.toRadians(lat0));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (latLon[2 * i + 1] - lon0) * kx;
+            y[i] = (latLon[2 * i] - lat0) * METERS_PER_DEGREE;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        double tol2 = toleranceMeters * toleranceMeters;
+
+        // özyineleme yerine yığın: uzun yollarda derinlik n'e çıkabilir
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            int worst = -1;
+            double worstD2 = tol2;
+            for (int i = first + 1; i < last; i++) {
+                double d2 = segmentDistance2(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (d2 > worstD2) {
+                    worstD2 = d2;
+                    worst = i;
+                }
+            }
+            if (worst < 0) continue;
+            keep[worst] = true;
+            stack[top++] = first;
+            stack[top++] = worst;
+            stack[top++] = worst;
+            stack[top++] = last;
+        }
+
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+        if (kept == n) return latLon;
+        double[] out = new double[2 * kept];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            out[pos++] = latLon[2 * i];
+            out[pos++] = latLon[2 * i + 1];
+        }
+        return out;
+    }
+
+    // p'nin [a, b] doğru parçasına uzaklığının karesi
+    private static double segmentDistance2(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax, dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / len2;
+        t = Math.max(0, Math.min(1, t));
+        double ex = ax + t * dx - px, ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,152 @@
+package com.yazlab.kargo.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Kuyruğa alınmış bir deliver-all planlaması. Planlayıcı progress() ile aşama/ilerleme yazar ve
+ * checkCancelled() noktalarında iptal isteğine bakar; iptal işbirliklidir (thread kesilmez, DB yazımı
+ * yarıda kalmaz). Durum QUEUED -> RUNNING -> DONE | FAILED | CANCELLED yönünde ilerler.
+ */
+public final class PlanningJob {
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    // dinleyicilere ilerleme bildirimi en fazla bu aralıkla (aşama değişimi ve bitiş hemen gider)
+    private static final long NOTIFY_INTERVAL_MS = 250;
+
+    private final String id;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long startedAt, finishedAt;
+
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile String phase = "QUEUED";
+    private volatile long done, total;
+    private volatile Map<String, Object> result;
+    private volatile String error;
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final List<Consumer<PlanningJob>> listeners = new CopyOnWriteArrayList<>();
+    private long lastNotify;
+
+    // kuyruktaki görev; kuyrukta iptal edilirse executor'dan çıkarmak için
+    Runnable task;
+
+    PlanningJob(String id) {
+        this.id = id;
+    }
+
+    public String getId() { return id; }
+
+    public State getState() { return state; }
+
+    public Map<String, Object> getResult() { return result; }
+
+    public String getError() { return error; }
+
+    public boolean isFinished() { return finished.getCount() == 0; }
+
+    /** İş bitene (ya da süre dolana) kadar bekler; bittiyse true. */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /** Aşama ve ilerleme (done/total; total 0 ise belirsiz). Aynı aşamadaki sık çağrılar seyreltilerek bildirilir. */
+    public void progress(String phase, long done, long total) {
+        boolean phaseChanged = !phase.equals(this.phase);
+        this.phase = phase;
+        this.done = done;
+        this.total = total;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (!phaseChanged && now - lastNotify < NOTIFY_INTERVAL_MS) return;
+            lastNotify = now;
+        }
+        notifyListeners();
+    }
+
+    /** İptal istendiyse CancellationException atar; planlayıcı yalnız güvenli noktalarda çağırır. */
+    public void checkCancelled() {
+        if (cancelRequested) throw new CancellationException("İş iptal edildi");
+    }
+
+    // ------------------------------------------------------------------ servis tarafı
+
+    /** Çalışmaya başlar; kuyruktayken iptal edildiyse false. */
+    synchronized boolean start() {
+        if (state != State.QUEUED) return false;
+        state = State.RUNNING;
+        phase = "STARTED";
+        startedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Kuyruktaki iş hemen CANCELLED olur; çalışan iş bir sonraki kontrol noktasında durur.
+     * Zaten bitmişse false.
+     */
+    boolean requestCancel() {
+        synchronized (this) {
+            if (state == State.RUNNING) {
+                cancelRequested = true;
+                return true;
+            }
+            if (state != State.QUEUED) return false;
+            cancelRequested = true;
+        }
+        finish(State.CANCELLED, null, null);
+        return true;
+    }
+
+    void finish(State end, Map<String, Object> result, String error) {
+        synchronized (this) {
+            if (isFinished()) return;
+            this.result = result;
+            this.error = error;
+            this.phase = end.name();
+            this.state = end;
+            this.finishedAt = System.currentTimeMillis();
+            finished.countDown();
+        }
+        notifyListeners();
+        listeners.clear();
+    }
+
+    void addListener(Consumer<PlanningJob> listener) { listeners.add(listener); }
+
+    void removeListener(Consumer<PlanningJob> listener) { listeners.remove(listener); }
+
+    private void notifyListeners() {
+        for (Consumer<PlanningJob> l : listeners) {
+            try {
+                l.accept(this);
+            } catch (RuntimeException e) {
+                listeners.remove(l);
+            }
+        }
+    }
+
+    /** JSON gövdesi; sonuç (tam plan) yalnız istenirse ve iş bittiyse eklenir. */
+    public Map<String, Object> toMap(boolean withResult) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("jobId", id);
+        m.put("state", state.name());
+        m.put("phase", phase);
+        m.put("done", done);
+        m.put("total", total);
+        m.put("cancelRequested", cancelRequested);
+        m.put("createdAt", createdAt);
+        m.put("startedAt", startedAt == 0 ? null : startedAt);
+        m.put("finishedAt", finishedAt == 0 ? null : finishedAt);
+        if (error != null) m.put("error", error);
+        if (withResult && result != null) m.put("result", result);
+        return m;
+    }
+}
@@ -0,0 +1,243 @@
+package com.yazlab.kargo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * deliver-all planlamalarını istek thread'i dışında, sınırlı bir havuzda çalıştırır. Kuyruk doluysa
+ * submit RejectedExecutionException atar (HTTP 429). Biten işler sonuçlarıyla birlikte son
+ * cargo.jobs.retain tanesi kadar bellekte tutulur.
+ */
+@Service
+public class PlanningJobService {
+
+    // her çalıştırma filoyu sıfırlayıp yeniden atadığı için varsayılan tek thread (işler sırayla)
+    @Value("${cargo.jobs.threads:1}")
+    private int threads = 1;
+
+    @Value("${cargo.jobs.queue-limit:8}")
+    private int queueLimit = 8;
+
+    @Value("${cargo.jobs.retain:50}")
+    private int retain = 50;
+
+    // senkron POST /deliver-all bu kadar bekler; bitmezse iş id'siyle 202 döner
+    @Value("${cargo.jobs.sync-wait-seconds:30}")
+    private long syncWaitSeconds = 30;
+
+    // SSE bağlantısının en uzun açık kalma süresi
+    @Value("${cargo.jobs.stream-timeout-seconds:600}")
+    private long streamTimeoutSeconds = 600;
+
+    // bir planlama turundaki aday araç planlarını kuran havuz (0 = işlemci sayısı)
+    @Value("${cargo.planner.parallelism:0}")
+    private int plannerParallelism = 0;
+
+    private ThreadPoolExecutor executor;
+    private ForkJoinPool plannerPool;
+
+    // eklenme sırasıyla; en eski biten işler atılır
+    private final Map<String, PlanningJob> jobs = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int n = Math.max(1, threads);
+        AtomicInteger seq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueLimit)), r -> {
+                    Thread t = new Thread(r, "planning-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        plannerPool = new ForkJoinPool(plannerParallelism > 0 ? plannerParallelism : Runtime.getRuntime().availableProcessors());
+        System.out.println("Planlama iş havuzu: " + n + " thread, kuyruk " + Math.max(1, queueLimit)
+                + "; aday değerlendirme: " + plannerPool.getParallelism() + " thread");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) executor.shutdownNow();
+        if (plannerPool != null) plannerPool.shutdownNow();
+    }
+
+    /**
+     * Görevleri aday değerlendirme havuzunda çalıştırır ve sonuçları görev sırasıyla döner.
+     * Tek görevde ya da havuz tek thread'liyken çağıran thread'de sırayla çalışır.
+     */
+    public <T> List<T> evaluateAll(List<Callable<T>> tasks) {
+        List<T> out = new ArrayList<>(tasks.size());
+        try {
+            if (tasks.size() <= 1 || plannerPool.getParallelism() <= 1) {
+                for (Callable<T> task : tasks) out.add(task.call());
+                return out;
+            }
+            for (Future<T> f : plannerPool.invokeAll(tasks)) out.add(f.get());
+            return out;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Aday değerlendirmesi kesildi", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Aday değerlendirilemedi", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Aday değerlendirilemedi", e);
+        }
+    }
+
+    /**
+     * İşi kuyruğa alır. planner iş nesnesiyle ilerleme yazar ve iptal noktalarını kontrol eder,
+     * dönen harita işin sonucu olur.
+     */
+    public PlanningJob submit(Function<PlanningJob, Map<String, Object>> planner) {
+        PlanningJob job = new PlanningJob(UUID.randomUUID().toString());
+        job.task = () -> run(job, planner);
+        synchronized (jobs) {
+            executor.execute(job.task);
+            jobs.put(job.getId(), job);
+            prune();
+        }
+        return job;
+    }
+
+    private void run(PlanningJob job, Function<PlanningJob, Map<String, Object>> planner) {
+        if (!job.start()) return;
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Object> result = planner.apply(job);
+            job.finish(PlanningJob.State.DONE, result, null);
+            System.out.println("Planlama işi bitti: " + job.getId() + " (" + (System.currentTimeMillis() - start) + " ms)");
+        } catch (CancellationException e) {
+            job.finish(PlanningJob.State.CANCELLED, null, null);
+            System.out.println("Planlama işi iptal edildi: " + job.getId());
+        } catch (RuntimeException e) {
+            job.finish(PlanningJob.State.FAILED, null, String.valueOf(e.getMessage()));
+            System.err.println("Planlama işi başarısız: " + job.getId() + " - " + e.getMessage());
+            e.printStackTrace();
+        } catch (Throwable e) {
+            // Error (OutOfMemoryError, StackOverflowError...) da işi bitirmeli; yoksa iş RUNNING'de kalır,
+            // senkron istek ve SSE bağlantıları sonuna kadar bekler
+            job.finish(PlanningJob.State.FAILED, null, e.toString());
+            System.err.println("Planlama işi başarısız: " + job.getId() + " - " + e);
+            e.printStackTrace();
+            if (e instanceof Error) throw (Error) e;
+        }
+    }
+
+    /** Senkron uç için: iş cargo.jobs.sync-wait-seconds içinde bittiyse true. */
+    public boolean awaitSync(PlanningJob job) throws InterruptedException {
+        return job.await(Math.max(0, syncWaitSeconds), TimeUnit.SECONDS);
+    }
+
+    public PlanningJob get(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    /** Son işler, yeniden eskiye; sonuç gövdeleri olmadan. */
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> out = new ArrayList<>();
+        synchronized (jobs) {
+            for (PlanningJob job : jobs.values()) out.add(0, job.toMap(false));
+        }
+        return out;
+    }
+
+    /** İş yoksa ya da zaten bittiyse false. */
+    public boolean cancel(String id) {
+        PlanningJob job = get(id);
+        if (job == null || !job.requestCancel()) return false;
+        // kuyrukta bekliyorsa yerini hemen boşalt
+        if (job.getState() == PlanningJob.State.CANCELLED) executor.remove(job.task);
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("threads", executor.getPoolSize());
+        m.put("active", executor.getActiveCount());
+        m.put("queued", executor.getQueue().size());
+        m.put("queueLimit", Math.max(1, queueLimit));
+        return m;
+    }
+
+    /**
+     * İşin ilerlemesini SSE olarak yayınlar: hemen bir "progress" olayı, sonra aşama değiştikçe
+     * yenileri; iş bitince sonucu içeren "done" olayı gönderilip bağlantı kapanır.
+     */
+    public SseEmitter stream(PlanningJob job) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(streamTimeoutSeconds));
+        AtomicBoolean closed = new AtomicBoolean();
+
+        Consumer<PlanningJob> listener = new Consumer<>() {
+            @Override
+            public void accept(PlanningJob j) {
+                // ilk durum istek thread'inden, sonrakiler iş thread'inden gelir
+                synchronized (emitter) {
+                    if (closed.get()) return;
+                    try {
+                        if (j.isFinished()) {
+                            closed.set(true);
+                            emitter.send(SseEmitter.event().name("done").data(j.toMap(true)));
+                            emitter.complete();
+                        } else {
+                            emitter.send(SseEmitter.event().name("progress").data(j.toMap(false)));
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        // istemci gitti
+                        closed.set(true);
+                        j.removeListener(this);
+                    }
+                }
+            }
+        };
+        Runnable detach = () -> {
+            closed.set(true);
+            job.removeListener(listener);
+        };
+        emitter.onCompletion(detach);
+        emitter.onTimeout(detach);
+        emitter.onError(e -> detach.run());
+
+        job.addListener(listener);
+        // kayıttan önce bitmiş ya da şu an biten işte son durum buradan gider
+        listener.accept(job);
+        return emitter;
+    }
+
+    /** Biten işleri en eskiden başlayarak atar; kuyrukta ya da çalışan iş atılmaz. */
+    private void prune() {
+        int excess = jobs.size() - Math.max(1, retain);
+        for (Iterator<PlanningJob> it = jobs.values().iterator(); it.hasNext() && excess > 0; ) {
+            if (it.next().isFinished()) {
+                it.remove();
+                excess--;
+            }
+        }
+    }
+}
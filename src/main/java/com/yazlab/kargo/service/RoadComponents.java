@@ -0,0 +1,83 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+
+/**
+ * Yol ağının bağlı bileşenleri; yüklemede bir kez etiketlenir. Graf simetrik olduğu için
+ * yönsüz bileşen yeterlidir: farklı bileşendeki iki node arasında yol yoktur.
+ * Bileşen id'leri en küçük node id'sine göre artan sıradadır.
+ */
+final class RoadComponents {
+
+    final int[] componentOf;
+    final int[] sizes;
+    final int largest; // en çok node'lu bileşen (eşitlikte küçük id), graf boşsa -1
+
+    private RoadComponents(int[] componentOf, int[] sizes, int largest) {
+        this.componentOf = componentOf;
+        this.sizes = sizes;
+        this.largest = largest;
+    }
+
+    static RoadComponents label(RoadGraph g) {
+        int n = g.nodeCount();
+        int[] componentOf = new int[n];
+        Arrays.fill(componentOf, -1);
+        int[] queue = new int[n];
+        int[] sizes = new int[16];
+        int count = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (componentOf[root] >= 0) continue;
+            int id = count++;
+            componentOf[root] = id;
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int e = g.offsets[u], end = g.offsets[u + 1]; e < end; e++) {
+                    int v = g.targets[e];
+                    if (componentOf[v] < 0) {
+                        componentOf[v] = id;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            if (id == sizes.length) sizes = Arrays.copyOf(sizes, id * 2);
+            sizes[id] = tail;
+        }
+
+        sizes = Arrays.copyOf(sizes, count);
+        int largest = -1;
+        for (int c = 0; c < count; c++) {
+            if (largest < 0 || sizes[c] > sizes[largest]) largest = c;
+        }
+        return new RoadComponents(componentOf, sizes, largest);
+    }
+
+    boolean connected(int a, int b) {
+        return componentOf[a] == componentOf[b];
+    }
+
+    boolean inLargest(int node) {
+        return componentOf[node] == largest;
+    }
+
+    int count() { return sizes.length; }
+
+    int largestSize() { return largest < 0 ? 0 : sizes[largest]; }
+
+    /** En büyük bileşenin node'ları, artan sırada. */
+    int[] largestNodes() {
+        int[] nodes = new int[largestSize()];
+        int k = 0;
+        for (int v = 0; v < componentOf.length; v++) {
+            if (componentOf[v] == largest) nodes[k++] = v;
+        }
+        return nodes;
+    }
+
+    long memoryBytes() {
+        return 4L * componentOf.length + 4L * sizes.length;
+    }
+}
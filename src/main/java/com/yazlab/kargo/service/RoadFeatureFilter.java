@@ -0,0 +1,151 @@
+package com.yazlab.kargo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GeoJSON içe aktarılırken feature'ları eleyen kurallar. İlk kural geometri tipi izin listesidir,
+ * sonrakiler route.import.property-filters'tan gelir (virgülle ayrılır):
+ *   highway=primary|secondary  -> değer listede yoksa (ya da alan yoksa) ele
+ *   highway!=footway|steps     -> değer listedeyse ele
+ *   highway                    -> alan yoksa ele
+ *   !building                  -> alan varsa ele
+ * Feature ilk takıldığı kurala yazılır; her kural için elenen feature ve nokta sayısı tutulur.
+ */
+final class RoadFeatureFilter {
+
+    private static final int REQUIRE_VALUE = 0, REJECT_VALUE = 1, REQUIRE_KEY = 2, REJECT_KEY = 3;
+
+    private final Set<String> geometryTypes;
+    private final List<Rule> rules;
+    private final Set<String> keys = new HashSet<>();
+
+    private final long[] excludedFeatures;
+    private final long[] excludedPoints;
+
+    private RoadFeatureFilter(Set<String> geometryTypes, List<Rule> rules) {
+        this.geometryTypes = geometryTypes;
+        this.rules = rules;
+        for (Rule r : rules) keys.add(r.key);
+        excludedFeatures = new long[rules.size() + 1];
+        excludedPoints = new long[rules.size() + 1];
+    }
+
+    /** Tip listesi boşsa eski davranış: LineString, Polygon ve MultiPolygon. */
+    static RoadFeatureFilter parse(String geometryTypes, String propertyFilters) {
+        Set<String> types = new HashSet<>();
+        for (String t : split(geometryTypes, ",")) types.add(t.toLowerCase(Locale.ROOT));
+        if (types.isEmpty()) types.addAll(Arrays.asList("linestring", "polygon", "multipolygon"));
+
+        List<Rule> rules = new ArrayList<>();
+        for (String r : split(propertyFilters, ",")) rules.add(Rule.parse(r));
+        return new RoadFeatureFilter(types, rules);
+    }
+
+    /** Okuyucunun properties içinden saklaması gereken alanlar. */
+    boolean wantsProperty(String key) {
+        return keys.contains(key);
+    }
+
+    /** Feature'ı eleyen kuralın sırası (0: geometri tipi), geçiyorsa -1. */
+    int reject(String geometryType, Map<String, String> properties) {
+        if (geometryType == null || !geometryTypes.contains(geometryType.toLowerCase(Locale.ROOT))) return 0;
+        for (int i = 0; i < rules.size(); i++) {
+            if (!rules.get(i).accepts(properties.get(rules.get(i).key))) return i + 1;
+        }
+        return -1;
+    }
+
+    void excluded(int rule, int points) {
+        excludedFeatures[rule]++;
+        excludedPoints[rule] += points;
+    }
+
+    int ruleCount() { return rules.size() + 1; }
+
+    String ruleName(int rule) {
+        if (rule == 0) {
+            List<String> types = new ArrayList<>(geometryTypes);
+            types.sort(null);
+            return "geometri tipi " + String.join("|", types);
+        }
+        return rules.get(rule - 1).toString();
+    }
+
+    long excludedFeatures(int rule) { return excludedFeatures[rule]; }
+
+    long excludedPoints(int rule) { return excludedPoints[rule]; }
+
+    /** Kuralların normalize hali; snapshot başlığında farklı filtreyle kurulan grafı ayırt etmek için. */
+    long fingerprint() {
+        StringBuilder spec = new StringBuilder(ruleName(0));
+        for (Rule r : rules) spec.append(',').append(r);
+        long h = 1125899906842597L;
+        for (int i = 0; i < spec.length(); i++) h = 31 * h + spec.charAt(i);
+        return h;
+    }
+
+    private static List<String> split(String s, String separator) {
+        List<String> out = new ArrayList<>();
+        if (s == null) return out;
+        for (String part : s.split(separator)) {
+            String p = part.trim();
+            if (!p.isEmpty()) out.add(p);
+        }
+        return out;
+    }
+
+    private static final class Rule {
+        final String key;
+        final int kind;
+        final Set<String> values;
+
+        Rule(String key, int kind, Set<String> values) {
+            this.key = key;
+            this.kind = kind;
+            this.values = values;
+        }
+
+        static Rule parse(String text) {
+            int ne = text.indexOf("!=");
+            if (ne > 0) return new Rule(text.substring(0, ne).trim(), REJECT_VALUE, values(text.substring(ne + 2)));
+            int eq = text.indexOf('=');
+            if (eq > 0) return new Rule(text.substring(0, eq).trim(), REQUIRE_VALUE, values(text.substring(eq + 1)));
+            if (eq == 0 || ne == 0) throw new IllegalArgumentException("Geçersiz filtre: " + text);
+            if (text.startsWith("!")) return new Rule(text.substring(1).trim(), REJECT_KEY, Set.of());
+            return new Rule(text, REQUIRE_KEY, Set.of());
+        }
+
+        private static Set<String> values(String list) {
+            Set<String> out = new HashSet<>(split(list, "\\|"));
+            if (out.isEmpty()) throw new IllegalArgumentException("Filtrede değer yok: " + list);
+            return out;
+        }
+
+        boolean accepts(String value) {
+            switch (kind) {
+                case REQUIRE_VALUE: return value != null && values.contains(value);
+                case REJECT_VALUE: return value == null || !values.contains(value);
+                case REQUIRE_KEY: return value != null;
+                default: return value == null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            List<String> sorted = new ArrayList<>(values);
+            sorted.sort(null);
+            switch (kind) {
+                case REQUIRE_VALUE: return key + "=" + String.join("|", sorted);
+                case REJECT_VALUE: return key + "!=" + String.join("|", sorted);
+                case REQUIRE_KEY: return key;
+                default: return "!" + key;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.yazlab.kargo.service;
+
+/**
+ * Yükleme sonrası dondurulan yol ağı (CSR düzeni).
+ * Node i'nin kenarları: targets/weights[offsets[i] .. offsets[i+1]).
+ * Tüm diziler salt okunur kabul edilir, dışarıdan değiştirilmemeli.
+ */
+final class RoadGraph {
+
+    final double[] lat;
+    final double[] lon;
+
+    final int[] offsets;
+    final int[] targets;
+    final double[] weights;
+
+    RoadGraph(double[] lat, double[] lon, int[] offsets, int[] targets, double[] weights) {
+        this.lat = lat;
+        this.lon = lon;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    int nodeCount() { return lat.length; }
+
+    int edgeCount() { return targets.length; }
+
+    int degree(int node) { return offsets[node + 1] - offsets[node]; }
+
+    /** Dizilerin kapladığı yaklaşık heap (byte). */
+    long memoryBytes() {
+        return 8L * lat.length + 8L * lon.length
+                + 4L * offsets.length + 4L * targets.length + 8L * weights.length;
+    }
+}
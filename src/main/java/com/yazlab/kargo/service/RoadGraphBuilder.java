@@ -0,0 +1,67 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+
+/**
+ * GeoJSON okunurken kullanılan geçici yapı. Node id'leri ekleme sırasıyla 0'dan verilir,
+ * build() sonunda kenarlar kaynak node'a göre (ekleme sırası korunarak) CSR'a dizilir.
+ */
+final class RoadGraphBuilder {
+
+    private double[] lat = new double[1024];
+    private double[] lon = new double[1024];
+    private int nodeCount = 0;
+
+    private int[] edgeFrom = new int[2048];
+    private int[] edgeTo = new int[2048];
+    private double[] edgeWeight = new double[2048];
+    private int edgeCount = 0;
+
+    int addNode(double latitude, double longitude) {
+        if (nodeCount == lat.length) {
+            lat = Arrays.copyOf(lat, nodeCount * 2);
+            lon = Arrays.copyOf(lon, nodeCount * 2);
+        }
+        lat[nodeCount] = latitude;
+        lon[nodeCount] = longitude;
+        return nodeCount++;
+    }
+
+    void addEdge(int from, int to, double weight) {
+        if (edgeCount == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+            edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+            edgeWeight = Arrays.copyOf(edgeWeight, edgeCount * 2);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeWeight[edgeCount] = weight;
+        edgeCount++;
+    }
+
+    double lat(int node) { return lat[node]; }
+
+    double lon(int node) { return lon[node]; }
+
+    int nodeCount() { return nodeCount; }
+
+    RoadGraph build() {
+        int[] offsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) offsets[edgeFrom[e] + 1]++;
+        for (int i = 0; i < nodeCount; i++) offsets[i + 1] += offsets[i];
+
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        int[] fill = Arrays.copyOf(offsets, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            int pos = fill[edgeFrom[e]]++;
+            targets[pos] = edgeTo[e];
+            weights[pos] = edgeWeight[e];
+        }
+
+        return new RoadGraph(
+                Arrays.copyOf(lat, nodeCount), Arrays.copyOf(lon, nodeCount),
+                offsets, targets, weights
+        );
+    }
+}
@@ -0,0 +1,171 @@
+package com.yazlab.kargo.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Dondurulmuş yol ağının (CSR dizileri + GeoGrid) ikili kopyası.
+ * Açılışta GeoJSON yeniden işlenmeden FileChannel.map ile okunur.
+ *
+ * Düzen (little endian): başlık, sonra sırasıyla
+ * lat[n], lon[n], weights[m], offsets[n+1], targets[m], cellStart[rows*cols+1], cellItems[n].
+ * Başlıkta kaynak dosyanın boyu, değişme zamanı ve içe aktarma filtresinin parmak izi tutulur;
+ * uymazsa snapshot eskimiş sayılır.
+ */
+final class RoadGraphSnapshot {
+
+    private static final int MAGIC = 0x4B524753; // "KRGS"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 96;
+    private static final int WRITE_CHUNK = 1 << 20;
+
+    final RoadGraph graph;
+    final GeoGrid grid;
+
+    RoadGraphSnapshot(RoadGraph graph, GeoGrid grid) {
+        this.graph = graph;
+        this.grid = grid;
+    }
+
+    /**
+     * Snapshot geçerliyse okur. Dosya yoksa, sürümü farklıysa, kaynak GeoJSON snapshot alındıktan
+     * sonra değiştiyse ya da farklı filtreyle kurulduysa null döner.
+     */
+    static RoadGraphSnapshot read(File file, File source, long importKey) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_BYTES) return null;
+        if (file.length() > Integer.MAX_VALUE) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            long sourceLength = buf.getLong();
+            long sourceModified = buf.getLong();
+            long sourceImportKey = buf.getLong();
+            if (sourceLength != source.length() || sourceModified != source.lastModified()
+                    || sourceImportKey != importKey) {
+                return null;
+            }
+
+            int n = buf.getInt();
+            int m = buf.getInt();
+            double minLat = buf.getDouble(), minLon = buf.getDouble();
+            double maxLat = buf.getDouble(), maxLon = buf.getDouble();
+            double cellLat = buf.getDouble(), cellLon = buf.getDouble();
+            int rows = buf.getInt();
+            int cols = buf.getInt();
+
+            long cells = (long) rows * cols;
+            if (n < 0 || m < 0 || rows < 1 || cols < 1 || channel.size() != expectedSize(n, m, cells)) {
+                return null;
+            }
+
+            double[] lat = new double[n];
+            double[] lon = new double[n];
+            double[] weights = new double[m];
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            int[] cellStart = new int[(int) cells + 1];
+            int[] cellItems = new int[n];
+
+            buf.position(HEADER_BYTES);
+            readDoubles(buf, lat);
+            readDoubles(buf, lon);
+            readDoubles(buf, weights);
+            readInts(buf, offsets);
+            readInts(buf, targets);
+            readInts(buf, cellStart);
+            readInts(buf, cellItems);
+
+            RoadGraph graph = new RoadGraph(lat, lon, offsets, targets, weights);
+            GeoGrid grid = GeoGrid.restore(lat, lon, minLat, minLon, maxLat, maxLon,
+                    cellLat, cellLon, rows, cols, cellStart, cellItems);
+            return new RoadGraphSnapshot(graph, grid);
+        }
+    }
+
+    /** Önce geçici dosyaya yazar, sonra yerine taşır; yarım kalan yazım okunmaz. */
+    void write(File file, File source, long importKey) throws IOException {
+        RoadGraph g = graph;
+        int n = g.nodeCount();
+        int m = g.edgeCount();
+        long cells = (long) grid.rows * grid.cols;
+        if (expectedSize(n, m, cells) > Integer.MAX_VALUE) {
+            throw new IOException("Graf tek dosyaya eşlenemeyecek kadar büyük");
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(WRITE_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+            buf.putInt(MAGIC).putInt(VERSION);
+            buf.putLong(source.length()).putLong(source.lastModified()).putLong(importKey);
+            buf.putInt(n).putInt(m);
+            buf.putDouble(grid.minLat).putDouble(grid.minLon);
+            buf.putDouble(grid.maxLat).putDouble(grid.maxLon);
+            buf.putDouble(grid.cellLat).putDouble(grid.cellLon);
+            buf.putInt(grid.rows).putInt(grid.cols);
+
+            writeDoubles(channel, buf, g.lat);
+            writeDoubles(channel, buf, g.lon);
+            writeDoubles(channel, buf, g.weights);
+            writeInts(channel, buf, g.offsets);
+            writeInts(channel, buf, g.targets);
+            writeInts(channel, buf, grid.cellStart);
+            writeInts(channel, buf, grid.cellItems);
+            flush(channel, buf);
+            channel.force(false);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static long expectedSize(int n, int m, long cells) {
+        return HEADER_BYTES + 8L * (2L * n + m) + 4L * ((n + 1L) + m + (cells + 1) + n);
+    }
+
+    // aşağıdaki yardımcıları Landmarks dosyası da kullanır
+    static void readDoubles(ByteBuffer buf, double[] out) {
+        buf.asDoubleBuffer().get(out);
+        buf.position(buf.position() + 8 * out.length);
+    }
+
+    static void readInts(ByteBuffer buf, int[] out) {
+        buf.asIntBuffer().get(out);
+        buf.position(buf.position() + 4 * out.length);
+    }
+
+    static void writeDoubles(FileChannel channel, ByteBuffer buf, double[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (buf.remaining() < 8) flush(channel, buf);
+            int count = Math.min(values.length - i, buf.remaining() / 8);
+            buf.asDoubleBuffer().put(values, i, count);
+            buf.position(buf.position() + 8 * count);
+            i += count;
+        }
+    }
+
+    static void writeInts(FileChannel channel, ByteBuffer buf, int[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (buf.remaining() < 4) flush(channel, buf);
+            int count = Math.min(values.length - i, buf.remaining() / 4);
+            buf.asIntBuffer().put(values, i, count);
+            buf.position(buf.position() + 4 * count);
+            i += count;
+        }
+    }
+
+    static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        buf.clear();
+    }
+}
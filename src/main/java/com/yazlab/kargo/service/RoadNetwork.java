@@ -0,0 +1,47 @@
+package com.yazlab.kargo.service;
+
+/**
+ * Bir yükleme sonucunda oluşan yol ağı ve ona bağlı her şey: graf, snap ızgarası, bileşenler,
+ * hızlandırma yapıları ve mesafe önbelleği. Kurulduktan sonra değişmez; RouteService tek bir volatile
+ * referansı değiştirerek yeni ağa geçer. Sorgu başında referansı bir kez okuyan istek eski sürümde biter.
+ */
+final class RoadNetwork {
+
+    final long version;
+    final long loadedAt;
+    final String source;
+    // graf içeriği + snap kuralından türetilir; aynı graf yeniden yüklenince de aynı kalır (Station.snapGraph)
+    final long snapKey;
+
+    final RoadGraph graph;
+    final GeoGrid nodeIndex;
+    final RoadComponents components;
+    // route.snap.largest-component-only açıkken en büyük bileşenin ızgarası; index -> node id largestNodes'ta
+    final GeoGrid largestIndex;
+    final int[] largestNodes;
+
+    final ChainGraph chains;
+    final ContractionHierarchy ch;
+    final Landmarks landmarks;
+
+    // node id'leri bu grafa ait olduğu için önbellek ağla birlikte değişir
+    final DistanceCache distanceCache;
+
+    RoadNetwork(long version, String source, long snapKey, RoadGraph graph, GeoGrid nodeIndex, RoadComponents components,
+                GeoGrid largestIndex, int[] largestNodes, ChainGraph chains, ContractionHierarchy ch,
+                Landmarks landmarks, DistanceCache distanceCache) {
+        this.version = version;
+        this.loadedAt = System.currentTimeMillis();
+        this.source = source;
+        this.snapKey = snapKey;
+        this.graph = graph;
+        this.nodeIndex = nodeIndex;
+        this.components = components;
+        this.largestIndex = largestIndex;
+        this.largestNodes = largestNodes;
+        this.chains = chains;
+        this.ch = ch;
+        this.landmarks = landmarks;
+        this.distanceCache = distanceCache;
+    }
+}
@@ -0,0 +1,91 @@
+package com.yazlab.kargo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Haritanın yol katmanı için karo servisi. Karolar ilk istekte üretilir ve sınırlı bir LRU önbellekte
+ * tutulur; ETag yol ağının yüklenme zamanı ve sürümünden türetilir, ağ değişince tüm karolar eskir.
+ */
+@Service
+public class RoadTileService {
+
+    @Autowired
+    private RouteService routeService;
+
+    // bu zoom'un altında karo boş döner (tüm şehir tek karoya sığar, harita zaten okunmaz)
+    @Value("${route.tiles.min-zoom:12}")
+    private int minZoom = 12;
+
+    @Value("${route.tiles.cache-size:2048}")
+    private int cacheSize = 2048;
+
+    private volatile RoadTiles tiles;
+    private final Map<String, Tile> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Tile> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /** Bu zoom'un altında karolar boş; harita istemeden önce buradan öğrenir. */
+    public int getMinZoom() { return minZoom; }
+
+    public boolean validTile(int z, int x, int y) {
+        return RoadTiles.validTile(z, x, y);
+    }
+
+    /** Karonun ETag'i (tırnaklı); tile() çağırmadan If-None-Match karşılaştırması için. */
+    public String etag(int z, int x, int y) {
+        return etag(routeService.currentNetwork(), z, x, y);
+    }
+
+    /** Karo: GeoJSON FeatureCollection (tek MultiLineString feature, boş karoda features boş) ve ETag'i. */
+    public Tile tile(int z, int x, int y) {
+        RoadTiles t = tilesFor(routeService.currentNetwork());
+        String key = t.net.version + "/" + z + "/" + x + "/" + y;
+        synchronized (cache) {
+            Tile cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+
+        String json = z < minZoom ? "{\"type\":\"FeatureCollection\",\"features\":[]}" : t.geoJson(z, x, y);
+        Tile tile = new Tile(etag(t.net, z, x, y), json);
+        synchronized (cache) {
+            cache.put(key, tile);
+        }
+        return tile;
+    }
+
+    private static String etag(RoadNetwork net, int z, int x, int y) {
+        return "\"" + net.loadedAt + "-" + net.version + "-" + z + "-" + x + "-" + y + "\"";
+    }
+
+    private RoadTiles tilesFor(RoadNetwork net) {
+        RoadTiles t = tiles;
+        if (t != null && t.net == net) return t;
+        synchronized (cache) {
+            t = tiles;
+            if (t == null || t.net != net) {
+                cache.clear();
+                t = RoadTiles.build(net);
+                tiles = t;
+            }
+        }
+        return t;
+    }
+
+    public static final class Tile {
+        public final String etag;
+        public final String json;
+
+        Tile(String etag, String json) {
+            this.etag = etag;
+            this.json = json;
+        }
+    }
+}
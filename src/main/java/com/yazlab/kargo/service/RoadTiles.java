@@ -0,0 +1,201 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+
+/**
+ * Yol ağını Web Mercator (OSM/Leaflet z/x/y) karoları halinde GeoJSON olarak verir.
+ * Her kenar sınır kutusunun değdiği her karoya yazılır ve kırpılmaz: karodan taşan uzun bir kenar, geçtiği
+ * komşu karolarda da tam haliyle çizilir, böylece yalnız bir kısmı yüklenmiş haritada da kesik görünmez.
+ * Karodaki kenarlar derece-2 node'lardan birleştirilip çizgi olarak seyreltilir (bir piksel tolerans).
+ */
+final class RoadTiles {
+
+    final RoadNetwork net;
+    // en uzun kenarın açıklığı: sınır kutusu karoya değen kenarın uçları en fazla bu kadar dışarıdadır
+    private final double spanLat;
+    private final double spanLon;
+
+    private RoadTiles(RoadNetwork net, double spanLat, double spanLon) {
+        this.net = net;
+        this.spanLat = spanLat;
+        this.spanLon = spanLon;
+    }
+
+    static RoadTiles build(RoadNetwork net) {
+        RoadGraph g = net.graph;
+        double spanLat = 0, spanLon = 0;
+        for (int u = 0; u < g.nodeCount(); u++) {
+            for (int e = g.offsets[u], end = g.offsets[u + 1]; e < end; e++) {
+                int v = g.targets[e];
+                spanLat = Math.max(spanLat, Math.abs(g.lat[u] - g.lat[v]));
+                spanLon = Math.max(spanLon, Math.abs(g.lon[u] - g.lon[v]));
+            }
+        }
+        return new RoadTiles(net, spanLat, spanLon);
+    }
+
+    static boolean validTile(int z, int x, int y) {
+        return z >= 0 && z <= 24 && x >= 0 && y >= 0 && x < (1 << z) && y < (1 << z);
+    }
+
+    /** Karo sınırları: {güney, batı, kuzey, doğu}. */
+    static double[] tileBounds(int z, int x, int y) {
+        double n = 1 << z;
+        double west = x / n * 360.0 - 180.0;
+        double east = (x + 1) / n * 360.0 - 180.0;
+        double north = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / n))));
+        double south = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * (y + 1) / n))));
+        return new double[]{south, west, north, east};
+    }
+
+    String geoJson(int z, int x, int y) {
+        RoadGraph g = net.graph;
+        double[] b = tileBounds(z, x, y);
+        double south = b[0], west = b[1], north = b[2], east = b[3];
+
+        // kenar (u, v) u < v yönünden bir kez; sınır kutusu [güney, kuzey) x [batı, doğu) ile kesişiyorsa bu karonun
+        IntList from = new IntList(256);
+        IntList to = new IntList(256);
+        net.nodeIndex.forEachInBox(south - spanLat, west - spanLon, north + spanLat, east + spanLon, u -> {
+            for (int e = g.offsets[u], end = g.offsets[u + 1]; e < end; e++) {
+                int v = g.targets[e];
+                if (v <= u) continue;
+                double minLat = Math.min(g.lat[u], g.lat[v]), maxLat = Math.max(g.lat[u], g.lat[v]);
+                double minLon = Math.min(g.lon[u], g.lon[v]), maxLon = Math.max(g.lon[u], g.lon[v]);
+                if (maxLat >= south && minLat < north && maxLon >= west && minLon < east) {
+                    from.add(u);
+                    to.add(v);
+                }
+            }
+        });
+
+        StringBuilder sb = new StringBuilder(64 + from.size() * 24);
+        sb.append("{\"type\":\"FeatureCollection\",\"features\":[");
+        if (from.size() > 0) {
+            sb.append("{\"type\":\"Feature\",\"properties\":{\"z\":").append(z).append(",\"x\":").append(x)
+                    .append(",\"y\":").append(y).append("},\"geometry\":{\"type\":\"MultiLineString\",\"coordinates\":[");
+            appendLines(sb, from, to, PathSimplifier.toleranceForZoom(z, (south + north) / 2));
+            sb.append("]}}");
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /** Karodaki kenarları karo içinde derecesi 2 olan node'lardan birleştirerek çizgilere çevirir. */
+    private void appendLines(StringBuilder sb, IntList from, IntList to, double tolerance) {
+        int m = from.size();
+        LongIntHashMap local = new LongIntHashMap(2 * m);
+        IntList nodes = new IntList(2 * m);
+        int[] end0 = new int[m], end1 = new int[m];
+        for (int i = 0; i < m; i++) {
+            end0[i] = localId(local, nodes, from.get(i));
+            end1[i] = localId(local, nodes, to.get(i));
+        }
+
+        // yerel CSR: node -> kenarlar
+        int k = nodes.size();
+        int[] start = new int[k + 1];
+        for (int i = 0; i < m; i++) {
+            start[end0[i] + 1]++;
+            start[end1[i] + 1]++;
+        }
+        for (int v = 0; v < k; v++) start[v + 1] += start[v];
+        int[] incident = new int[2 * m];
+        int[] fill = Arrays.copyOf(start, k);
+        for (int i = 0; i < m; i++) {
+            incident[fill[end0[i]]++] = i;
+            incident[fill[end1[i]]++] = i;
+        }
+
+        boolean[] used = new boolean[m];
+        IntList line = new IntList(64);
+        boolean first = true;
+        // önce derecesi 2 olmayan node'lardan başlayan çizgiler, sonra kalan kapalı halkalar
+        for (int pass = 0; pass < 2; pass++) {
+            for (int v = 0; v < k; v++) {
+                if (pass == 0 && start[v + 1] - start[v] == 2) continue;
+                for (int p = start[v]; p < start[v + 1]; p++) {
+                    int edge = incident[p];
+                    if (used[edge]) continue;
+
+                    line.clear();
+                    line.add(v);
+                    int curr = v;
+                    while (true) {
+                        used[edge] = true;
+                        curr = end0[edge] == curr ? end1[edge] : end0[edge];
+                        line.add(curr);
+                        if (start[curr + 1] - start[curr] != 2) break;
+                        int next = incident[start[curr]] == edge ? incident[start[curr] + 1] : incident[start[curr]];
+                        if (used[next]) break;
+                        edge = next;
+                    }
+
+                    if (!first) sb.append(',');
+                    first = false;
+                    appendLine(sb, line, nodes, tolerance);
+                }
+            }
+        }
+    }
+
+    private static int localId(LongIntHashMap local, IntList nodes, int node) {
+        int id = local.get(node);
+        if (id < 0) {
+            id = nodes.size();
+            local.put(node, id);
+            nodes.add(node);
+        }
+        return id;
+    }
+
+    private void appendLine(StringBuilder sb, IntList line, IntList nodes, double tolerance) {
+        RoadGraph g = net.graph;
+        double[] latLon = new double[2 * line.size()];
+        for (int i = 0; i < line.size(); i++) {
+            int v = nodes.get(line.get(i));
+            latLon[2 * i] = g.lat[v];
+            latLon[2 * i + 1] = g.lon[v];
+        }
+        double[] c = PathSimplifier.simplify(latLon, tolerance);
+        sb.append('[');
+        for (int i = 0; i < c.length / 2; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('[');
+            appendFixed6(sb, c[2 * i + 1]);
+            sb.append(',');
+            appendFixed6(sb, c[2 * i]);
+            sb.append(']');
+        }
+        sb.append(']');
+    }
+
+    // 6 ondalık (~10 cm); Double.toString'in üstel yazımından kaçınır
+    private static void appendFixed6(StringBuilder sb, double v) {
+        long q = Math.round(v * 1e6);
+        if (q < 0) {
+            sb.append('-');
+            q = -q;
+        }
+        sb.append(q / 1_000_000).append('.');
+        String frac = Long.toString(q % 1_000_000);
+        for (int i = frac.length(); i < 6; i++) sb.append('0');
+        sb.append(frac);
+    }
+
+    private static final class IntList {
+        private int[] items;
+        private int size;
+
+        IntList(int capacity) { items = new int[Math.max(4, capacity)]; }
+
+        void add(int v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+
+        int get(int i) { return items[i]; }
+        int size() { return size; }
+        void clear() { size = 0; }
+    }
+}
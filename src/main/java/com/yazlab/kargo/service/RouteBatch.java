@@ -0,0 +1,44 @@
+package com.yazlab.kargo.service;
+
+/** POST /api/route/batch sonucu: çift başına mesafe (km) ve istenirse yol, istekteki çift sırasıyla. */
+public final class RouteBatch {
+
+    private final double[] distances;
+    // [lat0, lon0, lat1, lon1, ...]; geometri istenmediyse null, yol yoksa boş dizi
+    private final double[][] coordinates;
+    private final int uniquePoints;
+    private final int uniqueNodes;
+    private final int searches;
+    private final long settledNodes;
+    private final long millis;
+    private final long networkVersion;
+
+    RouteBatch(double[] distances, double[][] coordinates, int uniquePoints, int uniqueNodes,
+               int searches, long settledNodes, long millis, long networkVersion) {
+        this.distances = distances;
+        this.coordinates = coordinates;
+        this.uniquePoints = uniquePoints;
+        this.uniqueNodes = uniqueNodes;
+        this.searches = searches;
+        this.settledNodes = settledNodes;
+        this.millis = millis;
+        this.networkVersion = networkVersion;
+    }
+
+    public int size() { return distances.length; }
+    public double getDistanceKm(int pair) { return distances[pair]; }
+    public boolean hasGeometry() { return coordinates != null; }
+
+    /** Çiftin yolu istenen biçimde (bkz. PathFormat); yol yoksa boş yol. */
+    public Object encodePath(int pair, PathFormat format) {
+        double[] c = coordinates[pair];
+        return PathCodec.encode(format, c, c.length / 2);
+    }
+
+    public int getUniquePoints() { return uniquePoints; }
+    public int getUniqueNodes() { return uniqueNodes; }
+    public int getSearches() { return searches; }
+    public long getSettledNodes() { return settledNodes; }
+    public long getMillis() { return millis; }
+    public long getNetworkVersion() { return networkVersion; }
+}
@@ -0,0 +1,251 @@
+package com.yazlab.kargo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Çok sayıda başlangıç-bitiş çifti için toplu rota. Aynı koordinatlar bir kez snap edilir; çiftler
+ * ortak uçlarına göre gruplanır ve her grup tek bir çok-hedefli aramayla cevaplanır. Gruplar ForkJoin
+ * havuzunda paralel çalışır; tüm istek aynı yol ağı sürümü üzerinde hesaplanır.
+ * Mesafeler getRealRoadDistance kurallarıyla doldurulur (node yok, ulaşılamıyor -> kuş uçuşu).
+ */
+@Service
+public class RouteBatchService {
+
+    private static final double[] NO_PATH = new double[0];
+
+    @Autowired
+    private RouteService routeService;
+
+    // 0 = işlemci sayısı
+    @Value("${route.batch.parallelism:0}")
+    private int parallelism = 0;
+
+    @Value("${route.batch.max-pairs:100000}")
+    private int maxPairs = 100_000;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public int getMaxPairs() { return maxPairs; }
+
+    /** fromLat[i], fromLon[i] -> toLat[i], toLon[i] çiftleri. */
+    public RouteBatch route(double[] fromLat, double[] fromLon, double[] toLat, double[] toLon, boolean geometry) {
+        long start = System.currentTimeMillis();
+        RoadNetwork net = routeService.currentNetwork();
+        RoadGraph g = net.graph;
+        int pairs = fromLat.length;
+
+        Snapper snapper = new Snapper(net);
+        int[] from = new int[pairs];
+        int[] to = new int[pairs];
+        for (int i = 0; i < pairs; i++) {
+            from[i] = snapper.snap(fromLat[i], fromLon[i]);
+            to[i] = snapper.snap(toLat[i], toLon[i]);
+        }
+
+        double[] km = new double[pairs];
+        double[][] coords = geometry ? new double[pairs][] : null;
+
+        // aramasız cevaplananlar; kalan çiftlerde her uç node'un kaç çiftte geçtiği sayılır
+        int[] pending = new int[pairs];
+        int pendingCount = 0;
+        LongIntHashMap uses = new LongIntHashMap(Math.max(16, snapper.nodes()));
+        for (int i = 0; i < pairs; i++) {
+            int s = from[i], t = to[i];
+            if (s < 0 || t < 0) {
+                km[i] = GeoGrid.haversine(fromLat[i], fromLon[i], toLat[i], toLon[i]);
+                if (geometry) coords[i] = NO_PATH;
+            } else if (s == t) {
+                km[i] = 0.0;
+                if (geometry) coords[i] = new double[]{g.lat[s], g.lon[s]};
+            } else if (!net.components.connected(s, t)) {
+                routeService.recordCrossComponentPair();
+                km[i] = GeoGrid.haversine(fromLat[i], fromLon[i], toLat[i], toLon[i]);
+                if (geometry) coords[i] = NO_PATH;
+            } else {
+                double cached = geometry ? Double.NaN : net.distanceCache.get(s, t);
+                if (!Double.isNaN(cached)) {
+                    km[i] = cached;
+                } else {
+                    pending[pendingCount++] = i;
+                    uses.put(s, Math.max(0, uses.get(s)) + 1);
+                    uses.put(t, Math.max(0, uses.get(t)) + 1);
+                }
+            }
+        }
+
+        // graf simetrik: her çift daha çok çiftte geçen ucundan aranır, aynı kökün çiftleri tek aramada biter.
+        // (kök << 32 | çift) sıralanınca gruplar ardışık olur
+        long[] order = new long[pendingCount];
+        for (int k = 0; k < pendingCount; k++) {
+            int i = pending[k];
+            int root = uses.get(to[i]) > uses.get(from[i]) ? to[i] : from[i];
+            order[k] = ((long) root << 32) | i;
+        }
+        Arrays.sort(order);
+
+        LongAdder settled = new LongAdder();
+        List<Callable<Void>> groups = new ArrayList<>();
+        for (int a = 0; a < pendingCount; ) {
+            int b = a + 1;
+            while (b < pendingCount && (order[b] >>> 32) == (order[a] >>> 32)) b++;
+            final int lo = a, hi = b;
+            groups.add(() -> {
+                runGroup(net, order, lo, hi, from, to, fromLat, fromLon, toLat, toLon, km, coords, settled);
+                return null;
+            });
+            a = b;
+        }
+
+        try {
+            for (Future<Void> f : pool.invokeAll(groups)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Toplu rota hesaplanırken kesildi", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Toplu rota hesaplanamadı", e.getCause());
+        }
+
+        return new RouteBatch(km, coords, snapper.points(), snapper.nodes(), groups.size(), settled.sum(),
+                System.currentTimeMillis() - start, net.version);
+    }
+
+    /** Kaynaklar x hedefler; sonuç satır satır (kaynak i, hedef j -> i * hedefSayısı + j). */
+    public RouteBatch routeMatrix(double[] srcLat, double[] srcLon, double[] dstLat, double[] dstLon, boolean geometry) {
+        int rows = srcLat.length, cols = dstLat.length;
+        double[] fromLat = new double[rows * cols], fromLon = new double[rows * cols];
+        double[] toLat = new double[rows * cols], toLon = new double[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int k = i * cols + j;
+                fromLat[k] = srcLat[i];
+                fromLon[k] = srcLon[i];
+                toLat[k] = dstLat[j];
+                toLon[k] = dstLon[j];
+            }
+        }
+        return route(fromLat, fromLon, toLat, toLon, geometry);
+    }
+
+    /** order[lo, hi) aynı kökten aranan çiftler; hedefler tekilleştirilip tek aramaya verilir. */
+    private void runGroup(RoadNetwork net, long[] order, int lo, int hi, int[] from, int[] to,
+                          double[] fromLat, double[] fromLon, double[] toLat, double[] toLon,
+                          double[] km, double[][] coords, LongAdder settled) {
+        int root = (int) (order[lo] >>> 32);
+        int[] pairOf = new int[hi - lo];
+        int[] slotOf = new int[hi - lo];
+        int[] targets = new int[hi - lo];
+        int targetCount = 0;
+        LongIntHashMap slots = new LongIntHashMap(hi - lo);
+        for (int k = lo; k < hi; k++) {
+            int i = (int) order[k];
+            int other = from[i] == root ? to[i] : from[i];
+            int slot = slots.get(other);
+            if (slot < 0) {
+                slot = targetCount++;
+                slots.put(other, slot);
+                targets[slot] = other;
+            }
+            pairOf[k - lo] = i;
+            slotOf[k - lo] = slot;
+        }
+        targets = Arrays.copyOf(targets, targetCount);
+
+        double[] out = new double[targetCount];
+        int[][] paths = coords != null ? new int[targetCount][] : null;
+        settled.add(routeService.searchToMany(net, root, targets, out, paths));
+
+        for (int j = 0; j < targetCount; j++) {
+            if (out[j] != Double.MAX_VALUE) net.distanceCache.put(root, targets[j], out[j]);
+        }
+
+        RoadGraph g = net.graph;
+        for (int k = 0; k < pairOf.length; k++) {
+            int i = pairOf[k];
+            int slot = slotOf[k];
+            if (out[slot] == Double.MAX_VALUE) {
+                km[i] = GeoGrid.haversine(fromLat[i], fromLon[i], toLat[i], toLon[i]);
+                if (coords != null) coords[i] = NO_PATH;
+                continue;
+            }
+            km[i] = out[slot];
+            if (coords != null) {
+                // kökten aranan yol, çift ters yöndeyse çevrilir
+                int[] path = paths[slot];
+                boolean reversed = from[i] != root;
+                double[] c = new double[2 * path.length];
+                for (int p = 0; p < path.length; p++) {
+                    int v = path[reversed ? path.length - 1 - p : p];
+                    c[2 * p] = g.lat[v];
+                    c[2 * p + 1] = g.lon[v];
+                }
+                coords[i] = c;
+            }
+        }
+    }
+
+    /** İstekteki koordinatları bir kez snap eder; aynı koordinat tekrar gelirse önceki node döner. */
+    private final class Snapper {
+        private final RoadNetwork net;
+        // 1e-6 derecelik anahtar -> ilk görülen noktanın sırası; sadece birebir aynı koordinat paylaşır
+        private final LongIntHashMap known = new LongIntHashMap(64);
+        private final LongIntHashMap nodes = new LongIntHashMap(64);
+        private double[] lat = new double[64];
+        private double[] lon = new double[64];
+        private int[] node = new int[64];
+        private int points;
+
+        Snapper(RoadNetwork net) {
+            this.net = net;
+        }
+
+        int snap(double pLat, double pLon) {
+            boolean keyed = CoordinateKey.fits(pLat, pLon);
+            long key = keyed ? CoordinateKey.pack(pLat, pLon) : 0;
+            int seen = keyed ? known.get(key) : -1;
+            if (seen >= 0 && lat[seen] == pLat && lon[seen] == pLon) return node[seen];
+
+            int v = routeService.findNearestNode(net, pLat, pLon);
+            if (v >= 0 && nodes.get(v) < 0) nodes.put(v, 0);
+            if (keyed && seen < 0) {
+                if (points == lat.length) {
+                    lat = Arrays.copyOf(lat, points * 2);
+                    lon = Arrays.copyOf(lon, points * 2);
+                    node = Arrays.copyOf(node, points * 2);
+                }
+                lat[points] = pLat;
+                lon[points] = pLon;
+                node[points] = v;
+                known.put(key, points++);
+            }
+            return v;
+        }
+
+        int points() { return points; }
+
+        int nodes() { return nodes.size(); }
+    }
+}
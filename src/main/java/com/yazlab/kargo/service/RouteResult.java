@@ -0,0 +1,38 @@
+package com.yazlab.kargo.service;
+
+import java.util.List;
+
+/** /api/route için yol koordinatları ve arama istatistiği. */
+public class RouteResult {
+
+    // [lat0, lon0, lat1, lon1, ...]
+    private final double[] coordinates;
+    private final double distanceKm;
+    private final int settledNodes;
+    private final SearchAlgorithm algorithm;
+
+    public RouteResult(double[] coordinates, double distanceKm, int settledNodes, SearchAlgorithm algorithm) {
+        this.coordinates = coordinates;
+        this.distanceKm = distanceKm;
+        this.settledNodes = settledNodes;
+        this.algorithm = algorithm;
+    }
+
+    /** Eski biçim: her nokta için "lat,lon". */
+    public List<String> getPath() { return PathCodec.coords(coordinates, getPointCount()); }
+
+    /** Yolu istenen biçimde kodlar (bkz. PathFormat). */
+    public Object encodePath(PathFormat format) { return PathCodec.encode(format, coordinates, getPointCount()); }
+
+    /** Aynı sonuç, yolu PathSimplifier ile seyreltilmiş; mesafe seyreltmeden önceki yolundur. */
+    public RouteResult simplified(double toleranceMeters) {
+        double[] c = PathSimplifier.simplify(coordinates, toleranceMeters);
+        return c == coordinates ? this : new RouteResult(c, distanceKm, settledNodes, algorithm);
+    }
+
+    public double[] getCoordinates() { return coordinates; }
+    public int getPointCount() { return coordinates.length / 2; }
+    public double getDistanceKm() { return distanceKm; }
+    public int getSettledNodes() { return settledNodes; }
+    public SearchAlgorithm getAlgorithm() { return algorithm; }
+}
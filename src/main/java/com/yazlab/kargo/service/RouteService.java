@@ -3,67 +3,406 @@
 
 package com.yazlab.kargo.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yazlab.kargo.entity.Station;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class RouteService {
 
-    private Map<Long, Node> nodes = new HashMap<>();
-    private Map<Long, List<Edge>> adjList = new HashMap<>();
+    // yol ağı GeoJSON'u; reload ve dosya izleme de bu dosyayı okur
+    @Value("${route.graph.source:export.geojson}")
+    private String graphSource = "export.geojson";
 
-    private Map<String, Long> uniqueNodeMap = new HashMap<>();
-    private long nodeIdCounter = 1;
+    // true ise kaynak dosya periyodik kontrol edilir, değişip durulunca arka planda yeniden yüklenir
+    @Value("${route.graph.watch:false}")
+    private boolean watchSource = false;
 
-    private Map<String, Double> distanceCache = new HashMap<>();
+    @Value("${route.graph.watch-interval-seconds:30}")
+    private long watchIntervalSeconds = 30;
+
+    @Value("${route.distance-cache.max-entries:200000}")
+    private int distanceCacheMaxEntries = 200_000;
+
+    @Value("${route.search.algorithm:DIJKSTRA}")
+    private SearchAlgorithm searchAlgorithm = SearchAlgorithm.DIJKSTRA;
+
+    @Value("${route.ch.witness-settle-limit:500}")
+    private int chWitnessSettleLimit = 500;
+
+    @Value("${route.ch.max-build-seconds:600}")
+    private long chMaxBuildSeconds = 600;
+
+    // boş bırakılırsa snapshot kullanılmaz
+    @Value("${route.graph.snapshot:export.graph.bin}")
+    private String snapshotFile = "export.graph.bin";
+
+    @Value("${route.alt.landmarks:8}")
+    private int altLandmarkCount = 8;
+
+    // boş bırakılırsa landmark tabloları her açılışta yeniden hesaplanır
+    @Value("${route.alt.file:export.graph.alt.bin}")
+    private String altFile = "export.graph.alt.bin";
+
+    // derece-2 zincirleri daraltılmış graf üzerinde arama (DIJKSTRA ve çok hedefli arama için)
+    @Value("${route.graph.contract-chains:true}")
+    private boolean contractChains = true;
+
+    // içe aktarılacak geometri tipleri ve properties filtreleri (söz dizimi RoadFeatureFilter'da)
+    @Value("${route.import.geometry-types:LineString,Polygon,MultiPolygon}")
+    private String importGeometryTypes = "LineString,Polygon,MultiPolygon";
+
+    @Value("${route.import.property-filters:}")
+    private String importPropertyFilters = "";
+
+    // true ise noktalar sadece en büyük bağlı bileşendeki node'lara snap edilir
+    @Value("${route.snap.largest-component-only:false}")
+    private boolean snapLargestComponentOnly = false;
+
+    // sorgular bu referansı başta bir kez okur; yeniden yükleme tek atamayla yeni ağa geçer
+    private volatile RoadNetwork network;
+    private final AtomicLong networkVersions = new AtomicLong();
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private ScheduledExecutorService reloadExecutor;
+    private volatile Map<String, Object> lastReload = Map.of();
+    private long watchedLength = -1, watchedModified = -1;
+    private boolean watchedChanged;
+
+    private final List<Runnable> networkListeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder searchCount = new LongAdder();
+    private final LongAdder settledCount = new LongAdder();
+    private final LongAdder crossComponentPairs = new LongAdder();
+    private final LongAdder snapsOutsideLargest = new LongAdder();
+    private final LongAdder snapsRedirected = new LongAdder();
 
     @PostConstruct
     public void init() {
-        loadFromGeoJson("export.geojson");
+        network = loadInitialNetwork();
+        rememberSource();
+
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "road-network-reload");
+            t.setDaemon(true);
+            return t;
+        });
+        if (watchSource) {
+            long interval = Math.max(1, watchIntervalSeconds);
+            reloadExecutor.scheduleWithFixedDelay(this::checkSource, interval, interval, TimeUnit.SECONDS);
+            System.out.println("Yol ağı dosyası izleniyor: " + graphSource + " (" + interval + " sn)");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloadExecutor != null) reloadExecutor.shutdownNow();
+    }
+
+    /** Yüklü ağın sürümü; her yeniden yüklemede artar. Ağa bağlı önbellekler bununla eskiyip eskimediğini anlar. */
+    public long getNetworkVersion() {
+        return network.version;
+    }
+
+    /** Paket içi: aynı ağ üzerinde birden çok sorgu yapacaklar için (mesafe matrisi). */
+    RoadNetwork currentNetwork() {
+        return network;
     }
 
     public double getRealRoadDistance(double startLat, double startLon, double endLat, double endLon) {
-        Long startNodeId = findNearestNode(startLat, startLon);
-        Long endNodeId = findNearestNode(endLat, endLon);
+        RoadNetwork net = network;
+        int startNodeId = findNearestNode(net, startLat, startLon);
+        int endNodeId = findNearestNode(net, endLat, endLon);
 
-        if (startNodeId == null || endNodeId == null) {
+        if (startNodeId < 0 || endNodeId < 0) {
+            return haversine(startLat, startLon, endLat, endLon);
+        }
+        if (startNodeId == endNodeId) return 0.0;
+        if (!net.components.connected(startNodeId, endNodeId)) {
+            // farklı bileşen: arama bütün bileşeni gezip boşa dönerdi
+            crossComponentPairs.increment();
             return haversine(startLat, startLon, endLat, endLon);
         }
-        if (startNodeId.equals(endNodeId)) return 0.0;
 
-        String cacheKey = startNodeId + "-" + endNodeId;
-        if (distanceCache.containsKey(cacheKey)) return distanceCache.get(cacheKey);
+        double cached = net.distanceCache.get(startNodeId, endNodeId);
+        if (!Double.isNaN(cached)) return cached;
 
-        PathResult result = dijkstra(startNodeId, endNodeId);
+        PathResult result = search(net, startNodeId, endNodeId);
         if (result.distance == Double.MAX_VALUE) {
             return haversine(startLat, startLon, endLat, endLon);
         }
 
-        distanceCache.put(cacheKey, result.distance);
-        distanceCache.put(endNodeId + "-" + startNodeId, result.distance);
+        // graf simetrik; kayıt iki yön için de geçerli
+        net.distanceCache.put(startNodeId, endNodeId, result.distance);
         return result.distance;
     }
 
+    /**
+     * getRealRoadDistance'ın tek kaynaktan çok hedefe hali. Önbellekte olmayan hedefler için tek bir Dijkstra
+     * çalışır ve hepsi kesinleşince durur. Sonuç hedeflerle aynı sıradadır; her eleman getRealRoadDistance'taki
+     * kurallarla doldurulur (aynı node -> 0, node yok ya da ulaşılamıyor -> kuş uçuşu).
+     */
+    public double[] getRealRoadDistances(double startLat, double startLon, double[] endLats, double[] endLons) {
+        return getRealRoadDistances(network, startLat, startLon, endLats, endLons);
+    }
+
+    double[] getRealRoadDistances(RoadNetwork net, double startLat, double startLon, double[] endLats, double[] endLons) {
+        int[] endNodes = new int[endLats.length];
+        for (int i = 0; i < endNodes.length; i++) endNodes[i] = findNearestNode(net, endLats[i], endLons[i]);
+        return getRealRoadDistances(net, findNearestNode(net, startLat, startLon), startLat, startLon,
+                endNodes, endLats, endLons);
+    }
+
+    /** Noktaları önceden snap edilmiş hali (node -1: snap yok); koordinatlar sadece kuş uçuşu yedek için. */
+    double[] getRealRoadDistances(RoadNetwork net, int startNodeId, double startLat, double startLon,
+                                  int[] endNodes, double[] endLats, double[] endLons) {
+        int count = endLats.length;
+        double[] result = new double[count];
+
+        int[] pendingNodes = new int[count];
+        int[] pendingIndex = new int[count];
+        int pending = 0;
+
+        for (int i = 0; i < count; i++) {
+            int endNodeId = endNodes[i];
+            if (startNodeId < 0 || endNodeId < 0) {
+                result[i] = haversine(startLat, startLon, endLats[i], endLons[i]);
+            } else if (startNodeId == endNodeId) {
+                result[i] = 0.0;
+            } else if (!net.components.connected(startNodeId, endNodeId)) {
+                crossComponentPairs.increment();
+                result[i] = haversine(startLat, startLon, endLats[i], endLons[i]);
+            } else {
+                double cached = net.distanceCache.get(startNodeId, endNodeId);
+                if (!Double.isNaN(cached)) {
+                    result[i] = cached;
+                } else {
+                    pendingNodes[pending] = endNodeId;
+                    pendingIndex[pending++] = i;
+                }
+            }
+        }
+        if (pending == 0) return result;
+
+        int[] targets = Arrays.copyOf(pendingNodes, pending);
+        double[] distances = new double[pending];
+        searchToMany(net, startNodeId, targets, distances, null);
+
+        for (int j = 0; j < pending; j++) {
+            int i = pendingIndex[j];
+            if (distances[j] == Double.MAX_VALUE) {
+                result[i] = haversine(startLat, startLon, endLats[i], endLons[i]);
+            } else {
+                net.distanceCache.put(startNodeId, targets[j], distances[j]);
+                result[i] = distances[j];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tek kaynaktan çok hedefe arama (zincir grafı varsa onda); paths null değilse yollar da doldurulur.
+     * Önbelleğe bakmaz, yazmaz. Kesinleşen node sayısını döner.
+     */
+    int searchToMany(RoadNetwork net, int startNodeId, int[] targets, double[] out, int[][] paths) {
+        ChainGraph c = net.chains;
+        int settled = (c != null)
+                ? c.pathsToMany(startNodeId, targets, out, paths)
+                : PathFinder.dijkstraToMany(net.graph, startNodeId, targets, out, paths);
+        searchCount.increment();
+        settledCount.add(settled);
+        return settled;
+    }
+
+    /** Aramaya girmeden elenen farklı bileşen çifti (istatistik için). */
+    void recordCrossComponentPair() {
+        crossComponentPairs.increment();
+    }
+
     public List<String> getShortestPath(double startLat, double startLon, double endLat, double endLon) {
-        Long startNodeId = findNearestNode(startLat, startLon);
-        Long endNodeId = findNearestNode(endLat, endLon);
+        return getRoute(startLat, startLon, endLat, endLon).getPath();
+    }
+
+    /** getShortestPath ile aynı yol; ek olarak mesafe ve aramanın kaç node kesinleştirdiği. */
+    public RouteResult getRoute(double startLat, double startLon, double endLat, double endLon) {
+        RoadNetwork net = network;
+        return route(net, findNearestNode(net, startLat, startLon), findNearestNode(net, endLat, endLon));
+    }
+
+    /** İki istasyon arası yol; kayıtlı snap bu grafa aitse yeniden snap edilmez. */
+    public RouteResult getRoute(Station from, Station to) {
+        RoadNetwork net = network;
+        return route(net, stationNode(net, from), stationNode(net, to));
+    }
+
+    private RouteResult route(RoadNetwork net, int startNodeId, int endNodeId) {
+        if (startNodeId < 0 || endNodeId < 0) {
+            return new RouteResult(new double[0], Double.MAX_VALUE, 0, activeAlgorithm(net));
+        }
+        if (!net.components.connected(startNodeId, endNodeId)) {
+            crossComponentPairs.increment();
+            return new RouteResult(new double[0], Double.MAX_VALUE, 0, activeAlgorithm(net));
+        }
+
+        PathResult result = search(net, startNodeId, endNodeId);
+
+        RoadGraph g = net.graph;
+        double[] coordinates = new double[2 * result.path.length];
+        for (int i = 0; i < result.path.length; i++) {
+            coordinates[2 * i] = g.lat[result.path[i]];
+            coordinates[2 * i + 1] = g.lon[result.path[i]];
+        }
+        return new RouteResult(coordinates, result.distance, result.settled, activeAlgorithm(net));
+    }
 
-        if (startNodeId == null || endNodeId == null) return new ArrayList<>();
+    /**
+     * İstasyonun snap alanlarını (node, metre cinsinden uzaklık, graf anahtarı) yüklü ağa göre doldurur.
+     * Kayıt zaten bu grafa aitse dokunmaz ve false döner.
+     */
+    public boolean snapStation(Station station) {
+        RoadNetwork net = network;
+        if (hasValidSnap(net, station)) return false;
+        int node = findNearestNode(net, station.getLatitude(), station.getLongitude());
+        station.setSnapNode(node < 0 ? null : node);
+        station.setSnapDistanceM(node < 0 ? null
+                : 1000 * haversine(station.getLatitude(), station.getLongitude(), net.graph.lat[node], net.graph.lon[node]));
+        station.setSnapGraph(net.snapKey);
+        return true;
+    }
+
+    /** İstasyonun bu ağdaki node'u: geçerli kayıt varsa o, yoksa anlık snap (kayıt değiştirilmez). */
+    int stationNode(RoadNetwork net, Station station) {
+        if (hasValidSnap(net, station)) return station.getSnapNode() == null ? -1 : station.getSnapNode();
+        return findNearestNode(net, station.getLatitude(), station.getLongitude());
+    }
+
+    private static boolean hasValidSnap(RoadNetwork net, Station station) {
+        Long key = station.getSnapGraph();
+        if (key == null || key != net.snapKey) return false;
+        Integer node = station.getSnapNode();
+        return node == null || node < net.graph.nodeCount();
+    }
+
+    /** Yol ağı değiştikten sonra (yeniden yükleme) reload thread'inde çağrılır. */
+    public void addNetworkListener(Runnable listener) {
+        networkListeners.add(listener);
+    }
+
+    /** Açılıştan beri yapılan aramaların özeti (arama alanı karşılaştırması için). */
+    public Map<String, Object> getSearchStats() {
+        RoadNetwork net = network;
+        long searches = searchCount.sum();
+        long settled = settledCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("algorithm", activeAlgorithm(net).name());
+        stats.put("searches", searches);
+        stats.put("settledNodes", settled);
+        stats.put("avgSettledPerSearch", searches == 0 ? 0.0 : (double) settled / searches);
+
+        Map<String, Object> networkStats = new LinkedHashMap<>();
+        networkStats.put("version", net.version);
+        networkStats.put("source", net.source);
+        networkStats.put("loadedAt", net.loadedAt);
+        networkStats.put("nodes", net.graph.nodeCount());
+        networkStats.put("edges", net.graph.edgeCount());
+        stats.put("network", networkStats);
+
+        DistanceCache cache = net.distanceCache;
+        if (cache != null) {
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            cacheStats.put("size", cache.size());
+            cacheStats.put("maxEntries", cache.maxEntries());
+            cacheStats.put("hits", cache.hits());
+            cacheStats.put("misses", cache.misses());
+            cacheStats.put("evictions", cache.evictions());
+            cacheStats.put("memoryBytes", cache.memoryBytes());
+            stats.put("distanceCache", cacheStats);
+        }
 
-        PathResult result = dijkstra(startNodeId, endNodeId);
+        RoadComponents comps = net.components;
+        if (comps != null) {
+            int n = net.graph.nodeCount();
+            Map<String, Object> compStats = new LinkedHashMap<>();
+            compStats.put("count", comps.count());
+            compStats.put("largestNodes", comps.largestSize());
+            compStats.put("largestShare", n == 0 ? 0.0 : (double) comps.largestSize() / n);
+            compStats.put("largestComponentOnly", net.largestIndex != null);
+            compStats.put("crossComponentPairs", crossComponentPairs.sum());
+            compStats.put("snapsOutsideLargest", snapsOutsideLargest.sum());
+            compStats.put("snapsRedirected", snapsRedirected.sum());
+            stats.put("components", compStats);
+        }
+
+        Landmarks lm = net.landmarks;
+        if (lm != null) {
+            Map<String, Object> altStats = new LinkedHashMap<>();
+            altStats.put("landmarks", lm.nodes.length);
+            altStats.put("memoryBytes", lm.memoryBytes());
+            altStats.put("buildMillis", lm.buildMillis);
+            altStats.put("fromFile", lm.fromFile);
+            stats.put("alt", altStats);
+        }
+
+        ContractionHierarchy h = net.ch;
+        if (h != null) {
+            Map<String, Object> chStats = new LinkedHashMap<>();
+            chStats.put("shortcuts", h.shortcutCount);
+            chStats.put("memoryBytes", h.memoryBytes());
+            chStats.put("buildMillis", h.buildMillis);
+            stats.put("ch", chStats);
+        }
 
-        List<String> pathCoords = new ArrayList<>();
-        for (Long nodeId : result.path) {
-            Node n = nodes.get(nodeId);
-            if (n != null) pathCoords.add(n.lat + "," + n.lon);
+        ChainGraph c = net.chains;
+        if (c != null) {
+            Map<String, Object> chainStats = new LinkedHashMap<>();
+            chainStats.put("nodes", c.topo.nodeCount());
+            chainStats.put("edges", c.topo.edgeCount());
+            chainStats.put("memoryBytes", c.memoryBytes());
+            chainStats.put("buildMillis", c.buildMillis);
+            stats.put("chains", chainStats);
         }
-        return pathCoords;
+        return stats;
+    }
+
+    private SearchAlgorithm activeAlgorithm(RoadNetwork net) {
+        if (net.ch != null) return SearchAlgorithm.CH;
+        if (net.landmarks != null) return SearchAlgorithm.ALT;
+        // ön işlemesi hazır olmayan yöntemler DIJKSTRA'ya düşer
+        boolean needsPreprocessing = searchAlgorithm == SearchAlgorithm.CH || searchAlgorithm == SearchAlgorithm.ALT;
+        return needsPreprocessing ? SearchAlgorithm.DIJKSTRA : searchAlgorithm;
+    }
+
+    private PathResult search(RoadNetwork net, int startNodeId, int endNodeId) {
+        SearchAlgorithm algorithm = activeAlgorithm(net);
+        PathResult result;
+        if (net.ch != null) {
+            result = net.ch.query(net.graph, startNodeId, endNodeId);
+        } else if (net.landmarks != null) {
+            result = net.landmarks.query(net.graph, startNodeId, endNodeId);
+        } else if (net.chains != null && algorithm == SearchAlgorithm.DIJKSTRA) {
+            result = net.chains.route(startNodeId, endNodeId);
+        } else {
+            result = PathFinder.find(algorithm, net.graph, startNodeId, endNodeId);
+        }
+        searchCount.increment();
+        settledCount.add(result.settled);
+        return result;
     }
 
     public double getRoundTripDistanceKm(
@@ -91,157 +430,399 @@ public class RouteService {
         return total;
     }
 
-    private void loadFromGeoJson(String fileName) {
-        ObjectMapper mapper = new ObjectMapper();
+    /** Açılıştaki yükleme: kaynak yoksa ya da okunamazsa mock ağ. */
+    private RoadNetwork loadInitialNetwork() {
+        File file = new File(graphSource);
+        if (!file.exists()) {
+            System.err.println("UYARI: " + graphSource + " dosyası bulunamadı! Mock data yükleniyor.");
+            return loadMockData();
+        }
         try {
-            File file = new File(fileName);
-            if (!file.exists()) {
-                System.err.println("UYARI: export.geojson dosyası bulunamadı! Mock data yükleniyor.");
-                loadMockData();
-                return;
-            }
+            return loadNetwork(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return loadMockData();
+        }
+    }
 
-            JsonNode root = mapper.readTree(file);
-            JsonNode features = root.path("features");
-            if (features.isMissingNode()) {
-                System.err.println("GeoJSON formatı hatalı: 'features' alanı yok.");
-                return;
-            }
+    /**
+     * Yol ağını arka planda yeniden yükler; zaten sürüyorsa false döner. Yeni ağ (önbellekleriyle birlikte)
+     * tamamen kurulunca tek atamayla devreye girer, o ana kadar ve o an süren sorgular eski ağla biter.
+     * Yükleme başarısız olursa eski ağ kalır.
+     */
+    public boolean requestReload(String reason) {
+        if (!reloading.compareAndSet(false, true)) return false;
+        try {
+            reloadExecutor.execute(() -> {
+                try {
+                    reloadNow(reason);
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            reloading.set(false);
+            throw e;
+        }
+        return true;
+    }
 
-            for (JsonNode feature : features) {
-                JsonNode geometry = feature.path("geometry");
-                String type = geometry.path("type").asText();
-                JsonNode coordinates = geometry.path("coordinates");
-
-                if ("LineString".equalsIgnoreCase(type)) {
-                    processCoordinates(coordinates);
-                } else if ("Polygon".equalsIgnoreCase(type)) {
-                    if (coordinates.size() > 0) processCoordinates(coordinates.get(0));
-                } else if ("MultiPolygon".equalsIgnoreCase(type)) {
-                    for (JsonNode poly : coordinates) {
-                        if (poly.size() > 0) processCoordinates(poly.get(0));
-                    }
+    public Map<String, Object> getReloadStatus() {
+        RoadNetwork net = network;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", reloading.get());
+        status.put("version", net.version);
+        status.put("source", net.source);
+        status.put("loadedAt", net.loadedAt);
+        status.put("watch", watchSource);
+        status.put("lastReload", lastReload);
+        return status;
+    }
+
+    private void reloadNow(String reason) {
+        long start = System.currentTimeMillis();
+        System.out.println("Yol ağı yeniden yükleniyor (" + reason + ")...");
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("reason", reason);
+        result.put("startedAt", start);
+        try {
+            File file = new File(graphSource);
+            if (!file.isFile()) throw new IOException(graphSource + " bulunamadı");
+
+            RoadNetwork next = loadNetwork(file);
+            long previousVersion = network.version;
+            network = next;
+            // eski grafın boyuna göre ayrılmış arama dizileri havuzda kalmasın
+            SearchWorkspace.discardPooled();
+
+            result.put("ok", true);
+            result.put("version", next.version);
+            result.put("nodes", next.graph.nodeCount());
+            result.put("edges", next.graph.edgeCount());
+            System.out.println("Yol ağı değiştirildi: sürüm " + previousVersion + " -> " + next.version
+                    + " (" + (System.currentTimeMillis() - start) + " ms)");
+            for (Runnable listener : networkListeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Yol ağı değişikliği dinleyicisi hata verdi: " + e.getMessage());
                 }
             }
+        } catch (IOException | RuntimeException e) {
+            result.put("ok", false);
+            result.put("error", String.valueOf(e.getMessage()));
+            System.err.println("Yol ağı yeniden yüklenemedi, eski ağ kullanılıyor: " + e.getMessage());
+        }
+        result.put("millis", System.currentTimeMillis() - start);
+        lastReload = result;
+    }
 
-            System.out.println("GeoJSON Başarıyla Yüklendi!");
-            System.out.println("   -> Toplam Nokta (Node): " + nodes.size());
-            System.out.println("   -> Toplam Bağlantı (Edge): " + adjList.values().stream().mapToInt(List::size).sum());
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            loadMockData();
+    /**
+     * Dosya izleme turu (reload thread'inde çalışır). Boy ya da değişme zamanı değişince bir tur daha
+     * beklenir; yazım bitmiş ve dosya sabit kalmışsa yeniden yükleme başlatılır.
+     */
+    private void checkSource() {
+        File file = new File(graphSource);
+        if (!file.isFile()) return;
+        long length = file.length();
+        long modified = file.lastModified();
+        if (length != watchedLength || modified != watchedModified) {
+            watchedLength = length;
+            watchedModified = modified;
+            watchedChanged = true;
+            return;
         }
+        if (watchedChanged && requestReload("dosya değişti")) watchedChanged = false;
     }
 
-    private void processCoordinates(JsonNode coordinates) {
-        Long prevNodeId = null;
+    private void rememberSource() {
+        File file = new File(graphSource);
+        watchedLength = file.length();
+        watchedModified = file.lastModified();
+    }
 
-        for (JsonNode coord : coordinates) {
-            double lon = coord.get(0).asDouble();
-            double lat = coord.get(1).asDouble();
+    /** Kaynaktan (geçerli snapshot varsa ondan) yeni bir ağ kurar; yüklü ağa dokunmaz. */
+    private RoadNetwork loadNetwork(File file) throws IOException {
+        RoadFeatureFilter filter = RoadFeatureFilter.parse(importGeometryTypes, importPropertyFilters);
+        long importKey = filter.fingerprint();
+
+        RoadNetwork fromSnapshot = loadFromSnapshot(file, importKey);
+        if (fromSnapshot != null) return fromSnapshot;
+
+        resetHeapPeak();
+        long parseStart = System.nanoTime();
+        GraphLoad load = new GraphLoad();
+        long features = GeoJsonRoadReader.read(file, filter, load);
+        if (features < 0) throw new IOException("GeoJSON formatı hatalı: 'features' alanı yok.");
+        long[] excludedNodes = load.excludedNodes(filter.ruleCount());
+
+        RoadGraph g = load.builder.build();
+        GeoGrid grid = GeoGrid.build(g.lat, g.lon);
+        double seconds = Math.max(1e-9, (System.nanoTime() - parseStart) / 1e9);
+        double fileMb = file.length() / (1024.0 * 1024.0);
+
+        System.out.println("GeoJSON Başarıyla Yüklendi! (" + Math.round(seconds * 1000) + " ms)");
+        System.out.println("   -> Feature: " + features + ", Dosya: " + String.format("%.1f", fileMb) + " MB"
+                + ", Okuma Hızı: " + String.format("%.1f", fileMb / seconds) + " MB/s");
+        System.out.println("   -> En Yüksek Heap (yükleme sırasında): " + (heapPeakBytes() / (1024 * 1024)) + " MB");
+        printFilterSummary(filter, excludedNodes);
+        saveSnapshot(g, grid, file, importKey);
+        return assemble(g, grid, file, importKey);
+    }
 
-            String key = String.format("%.6f,%.6f", lat, lon);
-            Long currentNodeId;
+    // yükleme sırasındaki en yüksek heap kullanımını ölçmek için havuzların tepe değerleri sıfırlanır
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) pool.resetPeakUsage();
+        }
+    }
 
-            if (uniqueNodeMap.containsKey(key)) {
-                currentNodeId = uniqueNodeMap.get(key);
-            } else {
-                currentNodeId = nodeIdCounter++;
-                nodes.put(currentNodeId, new Node(lat, lon));
-                uniqueNodeMap.put(key, currentNodeId);
-            }
+    private static long heapPeakBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static void printFilterSummary(RoadFeatureFilter filter, long[] excludedNodes) {
+        for (int i = 0; i < filter.ruleCount(); i++) {
+            System.out.println("   -> Filtre '" + filter.ruleName(i) + "': " + filter.excludedFeatures(i)
+                    + " feature, " + excludedNodes[i] + " node (" + filter.excludedPoints(i) + " koordinat noktası) elendi");
+        }
+    }
 
-            if (prevNodeId != null && !prevNodeId.equals(currentNodeId)) {
-                double dist = haversine(
-                        nodes.get(prevNodeId).lat, nodes.get(prevNodeId).lon,
-                        nodes.get(currentNodeId).lat, nodes.get(currentNodeId).lon
-                );
-                addEdge(prevNodeId, currentNodeId, dist);
-                addEdge(currentNodeId, prevNodeId, dist);
+    private RoadNetwork loadFromSnapshot(File source, long importKey) {
+        if (snapshotFile == null || snapshotFile.isBlank()) return null;
+        long start = System.currentTimeMillis();
+        RoadGraphSnapshot snapshot;
+        try {
+            snapshot = RoadGraphSnapshot.read(new File(snapshotFile), source, importKey);
+            if (snapshot == null) {
+                System.out.println("Graf snapshot'ı yok ya da GeoJSON'dan eski, yeniden oluşturulacak.");
+                return null;
             }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Graf snapshot'ı okunamadı (" + e.getMessage() + "), GeoJSON işlenecek.");
+            return null;
+        }
+        System.out.println("Graf snapshot'tan yüklendi! (" + (System.currentTimeMillis() - start) + " ms)");
+        return assemble(snapshot.graph, snapshot.grid, source, importKey);
+    }
 
-            prevNodeId = currentNodeId;
+    private void saveSnapshot(RoadGraph g, GeoGrid grid, File source, long importKey) {
+        if (snapshotFile == null || snapshotFile.isBlank()) return;
+        try {
+            new RoadGraphSnapshot(g, grid).write(new File(snapshotFile), source, importKey);
+            System.out.println("   -> Graf snapshot'ı yazıldı: " + snapshotFile);
+        } catch (IOException e) {
+            System.err.println("Graf snapshot'ı yazılamadı: " + e.getMessage());
         }
     }
 
-    private void loadMockData() {
-        nodes.put(1L, new Node(40.8222, 29.9215));
-        nodes.put(2L, new Node(40.7654, 29.9408));
-        addEdge(1L, 2L, 8.5);
-        addEdge(2L, 1L, 8.5);
+    private void printGraphSummary(RoadGraph graph, RoadComponents comps, boolean largestOnly) {
+        System.out.println("   -> Toplam Nokta (Node): " + graph.nodeCount());
+        System.out.println("   -> Toplam Bağlantı (Edge): " + graph.edgeCount());
+        System.out.println("   -> Graf Belleği (yaklaşık): " + (graph.memoryBytes() / (1024 * 1024)) + " MB");
+
+        int n = graph.nodeCount();
+        System.out.println("   -> Bağlı Bileşen: " + comps.count() + ", En Büyüğü: " + comps.largestSize() + " node ("
+                + String.format("%.1f", n == 0 ? 0.0 : 100.0 * comps.largestSize() / n) + "%)"
+                + (largestOnly ? ", snap sadece en büyük bileşene" : ""));
     }
 
-    private PathResult dijkstra(Long startId, Long endId) {
-        Map<Long, Double> distances = new HashMap<>();
-        Map<Long, Long> previous = new HashMap<>();
-        PriorityQueue<NodeDistance> pq = new PriorityQueue<>(Comparator.comparingDouble(nd -> nd.dist));
+    /** Dondurulmuş graftan bileşenleri, hızlandırma yapılarını ve boş önbelleği kurup ağı oluşturur. */
+    private RoadNetwork assemble(RoadGraph g, GeoGrid grid, File source, long importKey) {
+        RoadComponents comps = RoadComponents.label(g);
+        GeoGrid largestIndex = null;
+        int[] largestNodes = null;
+        if (snapLargestComponentOnly && comps.largest >= 0) {
+            largestNodes = comps.largestNodes();
+            double[] lat = new double[largestNodes.length];
+            double[] lon = new double[largestNodes.length];
+            for (int i = 0; i < largestNodes.length; i++) {
+                lat[i] = g.lat[largestNodes[i]];
+                lon[i] = g.lon[largestNodes[i]];
+            }
+            largestIndex = GeoGrid.build(lat, lon);
+        }
+        printGraphSummary(g, comps, largestIndex != null);
 
-        distances.put(startId, 0.0);
-        pq.add(new NodeDistance(startId, 0.0));
-        Set<Long> visited = new HashSet<>();
+        ChainGraph chains = contractChains ? buildChainGraph(g) : null;
+        ContractionHierarchy h = (searchAlgorithm == SearchAlgorithm.CH) ? buildContractionHierarchy(g) : null;
+        Landmarks lm = (searchAlgorithm == SearchAlgorithm.ALT) ? prepareLandmarks(g, comps, source, importKey) : null;
 
-        while (!pq.isEmpty()) {
-            NodeDistance current = pq.poll();
-            Long u = current.nodeId;
-            if (u.equals(endId)) break;
-            if (visited.contains(u)) continue;
-            visited.add(u);
+        long snapKey = graphFingerprint(g) * 31 + (largestIndex != null ? 1 : 0);
+        return new RoadNetwork(networkVersions.incrementAndGet(), source == null ? "mock" : source.getPath(), snapKey,
+                g, grid, comps, largestIndex, largestNodes, chains, h, lm, new DistanceCache(distanceCacheMaxEntries));
+    }
 
-            if (adjList.containsKey(u)) {
-                for (Edge edge : adjList.get(u)) {
-                    if (visited.contains(edge.targetNodeId)) continue;
-                    double newDist = distances.get(u) + edge.weight;
-                    if (newDist < distances.getOrDefault(edge.targetNodeId, Double.MAX_VALUE)) {
-                        distances.put(edge.targetNodeId, newDist);
-                        previous.put(edge.targetNodeId, u);
-                        pq.add(new NodeDistance(edge.targetNodeId, newDist));
-                    }
+    /** Node sırası, koordinatlar ve kenarlar üzerinden özet; kayıtlı snap node'larının hâlâ geçerli olup olmadığı için. */
+    private static long graphFingerprint(RoadGraph g) {
+        long h = 1125899906842597L;
+        for (int v = 0; v < g.nodeCount(); v++) {
+            h = 31 * h + Double.doubleToLongBits(g.lat[v]);
+            h = 31 * h + Double.doubleToLongBits(g.lon[v]);
+            h = 31 * h + g.offsets[v + 1];
+        }
+        for (int e = 0; e < g.edgeCount(); e++) h = 31 * h + g.targets[e];
+        return h;
+    }
+
+    /** Landmark tablolarını dosyadan okur, yoksa kurup yazar. source null ise dosya kullanılmaz. */
+    private Landmarks prepareLandmarks(RoadGraph graph, RoadComponents comps, File source, long importKey) {
+        boolean persist = source != null && altFile != null && !altFile.isBlank();
+
+        if (persist) {
+            try {
+                Landmarks lm = Landmarks.read(new File(altFile), source, importKey, graph, altLandmarkCount);
+                if (lm != null) {
+                    System.out.println("ALT landmark tabloları dosyadan okundu: " + altFile);
+                    return lm;
                 }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Landmark dosyası okunamadı (" + e.getMessage() + "), yeniden hesaplanacak.");
             }
         }
 
-        List<Long> path = new LinkedList<>();
-        Long curr = endId;
-        if (!previous.containsKey(curr) && !startId.equals(endId)) return new PathResult(new ArrayList<>(), Double.MAX_VALUE);
-        while (curr != null) {
-            path.add(0, curr);
-            curr = previous.get(curr);
+        Landmarks lm = Landmarks.build(graph, comps, altLandmarkCount);
+        System.out.println("ALT Landmark'ları Hazır!");
+        System.out.println("   -> Landmark: " + lm.nodes.length + ", Süre: " + lm.buildMillis + " ms"
+                + ", Bellek (yaklaşık): " + (lm.memoryBytes() / (1024 * 1024)) + " MB");
+
+        if (persist) {
+            try {
+                lm.write(new File(altFile), source, importKey, graph);
+                System.out.println("   -> Landmark tabloları yazıldı: " + altFile);
+            } catch (IOException e) {
+                System.err.println("Landmark tabloları yazılamadı: " + e.getMessage());
+            }
         }
-        return new PathResult(path, distances.getOrDefault(endId, Double.MAX_VALUE));
+        return lm;
     }
 
-    private Long findNearestNode(double lat, double lon) {
-        Long bestNode = null;
-        double minDist = Double.MAX_VALUE;
-        for (Map.Entry<Long, Node> entry : nodes.entrySet()) {
-            double d = haversine(lat, lon, entry.getValue().lat, entry.getValue().lon);
-            if (d < minDist) {
-                minDist = d;
-                bestNode = entry.getKey();
+    private static ChainGraph buildChainGraph(RoadGraph graph) {
+        ChainGraph c = ChainGraph.build(graph);
+        System.out.println("Derece-2 zincirler daraltıldı! (" + c.buildMillis + " ms)");
+        System.out.println("   -> Node: " + graph.nodeCount() + " -> " + c.topo.nodeCount()
+                + ", Kenar: " + graph.edgeCount() + " -> " + c.topo.edgeCount()
+                + ", Ek Bellek (yaklaşık): " + (c.memoryBytes() / (1024 * 1024)) + " MB");
+        return c;
+    }
+
+    private ContractionHierarchy buildContractionHierarchy(RoadGraph graph) {
+        ContractionHierarchy h = ContractionHierarchy.build(graph, chWitnessSettleLimit, chMaxBuildSeconds * 1000);
+        if (h == null) {
+            System.err.println("CH ön işleme " + chMaxBuildSeconds + " sn sınırını aştı, DIJKSTRA kullanılacak.");
+            return null;
+        }
+        System.out.println("Contraction Hierarchy Hazır!");
+        System.out.println("   -> Kısayol: " + h.shortcutCount + ", Süre: " + h.buildMillis + " ms");
+        System.out.println("   -> CH Belleği (yaklaşık): " + (h.memoryBytes() / (1024 * 1024)) + " MB");
+        return h;
+    }
+
+    /** Bir GeoJSON okumasının geçici durumu; graf dondurulunca bırakılır. */
+    private static final class GraphLoad implements GeoJsonRoadReader.LineSink {
+        final RoadGraphBuilder builder = new RoadGraphBuilder();
+        final LongIntHashMap nodeKeys = new LongIntHashMap(1 << 16);
+        // sadece CoordinateKey'e sığmayan (bozuk) koordinatlar için
+        final Map<String, Integer> uniqueNodeMap = new HashMap<>();
+        // elenen feature'ların koordinat anahtarları -> onları ilk eleyen kural
+        final LongIntHashMap excludedKeys = new LongIntHashMap(1 << 10);
+
+        @Override
+        public void line(double[] lonLat, int start, int pointCount) {
+            processCoordinates(lonLat, start, pointCount);
+        }
+
+        @Override
+        public void excluded(int rule, double[] lonLat, int start, int pointCount) {
+            for (int i = start, end = start + pointCount; i < end; i++) {
+                double lon = lonLat[2 * i];
+                double lat = lonLat[2 * i + 1];
+                // bozuk koordinatlar node sayımına girmez
+                if (!CoordinateKey.fits(lat, lon)) continue;
+                long key = CoordinateKey.pack(lat, lon);
+                if (excludedKeys.get(key) < 0) excludedKeys.put(key, rule);
+            }
+        }
+
+        /**
+         * Kural başına, elenmeseydi grafa eklenecek tekil node sayısı: elenen koordinatlardan grafta
+         * node'u olmayanlar, onları ilk eleyen kurala yazılır.
+         */
+        long[] excludedNodes(int ruleCount) {
+            long[] counts = new long[ruleCount];
+            excludedKeys.forEach((key, rule) -> {
+                if (nodeKeys.get(key) < 0) counts[rule]++;
+            });
+            return counts;
+        }
+
+        void processCoordinates(double[] lonLat, int start, int pointCount) {
+            int prevNodeId = -1;
+
+            for (int i = start, end = start + pointCount; i < end; i++) {
+                double lon = lonLat[2 * i];
+                double lat = lonLat[2 * i + 1];
+
+                int currentNodeId;
+                if (CoordinateKey.fits(lat, lon)) {
+                    long key = CoordinateKey.pack(lat, lon);
+                    currentNodeId = nodeKeys.get(key);
+                    if (currentNodeId < 0) {
+                        currentNodeId = builder.addNode(lat, lon);
+                        nodeKeys.put(key, currentNodeId);
+                    }
+                } else {
+                    String key = String.format("%.6f,%.6f", lat, lon);
+                    Integer known = uniqueNodeMap.get(key);
+                    if (known == null) {
+                        known = builder.addNode(lat, lon);
+                        uniqueNodeMap.put(key, known);
+                    }
+                    currentNodeId = known;
+                }
+
+                if (prevNodeId >= 0 && prevNodeId != currentNodeId) {
+                    double dist = GeoGrid.haversine(
+                            builder.lat(prevNodeId), builder.lon(prevNodeId),
+                            builder.lat(currentNodeId), builder.lon(currentNodeId)
+                    );
+                    builder.addEdge(prevNodeId, currentNodeId, dist);
+                    builder.addEdge(currentNodeId, prevNodeId, dist);
+                }
+
+                prevNodeId = currentNodeId;
             }
         }
-        return bestNode;
     }
 
-    private double haversine(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a =
-                Math.sin(dLat/2)*Math.sin(dLat/2) +
-                        Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2)) *
-                                Math.sin(dLon/2)*Math.sin(dLon/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        return R * c;
+    private RoadNetwork loadMockData() {
+        RoadGraphBuilder builder = new RoadGraphBuilder();
+        int a = builder.addNode(40.8222, 29.9215);
+        int b = builder.addNode(40.7654, 29.9408);
+        builder.addEdge(a, b, 8.5);
+        builder.addEdge(b, a, 8.5);
+        RoadGraph g = builder.build();
+        return assemble(g, GeoGrid.build(g.lat, g.lon), null, 0);
     }
 
-    private void addEdge(Long from, Long to, double weight) {
-        adjList.computeIfAbsent(from, k -> new ArrayList<>()).add(new Edge(to, weight));
+    int findNearestNode(RoadNetwork net, double lat, double lon) {
+        int node = net.nodeIndex.nearest(lat, lon);
+        if (node < 0 || net.components.inLargest(node)) return node;
+
+        GeoGrid restricted = net.largestIndex;
+        if (restricted == null) {
+            snapsOutsideLargest.increment();
+            return node;
+        }
+        snapsRedirected.increment();
+        return net.largestNodes[restricted.nearest(lat, lon)];
     }
 
-    private static class Node { double lat, lon; Node(double lat, double lon) { this.lat = lat; this.lon = lon; } }
-    private static class Edge { Long targetNodeId; double weight; Edge(Long targetNodeId, double weight) { this.targetNodeId = targetNodeId; this.weight = weight; } }
-    private static class NodeDistance { Long nodeId; double dist; NodeDistance(Long nodeId, double dist) { this.nodeId = nodeId; this.dist = dist; } }
-    private static class PathResult { List<Long> path; double distance; PathResult(List<Long> path, double distance) { this.path = path; this.distance = distance; } }
+    private double haversine(double lat1, double lon1, double lat2, double lon2) {
+        return GeoGrid.haversine(lat1, lon1, lat2, lon2);
+    }
 }
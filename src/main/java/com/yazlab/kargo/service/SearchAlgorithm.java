@@ -0,0 +1,12 @@
+package com.yazlab.kargo.service;
+
+/** route.search.algorithm ile seçilen nokta-nokta arama yöntemi. */
+public enum SearchAlgorithm {
+    DIJKSTRA,
+    ASTAR,
+    BIDIRECTIONAL,
+    /** Yüklemede contraction hierarchy kurulur; kurulamazsa DIJKSTRA'ya düşülür. */
+    CH,
+    /** Landmark alt sınırlı A*; tablolar yüklemede kurulur ya da dosyadan okunur. */
+    ALT
+}
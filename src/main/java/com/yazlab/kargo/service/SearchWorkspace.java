@@ -0,0 +1,196 @@
+package com.yazlab.kargo.service;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tekrar kullanılan arama durumu: mesafe, ebeveyn ve decrease-key destekli indexli ikili heap.
+ * Diziler sürüm damgasıyla sıfırlanır (stamp[v] != version ise v bu aramada hiç görülmemiştir), böylece
+ * kararlı durumda arama sonuç dışında bellek ayırmaz. Diziler en büyük grafa göre büyür (~40 byte/node).
+ *
+ * Çalışma alanları acquire/release ile ortak bir havuzdan alınır. Havuzda en fazla MAX_IDLE tane bekler,
+ * fazlası geri verilince bırakılır; istek thread'i sayısı ne olursa olsun tutulan bellek sınırlıdır.
+ *
+ * Bir node heap'e en fazla bir kez girer; kesinleştiğinde heapPos -1 olur. A*'da daha kısa yolla tekrar
+ * gelen kesinleşmiş node yeniden eklenir.
+ */
+final class SearchWorkspace {
+
+    // aynı anda çalışan arama sayısı kadarı yeter; çift yönlü arama iki tane kullanır
+    private static final int MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final Deque<SearchWorkspace> IDLE = new ConcurrentLinkedDeque<>();
+    private static final AtomicInteger idleCount = new AtomicInteger();
+    // ağ değişince artar; eski nesilden geri verilenler havuza girmez
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    private final int gen = generation.get();
+
+    private double[] dist = new double[0];
+    private int[] parent = new int[0];
+    private int[] stamp = new int[0];
+    private int[] heapPos = new int[0];
+    private double[] heapKey = new double[0];
+    private int[] aux = new int[0];
+    private int[] auxStamp = new int[0];
+    private int version = 0;
+
+    private int[] heap = new int[0];
+    private int size;
+
+    /** Havuzdan (boşsa yeni) bir çalışma alanı, n node'luk arama için sıfırlanmış halde; release ile geri verilir. */
+    static SearchWorkspace acquire(int n) {
+        SearchWorkspace ws = IDLE.pollFirst();
+        if (ws != null) idleCount.decrementAndGet();
+        else ws = new SearchWorkspace();
+        ws.reset(n);
+        return ws;
+    }
+
+    /** Havuz doluysa ya da çalışma alanı önceki ağdan kaldıysa bırakılır. */
+    static void release(SearchWorkspace ws) {
+        if (ws.gen != generation.get()) return;
+        if (idleCount.incrementAndGet() > MAX_IDLE) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        // en son kullanılan önce verilir, dizileri önbellekte olma ihtimali yüksek
+        IDLE.offerFirst(ws);
+    }
+
+    /**
+     * Yol ağı değiştiğinde çağrılır: bekleyen çalışma alanları bırakılır, kullanımda olanlar geri verildiğinde
+     * havuza alınmaz. Yenileri yeni grafın boyuna göre ayrılır.
+     */
+    static void discardPooled() {
+        generation.incrementAndGet();
+        while (IDLE.pollFirst() != null) idleCount.decrementAndGet();
+    }
+
+    static int idleCount() { return idleCount.get(); }
+
+    private void reset(int n) {
+        if (stamp.length < n) {
+            int capacity = Math.max(n, stamp.length + (stamp.length >> 1));
+            dist = new double[capacity];
+            parent = new int[capacity];
+            stamp = new int[capacity];
+            heapPos = new int[capacity];
+            heapKey = new double[capacity];
+            aux = new int[capacity];
+            auxStamp = new int[capacity];
+            heap = new int[capacity];
+            version = 0;
+        }
+        if (version == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(auxStamp, 0);
+            version = 0;
+        }
+        version++;
+        size = 0;
+    }
+
+    boolean reached(int v) { return stamp[v] == version; }
+
+    double dist(int v) { return stamp[v] == version ? dist[v] : Double.MAX_VALUE; }
+
+    int parent(int v) { return stamp[v] == version ? parent[v] : -1; }
+
+    /** Heap'ten çıkmış (kesinleşmiş) mi. */
+    boolean settled(int v) { return stamp[v] == version && heapPos[v] < 0; }
+
+    /** v'nin mesafesini ve ebeveynini yazar; heap'te değilse key ile ekler, heap'teyse key'ini düşürür. */
+    void update(int v, double d, int parentNode, double key) {
+        boolean inHeap = stamp[v] == version && heapPos[v] >= 0;
+        stamp[v] = version;
+        dist[v] = d;
+        parent[v] = parentNode;
+        heapKey[v] = key;
+        if (inHeap) {
+            siftUp(heapPos[v]);
+        } else {
+            heap[size] = v;
+            heapPos[v] = size;
+            siftUp(size++);
+        }
+    }
+
+    /** Kaynak node: mesafe d, ebeveyn -1, key d. */
+    void start(int v, double d) { update(v, d, -1, d); }
+
+    boolean isEmpty() { return size == 0; }
+
+    int peek() { return heap[0]; }
+
+    double peekKey() { return heapKey[heap[0]]; }
+
+    /** En küçük key'li node'u çıkarır ve kesinleşmiş işaretler. */
+    int poll() {
+        int top = heap[0];
+        heapPos[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            heapPos[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void clearHeap() {
+        for (int i = 0; i < size; i++) heapPos[heap[i]] = -1;
+        size = 0;
+    }
+
+    /** Arama başına node'a iliştirilen tamsayı (hedef işareti vb.), atanmadıysa -1. */
+    int aux(int v) { return auxStamp[v] == version ? aux[v] : -1; }
+
+    void setAux(int v, int value) {
+        auxStamp[v] = version;
+        aux[v] = value;
+    }
+
+    /** endId'den geriye ebeveynleri izleyerek yolu çıkarır. */
+    int[] unwind(int endId) {
+        int len = 0;
+        for (int curr = endId; curr >= 0; curr = parent(curr)) len++;
+        int[] path = new int[len];
+        for (int curr = endId; curr >= 0; curr = parent(curr)) path[--len] = curr;
+        return path;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        double key = heapKey[v];
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            int pv = heap[p];
+            if (heapKey[pv] <= key) break;
+            heap[i] = pv;
+            heapPos[pv] = i;
+            i = p;
+        }
+        heap[i] = v;
+        heapPos[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        double key = heapKey[v];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heapKey[heap[child + 1]] < heapKey[heap[child]]) child++;
+            int cv = heap[child];
+            if (heapKey[cv] >= key) break;
+            heap[i] = cv;
+            heapPos[cv] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapPos[v] = i;
+    }
+}
@@ -0,0 +1,46 @@
+package com.yazlab.kargo.service;
+
+import com.yazlab.kargo.entity.Station;
+import com.yazlab.kargo.repository.StationRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * İstasyonların kayıtlı snap'lerini yüklü yol ağıyla eşit tutar: açılışta ve her yeniden yüklemeden sonra
+ * snap'i başka grafa ait olan istasyonlar toplu olarak yeniden hesaplanıp kaydedilir.
+ */
+@Service
+public class StationSnapService {
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private RouteService routeService;
+
+    @PostConstruct
+    public void init() {
+        routeService.addNetworkListener(this::resnapStale);
+        resnapStale();
+    }
+
+    /** Snap'i güncel olmayan istasyonları yeniden snap edip kaydeder; güncellenen sayıyı döner. */
+    public synchronized int resnapStale() {
+        long start = System.currentTimeMillis();
+        List<Station> stations = stationRepository.findAll();
+        List<Station> changed = new ArrayList<>();
+        for (Station s : stations) {
+            if (routeService.snapStation(s)) changed.add(s);
+        }
+        if (changed.isEmpty()) return 0;
+
+        stationRepository.saveAll(changed);
+        System.out.println("İstasyon snap'leri güncellendi: " + changed.size() + "/" + stations.size()
+                + " (" + (System.currentTimeMillis() - start) + " ms)");
+        return changed.size();
+    }
+}
@@ -10,15 +10,76 @@ L.tileLayer('https://tile.openstreetmap.org/{z}/{x}/{y}.png', {
 var selectedPoints = [];
 var routeLayer = null; // Rota çizgisi (Kırmızı olan)
 
-// 1. SENİN GEOSJON HARİTANI YÜKLE (MAVİ YOLLAR)
-fetch('export.geojson')
+// 1. YOL AĞI (MAVİ YOLLAR): sadece görünen alanın karoları sunucudan gelir
+// sunucu bu zoom'un altında boş karo döner (route.tiles.min-zoom); değer /api/route/roads'tan okunur
+var roadMinZoom = null;
+var roadTiles = {}; // "z/x/y" -> L.geoJSON katmanı (yüklenirken null)
+
+// yollar kırmızı rotanın altında kalsın
+map.createPane('roads');
+map.getPane('roads').style.zIndex = 350;
+
+function visibleTiles() {
+    var z = map.getZoom();
+    var keys = [];
+    if (roadMinZoom === null || z < roadMinZoom) return keys;
+
+    var n = Math.pow(2, z);
+    var b = map.getBounds().pad(0.2);
+    function tileX(lng) { return Math.floor((lng + 180) / 360 * n); }
+    function tileY(lat) {
+        var r = lat * Math.PI / 180;
+        return Math.floor((1 - Math.log(Math.tan(r) + 1 / Math.cos(r)) / Math.PI) / 2 * n);
+    }
+    var x0 = Math.max(0, tileX(b.getWest())), x1 = Math.min(n - 1, tileX(b.getEast()));
+    var y0 = Math.max(0, tileY(b.getNorth())), y1 = Math.min(n - 1, tileY(b.getSouth()));
+    for (var x = x0; x <= x1; x++) {
+        for (var y = y0; y <= y1; y++) keys.push(z + "/" + x + "/" + y);
+    }
+    return keys;
+}
+
+function refreshRoads() {
+    var wanted = {};
+    visibleTiles().forEach(function (key) { wanted[key] = true; });
+
+    // görünümden çıkan ya da başka zoom'a ait karolar kaldırılır
+    Object.keys(roadTiles).forEach(function (key) {
+        if (wanted[key]) return;
+        if (roadTiles[key]) map.removeLayer(roadTiles[key]);
+        delete roadTiles[key];
+    });
+
+    Object.keys(wanted).forEach(function (key) {
+        if (key in roadTiles) return;
+        roadTiles[key] = null;
+        // tarayıcı ETag ile yeniden doğrular; değişmeyen karo 304 ile önbellekten gelir
+        fetch('/api/route/roads/' + key)
+            .then(response => response.json())
+            .then(data => {
+                if (!(key in roadTiles)) return; // bu arada görünümden çıktı
+                roadTiles[key] = L.geoJSON(data, {
+                    pane: 'roads',
+                    style: { color: "blue", weight: 3, opacity: 0.5 }
+                }).addTo(map);
+            })
+            .catch(err => {
+                delete roadTiles[key];
+                console.error("Yol karosu yüklenemedi:", key, err);
+            });
+    });
+}
+
+map.on('moveend', refreshRoads);
+fetch('/api/route/roads')
     .then(response => response.json())
-    .then(data => {
-        L.geoJSON(data, {
-            style: { color: "blue", weight: 3, opacity: 0.5 }
-        }).addTo(map);
+    .then(data => { roadMinZoom = data.minZoom; })
+    .catch(err => {
+        // ayar okunamazsa karolar yine istenir, sunucu düşük zoom'da boş döner
+        roadMinZoom = 0;
+        console.error("Yol katmanı ayarı yüklenemedi:", err);
     })
-    .catch(err => console.error("Harita yüklenemedi:", err));
+    .then(refreshRoads);
 
 // 2. HARİTAYA TIKLAMA OLAYI (ROTA HESAPLAMA)
 map.on('click', function(e) {
@@ -37,9 +98,11 @@ map.on('click', function(e) {
         console.log("Rota hesaplanıyor...", start, end);
 
         // Backend'e sor (RouteController'a git)
-        fetch(`/api/route?startLat=${start.lat}&startLon=${start.lng}&endLat=${end.lat}&endLon=${end.lng}`)
+        fetch(`/api/route?startLat=${start.lat}&startLon=${start.lng}&endLat=${end.lat}&endLon=${end.lng}&pathFormat=polyline6`)
             .then(response => response.json())
-            .then(routeCoordinates => {
+            .then(body => {
+                // polyline6 olarak gelen yolu [lat, lng] dizisine çöz (path-codec.js)
+                var routeCoordinates = decodePath(body.path, body.format);
 
                 // Varsa eski rotayı sil
                 if (routeLayer) map.removeLayer(routeLayer);
@@ -0,0 +1,44 @@
+// Backend'in pathFormat parametresine göre kodladığı yolu [[lat, lng], ...] dizisine çevirir.
+// coords   : ["lat,lon", ...]   (eski biçim)
+// polyline6: Google encoded polyline, 1e-6 hassasiyet
+// packed   : [lat0, lon0, dLat1, dLon1, ...] 1e-6 derece biriminde, ilk noktadan sonra farklar
+function decodePath(path, format) {
+    if (!path) return [];
+
+    if (format === 'polyline6' || typeof path === 'string') {
+        var points = [];
+        var index = 0, lat = 0, lng = 0;
+        while (index < path.length) {
+            var values = [0, 0];
+            for (var k = 0; k < 2; k++) {
+                var result = 0, shift = 0, b;
+                do {
+                    b = path.charCodeAt(index++) - 63;
+                    result += (b & 0x1f) * Math.pow(2, shift);   // 32 biti aşabilir, << kullanılmaz
+                    shift += 5;
+                } while (b >= 0x20);
+                values[k] = (result % 2 === 1) ? -(result + 1) / 2 : result / 2;
+            }
+            lat += values[0];
+            lng += values[1];
+            points.push([lat / 1e6, lng / 1e6]);
+        }
+        return points;
+    }
+
+    if (format === 'packed') {
+        var out = [];
+        var pLat = 0, pLng = 0;
+        for (var i = 0; i + 1 < path.length; i += 2) {
+            pLat += path[i];
+            pLng += path[i + 1];
+            out.push([pLat / 1e6, pLng / 1e6]);
+        }
+        return out;
+    }
+
+    return path.map(function (s) {
+        var parts = String(s).split(',');
+        return [parseFloat(parts[0]), parseFloat(parts[1])];
+    });
+}
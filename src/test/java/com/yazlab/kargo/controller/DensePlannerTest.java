@@ -0,0 +1,197 @@
+package com.yazlab.kargo.controller;
+
+import com.yazlab.kargo.entity.Station;
+import com.yazlab.kargo.entity.Vehicle;
+import com.yazlab.kargo.service.DistanceMatrices;
+import com.yazlab.kargo.service.DistanceMatrix;
+import com.yazlab.kargo.service.PlanningJob;
+import com.yazlab.kargo.service.PlanningJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DensePlannerTest {
+
+    private static final double HUB_LAT = 40.82224624200172;
+    private static final double HUB_LON = 29.92156586537241;
+
+    /** Bir planlama girdisi: yükler, istasyonlar, matris ve filo. */
+    private static final class Instance {
+        final Map<Long, Integer> loads = new HashMap<>();
+        final Map<Long, Station> stations = new HashMap<>();
+        final List<Vehicle> fleet = new ArrayList<>();
+        DistanceMatrix matrix;
+        double fuelCostPerKm;
+        double rentalCostPerVehicle;
+        int rentalCapacityKg;
+        int maxCompanyVehicles;
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private static Instance randomInstance(Random rnd, int n) {
+        Instance in = new Instance();
+        List<Station> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Station s = new Station();
+            s.setId((long) (i + 1) * 3 + rnd.nextInt(3));
+            s.setName("S" + s.getId());
+            if (i > 0 && rnd.nextInt(8) == 0) {
+                // aynı koordinatta iki istasyon: komşu listelerinde eşit mesafe
+                Station other = list.get(rnd.nextInt(list.size()));
+                s.setLatitude(other.getLatitude());
+                s.setLongitude(other.getLongitude());
+            } else {
+                s.setLatitude(40.71 + rnd.nextDouble() * 0.20);
+                s.setLongitude(29.81 + rnd.nextDouble() * 0.25);
+            }
+            list.add(s);
+            in.stations.put(s.getId(), s);
+
+            int r = rnd.nextInt(10);
+            int load = r == 0 ? 0 : (r == 1 ? 400 + rnd.nextInt(1_200) : 5 + rnd.nextInt(60));
+            if (load > 0) in.loads.put(s.getId(), load);
+        }
+        // istasyon kaydı silinmiş kargo: matriste de yok
+        if (rnd.nextBoolean()) in.loads.put(10_000L + rnd.nextInt(100), 20 + rnd.nextInt(40));
+
+        // matris: hub + artan id, yol mesafesi kuş uçuşunun %0-50 fazlası, arada ulaşılamayan istasyon
+        int m = n + 1;
+        long[] ids = new long[m];
+        double[] lat = new double[m];
+        double[] lon = new double[m];
+        lat[0] = HUB_LAT;
+        lon[0] = HUB_LON;
+        list.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        for (int i = 0; i < n; i++) {
+            ids[i + 1] = list.get(i).getId();
+            lat[i + 1] = list.get(i).getLatitude();
+            lon[i + 1] = list.get(i).getLongitude();
+        }
+        boolean[] unreachable = new boolean[m];
+        for (int i = 1; i < m; i++) unreachable[i] = rnd.nextInt(50) == 0;
+        double[] km = new double[m * m];
+        for (int i = 0; i < m; i++) {
+            for (int j = i + 1; j < m; j++) {
+                double d = (unreachable[i] != unreachable[j]) ? DistanceMatrix.MISSING
+                        : haversineKm(lat[i], lon[i], lat[j], lon[j]) * (1.0 + 0.5 * rnd.nextDouble());
+                km[i * m + j] = d;
+                km[j * m + i] = d;
+            }
+        }
+        in.matrix = DistanceMatrices.of(ids, lat, lon, km);
+
+        int[] caps = {0, 500, 750, 1000, 1500};
+        int fleet = rnd.nextInt(12);
+        for (int v = 0; v < fleet; v++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setId((long) v + 1);
+            vehicle.setCapacity(v == 0 && rnd.nextBoolean() ? null : (double) caps[rnd.nextInt(caps.length)]);
+            in.fleet.add(vehicle);
+        }
+        in.fuelCostPerKm = rnd.nextBoolean() ? 1.0 : 2.5;
+        in.rentalCostPerVehicle = rnd.nextBoolean() ? 0.0 : 200.0;
+        in.rentalCapacityKg = rnd.nextBoolean() ? 500 : 1000;
+        in.maxCompanyVehicles = rnd.nextBoolean() ? Integer.MAX_VALUE : rnd.nextInt(4);
+        return in;
+    }
+
+    /** planRoutes'u gerçek bir planlama işinde çalıştırır (PlanningJob yalnız servisten gelir). */
+    private static CargoController.PlannedRoutes dense(CargoController controller, PlanningJobService jobs, Instance in)
+            throws InterruptedException {
+        PlanningJob job = jobs.submit(j -> Map.of("planned", controller.planRoutes(j, in.loads, in.stations, in.matrix,
+                in.fleet, in.fuelCostPerKm, in.rentalCostPerVehicle, in.rentalCapacityKg, in.maxCompanyVehicles)));
+        assertTrue(job.await(30, TimeUnit.SECONDS));
+        assertEquals(PlanningJob.State.DONE, job.getState(), job.getError());
+        return (CargoController.PlannedRoutes) job.getResult().get("planned");
+    }
+
+    private static double routeCost(CargoController.PlannedRoutes r, int i, Instance in) {
+        return r.distances.get(i) * in.fuelCostPerKm + (r.isCompany.get(i) ? 0.0 : in.rentalCostPerVehicle);
+    }
+
+    @Test
+    void densePlannerMatchesMapPlannerOnRandomInstances() throws InterruptedException {
+        PlanningJobService jobs = new PlanningJobService();
+        // tek çekirdekte de komşu ve plan görevleri havuzda çalışsın
+        ReflectionTestUtils.setField(jobs, "plannerParallelism", 4);
+        jobs.init();
+        try {
+            CargoController controller = new CargoController();
+            ReflectionTestUtils.setField(controller, "planningJobService", jobs);
+
+            Random rnd = new Random(42);
+            int[] sizes = {1, 2, 5, 13, 40, 120, 250, 400};
+            int routes = 0;
+            for (int t = 0; t < 32; t++) {
+                Instance in = randomInstance(rnd, sizes[t % sizes.length]);
+                CargoController.PlannedRoutes expected = MapPlanner.plan(in.loads, in.stations, in.matrix, in.fleet,
+                        in.fuelCostPerKm, in.rentalCostPerVehicle, in.rentalCapacityKg, in.maxCompanyVehicles);
+                CargoController.PlannedRoutes actual = dense(controller, jobs, in);
+
+                String msg = "örnek " + t;
+                assertEquals(expected.routes, actual.routes, msg);
+                assertEquals(expected.pickedMaps, actual.pickedMaps, msg);
+                assertEquals(expected.loads, actual.loads, msg);
+                assertEquals(expected.isCompany, actual.isCompany, msg);
+                assertEquals(expected.companyVehicleIds, actual.companyVehicleIds, msg);
+                assertEquals(expected.leftoverStations, actual.leftoverStations, msg);
+                // mesafeler ve maliyetler bit düzeyinde aynı
+                assertEquals(expected.distances, actual.distances, msg);
+                for (int i = 0; i < expected.routes.size(); i++) {
+                    assertEquals(routeCost(expected, i, in), routeCost(actual, i, in), msg + " rota " + i);
+                    int picked = 0;
+                    for (int kg : actual.pickedMaps.get(i).values()) picked += kg;
+                    assertEquals(actual.loads.get(i).intValue(), picked, msg + " rota " + i);
+                }
+                routes += actual.routes.size();
+            }
+            // karşılaştırma boş planlar üzerinde kalmasın
+            assertTrue(routes > 500, "rota sayısı " + routes);
+        } finally {
+            jobs.shutdown();
+        }
+    }
+
+    @Test
+    void plannedLoadsLeaveOnlyLeftoverStations() throws InterruptedException {
+        PlanningJobService jobs = new PlanningJobService();
+        jobs.init();
+        try {
+            CargoController controller = new CargoController();
+            ReflectionTestUtils.setField(controller, "planningJobService", jobs);
+
+            Instance in = randomInstance(new Random(7), 150);
+            CargoController.PlannedRoutes planned = dense(controller, jobs, in);
+
+            // toplanan + kalan yük = başlangıç yükü; planRoutes girdiyi değiştirmez
+            Map<Long, Integer> picked = new HashMap<>();
+            for (LinkedHashMap<Long, Integer> m : planned.pickedMaps) {
+                for (Map.Entry<Long, Integer> e : m.entrySet()) picked.merge(e.getKey(), e.getValue(), Integer::sum);
+            }
+            for (Map.Entry<Long, Integer> e : in.loads.entrySet()) {
+                int got = picked.getOrDefault(e.getKey(), 0);
+                assertTrue(got <= e.getValue(), "istasyon " + e.getKey());
+                assertEquals(got < e.getValue(), planned.leftoverStations.contains(e.getKey()), "istasyon " + e.getKey());
+            }
+        } finally {
+            jobs.shutdown();
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.yazlab.kargo.controller;
+
+import com.yazlab.kargo.entity.Station;
+import com.yazlab.kargo.entity.Vehicle;
+import com.yazlab.kargo.service.DistanceMatrix;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Yoğun index'li modelden önceki Map tabanlı greedy planlayıcı, referans olarak: yükler Map<Long, Integer>'da,
+ * komşular tüm aktif listeyi sıralayarak, her aday araç için plan ayrı kurulur.
+ */
+final class MapPlanner {
+
+    private static final double KOU_LAT = 40.82224624200172;
+    private static final double KOU_LON = 29.92156586537241;
+    private static final int NEIGHBOR_K = 12;
+    private static final int MAX_TOTAL_ROUTES = 500;
+
+    private MapPlanner() {
+    }
+
+    private static final class Plan {
+        List<Long> route;
+        LinkedHashMap<Long, Integer> pickedMap;
+        int loadedKg;
+
+        double distanceKm;
+        double totalCost;
+        boolean isCompany;
+        Long companyVehicleId;
+        int capacityKg;
+    }
+
+    static CargoController.PlannedRoutes plan(Map<Long, Integer> loadRemaining, Map<Long, Station> stationMap,
+                                              DistanceMatrix matrix, List<Vehicle> fleet, double fuelCostPerKm,
+                                              double rentalCostPerVehicle, int rentalCapacityKg, int maxCompanyVehicles) {
+        int totalRemaining = loadRemaining.values().stream().mapToInt(v -> v == null ? 0 : v).sum();
+
+        Set<Long> unusedCompanyVehicleIds = fleet.stream()
+                .map(Vehicle::getId).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Long, List<Long>> neighborMap = buildNeighborMap(loadRemaining, stationMap, NEIGHBOR_K);
+
+        Map<Long, Double> hubAirKm = new HashMap<>();
+        List<Double> airList = new ArrayList<>();
+        for (Long id : loadRemaining.keySet()) {
+            Station s = stationMap.get(id);
+            if (s == null) continue;
+            double d = haversineKm(s.getLatitude(), s.getLongitude(), KOU_LAT, KOU_LON);
+            hubAirKm.put(id, d);
+            airList.add(d);
+        }
+        double farThreshold = percentile(airList, 75.0);
+
+        CargoController.PlannedRoutes out = new CargoController.PlannedRoutes();
+        Map<Long, Integer> loadCopy = new HashMap<>(loadRemaining);
+
+        int safety = 0;
+        while (totalRemaining > 0 && safety++ < MAX_TOTAL_ROUTES) {
+            int usedCompanyCount = (int) out.isCompany.stream().filter(Boolean::booleanValue).count();
+
+            List<CargoController.CandidateVehicle> candidates = new ArrayList<>();
+            if (usedCompanyCount < maxCompanyVehicles) {
+                for (Vehicle v : fleet) {
+                    if (v.getId() != null && unusedCompanyVehicleIds.contains(v.getId())) {
+                        int cap = (v.getCapacity() == null) ? 0 : v.getCapacity().intValue();
+                        if (cap > 0) candidates.add(CargoController.CandidateVehicle.company(v.getId(), cap));
+                    }
+                }
+            }
+            candidates.add(CargoController.CandidateVehicle.rental(rentalCapacityKg));
+
+            if (loadCopy.values().stream().allMatch(x -> x == null || x <= 0)) break;
+
+            int iterMaxCap = candidates.stream().mapToInt(c -> c.capacityKg).max().orElse(0);
+            if (iterMaxCap <= 0) break;
+
+            Long seed = chooseSeedStation(loadCopy, stationMap, neighborMap, hubAirKm, farThreshold, iterMaxCap);
+            if (seed == null) break;
+
+            int seedRem = loadCopy.getOrDefault(seed, 0);
+
+            Plan best = null;
+            for (CargoController.CandidateVehicle cand : candidates) {
+                if (cand.capacityKg <= 0) continue;
+                if (seedRem > 0 && seedRem <= iterMaxCap && cand.capacityKg < seedRem) continue;
+
+                Plan p = buildRoutePlanTwoEndedGreedy(loadCopy, stationMap, matrix, neighborMap,
+                        cand.capacityKg, seed, hubAirKm, farThreshold, iterMaxCap);
+                if (p == null || p.loadedKg <= 0 || p.route.isEmpty()) continue;
+
+                p.distanceKm = totalRouteDistanceKm(p.route, matrix);
+                p.totalCost = p.distanceKm * fuelCostPerKm + (cand.isCompany ? 0.0 : rentalCostPerVehicle);
+                p.isCompany = cand.isCompany;
+                p.companyVehicleId = cand.companyVehicleId;
+                p.capacityKg = cand.capacityKg;
+
+                if (best == null) best = p;
+                else if (p.totalCost < best.totalCost - 1e-9) best = p;
+                else if (Math.abs(p.totalCost - best.totalCost) < 1e-9) {
+                    if (p.loadedKg > best.loadedKg) best = p;
+                    else if (p.loadedKg == best.loadedKg) {
+                        if (p.distanceKm < best.distanceKm - 1e-9) best = p;
+                        else if (Math.abs(p.distanceKm - best.distanceKm) < 1e-9 && p.capacityKg < best.capacityKg) best = p;
+                    }
+                }
+            }
+            if (best == null) break;
+
+            int pickedSum = applyPickedAndCount(loadCopy, best.pickedMap);
+            if (pickedSum <= 0) break;
+            totalRemaining -= pickedSum;
+
+            out.routes.add(best.route);
+            out.distances.add(best.distanceKm);
+            out.loads.add(best.loadedKg);
+            out.pickedMaps.add(best.pickedMap);
+            out.isCompany.add(best.isCompany);
+            out.companyVehicleIds.add(best.isCompany ? best.companyVehicleId : null);
+
+            if (best.isCompany && best.companyVehicleId != null) {
+                unusedCompanyVehicleIds.remove(best.companyVehicleId);
+            }
+        }
+
+        for (Map.Entry<Long, Integer> e : loadCopy.entrySet()) {
+            if (e.getValue() != null && e.getValue() > 0) out.leftoverStations.add(e.getKey());
+        }
+        return out;
+    }
+
+    private static Plan buildRoutePlanTwoEndedGreedy(Map<Long, Integer> loadMap, Map<Long, Station> stationMap,
+                                                     DistanceMatrix matrix, Map<Long, List<Long>> neighborMap,
+                                                     int capacityKg, Long seed, Map<Long, Double> hubAirKm,
+                                                     double farThreshold, int iterMaxCap) {
+        if (capacityKg <= 0 || seed == null) return null;
+
+        Map<Long, Integer> local = new HashMap<>(loadMap);
+        LinkedHashMap<Long, Integer> picked = new LinkedHashMap<>();
+        int capLeft = capacityKg;
+
+        Deque<Long> route = new ArrayDeque<>();
+        Set<Long> inRoute = new HashSet<>();
+
+        capLeft = pickFromStation(local, seed, capLeft, picked);
+        if (picked.getOrDefault(seed, 0) <= 0) return null;
+
+        route.add(seed);
+        inRoute.add(seed);
+
+        while (capLeft > 0) {
+            Long head = route.peekFirst();
+            Long tail = route.peekLast();
+
+            LinkedHashSet<Long> pool = new LinkedHashSet<>();
+            pool.addAll(neighborMap.getOrDefault(head, Collections.emptyList()));
+            pool.addAll(neighborMap.getOrDefault(tail, Collections.emptyList()));
+
+            if (pool.isEmpty()) {
+                Long fallback = maxLoadStation(local, stationMap, inRoute);
+                if (fallback != null) pool.add(fallback);
+            }
+
+            Long bestSt = null;
+            boolean bestToHead = true;
+            double bestScore = Double.MAX_VALUE;
+
+            for (Long cand : pool) {
+                if (inRoute.contains(cand)) continue;
+                if (!stationMap.containsKey(cand)) continue;
+
+                int rem = local.getOrDefault(cand, 0);
+                if (rem <= 0) continue;
+
+                double air = hubAirKm.getOrDefault(cand, 0.0);
+                boolean far = air >= farThreshold;
+                if (far && rem <= iterMaxCap && capLeft < rem) continue;
+
+                int takeKg = Math.min(capLeft, rem);
+                if (takeKg <= 0) continue;
+
+                double extraHead = matrix.distanceKm(cand, head);
+                double tailToHub = matrix.distanceKm(tail, 0);
+                double extraTail = matrix.distanceKm(tail, cand) + matrix.distanceKm(cand, 0) - tailToHub;
+                if (extraTail < 0) extraTail = 0;
+
+                double scoreHead = extraHead / Math.max(1, takeKg);
+                double scoreTail = extraTail / Math.max(1, takeKg);
+
+                if (scoreHead < bestScore) {
+                    bestScore = scoreHead;
+                    bestSt = cand;
+                    bestToHead = true;
+                }
+                if (scoreTail < bestScore) {
+                    bestScore = scoreTail;
+                    bestSt = cand;
+                    bestToHead = false;
+                }
+            }
+
+            if (bestSt == null) break;
+
+            if (bestToHead) route.addFirst(bestSt);
+            else route.addLast(bestSt);
+            inRoute.add(bestSt);
+
+            capLeft = pickFromStation(local, bestSt, capLeft, picked);
+        }
+
+        Plan p = new Plan();
+        p.route = new ArrayList<>(route);
+        p.pickedMap = picked;
+        p.loadedKg = capacityKg - capLeft;
+        return p;
+    }
+
+    private static Long maxLoadStation(Map<Long, Integer> local, Map<Long, Station> stationMap, Set<Long> inRoute) {
+        Long best = null;
+        int bestLoad = 0;
+        for (Map.Entry<Long, Integer> e : local.entrySet()) {
+            int rem = e.getValue() == null ? 0 : e.getValue();
+            if (rem <= 0 || inRoute.contains(e.getKey()) || !stationMap.containsKey(e.getKey())) continue;
+            if (rem > bestLoad) {
+                bestLoad = rem;
+                best = e.getKey();
+            }
+        }
+        return best;
+    }
+
+    private static Long chooseSeedStation(Map<Long, Integer> loadMap, Map<Long, Station> stationMap,
+                                          Map<Long, List<Long>> neighborMap, Map<Long, Double> hubAirKm,
+                                          double farThreshold, int iterMaxCap) {
+        Long bestFar = null;
+        double bestFarScore = -1;
+        for (Map.Entry<Long, Integer> e : loadMap.entrySet()) {
+            int rem = e.getValue() == null ? 0 : e.getValue();
+            if (rem <= 0 || !stationMap.containsKey(e.getKey())) continue;
+
+            double air = hubAirKm.getOrDefault(e.getKey(), 0.0);
+            if (air < farThreshold || rem > iterMaxCap) continue;
+
+            double score = air * 1000.0 + rem;
+            if (score > bestFarScore) {
+                bestFarScore = score;
+                bestFar = e.getKey();
+            }
+        }
+        if (bestFar != null) return bestFar;
+
+        Long best = null;
+        double bestScore = -1;
+        for (Map.Entry<Long, Integer> e : loadMap.entrySet()) {
+            Long id = e.getKey();
+            int rem = e.getValue() == null ? 0 : e.getValue();
+            if (rem <= 0) continue;
+
+            Station si = stationMap.get(id);
+            if (si == null) continue;
+
+            int clusterKg = rem;
+            double sumIso = 0.0;
+            int isoCount = 0;
+
+            List<Long> neigh = neighborMap.getOrDefault(id, Collections.emptyList());
+            for (int i = 0; i < neigh.size() && isoCount < 3; i++) {
+                Long nb = neigh.get(i);
+                int nbLoad = loadMap.getOrDefault(nb, 0);
+                if (nbLoad <= 0) continue;
+
+                Station sj = stationMap.get(nb);
+                if (sj == null) continue;
+
+                clusterKg += nbLoad;
+                sumIso += haversineKm(si.getLatitude(), si.getLongitude(), sj.getLatitude(), sj.getLongitude());
+                isoCount++;
+            }
+
+            double isoKm = (isoCount > 0) ? (sumIso / isoCount) : 50.0;
+            double density = clusterKg / (1.0 + isoKm);
+
+            double air = hubAirKm.getOrDefault(id, 0.0);
+            double score = density * 1000.0 + rem * 2.0 + air * 0.5;
+            if (score > bestScore) {
+                bestScore = score;
+                best = id;
+            }
+        }
+        return best;
+    }
+
+    private static Map<Long, List<Long>> buildNeighborMap(Map<Long, Integer> loadMap, Map<Long, Station> stationMap, int k) {
+        List<Long> active = loadMap.entrySet().stream()
+                .filter(e -> e.getValue() != null && e.getValue() > 0 && stationMap.containsKey(e.getKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        Map<Long, List<Long>> res = new HashMap<>();
+        for (Long a : active) {
+            Station sa = stationMap.get(a);
+            List<Long> sorted = new ArrayList<>(active);
+            sorted.remove(a);
+            sorted.sort(Comparator.comparingDouble(b -> {
+                Station sb = stationMap.get(b);
+                return haversineKm(sa.getLatitude(), sa.getLongitude(), sb.getLatitude(), sb.getLongitude());
+            }));
+            if (sorted.size() > k) sorted = sorted.subList(0, k);
+            res.put(a, sorted);
+        }
+        return res;
+    }
+
+    private static double totalRouteDistanceKm(List<Long> route, DistanceMatrix matrix) {
+        double sum = 0.0;
+        for (int i = 0; i < route.size() - 1; i++) sum += matrix.distanceKm(route.get(i), route.get(i + 1));
+        sum += matrix.distanceKm(route.get(route.size() - 1), 0);
+        return sum;
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double R = 6371.0;
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return R * c;
+    }
+
+    private static double percentile(List<Double> values, double p) {
+        if (values.isEmpty()) return 0.0;
+        List<Double> v = new ArrayList<>(values);
+        v.sort(Double::compareTo);
+        double idx = (p / 100.0) * (v.size() - 1);
+        int lo = (int) Math.floor(idx);
+        int hi = (int) Math.ceil(idx);
+        if (lo == hi) return v.get(lo);
+        double frac = idx - lo;
+        return v.get(lo) * (1 - frac) + v.get(hi) * frac;
+    }
+
+    private static int pickFromStation(Map<Long, Integer> local, Long stId, int capLeft, LinkedHashMap<Long, Integer> pickedMap) {
+        int rem = local.getOrDefault(stId, 0);
+        if (capLeft <= 0 || rem <= 0) return capLeft;
+
+        int take = Math.min(capLeft, rem);
+        local.put(stId, rem - take);
+        pickedMap.merge(stId, take, Integer::sum);
+        return capLeft - take;
+    }
+
+    private static int applyPickedAndCount(Map<Long, Integer> loadMap, LinkedHashMap<Long, Integer> pickedMap) {
+        int sum = 0;
+        for (Map.Entry<Long, Integer> e : pickedMap.entrySet()) {
+            int picked = e.getValue() == null ? 0 : e.getValue();
+            if (picked <= 0) continue;
+            int before = loadMap.getOrDefault(e.getKey(), 0);
+            loadMap.put(e.getKey(), Math.max(0, before - picked));
+            sum += Math.min(before, picked);
+        }
+        return sum;
+    }
+}
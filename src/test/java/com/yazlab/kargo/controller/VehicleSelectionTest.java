@@ -0,0 +1,177 @@
+package com.yazlab.kargo.controller;
+
+import com.yazlab.kargo.service.PlanningJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VehicleSelectionTest {
+
+    private static PlanningJobService plannerPool() {
+        PlanningJobService jobs = new PlanningJobService();
+        // tek çekirdekte de havuz yolundan geçsin
+        ReflectionTestUtils.setField(jobs, "plannerParallelism", 4);
+        jobs.init();
+        return jobs;
+    }
+
+    private static CargoController controller(PlanningJobService jobs) {
+        CargoController controller = new CargoController();
+        ReflectionTestUtils.setField(controller, "planningJobService", jobs);
+        return controller;
+    }
+
+    /** Paralel kurulumdan önceki seçim: her aday için plan ayrı kurulur, eşitlik kuralları aynı. */
+    private static CargoController.Plan sequentialChoice(List<CargoController.CandidateVehicle> candidates, int seedRem,
+                                                         int iterMaxCap, IntFunction<CargoController.Plan> build,
+                                                         double fuelCostPerKm, double rentalCostPerVehicle) {
+        CargoController.Plan best = null;
+        for (CargoController.CandidateVehicle cand : candidates) {
+            if (cand.capacityKg <= 0) continue;
+            if (seedRem > 0 && seedRem <= iterMaxCap && cand.capacityKg < seedRem) continue;
+
+            CargoController.Plan p = build.apply(cand.capacityKg);
+            if (p == null) continue;
+
+            p.totalCost = p.distanceKm * fuelCostPerKm + (cand.isCompany ? 0.0 : rentalCostPerVehicle);
+            p.isCompany = cand.isCompany;
+            p.companyVehicleId = cand.companyVehicleId;
+            p.capacityKg = cand.capacityKg;
+
+            if (best == null) best = p;
+            else if (p.totalCost < best.totalCost - 1e-9) best = p;
+            else if (Math.abs(p.totalCost - best.totalCost) < 1e-9) {
+                if (p.loadedKg > best.loadedKg) best = p;
+                else if (p.loadedKg == best.loadedKg) {
+                    if (p.distanceKm < best.distanceKm - 1e-9) best = p;
+                    else if (Math.abs(p.distanceKm - best.distanceKm) < 1e-9 && p.capacityKg < best.capacityKg) best = p;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static CargoController.Plan plan(int loadedKg, double distanceKm) {
+        CargoController.Plan p = new CargoController.Plan();
+        p.route = new int[]{0};
+        p.pickedStations = new int[]{0};
+        p.pickedKg = new int[]{loadedKg};
+        p.loadedKg = loadedKg;
+        p.distanceKm = distanceKm;
+        return p;
+    }
+
+    /** Plan yalnız kapasiteye bağlı; eşitlik çıksın diye yük ve mesafe küçük kümelerden seçilir. */
+    private static IntFunction<CargoController.Plan> planner(long seed) {
+        return cap -> {
+            Random r = new Random(seed * 31 + cap);
+            if (r.nextInt(10) == 0) return null;
+            int loaded = Math.min(cap, 250 * (1 + r.nextInt(4)));
+            return plan(loaded, 10.0 + 2.5 * r.nextInt(3));
+        };
+    }
+
+    private static void assertSameChoice(CargoController.Plan expected, CargoController.Plan actual, String msg) {
+        if (expected == null) {
+            assertNull(actual, msg);
+            return;
+        }
+        assertNotNull(actual, msg);
+        assertEquals(expected.isCompany, actual.isCompany, msg);
+        assertEquals(expected.companyVehicleId, actual.companyVehicleId, msg);
+        assertEquals(expected.capacityKg, actual.capacityKg, msg);
+        assertEquals(expected.loadedKg, actual.loadedKg, msg);
+        assertEquals(expected.distanceKm, actual.distanceKm, msg);
+        assertEquals(expected.totalCost, actual.totalCost, msg);
+    }
+
+    @Test
+    void matchesSequentialSelectionOnRandomFleets() {
+        PlanningJobService jobs = plannerPool();
+        try {
+            CargoController controller = controller(jobs);
+            Random rnd = new Random(42);
+            int[] caps = {0, 250, 500, 750, 1000};
+            double[] rentalCosts = {0.0, 5.0, 200.0};
+            for (int t = 0; t < 2_000; t++) {
+                List<CargoController.CandidateVehicle> candidates = new ArrayList<>();
+                int fleet = rnd.nextInt(9);
+                for (int v = 0; v < fleet; v++) candidates.add(CargoController.CandidateVehicle.company((long) v + 1, caps[rnd.nextInt(caps.length)]));
+                candidates.add(CargoController.CandidateVehicle.rental(rnd.nextBoolean() ? 500 : 1000));
+
+                int iterMaxCap = candidates.stream().mapToInt(c -> c.capacityKg).max().orElse(0);
+                int seedRem = rnd.nextInt(1_200);
+                double fuel = rnd.nextBoolean() ? 1.0 : 0.0;
+                double rental = rentalCosts[rnd.nextInt(rentalCosts.length)];
+                IntFunction<CargoController.Plan> build = planner(t);
+
+                Map<Integer, AtomicInteger> calls = new ConcurrentHashMap<>();
+                CargoController.Plan actual = controller.chooseVehiclePlan(candidates, seedRem, iterMaxCap, cap -> {
+                    calls.computeIfAbsent(cap, c -> new AtomicInteger()).incrementAndGet();
+                    return build.apply(cap);
+                }, fuel, rental);
+
+                assertSameChoice(sequentialChoice(candidates, seedRem, iterMaxCap, build, fuel, rental), actual, "tur " + t);
+                // her kapasite en fazla bir kez kurulur
+                for (AtomicInteger c : calls.values()) assertEquals(1, c.get(), "tur " + t);
+            }
+        } finally {
+            jobs.shutdown();
+        }
+    }
+
+    @Test
+    void freeRentalTiesWithCompanyVehicleOfSameCapacity() {
+        PlanningJobService jobs = plannerPool();
+        try {
+            CargoController controller = controller(jobs);
+            IntFunction<CargoController.Plan> same = cap -> plan(300, 12.0);
+            List<CargoController.CandidateVehicle> candidates = List.of(
+                    CargoController.CandidateVehicle.company(7L, 500),
+                    CargoController.CandidateVehicle.rental(500));
+
+            // maliyet, yük, mesafe ve kapasite eşit: aday sırasında önce gelen şirket aracı kalır
+            CargoController.Plan expected = sequentialChoice(candidates, 0, 500, same, 1.0, 0.0);
+            CargoController.Plan actual = controller.chooseVehiclePlan(candidates, 0, 500, same, 1.0, 0.0);
+            assertSameChoice(expected, actual, "eşit kapasite");
+            assertTrue(actual.isCompany);
+            assertEquals(Long.valueOf(7), actual.companyVehicleId);
+
+            // kiralık daha küçükse eşitlikte o seçilir
+            candidates = List.of(
+                    CargoController.CandidateVehicle.company(7L, 1000),
+                    CargoController.CandidateVehicle.company(8L, 500),
+                    CargoController.CandidateVehicle.rental(250));
+            IntFunction<CargoController.Plan> small = cap -> plan(200, 12.0);
+            expected = sequentialChoice(candidates, 0, 1000, small, 1.0, 0.0);
+            actual = controller.chooseVehiclePlan(candidates, 0, 1000, small, 1.0, 0.0);
+            assertSameChoice(expected, actual, "küçük kiralık");
+            assertFalse(actual.isCompany);
+            assertEquals(250, actual.capacityKg);
+
+            // aynı kapasiteli şirket araçları tek planı paylaşır, ilk araç kalır
+            candidates = List.of(
+                    CargoController.CandidateVehicle.company(3L, 500),
+                    CargoController.CandidateVehicle.company(4L, 500),
+                    CargoController.CandidateVehicle.rental(500));
+            actual = controller.chooseVehiclePlan(candidates, 0, 500, same, 1.0, 0.0);
+            assertSameChoice(sequentialChoice(candidates, 0, 500, same, 1.0, 0.0), actual, "paylaşılan plan");
+            assertEquals(Long.valueOf(3), actual.companyVehicleId);
+        } finally {
+            jobs.shutdown();
+        }
+    }
+}
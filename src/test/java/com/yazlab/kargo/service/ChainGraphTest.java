@@ -0,0 +1,173 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChainGraphTest {
+
+    // farklı toplama sırasıyla eşit uzunlukta iki yol seçilebilir; mesafe yine de Dijkstra'ya bu kadar yakın olmalı
+    private static final double EPS = 1e-9;
+
+    /**
+     * Izgara şehir + zincir özel durumları: kavşağa iki ucundan bağlı halka (a -> ... -> a),
+     * hiçbir kavşağa bağlı olmayan kopuk halka ve çıkmaz sokak zinciri.
+     */
+    private static RoadGraph graphWithLoops(long seed) {
+        Random rnd = new Random(seed);
+        RoadGraphBuilder b = RandomRoads.cityBuilder(14, seed);
+        int anchor = 0;
+
+        int prev = anchor;
+        for (int k = 1; k <= 6; k++) {
+            double ang = k * Math.PI / 3.5;
+            int m = b.addNode(b.lat(anchor) - 0.001 + 0.001 * Math.cos(ang), b.lon(anchor) - 0.001 * Math.sin(ang));
+            RandomRoads.road(b, prev, m);
+            prev = m;
+        }
+        RandomRoads.road(b, prev, anchor);
+
+        int first = -1;
+        prev = -1;
+        for (int k = 0; k < 8; k++) {
+            double ang = k * Math.PI / 4 + rnd.nextDouble() * 0.1;
+            int m = b.addNode(40.60 + 0.002 * Math.cos(ang), 29.60 + 0.002 * Math.sin(ang));
+            if (prev >= 0) RandomRoads.road(b, prev, m);
+            else first = m;
+            prev = m;
+        }
+        RandomRoads.road(b, prev, first);
+
+        prev = 5;
+        for (int k = 0; k < 4; k++) {
+            int m = b.addNode(b.lat(prev) + 0.0004, b.lon(prev) + 0.0001 * rnd.nextGaussian());
+            RandomRoads.road(b, prev, m);
+            prev = m;
+        }
+        return b.build();
+    }
+
+    private static void assertValidPath(RoadGraph g, int s, int t, int[] path, double distance, String label) {
+        assertEquals(s, path[0], label);
+        assertEquals(t, path[path.length - 1], label);
+        for (int i = 0; i + 1 < path.length; i++) {
+            assertTrue(PathFinder.edgeWeight(g, path[i], path[i + 1]) != Double.MAX_VALUE,
+                    label + ": kenar yok " + path[i] + " -> " + path[i + 1]);
+        }
+        assertEquals(PathFinder.pathDistance(g, path), distance, label);
+    }
+
+    private static void assertMatches(RoadGraph g, ChainGraph cg, int s, int[] targets) {
+        double[] out = new double[targets.length];
+        int[][] paths = new int[targets.length][];
+        cg.pathsToMany(s, targets, out, paths);
+        double[] distancesOnly = new double[targets.length];
+        cg.distancesToMany(s, targets, distancesOnly);
+
+        for (int i = 0; i < targets.length; i++) {
+            int t = targets[i];
+            String label = s + " -> " + t;
+            PathResult expected = PathFinder.dijkstra(g, s, t);
+            PathResult single = cg.route(s, t);
+
+            assertEquals(expected.isReachable(), single.isReachable(), label);
+            assertEquals(expected.distance, out[i], expected.isReachable() ? EPS : 0, label);
+            assertEquals(out[i], distancesOnly[i], label);
+            if (!expected.isReachable()) {
+                assertNull(paths[i], label);
+                continue;
+            }
+            assertEquals(expected.distance, single.distance, EPS, label);
+            assertValidPath(g, s, t, single.path, single.distance, label);
+            assertValidPath(g, s, t, paths[i], out[i], label);
+        }
+    }
+
+    /** Zincir içi node'lar ve her biriyle aynı zincirdekiler. */
+    private static int[][] chainGroups(ChainGraph cg) {
+        int edges = cg.viaStart.length - 1;
+        List<int[]> groups = new ArrayList<>();
+        for (int e = 0; e < edges; e++) {
+            int from = cg.viaStart[e], to = cg.viaStart[e + 1];
+            if (to - from < 2) continue;
+            // zincir her iki yönden de kenar olarak durur; node'u ilk kaydeden kenar esas alınır
+            if (cg.chainEdge[cg.via[from]] != e) continue;
+            int[] nodes = new int[to - from];
+            System.arraycopy(cg.via, from, nodes, 0, nodes.length);
+            groups.add(nodes);
+        }
+        return groups.toArray(new int[0][]);
+    }
+
+    @Test
+    void routesMatchDijkstraOnRandomGraphs() {
+        for (long seed = 1; seed <= 4; seed++) {
+            RoadGraph g = graphWithLoops(seed);
+            ChainGraph cg = ChainGraph.build(g);
+            int n = g.nodeCount();
+            assertTrue(cg.topo.nodeCount() < n);
+
+            int[] inChain = new int[n];
+            int chainCount = 0;
+            for (int v = 0; v < n; v++) if (cg.topoOf[v] < 0) inChain[chainCount++] = v;
+            int[][] groups = chainGroups(cg);
+            assertTrue(groups.length > 0);
+
+            Random rnd = new Random(seed * 31);
+            for (int q = 0; q < 300; q++) {
+                int s = rnd.nextBoolean() ? rnd.nextInt(n) : inChain[rnd.nextInt(chainCount)];
+                int[] targets = new int[1 + rnd.nextInt(8)];
+                for (int i = 0; i < targets.length; i++) {
+                    int r = rnd.nextInt(6);
+                    if (r == 0) targets[i] = rnd.nextInt(n);
+                    else if (r == 1) targets[i] = n - 1 - rnd.nextInt(8); // çıkmaz sokak / kopuk halka
+                    else if (r == 2) targets[i] = s;
+                    else targets[i] = inChain[rnd.nextInt(chainCount)];
+                }
+                assertMatches(g, cg, s, targets);
+            }
+
+            // kaynak ve hedef aynı zincirde: DIRECT yol ile uçlar üzerinden dolaşma yarışır
+            for (int[] group : groups) {
+                int s = group[rnd.nextInt(group.length)];
+                assertMatches(g, cg, s, group);
+            }
+        }
+    }
+
+    @Test
+    void loopChainsAndUnreachablePairs() {
+        RoadGraph g = graphWithLoops(9);
+        ChainGraph cg = ChainGraph.build(g);
+        int n = g.nodeCount();
+
+        // kopuk halkanın node'ları (dead-end zincirden önceki 8 node) ana ağa ulaşamaz, kendi aralarında ulaşır
+        int ringStart = n - 4 - 8;
+        int[] ring = new int[8];
+        for (int k = 0; k < 8; k++) ring[k] = ringStart + k;
+        for (int s : ring) {
+            assertMatches(g, cg, s, ring);
+            assertMatches(g, cg, s, new int[]{0, 1, n - 1, n - 2});
+        }
+        // halkada tam bir node korunur
+        int keptInRing = 0;
+        for (int v : ring) if (cg.topoOf[v] >= 0) keptInRing++;
+        assertEquals(1, keptInRing);
+
+        // kavşağa bağlı halka (0'dan çıkıp 0'a dönen)
+        int loopStart = ringStart - 6;
+        int[] loop = new int[7];
+        loop[0] = 0;
+        for (int k = 0; k < 6; k++) loop[k + 1] = loopStart + k;
+        for (int s : loop) assertMatches(g, cg, s, loop);
+
+        PathResult self = cg.route(loopStart + 2, loopStart + 2);
+        assertEquals(0.0, self.distance);
+    }
+}
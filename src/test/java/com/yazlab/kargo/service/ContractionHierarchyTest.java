@@ -0,0 +1,110 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContractionHierarchyTest {
+
+    @Test
+    void queryMatchesDijkstraOnRandomGraph() {
+        RoadGraph g = RandomRoads.city(25, 7);
+        ContractionHierarchy ch = ContractionHierarchy.build(g, 500, 60_000);
+        assertNotNull(ch);
+
+        Random rnd = new Random(42);
+        int n = g.nodeCount();
+        for (int q = 0; q < 1_000; q++) {
+            int s = rnd.nextInt(n);
+            int t = rnd.nextInt(n);
+            PathResult expected = PathFinder.dijkstra(g, s, t);
+            PathResult actual = ch.query(g, s, t);
+            String label = s + " -> " + t;
+
+            assertEquals(expected.isReachable(), actual.isReachable(), label);
+            if (!expected.isReachable()) continue;
+            // mesafeler yol üzerinden aynı sırayla toplandığı için bit bit aynı olmalı
+            assertEquals(expected.distance, actual.distance, label);
+            assertArrayEquals(expected.path, actual.path, label);
+        }
+    }
+
+    @Test
+    void unpackedPathUsesOnlyOriginalEdges() {
+        RoadGraph g = RandomRoads.city(15, 11);
+        ContractionHierarchy ch = ContractionHierarchy.build(g, 500, 60_000);
+        assertNotNull(ch);
+        assertTrue(ch.shortcutCount > 0);
+
+        Random rnd = new Random(3);
+        int n = g.nodeCount();
+        for (int q = 0; q < 300; q++) {
+            int s = rnd.nextInt(n);
+            int t = rnd.nextInt(n);
+            PathResult r = ch.query(g, s, t);
+            if (!r.isReachable()) continue;
+            assertEquals(s, r.path[0]);
+            assertEquals(t, r.path[r.path.length - 1]);
+            for (int i = 0; i + 1 < r.path.length; i++) {
+                assertTrue(PathFinder.edgeWeight(g, r.path[i], r.path[i + 1]) != Double.MAX_VALUE,
+                        "kenar yok: " + r.path[i] + " -> " + r.path[i + 1]);
+            }
+        }
+    }
+
+    @Test
+    void sameNodeAndDisconnectedPieces() {
+        RoadGraph g = RandomRoads.city(6, 5);
+        ContractionHierarchy ch = ContractionHierarchy.build(g, 500, 60_000);
+        int n = g.nodeCount();
+
+        PathResult self = ch.query(g, 3, 3);
+        assertEquals(0.0, self.distance);
+        assertArrayEquals(new int[]{3}, self.path);
+
+        // son iki node ana ağdan kopuk parça
+        assertFalse(ch.query(g, 0, n - 1).isReachable());
+        assertEquals(PathFinder.dijkstra(g, n - 2, n - 1).distance, ch.query(g, n - 2, n - 1).distance);
+    }
+
+    @Test
+    void concurrentQueriesShareStatePool() throws Exception {
+        RoadGraph g = RandomRoads.city(15, 17);
+        ContractionHierarchy ch = ContractionHierarchy.build(g, 500, 60_000);
+        int n = g.nodeCount();
+        int queries = 300;
+        double[] expected = new double[queries];
+        for (int q = 0; q < queries; q++) expected[q] = PathFinder.dijkstra(g, (q * 37) % n, (q * 11 + 3) % n).distance;
+
+        int threads = 2 * Runtime.getRuntime().availableProcessors() + 4;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int q = 0; q < queries; q++) {
+                    assertEquals(expected[q], ch.query(g, (q * 37) % n, (q * 11 + 3) % n).distance);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+    }
+
+    @Test
+    void buildGivesUpAfterDeadline() {
+        assertNull(ContractionHierarchy.build(RandomRoads.city(40, 1), 500, -1));
+    }
+}
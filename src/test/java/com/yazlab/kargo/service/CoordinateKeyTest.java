@@ -0,0 +1,85 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoordinateKeyTest {
+
+    /** String.format("%.6f") yazımından beklenen kuantum; "-0.000000" ayrı değerdir. */
+    private static int formatted(double v) {
+        String s = String.format(Locale.ROOT, "%.6f", v);
+        if (s.equals("-0.000000")) return Integer.MIN_VALUE;
+        return Integer.parseInt(s.replace(".", ""));
+    }
+
+    private static void check(double v) {
+        assertEquals(formatted(v), CoordinateKey.quantize(v), "değer " + v);
+    }
+
+    @Test
+    void quantizeMatchesFormatOnRandomCoordinates() {
+        Random rnd = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            check(-180 + rnd.nextDouble() * 360);
+            // GeoJSON'daki gibi 7 basamaklı değerler: yuvarlamada son basamak 5 olabilir
+            check(Math.round((-90 + rnd.nextDouble() * 180) * 1e7) / 1e7);
+        }
+    }
+
+    @Test
+    void quantizeMatchesFormatAroundHalfwayPoints() {
+        Random rnd = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long k = rnd.nextInt(360_000_000) - 180_000_000L;
+            double tie = (2 * k + 1) / 2e6;
+            check(tie);
+            check(Math.nextUp(tie));
+            check(Math.nextDown(tie));
+            check(k / 1e6);
+        }
+    }
+
+    @Test
+    void quantizeBoundaryValues() {
+        double[] values = {
+                0.0, -0.0, 1e-9, -1e-9, 4.9e-7, -4.9e-7, 5e-7, -5e-7, 5.0000001e-7, -5.0000001e-7,
+                0.0000005, 0.0000015, 0.0000025, -0.0000025, 1.0000005, -1.0000005,
+                40.8222445, 29.9215655, -73.9857505, 89.9999995, -89.9999995, 179.9999995, -179.9999995,
+                180.0, -180.0, 1999.9999994, -1999.9999994, 1999.9999996, Double.MIN_VALUE, -Double.MIN_VALUE,
+        };
+        for (double v : values) check(v);
+
+        // eksi sıfıra yuvarlanan değerler artı sıfırla aynı anahtarı almaz (eski String anahtar gibi)
+        assertTrue(CoordinateKey.pack(40.8, -1e-9) != CoordinateKey.pack(40.8, 1e-9));
+        assertEquals(CoordinateKey.pack(40.8, -1e-9), CoordinateKey.pack(40.8, -0.0));
+        assertEquals(CoordinateKey.pack(40.8222441, 29.9215649), CoordinateKey.pack(40.8222444, 29.9215651));
+    }
+
+    @Test
+    void packedKeysEqualExactlyWhenStringKeysEqual() {
+        Random rnd = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            double lat = Math.round((40.7 + rnd.nextDouble() * 0.2) * 1e7) / 1e7;
+            double lon = Math.round((29.8 + rnd.nextDouble() * 0.3) * 1e7) / 1e7;
+            double lat2 = rnd.nextBoolean() ? lat : lat + (rnd.nextInt(3) - 1) * 1e-7;
+            double lon2 = rnd.nextBoolean() ? lon : lon + (rnd.nextInt(3) - 1) * 1e-7;
+            boolean sameString = String.format("%.6f,%.6f", lat, lon).equals(String.format("%.6f,%.6f", lat2, lon2));
+            assertEquals(sameString, CoordinateKey.pack(lat, lon) == CoordinateKey.pack(lat2, lon2), lat + "," + lon);
+        }
+    }
+
+    @Test
+    void fitsRejectsOutOfRangeValues() {
+        assertTrue(CoordinateKey.fits(40.8, 29.9));
+        assertTrue(CoordinateKey.fits(-1999.9, 1999.9));
+        assertFalse(CoordinateKey.fits(2000.0, 0));
+        assertFalse(CoordinateKey.fits(0, Double.NaN));
+        assertFalse(CoordinateKey.fits(0, Double.POSITIVE_INFINITY));
+    }
+}
@@ -0,0 +1,70 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DijkstraToManyTest {
+
+    private static void assertMatchesDijkstra(RoadGraph g, int source, int[] targets) {
+        double[] out = new double[targets.length];
+        int[][] paths = new int[targets.length][];
+        PathFinder.dijkstraToMany(g, source, targets, out, paths);
+
+        double[] withoutPaths = new double[targets.length];
+        PathFinder.dijkstraToMany(g, source, targets, withoutPaths);
+
+        for (int i = 0; i < targets.length; i++) {
+            PathResult expected = PathFinder.dijkstra(g, source, targets[i]);
+            String label = source + " -> " + targets[i] + " (" + i + ")";
+            // bit bit aynı: assertEquals(double, double) deltasız karşılaştırır
+            assertEquals(expected.distance, out[i], label);
+            assertEquals(expected.distance, withoutPaths[i], label);
+            if (expected.isReachable()) assertArrayEquals(expected.path, paths[i], label);
+            else assertNull(paths[i], label);
+        }
+    }
+
+    @Test
+    void matchesDijkstraForRandomTargetSets() {
+        RoadGraph g = RandomRoads.city(20, 13);
+        int n = g.nodeCount();
+        Random rnd = new Random(42);
+
+        for (int q = 0; q < 200; q++) {
+            int source = rnd.nextInt(n);
+            int[] targets = new int[1 + rnd.nextInt(30)];
+            for (int i = 0; i < targets.length; i++) {
+                int r = rnd.nextInt(10);
+                if (r == 0) targets[i] = source;
+                else if (r == 1) targets[i] = n - 1 - rnd.nextInt(2); // kopuk parça
+                else if (r == 2 && i > 0) targets[i] = targets[rnd.nextInt(i)]; // tekrar
+                else targets[i] = rnd.nextInt(n);
+            }
+            assertMatchesDijkstra(g, source, targets);
+        }
+    }
+
+    @Test
+    void edgeCases() {
+        RoadGraph g = RandomRoads.city(8, 2);
+        int n = g.nodeCount();
+
+        // sadece kaynak, birkaç kez
+        assertMatchesDijkstra(g, 5, new int[]{5, 5, 5});
+        // hepsi ulaşılamaz: arama tüm bileşeni gezip biter
+        assertMatchesDijkstra(g, 0, new int[]{n - 1, n - 2, n - 1});
+        // kopuk parçanın içinden
+        assertMatchesDijkstra(g, n - 1, new int[]{n - 2, 0, n - 1});
+        // boş hedef listesi
+        assertEquals(0, PathFinder.dijkstraToMany(g, 3, new int[0], new double[0]));
+
+        // ardışık çağrılar önceki aramanın işaretlerinden etkilenmez
+        assertMatchesDijkstra(g, 1, new int[]{2, 3, 2});
+        assertMatchesDijkstra(g, 1, new int[]{40, 3});
+    }
+}
@@ -0,0 +1,146 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistanceCacheTest {
+
+    /** Çifte bağlı sabit mesafe; eşzamanlı testte okunan değerin doğruluğu buradan kontrol edilir. */
+    private static double distanceOf(int a, int b) {
+        int lo = Math.min(a, b), hi = Math.max(a, b);
+        return lo * 1e-3 + hi * 1e-7;
+    }
+
+    /** DistanceCache'teki segment seçiminin aynısı. */
+    private static int segmentOf(int a, int b) {
+        long key = ((long) Math.min(a, b) << 32) | (Math.max(a, b) & 0xffffffffL);
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return (int) (h >>> 60) & 15;
+    }
+
+    /** Bilinen anahtarlardan kaçının hâlâ bulunduğu; get kaydı referanslı yapar. */
+    private static int findable(DistanceCache cache, List<int[]> pairs, Map<Long, Double> expected) {
+        int found = 0;
+        for (int[] p : pairs) {
+            double d = cache.get(p[0], p[1]);
+            if (Double.isNaN(d)) continue;
+            assertEquals((double) expected.get(((long) p[0] << 32) | p[1]), d, p[0] + "-" + p[1]);
+            found++;
+        }
+        return found;
+    }
+
+    @Test
+    void staysWithinCapacityAndKeepsSurvivorsFindable() {
+        DistanceCache cache = new DistanceCache(256);
+        Random rnd = new Random(42);
+        List<int[]> pairs = new ArrayList<>();
+        Map<Long, Double> expected = new HashMap<>();
+
+        long puts = 0;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 500; i++) {
+                int a = rnd.nextInt(2_000), b = rnd.nextInt(2_000);
+                int lo = Math.min(a, b), hi = Math.max(a, b);
+                long k = ((long) lo << 32) | hi;
+                double d = rnd.nextDouble() * 50;
+                if (!expected.containsKey(k)) {
+                    pairs.add(new int[]{lo, hi});
+                    puts++;
+                }
+                expected.put(k, d);
+                // ters sırayla da yazılır: aynı kayıt
+                if (rnd.nextBoolean()) cache.put(a, b, d);
+                else cache.put(b, a, d);
+
+                // bazı kayıtlar okunup referanslı olsun
+                if (rnd.nextInt(3) == 0) {
+                    int[] p = pairs.get(rnd.nextInt(pairs.size()));
+                    cache.get(p[1], p[0]);
+                }
+            }
+            assertTrue(cache.size() <= cache.maxEntries());
+            // geri kaydırmalı silmeler yoklama zincirini bozmamışsa tablodaki her kayıt bulunur
+            assertEquals(cache.size(), findable(cache, pairs, expected), "tur " + round);
+        }
+        assertEquals(cache.maxEntries(), cache.size());
+        // tahliye edilip yeniden yazılan çiftler de sayıldığı için en az bu kadar
+        assertTrue(cache.evictions() >= puts - cache.size());
+    }
+
+    @Test
+    void referencedEntryGetsSecondChance() {
+        DistanceCache cache = new DistanceCache(64); // segment başına 4 kayıt
+        List<int[]> same = new ArrayList<>();
+        for (int b = 1; same.size() < 5; b++) {
+            if (segmentOf(0, b) == 3) same.add(new int[]{0, b});
+        }
+        for (int i = 0; i < 4; i++) cache.put(0, same.get(i)[1], distanceOf(0, same.get(i)[1]));
+        assertEquals(distanceOf(0, same.get(0)[1]), cache.get(same.get(0)[1], 0));
+
+        cache.put(0, same.get(4)[1], distanceOf(0, same.get(4)[1]));
+        assertEquals(1, cache.evictions());
+        assertEquals(4, cache.size());
+        assertFalse(Double.isNaN(cache.get(0, same.get(0)[1])));
+        assertFalse(Double.isNaN(cache.get(0, same.get(4)[1])));
+        int missing = 0;
+        for (int i = 1; i < 4; i++) if (Double.isNaN(cache.get(0, same.get(i)[1]))) missing++;
+        assertEquals(1, missing);
+    }
+
+    @Test
+    void concurrentPutAndGetAcrossSegments() throws Exception {
+        for (int maxEntries : new int[]{512, 1 << 16}) {
+            DistanceCache cache = new DistanceCache(maxEntries);
+            int threads = 8;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                results.add(pool.submit(() -> {
+                    Random rnd = new Random(seed);
+                    int hits = 0;
+                    for (int i = 0; i < 50_000; i++) {
+                        int a = rnd.nextInt(150), b = rnd.nextInt(150);
+                        if (rnd.nextBoolean()) {
+                            cache.put(a, b, distanceOf(a, b));
+                        } else {
+                            double d = cache.get(b, a);
+                            if (Double.isNaN(d)) continue;
+                            if (d != distanceOf(a, b)) throw new AssertionError("yanlış değer " + a + "-" + b + ": " + d);
+                            hits++;
+                        }
+                    }
+                    return hits;
+                }));
+            }
+            for (Future<Integer> f : results) f.get();
+            pool.shutdown();
+
+            assertTrue(cache.size() <= cache.maxEntries());
+            if (maxEntries > 150 * 150) {
+                // sığıyorsa tahliye yok; bulunan her çiftin değeri doğru
+                assertEquals(0, cache.evictions());
+                for (int a = 0; a < 150; a++) {
+                    for (int b = a; b < 150; b++) {
+                        double d = cache.get(a, b);
+                        assertTrue(Double.isNaN(d) || d == distanceOf(a, b));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.yazlab.kargo.service;
+
+/** Başka paketlerdeki testler için: yol ağı kurmadan elle verilen mesafelerle matris. */
+public final class DistanceMatrices {
+
+    private DistanceMatrices() {
+    }
+
+    /** ids artan sırada, ids[0] = 0 (hub); km satır düzeninde ids.length * ids.length. */
+    public static DistanceMatrix of(long[] ids, double[] lat, double[] lon, double[] km) {
+        return new DistanceMatrix(ids, lat, lon, km, 0L, 1L);
+    }
+}
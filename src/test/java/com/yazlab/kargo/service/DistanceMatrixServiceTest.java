@@ -0,0 +1,199 @@
+package com.yazlab.kargo.service;
+
+import com.yazlab.kargo.entity.Station;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistanceMatrixServiceTest {
+
+    private static final double EPS = 1e-9;
+    private static final long UNSNAPPABLE_ID = 500;
+    private static final long DETACHED_ID = 501;
+
+    private static DistanceMatrixService matrixService(RouteService routeService) {
+        DistanceMatrixService service = new DistanceMatrixService();
+        ReflectionTestUtils.setField(service, "routeService", routeService);
+        // tek çekirdekte de satırlar havuzda paralel kurulsun
+        ReflectionTestUtils.setField(service, "parallelism", 3);
+        service.init();
+        return service;
+    }
+
+    private static Station station(long id, double lat, double lon) {
+        Station s = new Station();
+        s.setId(id);
+        s.setName("S" + id);
+        s.setLatitude(lat);
+        s.setLongitude(lon);
+        return s;
+    }
+
+    /**
+     * Izgaradaki node'ların yakınında istasyonlar, karışık sırada; aynı id iki kez, id'siz ve id'si 0 olan kayıt,
+     * kopuk parçanın yanında bir istasyon ve kayıtlı snap'i "node yok" olan bir istasyon.
+     */
+    private static List<Station> stations(RoadGraph g, long snapKey, Random rnd) {
+        List<Station> list = new ArrayList<>();
+        int mainNodes = g.nodeCount() - 2;
+        for (int i = 0; i < 30; i++) {
+            int node = rnd.nextInt(mainNodes);
+            list.add(station(3L * (i + 1) + rnd.nextInt(3),
+                    g.lat[node] + (rnd.nextDouble() - 0.5) * 0.0004, g.lon[node] + (rnd.nextDouble() - 0.5) * 0.0004));
+        }
+        Station first = list.get(7);
+        list.add(station(first.getId(), first.getLatitude(), first.getLongitude()));
+        list.add(station(0, 40.71, 29.81));
+        Station noId = station(0, 40.72, 29.82);
+        noId.setId(null);
+        list.add(noId);
+        list.add(station(DETACHED_ID, 40.5004, 29.5006));
+
+        Station unsnappable = station(UNSNAPPABLE_ID, 40.715, 29.815);
+        unsnappable.setSnapGraph(snapKey);
+        unsnappable.setSnapNode(null);
+        list.add(unsnappable);
+
+        Collections.shuffle(list, rnd);
+        return list;
+    }
+
+    /** Matris sırasıyla koordinatlar: 0 hub, sonra id'ye göre istasyonlar (aynı id'de ilk kayıt). */
+    private static double[][] coordinates(DistanceMatrix m, double hubLat, double hubLon, List<Station> stations) {
+        double[] lat = new double[m.size()];
+        double[] lon = new double[m.size()];
+        lat[0] = hubLat;
+        lon[0] = hubLon;
+        for (int i = 1; i < m.size(); i++) {
+            for (Station s : stations) {
+                if (s.getId() != null && s.getId() == m.idAt(i)) {
+                    lat[i] = s.getLatitude();
+                    lon[i] = s.getLongitude();
+                    break;
+                }
+            }
+        }
+        return new double[][]{lat, lon};
+    }
+
+    /** Matrisin her hücresi aynı graf üzerinde ayrı bir servisle ikili aramayla hesaplanan mesafeye eşit. */
+    private static void assertMatchesPairwise(DistanceMatrix m, RoadGraph g, double hubLat, double hubLon,
+                                              List<Station> stations) {
+        RouteService reference = RandomRoads.routeService(RandomRoads.network(g, 99));
+
+        List<Long> expectedIds = new ArrayList<>();
+        for (Station s : stations) {
+            if (s.getId() != null && s.getId() != 0 && !expectedIds.contains(s.getId())) expectedIds.add(s.getId());
+        }
+        Collections.sort(expectedIds);
+        assertEquals(expectedIds.size() + 1, m.size());
+        assertEquals(0L, m.idAt(0));
+        for (int i = 0; i < expectedIds.size(); i++) {
+            assertEquals(expectedIds.get(i).longValue(), m.idAt(i + 1));
+            assertEquals(i + 1, m.indexOf(expectedIds.get(i)));
+        }
+
+        double[][] c = coordinates(m, hubLat, hubLon, stations);
+        double[] lat = c[0];
+        double[] lon = c[1];
+        int n = m.size();
+        int unsnappable = m.indexOf(UNSNAPPABLE_ID);
+        int detached = m.indexOf(DETACHED_ID);
+        for (int i = 0; i < n; i++) {
+            assertEquals(0.0, m.distanceAt(i, i));
+            for (int j = 0; j < n; j++) {
+                if (i == j) continue;
+                double expected = (i == unsnappable || j == unsnappable)
+                        ? GeoGrid.haversine(lat[i], lon[i], lat[j], lon[j])
+                        : reference.getRealRoadDistance(lat[i], lon[i], lat[j], lon[j]);
+                assertEquals(expected, m.distanceAt(i, j), EPS, "hücre " + i + "," + j);
+                assertEquals(m.distanceAt(i, j), m.distanceAt(j, i), "hücre " + i + "," + j);
+                if (i == detached || j == detached) {
+                    // farklı bileşen: kuş uçuşu
+                    assertEquals(GeoGrid.haversine(lat[i], lon[i], lat[j], lon[j]), m.distanceAt(i, j), EPS);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matrixMatchesPairwiseRoadDistances() {
+        RoadGraph g = RandomRoads.city(12, 42);
+        RoadNetwork net = RandomRoads.network(g, 1);
+        DistanceMatrixService service = matrixService(RandomRoads.routeService(net));
+        try {
+            Random rnd = new Random(42);
+            List<Station> stations = stations(g, net.snapKey, rnd);
+            double hubLat = g.lat[5] + 0.0001;
+            double hubLon = g.lon[5] - 0.0001;
+
+            DistanceMatrix m = service.getMatrix(hubLat, hubLon, stations);
+            assertEquals(1L, m.getNetworkVersion());
+            assertMatchesPairwise(m, g, hubLat, hubLon, stations);
+
+            // aynı girdi başka sırada: aynı matris
+            Collections.shuffle(stations, rnd);
+            assertSame(m, service.getMatrix(hubLat, hubLon, stations));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void rebuildsWhenNetworkVersionChanges() {
+        RoadGraph g1 = RandomRoads.city(12, 42);
+        RoadNetwork net1 = RandomRoads.network(g1, 1);
+        RouteService routeService = RandomRoads.routeService(net1);
+        DistanceMatrixService service = matrixService(routeService);
+        try {
+            List<Station> stations = stations(g1, net1.snapKey, new Random(7));
+            double hubLat = g1.lat[0];
+            double hubLon = g1.lon[0];
+            DistanceMatrix first = service.getMatrix(hubLat, hubLon, stations);
+
+            // aynı koordinatlarda farklı sokaklar: yeni sürüm yeniden kurulmalı
+            RoadGraph g2 = RandomRoads.city(12, 43);
+            ReflectionTestUtils.setField(routeService, "network", RandomRoads.network(g2, 2));
+            DistanceMatrix second = service.getMatrix(hubLat, hubLon, stations);
+            assertNotSame(first, second);
+            assertEquals(2L, second.getNetworkVersion());
+
+            // kayıtlı snap eski grafa ait: yeni grafta istasyon yeniden snap edilir, kuş uçuşuna düşmez
+            double[][] c = coordinates(second, hubLat, hubLon, stations);
+            double[] lat = c[0];
+            double[] lon = c[1];
+            int u = second.indexOf(UNSNAPPABLE_ID);
+            RouteService pairwise = RandomRoads.routeService(RandomRoads.network(g2, 99));
+            boolean differs = false;
+            for (int j = 0; j < second.size(); j++) {
+                if (j == u) continue;
+                double expected = pairwise.getRealRoadDistance(lat[u], lon[u], lat[j], lon[j]);
+                assertEquals(expected, second.distanceAt(u, j), EPS, "sütun " + j);
+                for (int i = 0; i < second.size(); i++) {
+                    if (Math.abs(first.distanceAt(i, j) - second.distanceAt(i, j)) > EPS) differs = true;
+                }
+            }
+            assertTrue(differs);
+
+            // aynı sürümde tekrar: önceki matris; invalidate sonrası yeniden kurulur
+            assertSame(second, service.getMatrix(hubLat, hubLon, stations));
+            service.invalidate();
+            DistanceMatrix fourth = service.getMatrix(hubLat, hubLon, stations);
+            assertNotSame(second, fourth);
+            for (int i = 0; i < fourth.size(); i++) {
+                for (int j = 0; j < fourth.size(); j++) assertEquals(second.distanceAt(i, j), fourth.distanceAt(i, j));
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeoGridTest {
+
+    private static int bruteForceNearest(double[] lat, double[] lon, double qLat, double qLon) {
+        int best = -1;
+        double minDist = Double.MAX_VALUE;
+        for (int i = 0; i < lat.length; i++) {
+            double d = GeoGrid.haversine(qLat, qLon, lat[i], lon[i]);
+            if (d < minDist) {
+                minDist = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void nearestMatchesBruteForceOnRandomPoints() {
+        Random rnd = new Random(42);
+        int n = 10_000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && rnd.nextInt(20) == 0) {
+                // aynı koordinatta birden fazla node: eşitlikte küçük index kazanmalı
+                int j = rnd.nextInt(i);
+                lat[i] = lat[j];
+                lon[i] = lon[j];
+            } else {
+                lat[i] = 40.70 + rnd.nextDouble() * 0.20;
+                lon[i] = 29.80 + rnd.nextDouble() * 0.35;
+            }
+        }
+        GeoGrid grid = GeoGrid.build(lat, lon);
+
+        for (int q = 0; q < 2_000; q++) {
+            // bir kısmı ağın dışında kalsın
+            double qLat = 40.60 + rnd.nextDouble() * 0.40;
+            double qLon = 29.70 + rnd.nextDouble() * 0.55;
+            assertEquals(bruteForceNearest(lat, lon, qLat, qLon), grid.nearest(qLat, qLon), "sorgu " + q);
+        }
+
+        for (int q = 0; q < 500; q++) {
+            int i = rnd.nextInt(n);
+            assertEquals(bruteForceNearest(lat, lon, lat[i], lon[i]), grid.nearest(lat[i], lon[i]), "node " + i);
+        }
+    }
+
+    @Test
+    void nearestHandlesTinyAndEmptyInputs() {
+        assertEquals(-1, GeoGrid.build(new double[0], new double[0]).nearest(40.8, 29.9));
+
+        double[] lat = {40.8222, 40.7654};
+        double[] lon = {29.9215, 29.9408};
+        GeoGrid grid = GeoGrid.build(lat, lon);
+        assertEquals(0, grid.nearest(40.82224624200172, 29.92156586537241));
+        assertEquals(1, grid.nearest(40.70, 29.95));
+        assertEquals(bruteForceNearest(lat, lon, 0.0, 0.0), grid.nearest(0.0, 0.0));
+    }
+}
@@ -0,0 +1,281 @@
+package com.yazlab.kargo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeoJsonRoadReaderTest {
+
+    @TempDir
+    Path dir;
+
+    /** Okuyucunun ya da referansın seçtiği çizgiler ve filtre sayaçları. */
+    private static final class Result {
+        final List<double[]> lines = new ArrayList<>();
+        final List<Long> excluded = new ArrayList<>();
+        long features;
+
+        void line(double[] lonLat, int start, int pointCount) {
+            double[] copy = new double[2 * pointCount];
+            System.arraycopy(lonLat, 2 * start, copy, 0, copy.length);
+            lines.add(copy);
+        }
+    }
+
+    private static Result stream(File file, String types, String filters) throws IOException {
+        RoadFeatureFilter filter = RoadFeatureFilter.parse(types, filters);
+        Result r = new Result();
+        r.features = GeoJsonRoadReader.read(file, filter, r::line);
+        for (int i = 0; i < filter.ruleCount(); i++) {
+            r.excluded.add(filter.excludedFeatures(i));
+            r.excluded.add(filter.excludedPoints(i));
+        }
+        return r;
+    }
+
+    /**
+     * user-006 öncesi readTree'li yükleyicinin seçimi; filtre aynı kurallarla ağaç üzerinden uygulanır
+     * (sadece skaler property değerleri, null değer alan yok sayılır).
+     */
+    private static Result tree(File file, String types, String filters) throws IOException {
+        RoadFeatureFilter filter = RoadFeatureFilter.parse(types, filters);
+        Result r = new Result();
+        JsonNode root = new ObjectMapper().readTree(file);
+        JsonNode features = root.path("features");
+        if (features.isMissingNode()) {
+            r.features = -1;
+            return r;
+        }
+
+        for (JsonNode feature : features) {
+            r.features++;
+            JsonNode geometry = feature.path("geometry");
+            String type = geometry.path("type").asText();
+            JsonNode coordinates = geometry.path("coordinates");
+
+            Map<String, String> properties = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = feature.path("properties").fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                if (e.getValue().isValueNode() && !e.getValue().isNull()) properties.put(e.getKey(), e.getValue().asText());
+            }
+
+            List<JsonNode> selected = new ArrayList<>();
+            if ("LineString".equalsIgnoreCase(type)) {
+                selected.add(coordinates);
+            } else if ("Polygon".equalsIgnoreCase(type)) {
+                if (coordinates.size() > 0) selected.add(coordinates.get(0));
+            } else if ("MultiPolygon".equalsIgnoreCase(type)) {
+                for (JsonNode poly : coordinates) {
+                    if (poly.size() > 0) selected.add(poly.get(0));
+                }
+            }
+
+            int rule = filter.reject(type.isEmpty() ? null : type, properties);
+            int points = 0;
+            for (JsonNode line : selected) {
+                if (line.size() == 0) continue;
+                points += line.size();
+                if (rule >= 0) continue;
+                double[] lonLat = new double[2 * line.size()];
+                for (int i = 0; i < line.size(); i++) {
+                    lonLat[2 * i] = line.get(i).get(0).asDouble();
+                    lonLat[2 * i + 1] = line.get(i).get(1).asDouble();
+                }
+                r.line(lonLat, 0, line.size());
+            }
+            if (rule >= 0) filter.excluded(rule, points);
+        }
+        for (int i = 0; i < filter.ruleCount(); i++) {
+            r.excluded.add(filter.excludedFeatures(i));
+            r.excluded.add(filter.excludedPoints(i));
+        }
+        return r;
+    }
+
+    private static void assertSameSelection(Result expected, Result actual) {
+        assertEquals(expected.features, actual.features);
+        assertEquals(expected.excluded, actual.excluded);
+        assertEquals(expected.lines.size(), actual.lines.size());
+        for (int i = 0; i < expected.lines.size(); i++) {
+            assertArrayEquals(expected.lines.get(i), actual.lines.get(i), "çizgi " + i);
+        }
+    }
+
+    private File write(String json) throws IOException {
+        File f = dir.resolve("roads.geojson").toFile();
+        Files.writeString(f.toPath(), json);
+        return f;
+    }
+
+    @Test
+    void handWrittenCollectionMatchesTreeRead() throws IOException {
+        String json = "{\"type\": \"FeatureCollection\", \"name\": \"test\", \"features\": ["
+                // alanlar ters sırada, yükseklikli koordinat
+                + "{\"properties\": {\"highway\": \"primary\"}, \"geometry\": {\"coordinates\": [[29.90, 40.80, 12.5], [29.91, 40.81, 13]], \"type\": \"LineString\"}, \"type\": \"Feature\"},"
+                // properties hiç yok
+                + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[29.92, 40.82], [29.93, 40.83], [29.94, 40.84]]}},"
+                // properties null, iç içe property
+                + "{\"type\": \"Feature\", \"properties\": null, \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[29.1, 40.1], [29.2, 40.1], [29.2, 40.2], [29.1, 40.1]], [[29.15, 40.15], [29.16, 40.15], [29.15, 40.15]]]}},"
+                + "{\"type\": \"Feature\", \"properties\": {\"tags\": {\"highway\": \"footway\"}, \"building\": \"yes\"}, \"geometry\": {\"type\": \"MultiPolygon\", \"coordinates\": [[[[29.3, 40.3], [29.4, 40.3], [29.3, 40.3]]], [[[29.5, 40.5], [29.6, 40.5], [29.5, 40.5]], [[29.55, 40.55], [29.56, 40.55], [29.55, 40.55]]]]}},"
+                // desteklenmeyen geometriler
+                + "{\"type\": \"Feature\", \"properties\": {\"highway\": \"primary\"}, \"geometry\": {\"type\": \"MultiLineString\", \"coordinates\": [[[29.7, 40.7], [29.71, 40.71]], [[29.72, 40.72], [29.73, 40.73]]]}},"
+                + "{\"type\": \"Feature\", \"properties\": {}, \"geometry\": {\"type\": \"Point\", \"coordinates\": [29.8, 40.8]}},"
+                + "{\"type\": \"Feature\", \"properties\": {\"highway\": \"steps\"}, \"geometry\": null},"
+                + "{\"type\": \"Feature\", \"properties\": {\"highway\": \"footway\", \"lit\": true}, \"geometry\": {\"type\": \"linestring\", \"coordinates\": [[29.0, 40.0], [29.01, 40.01]]}},"
+                + "{\"type\": \"Feature\", \"properties\": {\"highway\": null}, \"geometry\": {\"type\": \"GeometryCollection\", \"geometries\": []}}"
+                + "], \"crs\": {\"type\": \"name\"}}";
+        File f = write(json);
+
+        String[][] configs = {
+                {"", ""},
+                {"", "highway!=footway|steps"},
+                {"", "highway"},
+                {"", "!building,highway=primary|secondary"},
+                {"LineString,MultiLineString", ""},
+                {"Polygon", "!lit"},
+        };
+        for (String[] c : configs) {
+            Result expected = tree(f, c[0], c[1]);
+            Result actual = stream(f, c[0], c[1]);
+            assertSameSelection(expected, actual);
+        }
+
+        // varsayılan ayarla: iki LineString, Polygon'un ve MultiPolygon'daki iki poligonun ilk halkası,
+        // küçük harfli linestring
+        Result all = stream(f, "", "");
+        assertEquals(9, all.features);
+        assertEquals(6, all.lines.size());
+        assertArrayEquals(new double[]{29.90, 40.80, 29.91, 40.81}, all.lines.get(0));
+    }
+
+    @Test
+    void randomCollectionsMatchTreeRead() throws IOException {
+        String[] types = {"LineString", "Polygon", "MultiPolygon", "MultiLineString", "Point", "MultiPoint"};
+        String[] highways = {"primary", "secondary", "footway", "steps", "residential"};
+        Random rnd = new Random(42);
+
+        for (int round = 0; round < 20; round++) {
+            StringBuilder sb = new StringBuilder("{\"type\": \"FeatureCollection\", \"features\": [");
+            int count = 1 + rnd.nextInt(60);
+            for (int i = 0; i < count; i++) {
+                if (i > 0) sb.append(',');
+                String type = types[rnd.nextInt(types.length)];
+                sb.append("{\"type\": \"Feature\"");
+                if (rnd.nextInt(4) > 0) {
+                    sb.append(", \"properties\": {");
+                    boolean first = true;
+                    if (rnd.nextBoolean()) {
+                        sb.append("\"highway\": \"").append(highways[rnd.nextInt(highways.length)]).append('"');
+                        first = false;
+                    }
+                    if (rnd.nextInt(3) == 0) {
+                        sb.append(first ? "" : ", ").append("\"building\": \"yes\"");
+                    }
+                    sb.append('}');
+                }
+                sb.append(", \"geometry\": {\"type\": \"").append(type).append("\", \"coordinates\": ");
+                appendCoordinates(sb, rnd, type);
+                sb.append("}}");
+            }
+            sb.append("]}");
+            File f = write(sb.toString());
+
+            for (String filters : new String[]{"", "highway!=footway|steps", "highway=primary|secondary,!building"}) {
+                assertSameSelection(tree(f, "", filters), stream(f, "", filters));
+            }
+        }
+    }
+
+    @Test
+    void excludedLinesReachSinkWithTheirRule() throws IOException {
+        File f = write("{\"features\": ["
+                + "{\"properties\": {\"highway\": \"footway\"}, \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[29.1, 40.1], [29.2, 40.2]]}},"
+                + "{\"properties\": {\"building\": \"yes\"}, \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[29.3, 40.3], [29.4, 40.3], [29.3, 40.3]]]}},"
+                + "{\"properties\": {}, \"geometry\": {\"type\": \"MultiLineString\", \"coordinates\": [[[29.5, 40.5], [29.6, 40.6]]]}},"
+                + "{\"properties\": {\"highway\": \"primary\"}, \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[29.7, 40.7], [29.8, 40.8]]}}"
+                + "]}");
+        RoadFeatureFilter filter = RoadFeatureFilter.parse("", "highway!=footway,!building");
+        List<String> excluded = new ArrayList<>();
+        List<double[]> kept = new ArrayList<>();
+        GeoJsonRoadReader.read(f, filter, new GeoJsonRoadReader.LineSink() {
+            @Override
+            public void line(double[] lonLat, int start, int pointCount) {
+                kept.add(Arrays.copyOfRange(lonLat, 2 * start, 2 * (start + pointCount)));
+            }
+
+            @Override
+            public void excluded(int rule, double[] lonLat, int start, int pointCount) {
+                excluded.add(rule + ":" + lonLat[2 * start] + "/" + pointCount);
+            }
+        });
+
+        // MultiLineString geometri kuralına takılır ama seçilecek çizgisi olmadığı için sink'e bir şey gitmez
+        assertEquals(List.of("1:29.1/2", "2:29.3/3"), excluded);
+        assertEquals(1, kept.size());
+        assertArrayEquals(new double[]{29.7, 40.7, 29.8, 40.8}, kept.get(0));
+        assertEquals(1, filter.excludedFeatures(0));
+        assertEquals(0, filter.excludedPoints(0));
+    }
+
+    @Test
+    void missingFeaturesArray() throws IOException {
+        File f = write("{\"type\": \"FeatureCollection\", \"bbox\": [29.0, 40.0, 30.0, 41.0]}");
+        assertEquals(-1, tree(f, "", "").features);
+        assertEquals(-1, stream(f, "", "").features);
+    }
+
+    private static void appendCoordinates(StringBuilder sb, Random rnd, String type) {
+        switch (type) {
+            case "Point": appendPosition(sb, rnd); break;
+            case "LineString": case "MultiPoint": appendLine(sb, rnd); break;
+            case "Polygon": case "MultiLineString": appendLines(sb, rnd); break;
+            default:
+                sb.append('[');
+                for (int i = 0, n = 1 + rnd.nextInt(3); i < n; i++) {
+                    if (i > 0) sb.append(", ");
+                    appendLines(sb, rnd);
+                }
+                sb.append(']');
+        }
+    }
+
+    private static void appendLines(StringBuilder sb, Random rnd) {
+        sb.append('[');
+        for (int i = 0, n = 1 + rnd.nextInt(3); i < n; i++) {
+            if (i > 0) sb.append(", ");
+            appendLine(sb, rnd);
+        }
+        sb.append(']');
+    }
+
+    private static void appendLine(StringBuilder sb, Random rnd) {
+        sb.append('[');
+        for (int i = 0, n = 2 + rnd.nextInt(5); i < n; i++) {
+            if (i > 0) sb.append(", ");
+            appendPosition(sb, rnd);
+        }
+        sb.append(']');
+    }
+
+    private static void appendPosition(StringBuilder sb, Random rnd) {
+        sb.append('[').append(29.8 + rnd.nextDouble() * 0.3).append(", ").append(40.7 + rnd.nextDouble() * 0.2);
+        if (rnd.nextInt(5) == 0) sb.append(", ").append(rnd.nextInt(200));
+        sb.append(']');
+    }
+}
@@ -0,0 +1,120 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LandmarksTest {
+
+    private static final long IMPORT_KEY = 77L;
+    private static final int COUNT = 6;
+
+    @TempDir
+    Path dir;
+
+    private RoadGraph graph;
+    private Landmarks landmarks;
+    private File source;
+    private File file;
+
+    private void writeLandmarks() throws IOException {
+        graph = RandomRoads.city(18, 21);
+        landmarks = Landmarks.build(graph, RoadComponents.label(graph), COUNT);
+        source = dir.resolve("roads.geojson").toFile();
+        Files.writeString(source.toPath(), "{\"features\":[]}");
+        file = dir.resolve("roads.landmarks").toFile();
+        landmarks.write(file, source, IMPORT_KEY, graph);
+    }
+
+    private static void patchInt(File f, long pos, int value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(pos);
+            raf.writeInt(Integer.reverseBytes(value));
+        }
+    }
+
+    @Test
+    void queryMatchesDijkstra() throws IOException {
+        writeLandmarks();
+        assertEquals(COUNT, landmarks.nodes.length);
+
+        Random rnd = new Random(42);
+        int n = graph.nodeCount();
+        for (int q = 0; q < 1_000; q++) {
+            int s = rnd.nextInt(n);
+            int t = rnd.nextInt(n);
+            PathResult expected = PathFinder.dijkstra(graph, s, t);
+            PathResult actual = landmarks.query(graph, s, t);
+            String label = s + " -> " + t;
+            assertEquals(expected.isReachable(), actual.isReachable(), label);
+            if (!expected.isReachable()) continue;
+            assertEquals(expected.distance, actual.distance, label);
+            assertArrayEquals(expected.path, actual.path, label);
+            // alt sınır gerçek mesafeyi aşmaz
+            assertTrue(landmarks.lowerBound(s, t) <= expected.distance, label);
+        }
+    }
+
+    @Test
+    void roundTripKeepsTables() throws IOException {
+        writeLandmarks();
+        Landmarks read = Landmarks.read(file, source, IMPORT_KEY, graph, COUNT);
+        assertNotNull(read);
+        assertTrue(read.fromFile);
+        assertArrayEquals(landmarks.nodes, read.nodes);
+        for (int i = 0; i < COUNT; i++) assertArrayEquals(landmarks.dist[i], read.dist[i]);
+
+        int n = graph.nodeCount();
+        assertEquals(PathFinder.dijkstra(graph, 3, n / 2).distance, read.query(graph, 3, n / 2).distance);
+    }
+
+    @Test
+    void rejectsMismatchedHeader() throws IOException {
+        writeLandmarks();
+        assertNull(Landmarks.read(file, source, IMPORT_KEY + 1, graph, COUNT));
+        assertNull(Landmarks.read(file, source, IMPORT_KEY, graph, COUNT + 1));
+        assertNull(Landmarks.read(file, source, IMPORT_KEY, RandomRoads.city(18, 22), COUNT));
+
+        assertTrue(source.setLastModified(source.lastModified() - 60_000));
+        assertNull(Landmarks.read(file, source, IMPORT_KEY, graph, COUNT));
+
+        writeLandmarks();
+        Files.writeString(source.toPath(), "{\"features\": []}");
+        assertNull(Landmarks.read(file, source, IMPORT_KEY, graph, COUNT));
+
+        // başlık: magic(0) version(4) boy(8) zaman(16) filtre(24) n(32) m(36) k(40)
+        writeLandmarks();
+        patchInt(file, 36, graph.edgeCount() + 2);
+        assertNull(Landmarks.read(file, source, IMPORT_KEY, graph, COUNT));
+
+        writeLandmarks();
+        patchInt(file, 4, 99);
+        assertNull(Landmarks.read(file, source, IMPORT_KEY, graph, COUNT));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        writeLandmarks();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 8);
+        }
+        assertNull(Landmarks.read(file, source, IMPORT_KEY, graph, COUNT));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(20);
+        }
+        assertNull(Landmarks.read(file, source, IMPORT_KEY, graph, COUNT));
+    }
+}
@@ -0,0 +1,86 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LongIntHashMapTest {
+
+    /** LongIntHashMap'in slot hesabının aynısı; aynı başlangıç slot'una düşen anahtarları üretmek için. */
+    private static int slot(long key, int capacity) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (capacity - 1);
+    }
+
+    @Test
+    void matchesHashMapWhileGrowing() {
+        Random rnd = new Random(42);
+        LongIntHashMap map = new LongIntHashMap(1);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // dar aralık: aynı anahtara tekrar yazma da olsun
+            long key = rnd.nextInt(4) == 0 ? rnd.nextLong() : CoordinateKey.pack(40.7 + rnd.nextInt(300) * 1e-6, 29.8 + rnd.nextInt(300) * 1e-6);
+            int value = rnd.nextInt(Integer.MAX_VALUE);
+            map.put(key, value);
+            expected.put(key, value);
+            if ((i & 1023) == 0) assertEquals(expected.size(), map.size());
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) assertEquals((int) e.getValue(), map.get(e.getKey()));
+        Map<Long, Integer> visited = new HashMap<>();
+        map.forEach((key, value) -> assertNull(visited.put(key, value)));
+        assertEquals(expected, visited);
+        for (int i = 0; i < 10_000; i++) {
+            long key = rnd.nextLong();
+            if (!expected.containsKey(key)) assertEquals(-1, map.get(key));
+        }
+    }
+
+    @Test
+    void collidingKeysSurviveProbingAndGrowth() {
+        // expectedSize 16 -> 32 slot; hepsi 30. slot'tan başlayan 15 anahtar: yoklama dizinin sonundan başa sarar
+        // (15 * 2 < 32, büyüme yok)
+        int capacity = 32;
+        List<Long> colliding = new ArrayList<>();
+        for (long k = 1; colliding.size() < 40; k++) {
+            if (slot(k * 1_000_003L, capacity) == 30) colliding.add(k * 1_000_003L);
+        }
+
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (int i = 0; i < 15; i++) map.put(colliding.get(i), i);
+        for (int i = 0; i < 15; i++) assertEquals(i, map.get(colliding.get(i)));
+        assertEquals(-1, map.get(colliding.get(15)));
+
+        // değer güncelleme boyutu değiştirmez
+        map.put(colliding.get(7), 700);
+        assertEquals(15, map.size());
+        assertEquals(700, map.get(colliding.get(7)));
+
+        // büyüme sonrası zincirler yeniden dağılır
+        for (int i = 15; i < 40; i++) map.put(colliding.get(i), i);
+        assertEquals(40, map.size());
+        for (int i = 0; i < 40; i++) assertEquals(i == 7 ? 700 : i, map.get(colliding.get(i)));
+    }
+
+    @Test
+    void specialKeysAndValues() {
+        LongIntHashMap map = new LongIntHashMap(0);
+        long[] keys = {0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, CoordinateKey.pack(-0.0, -0.0)};
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(-1, map.get(keys[i]));
+            map.put(keys[i], i == 0 ? 0 : Integer.MAX_VALUE - i);
+        }
+        assertEquals(keys.length, map.size());
+        assertEquals(0, map.get(0L));
+        for (int i = 1; i < keys.length; i++) assertEquals(Integer.MAX_VALUE - i, map.get(keys[i]));
+    }
+}
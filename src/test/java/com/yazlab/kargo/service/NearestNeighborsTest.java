@@ -0,0 +1,149 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NearestNeighborsTest {
+
+    /** Tüm noktaları mesafeye göre kararlı sıralayıp ilk k'yı alır; exclude -1 ise hiçbiri hariç değil. */
+    private static int[] bruteForce(double[] lat, double[] lon, double qLat, double qLon, int k, int exclude) {
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < lat.length; i++) {
+            if (i != exclude) all.add(i);
+        }
+        all.sort(Comparator.comparingDouble(i -> GeoGrid.haversine(qLat, qLon, lat[i], lon[i])));
+        int[] out = new int[Math.min(k, all.size())];
+        for (int j = 0; j < out.length; j++) out[j] = all.get(j);
+        return out;
+    }
+
+    /** Kümelenmiş noktalar; bir kısmı başka bir noktayla aynı koordinatta (eşit mesafe). */
+    private static double[][] randomPoints(Random rnd, int n) {
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && rnd.nextInt(6) == 0) {
+                int j = rnd.nextInt(i);
+                lat[i] = lat[j];
+                lon[i] = lon[j];
+            } else if (i > 0 && rnd.nextInt(4) == 0) {
+                int j = rnd.nextInt(i);
+                lat[i] = lat[j] + (rnd.nextDouble() - 0.5) * 0.002;
+                lon[i] = lon[j] + (rnd.nextDouble() - 0.5) * 0.002;
+            } else {
+                lat[i] = 40.70 + rnd.nextDouble() * 0.20;
+                lon[i] = 29.80 + rnd.nextDouble() * 0.35;
+            }
+        }
+        return new double[][]{lat, lon};
+    }
+
+    private static void assertQueryMatches(NearestNeighbors nn, double[] lat, double[] lon, int i, int k) {
+        int[] out = new int[k];
+        double[] outKm = new double[k];
+        int found = nn.query(i, k, out, outKm);
+        int[] expected = bruteForce(lat, lon, lat[i], lon[i], k, i);
+        String msg = "nokta " + i + ", k " + k;
+        assertEquals(expected.length, found, msg);
+        for (int j = 0; j < found; j++) {
+            assertEquals(expected[j], out[j], msg);
+            assertEquals(GeoGrid.haversine(lat[i], lon[i], lat[expected[j]], lon[expected[j]]), outKm[j], msg);
+        }
+    }
+
+    @Test
+    void queryMatchesStableSortOnRandomPoints() {
+        Random rnd = new Random(42);
+        for (int n : new int[]{2, 3, 17, 200, 1_000}) {
+            double[][] p = randomPoints(rnd, n);
+            NearestNeighbors nn = new NearestNeighbors(p[0], p[1]);
+            assertEquals(n, nn.size());
+            for (int q = 0; q < Math.min(n, 150); q++) {
+                int i = rnd.nextInt(n);
+                for (int k : new int[]{1, 3, 12}) assertQueryMatches(nn, p[0], p[1], i, k);
+            }
+        }
+    }
+
+    @Test
+    void tiesKeepInputOrderAndSelfIsExcluded() {
+        // 0, 2, 3 ve 5 aynı noktada; 1 ve 4 ayrı
+        double[] lat = {40.80, 40.85, 40.80, 40.80, 40.75, 40.80};
+        double[] lon = {29.90, 29.95, 29.90, 29.90, 29.85, 29.90};
+        NearestNeighbors nn = new NearestNeighbors(lat, lon);
+
+        int[] out = new int[3];
+        double[] outKm = new double[3];
+        assertEquals(3, nn.query(3, 3, out, outKm));
+        assertArrayEquals(new int[]{0, 2, 5}, out);
+        assertArrayEquals(new double[]{0.0, 0.0, 0.0}, outKm);
+
+        assertEquals(3, nn.query(0, 3, out, outKm));
+        assertArrayEquals(new int[]{2, 3, 5}, out);
+
+        // k = 1: eşit mesafede en küçük index
+        assertEquals(1, nn.query(5, 1, out, outKm));
+        assertEquals(0, out[0]);
+
+        for (int i = 0; i < lat.length; i++) assertQueryMatches(nn, lat, lon, i, 4);
+    }
+
+    @Test
+    void kLargerThanPointCountReturnsAllOthers() {
+        Random rnd = new Random(7);
+        double[][] p = randomPoints(rnd, 40);
+        NearestNeighbors nn = new NearestNeighbors(p[0], p[1]);
+        for (int i = 0; i < 40; i++) {
+            for (int k : new int[]{39, 40, 100}) assertQueryMatches(nn, p[0], p[1], i, k);
+        }
+
+        // tek nokta: kendisi hariç kimse yok
+        NearestNeighbors single = new NearestNeighbors(new double[]{40.8}, new double[]{29.9});
+        assertEquals(0, single.query(0, 5, new int[5], new double[5]));
+
+        // k = 0 ve boş küme
+        assertEquals(0, nn.query(0, 0, new int[0], new double[0]));
+        GeoGrid empty = GeoGrid.build(new double[0], new double[0]);
+        assertEquals(0, empty.nearestK(40.8, 29.9, 3, -1, new int[3], new double[3]));
+    }
+
+    @Test
+    void nearestKMatchesBruteForceForArbitraryQueries() {
+        Random rnd = new Random(11);
+        double[][] p = randomPoints(rnd, 800);
+        double[] lat = p[0];
+        double[] lon = p[1];
+        GeoGrid grid = GeoGrid.build(lat, lon);
+
+        int k = 8;
+        int[] out = new int[k];
+        double[] outDist = new double[k];
+        for (int q = 0; q < 300; q++) {
+            // bir kısmı ızgaranın dışında; bir kısmı bir noktanın üstünde ve o nokta hariç
+            double qLat, qLon;
+            int exclude = -1;
+            if (q % 3 == 0) {
+                exclude = rnd.nextInt(lat.length);
+                qLat = lat[exclude];
+                qLon = lon[exclude];
+            } else {
+                qLat = 40.50 + rnd.nextDouble() * 0.60;
+                qLon = 29.60 + rnd.nextDouble() * 0.75;
+            }
+            int found = grid.nearestK(qLat, qLon, k, exclude, out, outDist);
+            int[] expected = bruteForce(lat, lon, qLat, qLon, k, exclude);
+            assertEquals(expected.length, found, "sorgu " + q);
+            for (int j = 0; j < found; j++) {
+                assertEquals(expected[j], out[j], "sorgu " + q);
+                assertEquals(GeoGrid.haversine(qLat, qLon, lat[out[j]], lon[out[j]]), outDist[j], "sorgu " + q);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PathCodecTest {
+
+    /** static/path-codec.js'teki polyline çözücünün Java karşılığı; 1e6 ölçekli tam sayılar döner. */
+    private static long[] decodePolyline(String s) {
+        long[] out = new long[s.length()];
+        int count = 0;
+        long lat = 0, lon = 0;
+        int i = 0;
+        while (i < s.length()) {
+            for (int axis = 0; axis < 2; axis++) {
+                long result = 0;
+                int shift = 0;
+                int b;
+                do {
+                    b = s.charAt(i++) - 63;
+                    result |= (long) (b & 0x1f) << shift;
+                    shift += 5;
+                } while (b >= 0x20);
+                long delta = (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+                if (axis == 0) out[count++] = lat += delta;
+                else out[count++] = lon += delta;
+            }
+        }
+        return java.util.Arrays.copyOf(out, count);
+    }
+
+    private static long[] decodePacked(long[] deltas) {
+        long[] out = new long[deltas.length];
+        for (int i = 0; i < deltas.length; i++) out[i] = deltas[i] + (i >= 2 ? out[i - 2] : 0);
+        return out;
+    }
+
+    private static long[] scaled(double[] latLon, int pointCount) {
+        long[] out = new long[2 * pointCount];
+        for (int i = 0; i < out.length; i++) out[i] = Math.round(latLon[i] * 1e6);
+        return out;
+    }
+
+    @Test
+    void knownPolylineVector() {
+        // Google'ın 1e5 örneği; koordinatlar 10'a bölününce 1e6 ölçekte aynı tam sayılar çıkar
+        double[] latLon = {3.85, -12.02, 4.07, -12.095, 4.3252, -12.6453};
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", PathCodec.polyline(latLon, 3));
+    }
+
+    @Test
+    void roundTripOnRandomPaths() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int n = rnd.nextInt(50);
+            double[] latLon = new double[2 * n];
+            for (int i = 0; i < n; i++) {
+                // işaretler karışık, ardışık noktalar arası hem küçük hem büyük adımlar
+                latLon[2 * i] = rnd.nextInt(4) == 0 ? -90 + rnd.nextDouble() * 180 : 40.8 + rnd.nextGaussian() * 0.01;
+                latLon[2 * i + 1] = rnd.nextInt(4) == 0 ? -180 + rnd.nextDouble() * 360 : -29.9 + rnd.nextGaussian() * 0.01;
+            }
+            long[] expected = scaled(latLon, n);
+            assertArrayEquals(expected, decodePolyline(PathCodec.polyline(latLon, n)), "tur " + round);
+            assertArrayEquals(expected, decodePacked(PathCodec.packed(latLon, n)), "tur " + round);
+        }
+    }
+
+    @Test
+    void roundingAndNegativeValues() {
+        // Math.round: yarımlar yukarı (negatiflerde sıfıra doğru)
+        double[] latLon = {0.0000005, -0.0000005, -0.0000015, 0.0000014999, -180.0, 180.0, -0.0, 0.0};
+        long[] expected = {1, 0, -1, 1, -180_000_000, 180_000_000, 0, 0};
+        assertArrayEquals(expected, decodePolyline(PathCodec.polyline(latLon, 4)));
+        assertArrayEquals(expected, decodePacked(PathCodec.packed(latLon, 4)));
+
+        // pointCount dizinin sonundaki fazlalığı yok sayar
+        assertArrayEquals(new long[]{1, 0}, decodePacked(PathCodec.packed(latLon, 1)));
+    }
+
+    @Test
+    void emptyPath() {
+        double[] none = new double[0];
+        assertEquals("", PathCodec.polyline(none, 0));
+        assertArrayEquals(new long[0], PathCodec.packed(none, 0));
+        assertEquals(0, PathCodec.coords(none, 0).size());
+        assertEquals("", PathCodec.encode(PathFormat.POLYLINE6, none, 0));
+    }
+
+    @Test
+    void coordsKeepsFullPrecision() {
+        double[] latLon = {40.82224624200172, 29.92156586537241, -1.5, 2.0};
+        List<String> coords = PathCodec.coords(latLon, 2);
+        assertEquals("40.82224624200172,29.92156586537241", coords.get(0));
+        assertEquals("-1.5,2.0", coords.get(1));
+        assertEquals(coords, PathCodec.encode(PathFormat.COORDS, latLon, 2));
+    }
+
+    @Test
+    void formatParamIsLocaleIndependent() {
+        Locale saved = Locale.getDefault();
+        // tr_TR'de "I".toLowerCase() noktasız ı verir
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertEquals("polyline6", PathFormat.POLYLINE6.paramValue());
+            assertEquals("coords", PathFormat.COORDS.paramValue());
+            assertEquals(PathFormat.POLYLINE6, PathFormat.parse(" Polyline6 "));
+            for (PathFormat f : PathFormat.values()) assertEquals(f, PathFormat.parse(f.paramValue()));
+        } finally {
+            Locale.setDefault(saved);
+        }
+        assertEquals(PathFormat.COORDS, PathFormat.parse(null));
+        assertNull(PathFormat.parse("geojson"));
+    }
+}
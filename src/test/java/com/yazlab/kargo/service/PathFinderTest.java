@@ -0,0 +1,75 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathFinderTest {
+
+    /** A* ve çift yönlü arama Dijkstra ile bit bit aynı mesafeyi ve geçerli bir yolu dönmeli. */
+    private static void assertMatchesDijkstra(RoadGraph g, int s, int t) {
+        PathResult expected = PathFinder.dijkstra(g, s, t);
+        for (SearchAlgorithm algorithm : new SearchAlgorithm[]{SearchAlgorithm.ASTAR, SearchAlgorithm.BIDIRECTIONAL}) {
+            PathResult actual = PathFinder.find(algorithm, g, s, t);
+            String label = algorithm + " " + s + " -> " + t;
+            assertEquals(expected.distance, actual.distance, label);
+            assertEquals(expected.isReachable(), actual.isReachable(), label);
+            if (!expected.isReachable()) {
+                assertEquals(0, actual.path.length, label);
+                continue;
+            }
+            assertArrayEquals(expected.path, actual.path, label);
+            // mesafe yol boyunca toplanan kenar ağırlıklarıyla aynı
+            assertEquals(PathFinder.pathDistance(g, actual.path), actual.distance, label);
+        }
+    }
+
+    @Test
+    void astarAndBidirectionalMatchDijkstraOnRandomPairs() {
+        RoadGraph g = RandomRoads.city(25, 17);
+        int n = g.nodeCount();
+        Random rnd = new Random(42);
+
+        long dijkstraSettled = 0, astarSettled = 0;
+        for (int q = 0; q < 400; q++) {
+            int s = rnd.nextInt(n);
+            int t = rnd.nextInt(n);
+            assertMatchesDijkstra(g, s, t);
+            dijkstraSettled += PathFinder.dijkstra(g, s, t).settled;
+            astarSettled += PathFinder.astar(g, s, t).settled;
+        }
+        // tahmin aramayı daraltır
+        assertTrue(astarSettled < dijkstraSettled, astarSettled + " / " + dijkstraSettled);
+    }
+
+    @Test
+    void sameNodeAndUnreachablePairs() {
+        RoadGraph g = RandomRoads.city(10, 3);
+        int n = g.nodeCount();
+
+        for (int v : new int[]{0, 7, n - 1}) {
+            assertMatchesDijkstra(g, v, v);
+            PathResult same = PathFinder.bidirectional(g, v, v);
+            assertArrayEquals(new int[]{v}, same.path);
+            assertEquals(0.0, same.distance);
+            assertArrayEquals(new int[]{v}, PathFinder.astar(g, v, v).path);
+        }
+
+        // ana ağ ile kopuk parça arası, iki yönde
+        for (int v : new int[]{0, 12, n - 3}) {
+            assertMatchesDijkstra(g, v, n - 1);
+            assertMatchesDijkstra(g, n - 2, v);
+            assertFalse(PathFinder.astar(g, v, n - 1).isReachable());
+            assertFalse(PathFinder.bidirectional(g, n - 2, v).isReachable());
+        }
+
+        // kopuk parçanın içinde
+        assertMatchesDijkstra(g, n - 1, n - 2);
+        assertTrue(PathFinder.bidirectional(g, n - 1, n - 2).isReachable());
+    }
+}
@@ -0,0 +1,138 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathSimplifierTest {
+
+    private static final double METERS_PER_DEGREE = 6371000.0 * Math.PI / 180.0;
+
+    /** Rastgele yürüyüş; ardışık noktalar ~10-40 m arayla. */
+    private static double[] randomWalk(Random rnd, int n) {
+        double[] latLon = new double[2 * n];
+        double lat = 40.76 + rnd.nextDouble() * 0.05, lon = 29.90 + rnd.nextDouble() * 0.05;
+        double heading = rnd.nextDouble() * 2 * Math.PI;
+        for (int i = 0; i < n; i++) {
+            latLon[2 * i] = lat;
+            latLon[2 * i + 1] = lon;
+            heading += rnd.nextGaussian() * 0.5;
+            double step = (10 + rnd.nextDouble() * 30) / METERS_PER_DEGREE;
+            lat += step * Math.cos(heading);
+            lon += step * Math.sin(heading) / Math.cos(Math.toRadians(lat));
+        }
+        return latLon;
+    }
+
+    /** p'nin a-b parçasına metre cinsinden uzaklığı; PathSimplifier'dan bağımsız, ilk noktada teğet düzlem. */
+    private static double distanceToSegment(double lat0, double[] p, double[] a, double[] b) {
+        double kx = METERS_PER_DEGREE * Math.cos(Math.toRadians(lat0));
+        double px = p[1] * kx, py = p[0] * METERS_PER_DEGREE;
+        double ax = a[1] * kx, ay = a[0] * METERS_PER_DEGREE;
+        double bx = b[1] * kx, by = b[0] * METERS_PER_DEGREE;
+        double dx = bx - ax, dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / len2));
+        return Math.hypot(ax + t * dx - px, ay + t * dy - py);
+    }
+
+    private static double[] point(double[] latLon, int i) {
+        return new double[]{latLon[2 * i], latLon[2 * i + 1]};
+    }
+
+    @Test
+    void zeroToleranceReturnsInput() {
+        double[] path = randomWalk(new Random(1), 50);
+        assertSame(path, PathSimplifier.simplify(path, 0));
+        assertSame(path, PathSimplifier.simplify(path, -3));
+
+        double[] two = {40.8, 29.9, 40.81, 29.91};
+        assertSame(two, PathSimplifier.simplify(two, 100));
+        double[] empty = new double[0];
+        assertSame(empty, PathSimplifier.simplify(empty, 100));
+    }
+
+    @Test
+    void collinearPointsCollapseToEndpoints() {
+        int n = 20;
+        double[] line = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            line[2 * i] = 40.80 + i * 0.0005;
+            line[2 * i + 1] = 29.90 + i * 0.0003;
+        }
+        assertArrayEquals(new double[]{line[0], line[1], line[2 * n - 2], line[2 * n - 1]},
+                PathSimplifier.simplify(line, 0.5));
+
+        // tekrarlanan noktalar da (uzunluğu sıfır parça) düşer
+        double[] repeated = {40.8, 29.9, 40.8, 29.9, 40.8, 29.9, 40.81, 29.9};
+        assertArrayEquals(new double[]{40.8, 29.9, 40.81, 29.9}, PathSimplifier.simplify(repeated, 1));
+    }
+
+    @Test
+    void keepsCornerBeyondTolerance() {
+        // ~111 m kuzeye, sonra ~84 m doğuya: köşe çizgiye ~65 m uzakta
+        double[] corner = {40.800, 29.900, 40.8005, 29.900, 40.801, 29.900, 40.801, 29.9005, 40.801, 29.901};
+        assertArrayEquals(new double[]{40.800, 29.900, 40.801, 29.900, 40.801, 29.901}, PathSimplifier.simplify(corner, 5));
+        assertArrayEquals(new double[]{40.800, 29.900, 40.801, 29.901}, PathSimplifier.simplify(corner, 100));
+    }
+
+    @Test
+    void randomPathsKeepEndpointsAndStayWithinTolerance() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int n = 3 + rnd.nextInt(300);
+            double[] path = randomWalk(rnd, n);
+            double tol = 1 + rnd.nextDouble() * 50;
+            double[] out = PathSimplifier.simplify(path, tol);
+
+            int m = out.length / 2;
+            assertTrue(m >= 2 && m <= n);
+            assertEquals(path[0], out[0]);
+            assertEquals(path[1], out[1]);
+            assertEquals(path[2 * n - 2], out[2 * m - 2]);
+            assertEquals(path[2 * n - 1], out[2 * m - 1]);
+
+            // kalanlar girdinin sıralı alt dizisi; atılan her nokta kendi aralığının parçasına tol'dan yakın
+            int j = 0;
+            for (int k = 0; k + 1 < m; k++) {
+                while (path[2 * j] != out[2 * k] || path[2 * j + 1] != out[2 * k + 1]) j++;
+                int from = j;
+                int to = from + 1;
+                while (path[2 * to] != out[2 * k + 2] || path[2 * to + 1] != out[2 * k + 3]) to++;
+                for (int i = from + 1; i < to; i++) {
+                    double d = distanceToSegment(path[0], point(path, i), point(out, k), point(out, k + 1));
+                    assertTrue(d <= tol + 1e-6, "tur " + round + ", nokta " + i + ": " + d + " > " + tol);
+                }
+                j = to;
+            }
+        }
+    }
+
+    @Test
+    void toleranceFromZoomOrMeters() {
+        assertEquals(12.5, PathSimplifier.tolerance(12.5, 3, 40.8));
+        assertEquals(0.0, PathSimplifier.tolerance(-4.0, null, 40.8));
+        assertEquals(0.0, PathSimplifier.tolerance(null, null, 40.8));
+        // zoom 0'da ekvatorda piksel başına ~156 km, her zoom yarıya indirir
+        assertEquals(156543.03392, PathSimplifier.toleranceForZoom(0, 0), 1e-6);
+        assertEquals(PathSimplifier.toleranceForZoom(15, 40.8) * 2, PathSimplifier.toleranceForZoom(14, 40.8), 1e-9);
+        assertEquals(PathSimplifier.toleranceForZoom(24, 40.8), PathSimplifier.toleranceForZoom(30, 40.8));
+    }
+
+    @Test
+    void nonFiniteToleranceIsRejected() {
+        for (double bad : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            assertThrows(IllegalArgumentException.class, () -> PathSimplifier.tolerance(bad, null, 40.8));
+            assertThrows(IllegalArgumentException.class, () -> PathSimplifier.tolerance(bad, 14, 40.8));
+        }
+        // doğrudan verilen NaN seyreltmez
+        double[] line = {40.800, 29.900, 40.8005, 29.9001, 40.801, 29.900};
+        assertSame(line, PathSimplifier.simplify(line, Double.NaN));
+    }
+}
@@ -0,0 +1,41 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlanningJobServiceTest {
+
+    @Test
+    void errorsFinishTheJobAsFailed() throws InterruptedException {
+        PlanningJobService service = new PlanningJobService();
+        service.init();
+        try {
+            PlanningJob failed = service.submit(job -> {
+                throw new StackOverflowError("derin özyineleme");
+            });
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+            assertEquals(PlanningJob.State.FAILED, failed.getState());
+            assertTrue(failed.getError().contains("StackOverflowError"));
+
+            PlanningJob runtime = service.submit(job -> {
+                throw new IllegalStateException("araç yok");
+            });
+            assertTrue(runtime.await(5, TimeUnit.SECONDS));
+            assertEquals(PlanningJob.State.FAILED, runtime.getState());
+            assertEquals("araç yok", runtime.getError());
+
+            // havuz ölen thread'in yerine yenisini açar, sonraki iş çalışır
+            PlanningJob next = service.submit(job -> Map.of("ok", true));
+            assertTrue(next.await(5, TimeUnit.SECONDS));
+            assertEquals(PlanningJob.State.DONE, next.getState());
+            assertEquals(Map.of("ok", true), next.getResult());
+        } finally {
+            service.shutdown();
+        }
+    }
+}
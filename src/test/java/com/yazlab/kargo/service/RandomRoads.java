@@ -0,0 +1,79 @@
+package com.yazlab.kargo.service;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+
+/** Testler için rastgele yol ağları: bozulmuş ızgara sokaklar, ara şekil noktaları ve kopuk parçalar. */
+final class RandomRoads {
+
+    private RandomRoads() { }
+
+    /**
+     * side x side kavşak; sokakların ~%10'u eksik, her sokakta 0-2 ara nokta (derece-2 zincirler).
+     * Sona ana ağa bağlı olmayan iki node'luk bir parça eklenir.
+     */
+    static RoadGraph city(int side, long seed) {
+        return cityBuilder(side, seed).build();
+    }
+
+    /** city() ile aynı ağ, üzerine test kendi parçalarını ekleyebilsin diye build edilmeden. */
+    static RoadGraphBuilder cityBuilder(int side, long seed) {
+        Random rnd = new Random(seed);
+        RoadGraphBuilder b = new RoadGraphBuilder();
+        int[][] id = new int[side][side];
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                id[i][j] = b.addNode(40.70 + i * 0.002 + rnd.nextGaussian() * 0.0002,
+                        29.80 + j * 0.0026 + rnd.nextGaussian() * 0.0002);
+            }
+        }
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                if (j + 1 < side && rnd.nextInt(10) > 0) street(b, rnd, id[i][j], id[i][j + 1]);
+                if (i + 1 < side && rnd.nextInt(10) > 0) street(b, rnd, id[i][j], id[i + 1][j]);
+            }
+        }
+        int a = b.addNode(40.50, 29.50);
+        int c = b.addNode(40.501, 29.501);
+        road(b, a, c);
+        return b;
+    }
+
+    /**
+     * g üzerinde, yükleyicinin varsayılan ayarlarıyla (zincir grafı var, CH/ALT yok) kurulmuş bir ağ.
+     * Her çağrı kendi mesafe önbelleğini alır.
+     */
+    static RoadNetwork network(RoadGraph g, long version) {
+        return new RoadNetwork(version, "test", version, g, GeoGrid.build(g.lat, g.lon), RoadComponents.label(g),
+                null, null, ChainGraph.build(g), null, null, new DistanceCache(100_000));
+    }
+
+    /** Dosya yüklemeden, verilen ağı sunan RouteService. */
+    static RouteService routeService(RoadNetwork net) {
+        RouteService rs = new RouteService();
+        ReflectionTestUtils.setField(rs, "network", net);
+        return rs;
+    }
+
+    /** u ile v arasına 0-2 ara noktalı bir sokak ekler. */
+    static void street(RoadGraphBuilder b, Random rnd, int u, int v) {
+        int shapes = rnd.nextInt(3);
+        int prev = u;
+        for (int k = 1; k <= shapes; k++) {
+            double t = k / (shapes + 1.0);
+            int m = b.addNode(b.lat(u) + (b.lat(v) - b.lat(u)) * t + rnd.nextGaussian() * 0.00003,
+                    b.lon(u) + (b.lon(v) - b.lon(u)) * t + rnd.nextGaussian() * 0.00003);
+            road(b, prev, m);
+            prev = m;
+        }
+        road(b, prev, v);
+    }
+
+    /** İki yönlü kenar; ağırlık haversine km (yükleyici gibi). */
+    static void road(RoadGraphBuilder b, int u, int v) {
+        double d = GeoGrid.haversine(b.lat(u), b.lon(u), b.lat(v), b.lon(v));
+        b.addEdge(u, v, d);
+        b.addEdge(v, u, d);
+    }
+}
@@ -0,0 +1,122 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoadGraphSnapshotTest {
+
+    private static final long IMPORT_KEY = 0x1234_5678_9ABCL;
+
+    @TempDir
+    Path dir;
+
+    private File source;
+    private File file;
+    private RoadGraph graph;
+    private GeoGrid grid;
+
+    private void writeSnapshot() throws IOException {
+        source = dir.resolve("roads.geojson").toFile();
+        Files.writeString(source.toPath(), "{\"type\":\"FeatureCollection\",\"features\":[]}");
+        file = dir.resolve("roads.bin").toFile();
+        graph = RandomRoads.city(12, 9);
+        grid = GeoGrid.build(graph.lat, graph.lon);
+        new RoadGraphSnapshot(graph, grid).write(file, source, IMPORT_KEY);
+    }
+
+    /** Dosyanın verilen konumuna little endian int yazar. */
+    private static void patchInt(File f, long pos, int value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(pos);
+            raf.writeInt(Integer.reverseBytes(value));
+        }
+    }
+
+    @Test
+    void roundTripKeepsGraphAndGrid() throws IOException {
+        writeSnapshot();
+        RoadGraphSnapshot read = RoadGraphSnapshot.read(file, source, IMPORT_KEY);
+        assertNotNull(read);
+
+        RoadGraph g = read.graph;
+        assertArrayEquals(graph.lat, g.lat);
+        assertArrayEquals(graph.lon, g.lon);
+        assertArrayEquals(graph.offsets, g.offsets);
+        assertArrayEquals(graph.targets, g.targets);
+        assertArrayEquals(graph.weights, g.weights);
+
+        GeoGrid gr = read.grid;
+        assertEquals(grid.rows, gr.rows);
+        assertEquals(grid.cols, gr.cols);
+        assertEquals(grid.minLat, gr.minLat);
+        assertEquals(grid.maxLon, gr.maxLon);
+        assertArrayEquals(grid.cellStart, gr.cellStart);
+        assertArrayEquals(grid.cellItems, gr.cellItems);
+        for (int v = 0; v < g.nodeCount(); v += 7) assertEquals(grid.nearest(g.lat[v], g.lon[v]), gr.nearest(g.lat[v], g.lon[v]));
+        assertEquals(PathFinder.dijkstra(graph, 0, 100).distance, PathFinder.dijkstra(g, 0, 100).distance);
+    }
+
+    @Test
+    void rejectsChangedSource() throws IOException {
+        writeSnapshot();
+        // boy değişti
+        Files.writeString(source.toPath(), "{\"type\":\"FeatureCollection\",\"features\":[ ]}");
+        assertNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY));
+
+        writeSnapshot();
+        // yalnız değişme zamanı değişti
+        assertTrue(source.setLastModified(source.lastModified() - 60_000));
+        assertNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY));
+    }
+
+    @Test
+    void rejectsDifferentImportFingerprint() throws IOException {
+        writeSnapshot();
+        assertNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY + 1));
+        assertNotNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY));
+    }
+
+    @Test
+    void rejectsWrongCountsAndVersion() throws IOException {
+        writeSnapshot();
+        // başlık: magic(0) version(4) boy(8) zaman(16) filtre(24) n(32) m(36)
+        patchInt(file, 32, graph.nodeCount() + 1);
+        assertNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY));
+
+        writeSnapshot();
+        patchInt(file, 36, graph.edgeCount() - 2);
+        assertNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY));
+
+        writeSnapshot();
+        patchInt(file, 4, 1);
+        assertNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY));
+    }
+
+    @Test
+    void rejectsTruncatedAndMissingFiles() throws IOException {
+        writeSnapshot();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+        assertNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(40);
+        }
+        assertNull(RoadGraphSnapshot.read(file, source, IMPORT_KEY));
+
+        assertNull(RoadGraphSnapshot.read(dir.resolve("yok.bin").toFile(), source, IMPORT_KEY));
+    }
+}
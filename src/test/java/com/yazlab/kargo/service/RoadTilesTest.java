@@ -0,0 +1,80 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoadTilesTest {
+
+    private static final String EMPTY = "{\"type\":\"FeatureCollection\",\"features\":[]}";
+
+    private static int tileX(double lon, int z) {
+        return (int) Math.floor((lon + 180.0) / 360.0 * (1 << z));
+    }
+
+    private static int tileY(double lat, int z) {
+        double r = Math.toRadians(lat);
+        return (int) Math.floor((1 - Math.log(Math.tan(r) + 1 / Math.cos(r)) / Math.PI) / 2 * (1 << z));
+    }
+
+    /** GeoJSON'daki [lon,lat] yazımı. */
+    private static String point(double lat, double lon) {
+        return String.format(Locale.ROOT, "[%.6f,%.6f]", lon, lat);
+    }
+
+    @Test
+    void longDiagonalEdgeIsInEveryTileItCrosses() {
+        RoadGraphBuilder b = RandomRoads.cityBuilder(6, 1);
+        double lat0 = 40.72, lon0 = 29.82, lat1 = 40.78, lon1 = 29.93;
+        int u = b.addNode(lat0, lon0);
+        int v = b.addNode(lat1, lon1);
+        RandomRoads.road(b, u, v);
+        RoadTiles tiles = RoadTiles.build(RandomRoads.network(b.build(), 1));
+
+        int z = 14;
+        // doğru boyunca sık örnekle geçtiği karolar
+        Set<Long> crossed = new HashSet<>();
+        for (int i = 0; i <= 10_000; i++) {
+            double t = i / 10_000.0;
+            crossed.add((long) tileX(lon0 + t * (lon1 - lon0), z) << 32 | tileY(lat0 + t * (lat1 - lat0), z));
+        }
+        assertTrue(crossed.size() >= 6, "karo sayısı " + crossed.size());
+
+        for (long tile : crossed) {
+            int x = (int) (tile >>> 32), y = (int) tile;
+            String json = tiles.geoJson(z, x, y);
+            // kenar kırpılmadan, iki ucuyla
+            assertTrue(json.contains(point(lat0, lon0)), z + "/" + x + "/" + y);
+            assertTrue(json.contains(point(lat1, lon1)), z + "/" + x + "/" + y);
+        }
+
+        // sınır kutusunun dışındaki karo boş
+        int outsideX = tileX(lon1, z) + 1;
+        int outsideY = tileY(lat1, z) - 1;
+        assertEquals(EMPTY, tiles.geoJson(z, outsideX, outsideY));
+    }
+
+    @Test
+    void everyEdgeIsInTheTilesOfBothEndpoints() {
+        RoadGraph g = RandomRoads.city(12, 8);
+        RoadTiles tiles = RoadTiles.build(RandomRoads.network(g, 1));
+        int z = 16;
+        for (int u = 0; u < g.nodeCount(); u += 7) {
+            for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                int v = g.targets[e];
+                for (int w : new int[]{u, v}) {
+                    String json = tiles.geoJson(z, tileX(g.lon[w], z), tileY(g.lat[w], z));
+                    assertFalse(json.equals(EMPTY), "node " + w);
+                    // node'un bütün kenarları onun karosunda; derecesi 2 olmayan node çizgi ucudur, seyreltmede kalır
+                    if (g.offsets[w + 1] - g.offsets[w] != 2) assertTrue(json.contains(point(g.lat[w], g.lon[w])), "node " + w);
+                }
+            }
+        }
+    }
+}
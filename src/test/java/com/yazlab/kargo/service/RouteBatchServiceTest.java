@@ -0,0 +1,287 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteBatchServiceTest {
+
+    private static final double EPS = 1e-9;
+
+    private static RouteBatchService batchService(RouteService routeService) {
+        RouteBatchService service = new RouteBatchService();
+        ReflectionTestUtils.setField(service, "routeService", routeService);
+        // tek çekirdekte de gruplar havuzda paralel çalışsın
+        ReflectionTestUtils.setField(service, "parallelism", 3);
+        service.init();
+        return service;
+    }
+
+    /** Node'ların yakınında noktalar; bir kısmı önceki bir noktanın birebir aynısı, ikisi kopuk parçanın yanında. */
+    private static double[][] randomPoints(RoadGraph g, Random rnd, int count) {
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+        int n = g.nodeCount();
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && rnd.nextInt(6) == 0) {
+                int j = rnd.nextInt(i);
+                lat[i] = lat[j];
+                lon[i] = lon[j];
+                continue;
+            }
+            int node = i < 2 ? n - 1 - i : rnd.nextInt(n - 2);
+            lat[i] = g.lat[node] + (rnd.nextDouble() - 0.5) * 0.0004;
+            lon[i] = g.lon[node] + (rnd.nextDouble() - 0.5) * 0.0004;
+        }
+        return new double[][]{lat, lon};
+    }
+
+    private static double[] coordinates(RoadGraph g, int[] path) {
+        double[] c = new double[2 * path.length];
+        for (int i = 0; i < path.length; i++) {
+            c[2 * i] = g.lat[path[i]];
+            c[2 * i + 1] = g.lon[path[i]];
+        }
+        return c;
+    }
+
+    /**
+     * Çift tek tek getRealRoadDistance kurallarıyla: snap yok ya da farklı bileşen -> kuş uçuşu ve boş yol,
+     * aynı node -> 0 ve tek nokta, diğerleri Dijkstra.
+     */
+    private static void assertPairMatches(RouteBatch batch, int pair, RoadNetwork net, int s, int t,
+                                          double fromLat, double fromLon, double toLat, double toLon) {
+        RoadGraph g = net.graph;
+        String msg = "çift " + pair + ": " + s + " -> " + t;
+        double[] expectedPath;
+        if (s < 0 || t < 0 || !net.components.connected(s, t)) {
+            assertEquals(GeoGrid.haversine(fromLat, fromLon, toLat, toLon), batch.getDistanceKm(pair), msg);
+            expectedPath = new double[0];
+        } else if (s == t) {
+            assertEquals(0.0, batch.getDistanceKm(pair), msg);
+            expectedPath = coordinates(g, new int[]{s});
+        } else {
+            PathResult expected = PathFinder.dijkstra(g, s, t);
+            assertEquals(expected.distance, batch.getDistanceKm(pair), EPS, msg);
+            expectedPath = coordinates(g, expected.path);
+        }
+        if (batch.hasGeometry()) {
+            assertEquals(PathCodec.coords(expectedPath, expectedPath.length / 2), batch.encodePath(pair, PathFormat.COORDS), msg);
+        }
+    }
+
+    private static long crossComponentPairs(RouteService routeService) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> components = (Map<String, Object>) routeService.getSearchStats().get("components");
+        return (Long) components.get("crossComponentPairs");
+    }
+
+    @Test
+    void routeMatchesDijkstraOnRandomPairs() {
+        RoadGraph g = RandomRoads.city(15, 21);
+        RoadNetwork net = RandomRoads.network(g, 1);
+        RouteService routeService = RandomRoads.routeService(net);
+        RouteBatchService service = batchService(routeService);
+        try {
+            Random rnd = new Random(42);
+            double[][] points = randomPoints(g, rnd, 40);
+            int pairs = 600;
+            double[] fromLat = new double[pairs], fromLon = new double[pairs];
+            double[] toLat = new double[pairs], toLon = new double[pairs];
+            int[] from = new int[pairs], to = new int[pairs];
+            int crossing = 0;
+            for (int i = 0; i < pairs; i++) {
+                int a = rnd.nextInt(40);
+                int b = rnd.nextInt(10) == 0 ? a : rnd.nextInt(40);
+                fromLat[i] = points[0][a];
+                fromLon[i] = points[1][a];
+                toLat[i] = points[0][b];
+                toLon[i] = points[1][b];
+                from[i] = routeService.findNearestNode(net, fromLat[i], fromLon[i]);
+                to[i] = routeService.findNearestNode(net, toLat[i], toLon[i]);
+                if (!net.components.connected(from[i], to[i])) crossing++;
+            }
+            assertTrue(crossing > 0);
+
+            long crossBefore = crossComponentPairs(routeService);
+            RouteBatch withPaths = service.route(fromLat, fromLon, toLat, toLon, true);
+            assertEquals(pairs, withPaths.size());
+            assertTrue(withPaths.hasGeometry());
+            assertEquals(1L, withPaths.getNetworkVersion());
+            assertTrue(withPaths.getUniquePoints() <= 40);
+            assertEquals(crossBefore + crossing, crossComponentPairs(routeService));
+            for (int i = 0; i < pairs; i++) {
+                assertPairMatches(withPaths, i, net, from[i], to[i], fromLat[i], fromLon[i], toLat[i], toLon[i]);
+            }
+            // kökler tekilleştiği için arama sayısı çift sayısından çok daha az
+            assertTrue(withPaths.getSearches() <= 40, "arama " + withPaths.getSearches());
+
+            // geometri yolu önbelleğe yazar ama okumaz; geometrisiz istek tamamen önbellekten.
+            // iki yönden aranan çiftte son yazılan kalır, toplama sırası farkı son bitte olabilir
+            for (int i = 0; i < pairs; i++) {
+                if (from[i] != to[i] && net.components.connected(from[i], to[i])) {
+                    assertEquals(withPaths.getDistanceKm(i), net.distanceCache.get(from[i], to[i]), EPS, "çift " + i);
+                }
+            }
+            RouteBatch cached = service.route(fromLat, fromLon, toLat, toLon, false);
+            assertFalse(cached.hasGeometry());
+            assertEquals(0, cached.getSearches());
+            for (int i = 0; i < pairs; i++) assertEquals(withPaths.getDistanceKm(i), cached.getDistanceKm(i), EPS, "çift " + i);
+            assertTrue(service.route(fromLat, fromLon, toLat, toLon, true).getSearches() > 0);
+
+            // boş önbellekle geometrisiz
+            RoadNetwork fresh = RandomRoads.network(g, 2);
+            ReflectionTestUtils.setField(routeService, "network", fresh);
+            RouteBatch distancesOnly = service.route(fromLat, fromLon, toLat, toLon, false);
+            assertTrue(distancesOnly.getSearches() > 0);
+            assertEquals(2L, distancesOnly.getNetworkVersion());
+            for (int i = 0; i < pairs; i++) {
+                assertPairMatches(distancesOnly, i, fresh, from[i], to[i], fromLat[i], fromLon[i], toLat[i], toLon[i]);
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void routeMatrixMatchesPairwiseRoutes() {
+        RoadGraph g = RandomRoads.city(12, 5);
+        RoadNetwork net = RandomRoads.network(g, 1);
+        RouteService routeService = RandomRoads.routeService(net);
+        RouteBatchService service = batchService(routeService);
+        try {
+            Random rnd = new Random(42);
+            double[][] src = randomPoints(g, rnd, 9);
+            double[][] dst = randomPoints(g, rnd, 13);
+            RouteBatch m = service.routeMatrix(src[0], src[1], dst[0], dst[1], true);
+            assertEquals(9 * 13, m.size());
+            for (int i = 0; i < 9; i++) {
+                int s = routeService.findNearestNode(net, src[0][i], src[1][i]);
+                for (int j = 0; j < 13; j++) {
+                    int t = routeService.findNearestNode(net, dst[0][j], dst[1][j]);
+                    assertPairMatches(m, i * 13 + j, net, s, t, src[0][i], src[1][i], dst[0][j], dst[1][j]);
+                }
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void pairsAreGroupedUnderTheMoreUsedEndpoint() {
+        RoadGraph g = RandomRoads.city(10, 9);
+        RoadNetwork net = RandomRoads.network(g, 1);
+        RouteService routeService = RandomRoads.routeService(net);
+        RouteBatchService service = batchService(routeService);
+        try {
+            // a 6 çiftte, b ve c 3'er, d ve e 1'er: b -> c dışındaki çiftler a'dan aranır, bir kısmı ters yönde.
+            // a -> b iki kez, c a'ya iki yönde gelir (aynı hedef tek sefer); b -> c eşitlikte başlangıcından
+            int a = 0, b = 27, c = 55, d = 73, e = 91;
+            int[] from = {a, c, a, d, a, b, e};
+            int[] to = {b, a, c, a, b, c, a};
+            double[] fromLat = new double[from.length], fromLon = new double[from.length];
+            double[] toLat = new double[from.length], toLon = new double[from.length];
+            for (int i = 0; i < from.length; i++) {
+                fromLat[i] = g.lat[from[i]];
+                fromLon[i] = g.lon[from[i]];
+                toLat[i] = g.lat[to[i]];
+                toLon[i] = g.lon[to[i]];
+            }
+
+            RouteBatch batch = service.route(fromLat, fromLon, toLat, toLon, true);
+            assertEquals(2, batch.getSearches());
+            assertEquals(5, batch.getUniquePoints());
+            assertEquals(5, batch.getUniqueNodes());
+            for (int i = 0; i < from.length; i++) {
+                assertPairMatches(batch, i, net, from[i], to[i], fromLat[i], fromLon[i], toLat[i], toLon[i]);
+            }
+            // ters çevrilen yol isteğin başlangıcından başlar
+            List<?> reversed = (List<?>) batch.encodePath(1, PathFormat.COORDS);
+            assertEquals(g.lat[c] + "," + g.lon[c], reversed.get(0));
+            assertEquals(g.lat[a] + "," + g.lon[a], reversed.get(reversed.size() - 1));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void samePointAndUnsnappablePairs() {
+        RoadGraph g = RandomRoads.city(8, 4);
+        RoadNetwork net = RandomRoads.network(g, 1);
+        RouteBatchService service = batchService(RandomRoads.routeService(net));
+        try {
+            // aynı nokta; aynı node'a düşen iki ayrı nokta
+            double[] fromLat = {g.lat[3], g.lat[3] + 0.00001};
+            double[] fromLon = {g.lon[3], g.lon[3]};
+            double[] toLat = {g.lat[3], g.lat[3] - 0.00001};
+            double[] toLon = {g.lon[3], g.lon[3]};
+            RouteBatch batch = service.route(fromLat, fromLon, toLat, toLon, true);
+            assertEquals(0, batch.getSearches());
+            for (int i = 0; i < 2; i++) {
+                assertEquals(0.0, batch.getDistanceKm(i));
+                assertEquals(List.of(g.lat[3] + "," + g.lon[3]), batch.encodePath(i, PathFormat.COORDS));
+            }
+            assertEquals(3, batch.getUniquePoints());
+            assertEquals(1, batch.getUniqueNodes());
+
+            RouteBatch none = service.route(new double[0], new double[0], new double[0], new double[0], false);
+            assertEquals(0, none.size());
+            assertEquals(0, none.getSearches());
+        } finally {
+            service.shutdown();
+        }
+
+        // node'suz ağ: hiçbir nokta snap edilemez
+        RoadGraph empty = new RoadGraphBuilder().build();
+        service = batchService(RandomRoads.routeService(RandomRoads.network(empty, 1)));
+        try {
+            double[] fromLat = {40.80, 40.81}, fromLon = {29.90, 29.91};
+            double[] toLat = {40.82, 40.81}, toLon = {29.95, 29.91};
+            RouteBatch batch = service.route(fromLat, fromLon, toLat, toLon, true);
+            for (int i = 0; i < 2; i++) {
+                assertEquals(GeoGrid.haversine(fromLat[i], fromLon[i], toLat[i], toLon[i]), batch.getDistanceKm(i));
+                assertEquals(List.of(), batch.encodePath(i, PathFormat.COORDS));
+            }
+            assertEquals(0, batch.getUniqueNodes());
+            assertFalse(service.route(fromLat, fromLon, toLat, toLon, false).hasGeometry());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void pointsSharingACoordinateKeyAreSnappedSeparately() {
+        // p ve q 1e-6 dereceye yuvarlanınca aynı anahtar, ama farklı node'ların tam üstünde
+        RoadGraphBuilder b = RandomRoads.cityBuilder(8, 6);
+        double pLat = 40.7050000001, pLon = 29.8100000001;
+        double qLat = 40.7050000049, qLon = 29.8100000049;
+        assertEquals(CoordinateKey.pack(pLat, pLon), CoordinateKey.pack(qLat, qLon));
+        int p = b.addNode(pLat, pLon);
+        int q = b.addNode(qLat, qLon);
+        RandomRoads.road(b, 10, p);
+        RandomRoads.road(b, p, q);
+        RandomRoads.road(b, q, 20);
+        RoadGraph g = b.build();
+        RoadNetwork net = RandomRoads.network(g, 1);
+        RouteBatchService service = batchService(RandomRoads.routeService(net));
+        try {
+            double[] fromLat = {pLat, qLat, pLat}, fromLon = {pLon, qLon, pLon};
+            double[] toLat = {g.lat[30], g.lat[30], qLat}, toLon = {g.lon[30], g.lon[30], qLon};
+            RouteBatch batch = service.route(fromLat, fromLon, toLat, toLon, true);
+            assertPairMatches(batch, 0, net, p, 30, fromLat[0], fromLon[0], toLat[0], toLon[0]);
+            assertPairMatches(batch, 1, net, q, 30, fromLat[1], fromLon[1], toLat[1], toLon[1]);
+            assertPairMatches(batch, 2, net, p, q, fromLat[2], fromLon[2], toLat[2], toLon[2]);
+            assertTrue(batch.getDistanceKm(0) != batch.getDistanceKm(1));
+            assertTrue(batch.getDistanceKm(2) > 0);
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.yazlab.kargo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchWorkspaceTest {
+
+    private static final int MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+    @Test
+    void releasedWorkspaceIsReused() {
+        SearchWorkspace.discardPooled();
+        SearchWorkspace a = SearchWorkspace.acquire(100);
+        a.start(5, 1.5);
+        SearchWorkspace.release(a);
+
+        SearchWorkspace b = SearchWorkspace.acquire(100);
+        assertSame(a, b);
+        // yeniden alınan alan temiz başlar
+        assertEquals(Double.MAX_VALUE, b.dist(5));
+        assertTrue(b.isEmpty());
+        SearchWorkspace.release(b);
+    }
+
+    @Test
+    void idleWorkspacesAreCapped() {
+        SearchWorkspace.discardPooled();
+        List<SearchWorkspace> held = new ArrayList<>();
+        for (int i = 0; i < MAX_IDLE + 20; i++) held.add(SearchWorkspace.acquire(1_000));
+        assertEquals(0, SearchWorkspace.idleCount());
+        for (SearchWorkspace ws : held) SearchWorkspace.release(ws);
+        assertEquals(MAX_IDLE, SearchWorkspace.idleCount());
+    }
+
+    @Test
+    void workspacesFromBeforeDiscardAreDropped() {
+        SearchWorkspace.discardPooled();
+        SearchWorkspace inUse = SearchWorkspace.acquire(50);
+        SearchWorkspace idle = SearchWorkspace.acquire(50);
+        SearchWorkspace.release(idle);
+        assertEquals(1, SearchWorkspace.idleCount());
+
+        // ağ değişti: bekleyen bırakılır, kullanımdaki geri verildiğinde havuza girmez
+        SearchWorkspace.discardPooled();
+        assertEquals(0, SearchWorkspace.idleCount());
+        SearchWorkspace.release(inUse);
+        assertEquals(0, SearchWorkspace.idleCount());
+
+        SearchWorkspace fresh = SearchWorkspace.acquire(50);
+        assertNotSame(inUse, fresh);
+        assertNotSame(idle, fresh);
+        SearchWorkspace.release(fresh);
+    }
+
+    @Test
+    void concurrentSearchesMatchSequentialOnes() throws Exception {
+        RoadGraph g = RandomRoads.city(15, 4);
+        int n = g.nodeCount();
+        int queries = 400;
+        double[] expected = new double[queries];
+        for (int q = 0; q < queries; q++) expected[q] = PathFinder.dijkstra(g, (q * 31) % n, (q * 17 + 5) % n).distance;
+
+        // havuz sınırından çok thread: fazlası geçici alan kullanır
+        ExecutorService pool = Executors.newFixedThreadPool(MAX_IDLE + 8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < MAX_IDLE + 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int q = 0; q < queries; q++) {
+                    int s = (q * 31) % n, e = (q * 17 + 5) % n;
+                    assertEquals(expected[q], PathFinder.dijkstra(g, s, e).distance);
+                    assertEquals(expected[q], PathFinder.bidirectional(g, s, e).distance, 1e-9);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        assertTrue(SearchWorkspace.idleCount() <= MAX_IDLE);
+    }
+}